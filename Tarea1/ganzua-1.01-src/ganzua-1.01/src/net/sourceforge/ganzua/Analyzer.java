@@ -36,7 +36,6 @@ import java.util.*;
 import java.util.prefs.*;
 import java.text.*;
 import java.io.*;
-import java.net.URL;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeEvent;
 import net.sourceforge.ganzua.text.*;
@@ -44,8 +43,6 @@ import net.sourceforge.ganzua.component.*;
 import net.sourceforge.ganzua.event.*;
 //XML
 import org.xml.sax.*;
-import javax.xml.parsers.SAXParserFactory;
-import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.ParserConfigurationException;
 import net.sourceforge.ganzua.handler.*;
 
@@ -199,6 +196,19 @@ public class Analyzer extends JPanel
      * frequencies. */
     private LanguageFrequenciesHandler freqsH_tmp = null;
 
+    /**
+     * The instance of <code>LanguageFrequencies.xsd</code>
+     * <code>freqsH</code> was read from, <code>null</code> if it was read
+     * from a cryptanalysis project or there are no language frequencies. */
+    private File freqsFile = null;
+
+    /**
+     * Used to suggest the language frequencies of every ciphertext opened.
+     * It is created the first time a ciphertext is opened; do <u>not</u>
+     * use this variable directly, use the <code>getLangIdentifier()</code>
+     * method. */
+    private LanguageIdentifier langIdentifier = null;
+
     /**
      * <code>CryptanalysisHandler</code> used to parse instances of
      * <code>Cryptanalysis.xsd</code> */
@@ -229,50 +239,6 @@ public class Analyzer extends JPanel
 					       Locale.getDefault());
     }
 
-    /**
-     * Set of configuration properties. <code>null</code> if a
-     * configuration properties file is not provided. The configuration
-     * properties tell the program the directory it is installed in, the
-     * directory where the schemata can be found and where the language
-     * frequencies files are stored. */
-    private static final Properties configProp;
-
-    /* Initialize <code>configProp</code>. If the configuration properties file
-     * exists, set <code>configProp</code> to a new <code>Properties</code>
-     * with the file contents, otherwise, set it to <code>null</code>. */
-    static{
-	Properties configProperties = null;
-	URL conf =Analyzer.class.getResource(AnalyzerConstants.CONFIG_FILE);
-	if(conf != null){
-	    try{
-		InputStream is = conf.openStream();
-		configProperties= new Properties();
-		configProperties.load(is);
-		is.close();
-	    }catch(IOException ioe){}
-	}
-        configProp = configProperties;
-    }
-
-    /**
-     * Used to store the directory the program is installed in. The path is
-     * needed to find the directory where the schemata and language frequencies
-     * are if a configuration properties file is not found. Do <u>not</u> use
-     * this variable directly, use the <code>findRootDir()</code> method. */
-    private File rootDir = null;
-
-    /**
-     * Used to store the directory the schemata can be found in.
-     * Do <u>not</u> use this variable directly, use the 
-     * <code>findSchemataDir()</code> method.*/
-    private File schemataDir = null;
-
-    /**
-     * Used to store the directory the language frequencies can be found in.
-     * Do <u>not</u> use this variable directly, use the 
-     * <code>findLangFreqDir()</code> method.*/
-    private File langFreqDir = null;
-
     public Analyzer(){
 	super();
 	setLayout(new BorderLayout());
@@ -312,7 +278,7 @@ public class Analyzer extends JPanel
 	JPanel mainPanel = new JPanel(new BorderLayout());
 	JPanel centerPanel = new JPanel(new BorderLayout());
 	JPanel eastPanel = new JPanel(new BorderLayout());
-	cipherPanel = new CiphertextPanel();
+	cipherPanel = new CiphertextPanel(cipherManager.getPlaintextModel());
 	centerPanel.add(cipherPanel, BorderLayout.CENTER);
 	substitution = new Substitution(locale, collator,
 					cipherManager.getCipherAlphabet(),
@@ -343,8 +309,7 @@ public class Analyzer extends JPanel
 	//add ChangeListener to cipherManager
 	cipherManager.addChangeListener(new ChangeListener(){
 		public void stateChanged(ChangeEvent e){
-		    cipherPanel.setText(cipherManager.getCiphertext(),
-					cipherManager.getPlaintext(substitution.getSubstitution()));
+		    cipherPanel.setKey(substitution.getSubstitution());
 		}
 	    });
 	//add tabbedPanel to the Analyzer
@@ -387,8 +352,7 @@ public class Analyzer extends JPanel
 		    case SubstitutionEvent.CHARACTER_ADDED_TO_PLAIN_ALPHABET:
 			updateNumberOfAlphabetsEstimate();
 		    }
-		    cipherPanel.setText(cipherManager.getCiphertext(),
-					cipherManager.getPlaintext(substitution.getSubstitution()));
+		    cipherPanel.setKey(substitution.getSubstitution());
 		}
 	    };
 	return substCL;
@@ -1017,7 +981,7 @@ public class Analyzer extends JPanel
 	}else if(actnCmnd.equals("SAVE_PLAINTEXT")){
 	    cipherChooser.setDialogTitle(labelsRB.getString("cipherChooserSavPT"));
 	    cipherChooser.setSelectedFile(new File(labelsRB.getString("plainSavFN")));
-	    saveText(cipherManager.getPlaintext(substitution.getSubstitution()));
+	    saveText(cipherPanel.getPlaintext());
 	}else if(actnCmnd.equals("SAVE")){
 	    saveProject();
 	}else if(actnCmnd.equals("SAVE_AS")){
@@ -1069,7 +1033,7 @@ public class Analyzer extends JPanel
 	}else if(actnCmnd.equals("REMOVE_FROM_CIPHER_ALPHABET")){
 	    remFromCipherAlphaFrame.setVisible(true);
 	}else if(actnCmnd.equals("SET_PLAINTEXT_AS_CIPHERTEXT")){
-	    setCiphertext(cipherManager.getPlaintext(substitution.getSubstitution()), true);
+	    setCiphertext(cipherPanel.getPlaintext(), true);
 	}else if(actnCmnd.equals("GROUP_CIPHERTEXT_CHARACTERS")){
 	    int blkSize = substitution.getNumberOfAlphabets();
 	    blkSize = blkSize == 1 ? 5 : blkSize;
@@ -1161,13 +1125,13 @@ public class Analyzer extends JPanel
 			savedProject = null;
 			unsavedChanges = false;
 			setProjectNameOnFrameTitle(savedProject);
+			identifyLanguage();
 		    }
 		}
 	    };
-	LoadWorker worker = new LoadWorker(loadTextFile,
-					   loadNewCiphertext,
-					   this);
-	worker.start();
+	TaskExecutor.getShared().execute(new Task(loadTextFile,
+						  loadNewCiphertext),
+					 this);
     }
 
     /**
@@ -1293,7 +1257,7 @@ public class Analyzer extends JPanel
 		out.write("\"\n               xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n               xsi:schemaLocation=\"");
 		out.write(CryptanalysisHandler.NAMESPACE);
 		out.write("\n                                   ");
-		out.write((new File(findSchemataDir().getCanonicalPath(),
+		out.write((new File(AnalyzerConfiguration.findSchemataDir().getCanonicalPath(),
 				    AnalyzerConstants.CRYPTANALYSIS_SCHEMA_FILE)).toURI().toString());
 		out.write("\"\n               cipher=\"");
 		out.write(toolsPane.getCipher());
@@ -1557,11 +1521,13 @@ public class Analyzer extends JPanel
 		    }
 		    setCiphertext("", true);//avoid extra work setting language
 		    freqsH = cryptHan.getLanguageFrequencies();
+		    freqsFile = null;
 		    if(freqsH != null){
 		    langStats.setData(freqsH);
 		    }else{
 			langStats.setData(new LanguageFrequenciesHandler());
 		    }
+		    toolsPane.setLanguageFrequencies(freqsH);
 		    locale = cryptHan.getLocale();
 		    collator = cryptHan.getCollator();
 		    cipherManager.setLocale(locale);
@@ -1613,10 +1579,9 @@ public class Analyzer extends JPanel
 		    setProjectNameOnFrameTitle(savedProject);
 		}
 	    };
-	LoadWorker worker = new LoadWorker(parseFile,
-					   loadNewCryptProject,
-					   this);
-	worker.start();
+	TaskExecutor.getShared().execute(new Task(parseFile,
+						  loadNewCryptProject),
+					 this);
     }
 
     /**
@@ -1774,24 +1739,19 @@ public class Analyzer extends JPanel
 	    throw new SecurityException("Permission denied");
 	}
 	CryptanalysisHandler handler = new CryptanalysisHandler();
-	// Use the validating namespace aware parser
-	SAXParserFactory saxFactory = SAXParserFactory.newInstance();
-	saxFactory.setValidating(true);
-	saxFactory.setNamespaceAware(true);
-	// Parse the input
-	SAXParser saxParser = saxFactory.newSAXParser();
-	// use W3C schemata
-	saxParser.setProperty(AnalyzerConstants.JAXP_SCHEMA_LANGUAGE, 
-			      AnalyzerConstants.W3C_XML_SCHEMA);
-	// Set schema source
-	String schemataPath = findSchemataDir().getCanonicalPath() +
+	String schemataPath = AnalyzerConfiguration.findSchemataDir().getCanonicalPath() +
 	                      System.getProperty("file.separator");
-	saxParser.setProperty(AnalyzerConstants.JAXP_SCHEMA_SOURCE,
-			      new File(schemataPath +
-				       AnalyzerConstants.CRYPTANALYSIS_SCHEMA_FILE));
+	// Use a validating namespace aware parser for the schema
+	ParserPool parsers =
+	    ParserPool.getInstance(new File(schemataPath +
+					    AnalyzerConstants.CRYPTANALYSIS_SCHEMA_FILE));
+	// Parse the input
 	FileInputStream cryptIS = new FileInputStream(crypt);
-	saxParser.parse(cryptIS, handler, schemataPath);
-	cryptIS.close();
+	try{
+	    parsers.parse(cryptIS, handler, schemataPath);
+	}finally{
+	    cryptIS.close();
+	}
 	return handler;
     }
 
@@ -1837,7 +1797,18 @@ public class Analyzer extends JPanel
 	if(retVal != JFileChooser.APPROVE_OPTION){
 	    return;
 	}
-	final File freqs = langChooser.getSelectedFile();
+	loadLanguage(langChooser.getSelectedFile());
+    }
+
+    /**
+     * Reads the instance of the XML schema
+     * <code>LanguageFrequencies.xsd</code> <code>freqs</code> and, if it is
+     * valid, sets it as the current language frequencies.
+     *
+     * @param freqs the language frequencies
+     * @see #openLanguage()
+     */
+    private final void loadLanguage(final File freqs){
 	// non-GUI related task (parse the XML file)
 	Runnable parseFile = new Runnable(){
 		public void run(){
@@ -1853,7 +1824,9 @@ public class Analyzer extends JPanel
 			return;
 		    }
 		    freqsH = freqsH_tmp;
+		    freqsFile = freqs;
 		    langStats.setData(freqsH);
+		    toolsPane.setLanguageFrequencies(freqsH);
 		    locale = freqsH.getLocale();
 		    collator = freqsH.getCollator();
 		    cipherManager.setLocale(locale);
@@ -1874,15 +1847,105 @@ public class Analyzer extends JPanel
 		    setLangStatsFrameTitle(locale);
 		}
 	    };
-	LoadWorker worker = new LoadWorker(parseFile, loadNewLangFreqs, this);
-	worker.start();
+	TaskExecutor.getShared().execute(new Task(parseFile, loadNewLangFreqs),
+					 this);
+    }
+
+    /**
+     * Guesses the language of the ciphertext among the language frequencies
+     * in <code>AnalyzerConfiguration.findLangFreqDir()</code>. If there are no
+     * current language frequencies, the most likely ones are loaded; if they
+     * are not the current ones, the user is asked whether to load them.
+     * Nothing is done if the language frequencies can not be found.
+     *
+     * @see LanguageIdentifier
+     */
+    private final void identifyLanguage(){
+	final int[] best = {-1};
+	final ArrayList alphabet = cipherManager.getCipherAlphabet();
+	final Set ignored = (Set)substitution.getIgnoredCharacters().get(0);
+	// non-GUI related task (read the languages, rank them)
+	Runnable rank = new Runnable(){
+		public void run(){
+		    LanguageIdentifier identifier = getLangIdentifier();
+		    if(identifier == null){
+			return;
+		    }
+		    if(alphabet.size() == 0){
+			return;
+		    }
+		    int period = identifier.findPeriod(cipherManager.getPeriodSpectrum(ignored, LanguageIdentifier.MAX_PERIOD));
+		    ArrayList chars = new ArrayList(alphabet.size());
+		    for(int i=0; i<alphabet.size(); i++){
+			chars.add(((CollationKey)alphabet.get(i)).getSourceString());
+		    }
+		    best[0] = identifier.identify(cipherManager.getCodes(ignored, alphabet),
+						  alphabet.size(), period, chars);
+		}
+	    };
+	// GUI related task (load the language or ask the user to)
+	Runnable suggest = new Runnable(){
+		public void run(){
+		    if(best[0] == -1){
+			return;
+		    }
+		    File freqs = langIdentifier.getFile(best[0]);
+		    Locale loc = langIdentifier.getLocale(best[0]);
+		    if(freqsH == null){
+			loadLanguage(freqs);
+			return;
+		    }else if(freqs.equals(freqsFile) ||
+			     (freqsFile == null && loc.equals(locale))){
+			return;
+		    }
+		    Locale defLoc = JComponent.getDefaultLocale();
+		    String lang = loc.getDisplayName(defLoc) + " (" +
+			          freqs.getName() + ")";
+		    int val = JOptionPane.showConfirmDialog(Analyzer.this,
+							    replace("LANG", lang,
+								    labelsRB.getString("langIdText")),
+							    labelsRB.getString("langIdTitle"),
+							    JOptionPane.YES_NO_OPTION);
+		    if(val == JOptionPane.YES_OPTION){
+			loadLanguage(freqs);
+		    }
+		}
+	    };
+	TaskExecutor.getShared().execute(new Task(rank, suggest), this);
+    }
+
+    /**
+     * Returns the <code>LanguageIdentifier</code> of the language
+     * frequencies in <code>AnalyzerConfiguration.findLangFreqDir()</code>,
+     * reading them the first time it is called. Returns <code>null</code> if
+     * they can not be found.
+     */
+    private final synchronized LanguageIdentifier getLangIdentifier(){
+	if(langIdentifier != null){
+	    return langIdentifier;
+	}
+	try{
+	    File dir = AnalyzerConfiguration.findLangFreqDir();
+	    if(dir == null){
+		return null;
+	    }
+	    File[] freqs = LanguageIdentifier.findLanguageFrequencies(dir);
+	    LanguageIdentifier identifier =
+		new LanguageIdentifier(freqs, AnalyzerConfiguration.findSchemataDir(),
+				       Runtime.getRuntime().availableProcessors());
+	    if(identifier.getNumberOfLanguages() > 0){
+		langIdentifier = identifier;
+	    }
+	}catch(IOException ioe){}
+	return langIdentifier;
     }
 
     /**
      * Initializes the <code>JFileChooser</code> <code>langChooser</code> and
-     * sets its current directory to <code>findLangFreqDir()</code>.
+     * sets its current directory to
+     * <code>AnalyzerConfiguration.findLangFreqDir()</code>.
      *
-     * @see #findLangFreqDir()
+     * @see AnalyzerConfiguration#findLangFreqDir()
      */
     private final void initLangChooser(){
 	File langPath = null;
@@ -1892,7 +1955,7 @@ public class Analyzer extends JPanel
 	langChooser.setFileFilter(xmlFilter);
 	langChooser.setDialogTitle(labelsRB.getString("langChooser"));
 	try{
-	    langPath = findLangFreqDir();
+	    langPath = AnalyzerConfiguration.findLangFreqDir();
 	} catch(IOException ioe){
 	    JOptionPane.showMessageDialog(this,
 					  labelsRB.getString("ieCnfText"),
@@ -2005,122 +2068,26 @@ public class Analyzer extends JPanel
 	}else if(!freqs.canRead()){
 	    throw new SecurityException("Permission denied");
 	}
+	// use the binary companion written by LangFreq if it is up to date
+	BinaryFrequencies binary = BinaryFrequencies.openCompanion(freqs);
+	if(binary != null){
+	    return new LanguageFrequenciesHandler(binary);
+	}
 	LanguageFrequenciesHandler handler = new LanguageFrequenciesHandler();
-	// Use the validating namespace aware parser
-	SAXParserFactory saxFactory = SAXParserFactory.newInstance();
-	saxFactory.setValidating(true);
-	saxFactory.setNamespaceAware(true);
-	// Parse the input
-	SAXParser saxParser = saxFactory.newSAXParser();
-	// use W3C schemata
-	saxParser.setProperty(AnalyzerConstants.JAXP_SCHEMA_LANGUAGE, 
-			      AnalyzerConstants.W3C_XML_SCHEMA);
-	// Set schema source
-	String schemataPath = findSchemataDir().getCanonicalPath() +
+	String schemataPath = AnalyzerConfiguration.findSchemataDir().getCanonicalPath() +
 	                      System.getProperty("file.separator");
-	saxParser.setProperty(AnalyzerConstants.JAXP_SCHEMA_SOURCE,
-			      new File(schemataPath +
-				       AnalyzerConstants.LANGUAGE_FREQUENCIES_SCHEMA_FILE));
+	// Use a validating namespace aware parser for the schema
+	ParserPool parsers =
+	    ParserPool.getInstance(new File(schemataPath +
+					    AnalyzerConstants.LANGUAGE_FREQUENCIES_SCHEMA_FILE));
+	// Parse the input
 	FileInputStream freqsIS = new FileInputStream(freqs);
-	saxParser.parse(freqsIS, handler, schemataPath);
-	freqsIS.close();
-	return handler;
-    }
-
-    /**
-     * Returns the path to the directory containing  the schemata
-     * as a <code>File</code> or <code>null</code> if it could not be
-     * found.<br/>
-     * Note that this method does not guarantee the existance of such 
-     * directory.
-     *
-     * @return the path to the directory containing the schemata as a 
-     *         <code>File</code> or <code>null</code> if it could not be found.
-     * @throws IOException if an I/O error occurs.
-     */
-    private final File findSchemataDir() throws IOException
-    {
-	if(schemataDir != null){
-	    return schemataDir;
-	}
-	String scProperty = configProp==null ? null
-	                    : configProp.getProperty(AnalyzerConstants.SCHEMATA_DIR_KEY);
-	schemataDir =  scProperty==null ? null : new File(scProperty);
-	if(schemataDir == null){
-	    File rootDir = findRootDir();
-	    if(rootDir != null){
-		schemataDir = new File(rootDir.getCanonicalPath() + 
-				       System.getProperty("file.separator") + 
-				       AnalyzerConstants.SCHEMATA_PATH);
-	    }
-	}
-	return schemataDir;
-    }
-
-    /**
-     * Returns the path to the directory containing  the language frequencies
-     * files as a <code>File</code> or <code>null</code> if it could not be
-     * found.<br/>
-     * Note that this method does not guarantee the existance of such 
-     * directory.
-     *
-     * @return the path to the directory containing the language frequencies as
-     *         a <code>File</code> or <code>null</code> if it could not be
-     *         found.
-     * @throws IOException if an I/O error occurs.
-     */
-    private final File findLangFreqDir() throws IOException
-    {
-	if(langFreqDir != null){
-	    return langFreqDir;
-	}
-	String lfProperty = configProp==null ? null
-	                    : configProp.getProperty(AnalyzerConstants.LANGUAGE_FREQUENCIES_DIR_KEY);
-	langFreqDir = lfProperty==null ? null : new File(lfProperty);
-	if(langFreqDir == null){
-	    File rootDir = findRootDir();
-	    if(rootDir != null){
-		langFreqDir = new File(rootDir.getCanonicalPath() + 
-				       System.getProperty("file.separator") + 
-				       AnalyzerConstants.FREQUENCIES_PATH);
-	    }
-	}
-	return langFreqDir;
-    }
-
-    /**
-     * Returns the path to the application's root directory if
-     * it is sepecified in the the configuration property file or
-     * if the program is being executed from a JAR file, and <code>null</code>
-     * otherwise. <br/>
-     * Note that this method does not guarantee the existance of such 
-     * directory.
-     *
-     * @return the canonical path of the application's root directory if  it is
-     *         sepecified in the the configuration property file or if the 
-     *         program is being executed from a JAR file.
-     * @throws IOException if an I/O error occurs.
-     */
-    private final File findRootDir() throws IOException
-    {
-	if(rootDir != null){
-	    return rootDir;
-	}
-	String rdProperty = configProp==null ? null
-	                  : configProp.getProperty(AnalyzerConstants.ROOT_DIR_KEY);
-	rootDir = configProp==null || rdProperty==null ? null 
-	          : new File(rdProperty);
-	if(rootDir == null){
-	    String classpath = System.getProperty("java.class.path");
-	    StringTokenizer st = new StringTokenizer(classpath, System.getProperty("path.separator"));
-	    if(st.countTokens()<=1 && 
-	       classpath.toLowerCase().endsWith(".jar")){
-		rootDir = new File(classpath);
-		rootDir = new File(rootDir.getCanonicalPath());
-		rootDir = rootDir.getParentFile();
-	    }
+	try{
+	    parsers.parse(freqsIS, handler, schemataPath);
+	}finally{
+	    freqsIS.close();
 	}
-	return rootDir;
+	return handler;
     }
 
     /**
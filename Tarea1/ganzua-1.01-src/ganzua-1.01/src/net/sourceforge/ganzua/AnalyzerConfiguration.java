@@ -0,0 +1,203 @@
+/*
+ * -- AnalyzerConfiguration.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua;
+
+import java.net.URL;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.io.*;
+
+/**
+ * Class that finds the directories <code>Analyzer</code>,
+ * <code>LangFreq</code> and <code>BatchAnalyzer</code> need: the one the
+ * program is installed in, the one with the schemata and the one with the
+ * language frequencies. They are taken from
+ * <code>AnalyzerConstants.CONFIG_FILE</code> if it exists and sets them,
+ * otherwise they are found from the JAR file the program is executed
+ * from.<br/>
+ *
+ * The directories are looked for the first time they are asked for and
+ * remembered afterwards.
+ *
+ * @see AnalyzerConstants
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public final class AnalyzerConfiguration{
+
+    /**
+     * Set of configuration properties. <code>null</code> if a
+     * configuration properties file is not provided. The configuration
+     * properties tell the program the directory it is installed in, the
+     * directory where the schemata can be found and where the language
+     * frequencies files are stored. */
+    private static final Properties configProp;
+
+    /* Initialize <code>configProp</code>. If the configuration properties file
+     * exists, set <code>configProp</code> to a new <code>Properties</code>
+     * with the file contents, otherwise, set it to <code>null</code>. */
+    static{
+	Properties configProperties = null;
+	URL conf =AnalyzerConfiguration.class.getResource(AnalyzerConstants.CONFIG_FILE);
+	if(conf != null){
+	    try{
+		InputStream is = conf.openStream();
+		configProperties= new Properties();
+		configProperties.load(is);
+		is.close();
+	    }catch(IOException ioe){}
+	}
+        configProp = configProperties;
+    }
+
+    /**
+     * Used to store the directory the program is installed in. Do
+     * <u>not</u> use this variable directly, use the
+     * <code>findRootDir()</code> method. */
+    private static File rootDir;
+
+    /**
+     * Used to store the directory the schemata can be found in.
+     * Do <u>not</u> use this variable directly, use the
+     * <code>findSchemataDir()</code> method.*/
+    private static File schemataDir;
+
+    /**
+     * Used to store the directory the language frequencies can be found in.
+     * Do <u>not</u> use this variable directly, use the
+     * <code>findLangFreqDir()</code> method.*/
+    private static File langFreqDir;
+
+    /**
+     * Not to be instantiated.
+     */
+    private AnalyzerConfiguration(){
+    }
+
+    /**
+     * Returns the path to the directory containing  the schemata
+     * as a <code>File</code> or <code>null</code> if it could not be
+     * found. Unless specified in the configuration properties file, it is
+     * the subdirectory <code>AnalyzerConstants.SCHEMATA_PATH</code> of
+     * the root directory.<br/>
+     * Note that this method does not guarantee the existance of such
+     * directory.
+     *
+     * @return the path to the directory containing the schemata as a
+     *         <code>File</code> or <code>null</code> if it could not be found.
+     * @throws IOException if an I/O error occurs.
+     * @see #findRootDir()
+     */
+    public static synchronized File findSchemataDir() throws IOException
+    {
+	if(schemataDir != null){
+	    return schemataDir;
+	}
+	schemataDir = findDir(AnalyzerConstants.SCHEMATA_DIR_KEY,
+			      AnalyzerConstants.SCHEMATA_PATH);
+	return schemataDir;
+    }
+
+    /**
+     * Returns the path to the directory containing  the language frequencies
+     * files as a <code>File</code> or <code>null</code> if it could not be
+     * found. Unless specified in the configuration properties file, it is
+     * the subdirectory <code>AnalyzerConstants.FREQUENCIES_PATH</code> of
+     * the root directory.<br/>
+     * Note that this method does not guarantee the existance of such
+     * directory.
+     *
+     * @return the path to the directory containing the language frequencies as
+     *         a <code>File</code> or <code>null</code> if it could not be
+     *         found.
+     * @throws IOException if an I/O error occurs.
+     * @see #findRootDir()
+     */
+    public static synchronized File findLangFreqDir() throws IOException
+    {
+	if(langFreqDir != null){
+	    return langFreqDir;
+	}
+	langFreqDir = findDir(AnalyzerConstants.LANGUAGE_FREQUENCIES_DIR_KEY,
+			      AnalyzerConstants.FREQUENCIES_PATH);
+	return langFreqDir;
+    }
+
+    /**
+     * Returns the path to the application's root directory if
+     * it is sepecified in the the configuration property file or
+     * if the program is being executed from a JAR file, and <code>null</code>
+     * otherwise. <br/>
+     * Note that this method does not guarantee the existance of such
+     * directory.
+     *
+     * @return the canonical path of the application's root directory if  it is
+     *         sepecified in the the configuration property file or if the
+     *         program is being executed from a JAR file.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static synchronized File findRootDir() throws IOException
+    {
+	if(rootDir != null){
+	    return rootDir;
+	}
+	String rdProperty = configProp==null ? null
+	                  : configProp.getProperty(AnalyzerConstants.ROOT_DIR_KEY);
+	rootDir = rdProperty==null ? null : new File(rdProperty);
+	if(rootDir == null){
+	    String classpath = System.getProperty("java.class.path");
+	    StringTokenizer st = new StringTokenizer(classpath, System.getProperty("path.separator"));
+	    if(st.countTokens()<=1 &&
+	       classpath.toLowerCase().endsWith(".jar")){
+		rootDir = new File(classpath);
+		rootDir = new File(rootDir.getCanonicalPath());
+		rootDir = rootDir.getParentFile();
+	    }
+	}
+	return rootDir;
+    }
+
+    /**
+     * Returns the directory set by the property <code>key</code> of the
+     * configuration properties file or, if it is not set, the
+     * subdirectory <code>path</code> of the root directory.
+     * <code>null</code> if neither can be found.
+     */
+    private static File findDir(String key, String path) throws IOException
+    {
+	String property = configProp==null ? null : configProp.getProperty(key);
+	if(property != null){
+	    return new File(property);
+	}
+	File root = findRootDir();
+	return root==null ? null
+	       : new File(root.getCanonicalPath() +
+			  System.getProperty("file.separator") +
+			  path);
+    }
+}
+/*
+ * -- AnalyzerConfiguration.java ends here --
+ */
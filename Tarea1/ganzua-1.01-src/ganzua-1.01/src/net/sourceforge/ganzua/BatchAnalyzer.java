@@ -0,0 +1,836 @@
+/*
+ * -- BatchAnalyzer.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua;
+
+import java.util.*;
+import java.text.Collator;
+import java.io.*;
+import org.xml.sax.*;
+import javax.xml.parsers.ParserConfigurationException;
+import net.sourceforge.ganzua.handler.LanguageFrequenciesHandler;
+import net.sourceforge.ganzua.handler.ParserPool;
+import net.sourceforge.ganzua.text.*;
+
+/**
+ * Class used to get the statistics <code>Analyzer</code> displays for
+ * many ciphertexts without a graphical user interface. For every
+ * ciphertext file it writes a line with a JSON object that contains
+ * the frequencies of the characters, bigrams and trigrams, the
+ * coincidence index, the estimate of the number of alphabets and a
+ * summary of the Kasiski Test. The estimate uses the coincidence index
+ * and the alphabet of an instance of <code>LanguageFrequencies.xsd</code>.
+ * It can also decipher every ciphertext as Caesar's cipher over the
+ * alphabet of the language and write the most likely shifts instead.
+ * <br/>
+ *
+ * The files are analyzed by several threads, each one with its own
+ * <code>CiphertextManager</code>, and the lines are written in the order
+ * of the files. The threads share a single <code>CaesarSolver</code>. No
+ * AWT or Swing component is ever created.
+ *
+ * @see AnalyzerConstants
+ * @see CiphertextManager
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class BatchAnalyzer
+{
+    /**
+     * The greatest factor of the distances counted in the summary of the
+     * Kasiski Test. */
+    public static final int MAX_FACTOR = 20;
+
+    /**
+     * <code>Locale</code> of the language frequencies. */
+    protected Locale locale;
+
+    /**
+     * Used to create the <code>CollationKey</code>s of the ciphertexts.
+     * Every <code>AnalysisWorker</code> uses a clone. */
+    protected Collator collator;
+
+    /**
+     * Coincidence index of the language. */
+    protected double langCI;
+
+    /**
+     * Number of characters in the plain alphabet. */
+    protected int plainAlphaSize;
+
+    /**
+     * The plain alphabet (sorted <code>CollationKey</code>s), also the
+     * cipher alphabet of Caesar's cipher. */
+    protected List plainAlpha;
+
+    /**
+     * Ranks the shifts of Caesar's cipher over <code>plainAlpha</code>.
+     * <code>null</code> if the language frequencies have no characters of
+     * the alphabet. */
+    protected CaesarSolver caesar;
+
+    /**
+     * Encoding of the ciphertext files. */
+    private String encoding = System.getProperty("file.encoding");
+
+    /**
+     * Number of threads used to analyze the ciphertexts. */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of Kasiski Test entries written for every ciphertext. */
+    private int numKasiski = 10;
+
+    /**
+     * Number of shifts of Caesar's cipher written for every ciphertext
+     * instead of the statistics, <code>0</code> to write the statistics */
+    private int numCaesar = 0;
+
+    /**
+     * The ciphertext files being analyzed. */
+    private File[] files;
+
+    /**
+     * Index in <code>files</code> of the next file to be analyzed by an
+     * <code>AnalysisWorker</code>. */
+    private int nextFile;
+
+    /**
+     * The lines of the files that have been analyzed but not written,
+     * because some file before them has not been analyzed. */
+    private String[] lines;
+
+    /**
+     * Index in <code>files</code> of the next line to be written. */
+    private int nextLine;
+
+    /**
+     * Where the lines are written. */
+    private Writer out;
+
+    /**
+     * <code>true</code> if some ciphertext could not be analyzed. */
+    private boolean failed;
+
+    /**
+     * Constructor that reads the language frequencies <code>freqs</code>,
+     * an instance of <code>LanguageFrequencies.xsd</code>. If
+     * <code>LangFreq</code> wrote an up to date binary companion of the
+     * document, it is read instead.
+     *
+     * @param freqs the language frequencies
+     * @throws NullPointerException if <code>freqs</code> is <code>null</code>
+     * @throws SAXNotRecognizedException if W3C schemata or the schema source property are not supported by the implementation of JAXP
+     * @throws SAXParseException if there is an error parsing <code>freqs</code>
+     * @throws SAXException if the parser reports an error
+     * @throws ParserConfigurationException if there is an error configuring the parser
+     * @throws SecurityException if the user is not allowed to read <code>freqs</code>
+     * @throws FileNotFoundException if <code>freqs</code> or the schemata could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    public BatchAnalyzer(File freqs)
+	throws NullPointerException, SAXNotRecognizedException,
+	       SAXParseException, SAXException, ParserConfigurationException,
+	       SecurityException, FileNotFoundException, IOException
+    {
+	if(!freqs.exists()){
+	    throw new FileNotFoundException("File not found: " +
+					    freqs.getPath());
+	}else if(!freqs.canRead()){
+	    throw new SecurityException("Permission denied: " +
+					freqs.getPath());
+	}
+	LanguageFrequenciesHandler handler;
+	BinaryFrequencies binary = BinaryFrequencies.openCompanion(freqs);
+	if(binary != null){
+	    handler = new LanguageFrequenciesHandler(binary);
+	}else{
+	    handler = new LanguageFrequenciesHandler();
+	    File schemataDir = AnalyzerConfiguration.findSchemataDir();
+	    if(schemataDir == null){
+		throw new FileNotFoundException("The schemata directory could"+
+						" not be found");
+	    }
+	    String schemataPath = schemataDir.getCanonicalPath() +
+		                  System.getProperty("file.separator");
+	    ParserPool parsers =
+		ParserPool.getInstance(new File(schemataPath +
+						AnalyzerConstants.LANGUAGE_FREQUENCIES_SCHEMA_FILE));
+	    FileInputStream freqsIS = new FileInputStream(freqs);
+	    try{
+		parsers.parse(freqsIS, handler, schemataPath);
+	    }finally{
+		freqsIS.close();
+	    }
+	}
+	locale = handler.getLocale();
+	collator = handler.getCollator();
+	langCI = handler.getCoincidenceIndex();
+	plainAlpha = new ArrayList(handler.getAlphabetCK());
+	Collections.sort(plainAlpha);
+	plainAlphaSize = plainAlpha.size();
+	try{
+	    caesar = new CaesarSolver(plainAlpha, plainAlpha,
+				      handler.getAlphabet(),
+				      handler.getBigrams(),
+				      handler.getTrigrams(),
+				      locale, collator, true);
+	}catch(IllegalArgumentException iae){
+	    // no character of the language is in the alphabet
+	    caesar = null;
+	}
+    }
+
+    /**
+     * Sets the encoding of the ciphertext files. By default it is the
+     * platform's encoding.
+     *
+     * @param enc the name of a supported encoding
+     * @throws NullPointerException if <code>enc</code> is <code>null</code>
+     * @throws UnsupportedEncodingException if <code>enc</code> is not supported
+     */
+    public void setEncoding(String enc)
+	throws NullPointerException, UnsupportedEncodingException
+    {
+	boolean supported;
+	try{
+	    supported = java.nio.charset.Charset.isSupported(enc);
+	}catch(IllegalArgumentException iae){
+	    // an illegal name
+	    supported = false;
+	}
+	if(!supported){
+	    throw new UnsupportedEncodingException(enc);
+	}
+	encoding = enc;
+    }
+
+    /**
+     * Sets the maximum number of threads used to analyze the ciphertexts.
+     * By default, one per available processor.
+     *
+     * @param n the number of threads
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setNumberOfThreads(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n must be greater than 0");
+	}
+	numThreads = n;
+    }
+
+    /**
+     * Returns the maximum number of threads used to analyze the
+     * ciphertexts.
+     */
+    public int getNumberOfThreads(){
+	return numThreads;
+    }
+
+    /**
+     * Sets the number of entries of the Kasiski Test written for every
+     * ciphertext (the longest sequences). By default 10.
+     *
+     * @param n the number of entries
+     * @throws IllegalArgumentException if <code>n &lt; 0</code>
+     */
+    public void setNumberOfKasiskiEntries(int n)
+	throws IllegalArgumentException
+    {
+	if(n < 0){
+	    throw new IllegalArgumentException("n must not be negative");
+	}
+	numKasiski = n;
+    }
+
+    /**
+     * Sets the number of shifts of Caesar's cipher written for every
+     * ciphertext (the most likely ones). If it is greater than 0, every
+     * ciphertext is deciphered as Caesar's cipher over the alphabet of the
+     * language frequencies and only the shifts are written, instead of the
+     * statistics. By default 0.
+     *
+     * @param n the number of shifts
+     * @throws IllegalArgumentException if <code>n &lt; 0</code>
+     * @throws IllegalStateException if <code>n &gt; 0</code> and the language frequencies have no characters of their alphabet
+     */
+    public void setNumberOfCaesarShifts(int n)
+	throws IllegalArgumentException, IllegalStateException
+    {
+	if(n < 0){
+	    throw new IllegalArgumentException("n must not be negative");
+	}else if(n > 0 && caesar == null){
+	    throw new IllegalStateException("The language frequencies have no"+
+					    " characters of the alphabet");
+	}
+	numCaesar = n;
+    }
+
+    /**
+     * Analyzes the ciphertext files <code>ciphertexts</code> and writes
+     * a line to <code>writer</code> for every one of them, in the same
+     * order. If a file can not be read or analyzed, its line has an
+     * <code>error</code> member instead of the statistics.
+     *
+     * @param ciphertexts the ciphertext files
+     * @param writer where the lines are written
+     * @return <code>true</code> if all the files were analyzed
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IOException if <code>writer</code> throws an <code>IOException</code>
+     * @throws IllegalStateException if a thread died before the lines of all the files were written
+     */
+    public boolean analyze(File[] ciphertexts, Writer writer)
+	throws NullPointerException, IOException, IllegalStateException
+    {
+	if(writer == null){
+	    throw new NullPointerException();
+	}
+	files = ciphertexts;
+	lines = new String[files.length];
+	nextFile = 0;
+	nextLine = 0;
+	out = writer;
+	failed = false;
+	int n = Math.min(numThreads, files.length);
+	AnalysisWorker[] workers = new AnalysisWorker[n];
+	for(int i=0; i<n; i++){
+	    workers[i] = new AnalysisWorker();
+	}
+	if(n == 1){
+	    workers[0].run();
+	}else{
+	    for(int i=0; i<n; i++){
+		workers[i].start();
+	    }
+	    for(int i=0; i<n; i++){
+		boolean joined = false;
+		while(!joined){
+		    try{
+			workers[i].join();
+			joined = true;
+		    }catch(InterruptedException ie){}
+		}
+	    }
+	}
+	for(int i=0; i<n; i++){
+	    if(workers[i].error != null){
+		throw workers[i].error;
+	    }
+	}
+	out.flush();
+	if(nextLine != lines.length){
+	    throw new IllegalStateException("Only "+ nextLine +" of the "+
+					    lines.length +" ciphertexts"+
+					    " were analyzed");
+	}
+	return !failed;
+    }
+
+    /**
+     * Returns the line with the statistics of the ciphertext in the file
+     * <code>f</code>.
+     *
+     * @param f the ciphertext file
+     * @param col the <code>Collator</code> used for the ciphertext
+     * @throws IOException if <code>f</code> can not be read
+     */
+    protected String analyze(File f, Collator col) throws IOException
+    {
+	CiphertextManager manager = new CiphertextManager(locale, col,
+							  readFile(f));
+	Set none = new HashSet();
+	StringBuffer sb = new StringBuffer();
+	sb.append("{\"file\":");
+	appendString(sb, f.getPath());
+	if(numCaesar > 0){
+	    sb.append(",\"caesar\":");
+	    appendCaesar(sb, manager);
+	    sb.append('}');
+	    return sb.toString();
+	}
+	List freqs = manager.getFrequencies(1, Arrays.asList(new Set[]{none}));
+	sb.append(",\"characters\":");
+	appendFrequencies(sb, (List)freqs.get(0));
+	sb.append(",\"bigrams\":");
+	appendFrequencies(sb, (List)freqs.get(1));
+	sb.append(",\"trigrams\":");
+	appendFrequencies(sb, (List)freqs.get(2));
+	sb.append(",\"coincidenceIndex\":");
+	appendNumber(sb, manager.getCoincidenceIndex(none));
+	sb.append(",\"numberOfAlphabets\":");
+	// same condition used by Analyzer
+	if(langCI>0 && langCI<1 && plainAlphaSize>0 &&
+	   plainAlphaSize>=manager.getCipherAlphabet().size()){
+	    appendNumber(sb, manager.getNumberOfAlphabetsEstimate(none, langCI,
+								  plainAlphaSize));
+	}else{
+	    sb.append("null");
+	}
+	sb.append(",\"kasiski\":");
+	appendKasiski(sb, manager.getKasiski(none));
+	sb.append('}');
+	return sb.toString();
+    }
+
+    /**
+     * Reads the contents of <code>f</code> using <code>encoding</code>.
+     */
+    private final String readFile(File f) throws IOException
+    {
+	Reader in = new InputStreamReader(new FileInputStream(f), encoding);
+	StringBuffer sb = new StringBuffer((int)Math.min(f.length(),
+							 Integer.MAX_VALUE));
+	try{
+	    char[] buf = new char[8192];
+	    int len = in.read(buf);
+	    while(len != -1){
+		sb.append(buf, 0, len);
+		len = in.read(buf);
+	    }
+	}finally{
+	    in.close();
+	}
+	return sb.toString();
+    }
+
+    /**
+     * Appends the <code>numCaesar</code> most likely shifts of Caesar's
+     * cipher, with their scores and plaintexts.
+     */
+    private final void appendCaesar(StringBuffer sb, CiphertextManager manager){
+	CaesarShift[] ranked = caesar.rank(manager.getCodes(new HashSet(),
+							    plainAlpha));
+	int n = Math.min(numCaesar, ranked.length);
+	sb.append('[');
+	for(int i=0; i<n; i++){
+	    if(i > 0){
+		sb.append(',');
+	    }
+	    sb.append("{\"shift\":").append(ranked[i].getShift());
+	    sb.append(",\"score\":");
+	    appendNumber(sb, ranked[i].getScore());
+	    sb.append(",\"chiSquared\":");
+	    appendNumber(sb, ranked[i].getChiSquared());
+	    sb.append(",\"plaintext\":");
+	    ArrayList substLst = new ArrayList(1);
+	    substLst.add(caesar.getSubstitution(ranked[i].getShift()));
+	    appendString(sb, manager.getPlaintext(substLst));
+	    sb.append('}');
+	}
+	sb.append(']');
+    }
+
+    /**
+     * Appends the summary of the Kasiski Test: the number of sequences,
+     * how many of the distances are multiples of every number from 2 to
+     * <code>MAX_FACTOR</code> and the <code>numKasiski</code> longest
+     * sequences.
+     */
+    private final void appendKasiski(StringBuffer sb, ArrayList entries){
+	int[] multiples = KasiskiEntry.countMultiples(entries, MAX_FACTOR);
+	sb.append("{\"sequences\":").append(entries.size());
+	sb.append(",\"multiples\":{");
+	for(int f=2; f<=MAX_FACTOR; f++){
+	    if(f > 2){
+		sb.append(',');
+	    }
+	    sb.append('"').append(f).append("\":").append(multiples[f]);
+	}
+	sb.append("},\"entries\":[");
+	Collections.sort(entries); // the longest first
+	int n = Math.min(numKasiski, entries.size());
+	for(int i=0; i<n; i++){
+	    KasiskiEntry ke = (KasiskiEntry)entries.get(i);
+	    if(i > 0){
+		sb.append(',');
+	    }
+	    sb.append("{\"sequence\":");
+	    appendString(sb, ke.getSequenceAsString());
+	    sb.append(",\"length\":").append(ke.getSequenceLength());
+	    sb.append(",\"frequency\":").append(ke.getFrequency());
+	    sb.append(",\"distances\":[");
+	    int[] dist = ke.getDistances();
+	    for(int k=0; k<dist.length; k++){
+		if(k > 0){
+		    sb.append(',');
+		}
+		sb.append(dist[k]);
+	    }
+	    sb.append("]}");
+	}
+	sb.append("]}");
+    }
+
+    /**
+     * Appends the <code>StringFreq</code>s in <code>freqs</code> as the
+     * members of an object.
+     */
+    private static final void appendFrequencies(StringBuffer sb, List freqs){
+	sb.append('{');
+	for(int i=0; i<freqs.size(); i++){
+	    StringFreq sf = (StringFreq)freqs.get(i);
+	    if(i > 0){
+		sb.append(',');
+	    }
+	    appendString(sb, sf.getString());
+	    sb.append(':').append(sf.getFrequency());
+	}
+	sb.append('}');
+    }
+
+    /**
+     * Appends <code>d</code>, or <code>null</code> if it is not a finite
+     * number.
+     */
+    private static final void appendNumber(StringBuffer sb, double d){
+	if(Double.isNaN(d) || Double.isInfinite(d)){
+	    sb.append("null");
+	}else{
+	    sb.append(d);
+	}
+    }
+
+    /**
+     * Appends <code>str</code> as a JSON string.
+     */
+    private static final void appendString(StringBuffer sb, String str){
+	sb.append('"');
+	for(int i=0; i<str.length(); i++){
+	    char c = str.charAt(i);
+	    switch(c){
+	    case '"':
+		sb.append("\\\"");
+		break;
+	    case '\\':
+		sb.append("\\\\");
+		break;
+	    case '\n':
+		sb.append("\\n");
+		break;
+	    case '\r':
+		sb.append("\\r");
+		break;
+	    case '\t':
+		sb.append("\\t");
+		break;
+	    default:
+		if(c < 0x20 || c == '\u2028' || c == '\u2029'){
+		    String hex = Integer.toHexString(c);
+		    sb.append("\\u");
+		    for(int k=hex.length(); k<4; k++){
+			sb.append('0');
+		    }
+		    sb.append(hex);
+		}else{
+		    sb.append(c);
+		}
+	    }
+	}
+	sb.append('"');
+    }
+
+    /**
+     * Returns the index in <code>files</code> of the next file to be
+     * analyzed, or <code>-1</code> if there are none left.
+     */
+    private synchronized int nextFileIndex(){
+	if(nextFile >= files.length){
+	    return -1;
+	}
+	return nextFile++;
+    }
+
+    /**
+     * Stores <code>line</code> as the line of the file at
+     * <code>index</code> and writes all the lines that are ready.
+     */
+    private synchronized void putLine(int index, String line)
+	throws IOException
+    {
+	lines[index] = line;
+	while(nextLine < lines.length && lines[nextLine] != null){
+	    out.write(lines[nextLine]);
+	    out.write('\n');
+	    lines[nextLine++] = null;
+	}
+    }
+
+    /**
+     * Records that some ciphertext could not be analyzed.
+     */
+    private synchronized void setFailed(){
+	failed = true;
+    }
+
+    /**
+     * Thread that analyzes files until there are none left.
+     */
+    private class AnalysisWorker extends Thread{
+
+	/**
+	 * The <code>Collator</code> used by this thread */
+	private Collator wCollator = (Collator)collator.clone();
+
+	/**
+	 * The exception thrown by <code>out</code>, if any */
+	IOException error;
+
+	public void run(){
+	    try{
+		for(int i=nextFileIndex(); i!=-1; i=nextFileIndex()){
+		    String line;
+		    try{
+			line = analyze(files[i], wCollator);
+		    }catch(IOException ioe){
+			line = errorLine(files[i], ioe.getMessage());
+		    }catch(SecurityException se){
+			line = errorLine(files[i], se.getMessage());
+		    }catch(RuntimeException re){
+			line = errorLine(files[i], re.toString());
+		    }catch(OutOfMemoryError oome){
+			line = errorLine(files[i], "Out of memory");
+		    }
+		    putLine(i, line);
+		}
+	    }catch(IOException ioe){
+		error = ioe;
+	    }
+	}
+
+	/**
+	 * Returns the line for a file that could not be analyzed.
+	 */
+	private String errorLine(File f, String message){
+	    setFailed();
+	    StringBuffer sb = new StringBuffer();
+	    sb.append("{\"file\":");
+	    appendString(sb, f.getPath());
+	    sb.append(",\"error\":");
+	    appendString(sb, message == null ? "An input/output error occurred"
+			                     : message);
+	    sb.append('}');
+	    return sb.toString();
+	}
+    }
+
+    /**
+     * Returns the files in the directory <code>dir</code> and its
+     * subdirectories, sorted by path. If <code>dir</code> is a file,
+     * returns only <code>dir</code>.
+     *
+     * @param dir a directory
+     * @throws FileNotFoundException if <code>dir</code> does not exist
+     */
+    public static File[] findCiphertexts(File dir) throws FileNotFoundException
+    {
+	if(!dir.exists()){
+	    throw new FileNotFoundException("File not found: " + dir.getPath());
+	}
+	ArrayList found = new ArrayList();
+	addFiles(dir, found);
+	File[] ret = (File[])found.toArray(new File[found.size()]);
+	Arrays.sort(ret);
+	return ret;
+    }
+
+    /**
+     * Adds <code>f</code>, or the files in it if it is a directory, to
+     * <code>found</code>.
+     */
+    private static void addFiles(File f, ArrayList found){
+	if(f.isDirectory()){
+	    File[] content = f.listFiles();
+	    if(content != null){
+		for(int i=0; i<content.length; i++){
+		    addFiles(content[i], found);
+		}
+	    }
+	}else if(f.isFile()){
+	    found.add(f);
+	}
+    }
+
+    /**
+     * Program that receives an instance of the XML document type defined
+     * in the schema <code>LanguageFrequencies.xsd</code> and a directory
+     * with ciphertexts, and writes a UTF-8 encoded line with a JSON object
+     * for every file in the directory (and its subdirectories). The
+     * object has the members <code>file</code>, <code>characters</code>,
+     * <code>bigrams</code>, <code>trigrams</code>,
+     * <code>coincidenceIndex</code>, <code>numberOfAlphabets</code>
+     * (<code>null</code> if it can not be estimated) and
+     * <code>kasiski</code>, or <code>file</code> and <code>error</code>
+     * if the file could not be read.
+     */
+    public static void main(String [] args){
+	System.setProperty("java.awt.headless", "true");
+	final String usage = "\nUsage:\n"+
+	    "\tjava -jar ganzuaBatch.jar [-o <file>] [-e <encoding>] [-j <n>] [-k <n>]\n"+
+	    "\t                          [-c <n>] <language frequencies> <ciphertexts>\n\n"+
+	    "  where <language frequencies> is an instance of the XML document type\n"+
+	    "  defined in the schema LanguageFrequencies.xsd, <ciphertexts> is a\n"+
+	    "  directory (or a single file) and the options are:\n\n"+
+	    "    -o <file>      write the results to the specified file instead of\n"+
+	    "                   the standard output.\n\n"+
+	    "    -e <encoding>  the encoding of the ciphertexts. By default, the\n"+
+	    "                   platform's encoding.\n\n"+
+	    "    -j <n>         use up to n threads to analyze the ciphertexts.\n"+
+	    "                   By default, one per available processor.\n\n"+
+	    "    -k <n>         write the n longest sequences of the Kasiski Test.\n"+
+	    "                   By default, 10.\n\n"+
+	    "    -c <n>         decipher every ciphertext as Caesar's cipher over the\n"+
+	    "                   alphabet of the language frequencies and write the n\n"+
+	    "                   most likely shifts instead of the statistics.\n\n"+
+	    "    -help          display this help and exit. Also --help";
+	String errorMsg = null; // !=null if some exception is thrown
+	String freqsFile = null;
+	String cipherDir = null;
+	String outputFile = null;
+	String enc = null;
+	int threads = 0; // 0 if -j is not used
+	int kasiski = -1; // -1 if -k is not used
+	int shifts = 0; // 0 if -c is not used
+	if(args.length < 2){
+	    System.out.println(usage);
+	    System.exit(1);
+	}else{ // parse arguments
+	    try{
+		for(int i=0; i<args.length; i++){
+		    if(i == args.length-2 && args[i].charAt(0) != '-'){
+			freqsFile = args[i];
+			cipherDir = args[++i];
+		    }else if(args[i].substring(0, 2).equals("-o")){
+			outputFile = args[i].length() == 2 ? args[++i]
+			                                   : args[i].substring(2);
+		    }else if(args[i].substring(0, 2).equals("-e")){
+			enc = args[i].length() == 2 ? args[++i]
+			                            : args[i].substring(2);
+		    }else if(args[i].substring(0, 2).equals("-j")){
+			threads = Integer.parseInt(args[i].length() == 2 ? args[++i]
+						   : args[i].substring(2));
+			if(threads < 1){
+			    System.out.println(usage);
+			    System.exit(1);
+			}
+		    }else if(args[i].substring(0, 2).equals("-k")){
+			kasiski = Integer.parseInt(args[i].length() == 2 ? args[++i]
+						   : args[i].substring(2));
+			if(kasiski < 0){
+			    System.out.println(usage);
+			    System.exit(1);
+			}
+		    }else if(args[i].substring(0, 2).equals("-c")){
+			shifts = Integer.parseInt(args[i].length() == 2 ? args[++i]
+						  : args[i].substring(2));
+			if(shifts < 1){
+			    System.out.println(usage);
+			    System.exit(1);
+			}
+		    }else{
+			System.out.println(usage);
+			System.exit(1);
+		    }
+		}
+	    }catch(IndexOutOfBoundsException ob){
+		/* If there is no argument to an option or if an option has a
+		   length smaller than 2 */
+		System.out.println(usage);
+		System.exit(1);
+	    }catch(NumberFormatException nfe){
+		// the argument to -j, -k or -c is not a number
+		System.out.println(usage);
+		System.exit(1);
+	    }
+	}
+	if(freqsFile == null){
+	    System.out.println(usage);
+	    System.exit(1);
+	}
+	boolean complete = true;
+	try{
+	    BatchAnalyzer analyzer = new BatchAnalyzer(new File(freqsFile));
+	    if(enc != null){
+		analyzer.setEncoding(enc);
+	    }
+	    if(threads > 0){
+		analyzer.setNumberOfThreads(threads);
+	    }
+	    if(kasiski >= 0){
+		analyzer.setNumberOfKasiskiEntries(kasiski);
+	    }
+	    if(shifts > 0){
+		analyzer.setNumberOfCaesarShifts(shifts);
+	    }
+	    File[] ciphertexts = findCiphertexts(new File(cipherDir));
+	    OutputStream os = outputFile == null
+		              ? (OutputStream)System.out
+		              : new FileOutputStream(outputFile);
+	    Writer writer = new BufferedWriter(new OutputStreamWriter(os,
+								      "UTF-8"));
+	    complete = analyzer.analyze(ciphertexts, writer);
+	    if(outputFile != null){
+		writer.close();
+	    }
+	}catch(SAXNotRecognizedException snre){
+	    errorMsg = snre.getMessage();
+	    if(errorMsg.indexOf(AnalyzerConstants.JAXP_SCHEMA_LANGUAGE)>=0){
+		errorMsg = "ERROR: W3C schemata are not supported.";
+	    }else if(errorMsg.indexOf(AnalyzerConstants.JAXP_SCHEMA_SOURCE)>=0){
+		errorMsg = "ERROR: Schema source property is not supported.";
+	    }else{
+		errorMsg = "Some required parser features are not supported.";
+	    }
+	}catch(SAXParseException pe){
+	    errorMsg = "ERROR: Parsing line: "+ pe.getLineNumber() +
+		       "\n\t" + pe.getMessage();
+	}catch(SAXException sxe){
+	    errorMsg = "ERROR: " + sxe.getMessage();
+	}catch(ParserConfigurationException pce){
+	    errorMsg ="ERROR: Configuring the parser."+
+		      " Update your version of JAXP";
+	}catch(SecurityException se){
+	    errorMsg = "ERROR: " + se.getMessage();
+	}catch(IllegalStateException ise){
+	    errorMsg = "ERROR: " + ise.getMessage();
+	}catch(FileNotFoundException fnfe){
+	    errorMsg = "ERROR: " + fnfe.getMessage();
+	}catch(UnsupportedEncodingException uee){
+	    errorMsg = "ERROR: Unsupported encoding " + uee.getMessage();
+	}catch(IOException ioe){
+	    errorMsg = "ERROR: An input/output error occurred";
+	}finally{
+	    if(errorMsg != null){
+		System.err.println(errorMsg);
+		System.exit(1);
+	    }
+	}
+	System.exit(complete ? 0 : 1);
+    }
+}
+
+/*
+ * -- BatchAnalyzer.java ends here --
+ */
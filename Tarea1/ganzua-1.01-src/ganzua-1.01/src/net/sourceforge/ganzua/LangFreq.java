@@ -29,18 +29,20 @@
 
 package net.sourceforge.ganzua;
 
-import java.net.URL;
 import java.util.*;
 import java.text.Collator;
 import java.text.CollationKey;
 import java.text.BreakIterator;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.*;
 import org.xml.sax.*;
-import javax.xml.parsers.SAXParserFactory;
-import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.ParserConfigurationException;
 import net.sourceforge.ganzua.handler.AlphabetRulesHandler;
 import net.sourceforge.ganzua.handler.LanguageFrequenciesHandler;
+import net.sourceforge.ganzua.handler.ParserPool;
 import net.sourceforge.ganzua.text.*;
 import net.sourceforge.ganzua.exception.*;
 
@@ -123,59 +125,60 @@ public class LangFreq
     protected List trigramLst;
 
     /**
-     * <code>String</code> used to store the absolute path of the instance of
-     * <code>&lt;alphabetRules /&gt;</code> used. */
-    protected String rulesPath;
+     * <code>List</code>s of <code>StringFreq</code>s that contain the
+     * n-grams of the orders larger than 3 found in the source document and
+     * their frequencies, the ones of order <code>n</code> at index
+     * <code>n-4</code>. Only the orders up to <code>order</code> are
+     * counted. */
+    protected List[] nGramLsts;
 
     /**
-     * Set of configuration properties. <code>null</code> if a
-     * configuration properties file is not provided. The configuration
-     * properties tell the program the directory it is installed in, the
-     * directory where the schemata can be found and where the language
-     * frequencies files are stored. */
-    private static final Properties configProp;
-
-    /* Initialize <code>configProp</code>. If the configuration properties file
-     * exists, set <code>configProp</code> to a new <code>Properties</code>
-     * with the file contents, otherwise, set it to <code>null</code>. */
-    static{
-	Properties configProperties = null;
-	URL conf =LangFreq.class.getResource(AnalyzerConstants.CONFIG_FILE);
-	if(conf != null){
-	    try{
-		InputStream is = conf.openStream();
-		configProperties= new Properties();
-		configProperties.load(is);
-		is.close();
-	    }catch(IOException ioe){}
-	}
-        configProp = configProperties;
-    }
+     * The largest order of the n-grams counted, 3 (trigrams) by default. */
+    protected int order = 3;
 
     /**
-     * Used to store the directory the program is installed to. Unless
-     * specified in <code>configProp</code> the directory that contains
-     * the language frequencies is a subdirctory of <code>rootDir</code>
-     * named <code>AnalyzerConstants.FREQUENCIES_PATH</code> and the
-     * schemata used by the program are in one named
-     * <code>AnalyzerConstants.SCHEMATA_PATH</code>. Do <u>not</u> use
-     * this variable directly, use the <code>findRootDir()</code> method.*/
-    private File rootDir;
+     * The smallest frequency an n-gram (of order 2 or higher) must have
+     * to be kept, <code>1</code> if none is pruned. */
+    protected int minCount = 1;
 
     /**
-     * Used to store the directory the schemata can be found in. Unless
-     * specified in <code>configProp</code>, <code>schemataDir</code> is
-     * a subdirectory of <code>rootDir</code>. Do <u>not</u> use this variable
-     * directly, use the <code>findSchemataDir()</code> method.*/
-    private File schemataDir;
+     * Number of different n-grams of an order a
+     * <code>CountingWorker</code> may hold before the ones less frequent
+     * than <code>minCount</code> are pruned. */
+    private static final int PRUNE_LIMIT = 1 << 20;
 
     /**
-     * Used to store the directory the language frequencies can be found in.
-     * Unless specified in <code>configProp</code>, <code>langFreqDir</code>
-     * is a subdirctory of <code>rootDir</code> named 
-     * <code>AnalyzerConstants.FREQUENCIES_PATH</code>. Do <u>not</u> use this
-     * variable directly, use the <code>findLangFreqDir()</code> method.*/
-    private File langFreqDir;
+     * Number of threads used to count the source documents. */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The source documents, in the order they are counted. */
+    private File[] sourceFiles;
+
+    /**
+     * Index in <code>sourceFiles</code> of the next document to be counted
+     * by a <code>CountingWorker</code>. */
+    private int nextSource;
+
+    /**
+     * <code>true</code> if a <code>CountingWorker</code> could not read
+     * a source document. */
+    private boolean failed;
+
+    /**
+     * Value of the <code>char</code>s in
+     * <code>CountingWorker.charCodes</code> that have not been seen. */
+    private static final int UNKNOWN_CODE = -2;
+
+    /**
+     * Number of <code>char</code>s decoded from the source document at a
+     * time. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * <code>String</code> used to store the absolute path of the instance of
+     * <code>&lt;alphabetRules /&gt;</code> used. */
+    protected String rulesPath;
 
     /**
      * Used to store the path of the file from which the relative frequencies
@@ -236,6 +239,10 @@ public class LangFreq
 	   more than efficient editing in this case */
 	bigramLst = new ArrayList();
 	trigramLst = new ArrayList();
+	nGramLsts = new List[NGramCounter.MAX_ORDER - 3];
+	for(int i=0; i<nGramLsts.length; i++){
+	    nGramLsts[i] = new ArrayList();
+	}
 	handler = null; // 'destroy' the handler
 	sortLists(); // sort lists
     }
@@ -274,8 +281,8 @@ public class LangFreq
 
     /**
      * Tries to find the directory the program is in using 
-     * <code>findRootDir</code>. If it can not be determined, then an
-     * exception is thrown.
+     * <code>AnalyzerConfiguration.findRootDir</code>. If it can not be
+     * determined, then an exception is thrown.
      *
      * @throws LangFreqException if the program can not determine the directory it is in.
      * @throws IOException if an IOException occurs
@@ -283,7 +290,7 @@ public class LangFreq
     private final void checkRootDirAvailable() throws LangFreqException,
 						      IOException
     {
-	if(findRootDir() == null){
+	if(AnalyzerConfiguration.findRootDir() == null){
 	    throw new LangFreqException("ERROR: Unable to find schemata. "+
 					"Use the JAR or check "+
 					AnalyzerConstants.CONFIG_FILE);
@@ -306,28 +313,24 @@ public class LangFreq
 	       FileNotFoundException, IOException
     {
 	AlphabetRulesHandler handler = new AlphabetRulesHandler();
-	// Use the validating namespace aware parser
-	SAXParserFactory saxFactory = SAXParserFactory.newInstance();
-	saxFactory.setValidating(true);
-	saxFactory.setNamespaceAware(true);
 	// Parse the input
 	File rulesF = null;
 	try{
-	    SAXParser saxParser = saxFactory.newSAXParser();
-	    saxParser.setProperty(AnalyzerConstants.JAXP_SCHEMA_LANGUAGE,
-				  AnalyzerConstants.W3C_XML_SCHEMA);
-	    String schemataPath = findSchemataDir().getCanonicalPath() +
+	    String schemataPath = AnalyzerConfiguration.findSchemataDir().getCanonicalPath() +
 		                  System.getProperty("file.separator");
-	    // Set schema source
-	    saxParser.setProperty(AnalyzerConstants.JAXP_SCHEMA_SOURCE,
-				  new File(schemataPath +
-					   AnalyzerConstants.ALPHABET_RULES_SCHEMA_FILE));
+	    // Use a validating namespace aware parser for the schema
+	    ParserPool parsers =
+		ParserPool.getInstance(new File(schemataPath +
+						AnalyzerConstants.ALPHABET_RULES_SCHEMA_FILE));
 	    rulesF = xmlFile;
 	    this.setRulesPath(rulesF.getCanonicalPath());
 	    rulesF = new File(getRulesPath());
 	    FileInputStream rulesIS = new FileInputStream(rulesF);
-	    saxParser.parse(rulesIS, handler, schemataPath);
-	    rulesIS.close();
+	    try{
+		parsers.parse(rulesIS, handler, schemataPath);
+	    }finally{
+		rulesIS.close();
+	    }
         } catch(SecurityException se){
 	    throw new SecurityException("Unable to read\"" + rulesF.getPath() +
 					"\". Permission denied.");
@@ -440,10 +443,82 @@ public class LangFreq
 	return trigramLst;
     }
 
+    /**
+     * Returns the <code>List</code> of <code>StringFreq</code>s that contains
+     * the n-grams of order <code>n</code> and their frequencies. It is
+     * empty if <code>n</code> is larger than <code>getOrder()</code>.
+     *
+     * @param n the order, from 2 (bigrams) to
+     *          <code>NGramCounter.MAX_ORDER</code>
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public List getNGramLst(int n) throws IllegalArgumentException
+    {
+	if(n < 2 || n > NGramCounter.MAX_ORDER){
+	    throw new IllegalArgumentException("n out of range");
+	}else if(n == 2){
+	    return bigramLst;
+	}else if(n == 3){
+	    return trigramLst;
+	}
+	return nGramLsts[n-4];
+    }
+
+    /**
+     * Sets the largest order of the n-grams counted by
+     * <code>getFrequencies()</code>. The characters, bigrams and trigrams
+     * are always counted.
+     *
+     * @param n the largest order, from 3 to <code>NGramCounter.MAX_ORDER</code>
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public void setOrder(int n) throws IllegalArgumentException
+    {
+	if(n < 3 || n > NGramCounter.MAX_ORDER){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	order = n;
+    }
+
+    /**
+     * Returns the largest order of the n-grams counted.
+     */
+    public int getOrder(){
+	return order;
+    }
+
+    /**
+     * Sets the smallest frequency an n-gram of order 2 or higher must
+     * have to be written. The rare n-grams are the larger part of the
+     * tables of high orders, so pruning them bounds their size. While the
+     * source documents are counted, the n-grams seen only once are pruned
+     * from a table that grows beyond <code>PRUNE_LIMIT</code> n-grams, so
+     * the frequencies kept may be slightly smaller than the real ones.
+     *
+     * @param count the smallest frequency, <code>1</code> to keep them all
+     * @throws IllegalArgumentException if <code>count &lt; 1</code>
+     */
+    public void setMinimumCount(int count) throws IllegalArgumentException
+    {
+	if(count < 1){
+	    throw new IllegalArgumentException("count < 1");
+	}
+	minCount = count;
+    }
+
+    /**
+     * Returns the smallest frequency an n-gram of order 2 or higher must
+     * have to be written.
+     */
+    public int getMinimumCount(){
+	return minCount;
+    }
+
     /**
      * Returns a <code>String</code> with the path of the file from which the
      * relative frequencies are obtained or an empty <code>String</code> 
-     * if it has not been set.
+     * if it has not been set. It may also be a directory, a pattern or a
+     * list of them (see <code>getFrequencies()</code>).
      *
      * @return a <code>String</code> with the path of the file from which the
      *         relative frequencies are obtained.
@@ -509,103 +584,6 @@ public class LangFreq
 	rulesPath = path;
     }
 
-    /**
-     * Returns the path to the directory containing  the schemata
-     * as a <code>File</code> or <code>null</code> if it could not be
-     * found.<br/>
-     * Note that this method does not guarantee the existance of such 
-     * directory.
-     *
-     * @return the path to the directory containing the schemata as a 
-     *         <code>File</code> or <code>null</code> if it could not be found.
-     * @throws IOException if an I/O error occurs
-     */
-    private final File findSchemataDir() throws IOException
-    {
-	if(schemataDir != null){
-	    return schemataDir;
-	}
-	String scProperty = configProp==null ? null
-	                    : configProp.getProperty(AnalyzerConstants.SCHEMATA_DIR_KEY);
-	schemataDir =  scProperty==null ? null : new File(scProperty);
-	if(schemataDir == null){
-	    File rootDir = findRootDir();
-	    if(rootDir != null){
-		schemataDir = new File(rootDir.getCanonicalPath() + 
-				       System.getProperty("file.separator") + 
-				       AnalyzerConstants.SCHEMATA_PATH);
-	    }
-	}
-	return schemataDir;
-    }
-
-    /**
-     * Returns the path to the directory containing  the language frequencies
-     * files as a <code>File</code> or <code>null</code> if it could not be
-     * found.<br/>
-     * Note that this method does not guarantee the existance of such 
-     * directory.
-     *
-     * @return the path to the directory containing the language frequencies as
-     *         a <code>File</code> or <code>null</code> if it could not be
-     *         found.
-     * @throws IOException if an I/O error occurs
-     */
-    private final File findLangFreqDir() throws IOException
-    {
-	if(langFreqDir != null){
-	    return langFreqDir;
-	}
-	String lfProperty = configProp==null ? null
-	                    : configProp.getProperty(AnalyzerConstants.LANGUAGE_FREQUENCIES_DIR_KEY);
-	langFreqDir = lfProperty==null ? null : new File(lfProperty);
-	if(langFreqDir == null){
-	    File rootDir = findRootDir();
-	    if(rootDir != null){
-		langFreqDir = new File(rootDir.getCanonicalPath() + 
-				       System.getProperty("file.separator") + 
-				       AnalyzerConstants.FREQUENCIES_PATH);
-	    }
-	}
-	return langFreqDir;
-    }
-
-    /**
-     * Returns the path to the application's root directory if
-     * it is sepecified in the the configuration property file or
-     * if the program is being executed from a JAR file, and <code>null</code>
-     * otherwise. <br/>
-     * Note that this method does not guarantee the existance of such 
-     * directory.
-     *
-     * @return the canonical path of the application's root directory if  it is
-     *         sepecified in the the configuration property file or if the 
-     *         program is being executed from a JAR file.
-     *
-     * @throws IOException if an I/O error occurs
-     */
-    private final File findRootDir() throws IOException
-    {
-	if(rootDir != null){
-	    return rootDir;
-	}
-	String rdProperty = configProp==null ? null
-	                  : configProp.getProperty(AnalyzerConstants.ROOT_DIR_KEY);
-	rootDir = configProp==null || rdProperty==null ? null 
-	          : new File(rdProperty);
-	if(rootDir == null){
-	    String classpath = System.getProperty("java.class.path");
-	    StringTokenizer st = new StringTokenizer(classpath, System.getProperty("path.separator"));
-	    if(st.countTokens()<=1 && 
-	       classpath.toLowerCase().endsWith(".jar")){
-		rootDir = new File(classpath);
-		rootDir = new File(rootDir.getCanonicalPath());
-		rootDir = rootDir.getParentFile();
-	    }
-	}
-	return rootDir;
-    }
-
     /**
      * Program that receives an instance of the XML document type defined
      * in the schema <code>AlphabetRules.xsd</code> and writes a UTF-8 encoded
@@ -632,7 +610,8 @@ public class LangFreq
      */
     public static void main(String [] args){
 	final String usage = "\nUsage:\n"+ 
-	    "\tjava -jar langFreq.jar [-o <file>] <alphabet rules>\n\n"+
+	    "\tjava -jar langFreq.jar [-o <file>] [-j <n>] [-n <order>] [-p <count>]\n"+
+	    "\t                       [-m <freqs>]... <alphabet rules>\n\n"+
 	    "  where <alphabet rules> is an instance of the XML document type\n"+
 	    "  defined in the schema AlphabetRules.xsd and the options are:\n\n"+
 	    "    -o <file>   write the language frequencies to the specified file.\n"+
@@ -642,10 +621,25 @@ public class LangFreq
 	    "                inside the language frequencies directory or in the\n"+
 	    "                user's home directory if the user lacks permission to\n"+
 	    "                write in the former.\n\n"+
+	    "    -j <n>      use up to n threads to count the source documents.\n"+
+	    "                By default, one per available processor.\n\n"+
+	    "    -n <order>  count the n-grams up to the specified order, from 3\n"+
+	    "                (trigrams, the default) to 5.\n\n"+
+	    "    -p <count>  prune the n-grams (but not the characters) whose\n"+
+	    "                frequency is smaller than count. Bounds the size of\n"+
+	    "                the tables of high orders. By default none are.\n\n"+
+	    "    -m <freqs>  add the frequencies of the language frequencies\n"+
+	    "                document <freqs> to the ones of the source. It must\n"+
+	    "                have been obtained with compatible rules. May be\n"+
+	    "                used more than once.\n\n"+
 	    "    -help       display this help and exit. Also --help";
 	String errorMsg = null; // !=null if some exception is thrown
 	String xmlFile = null;
 	String outputFile = null;
+	int threads = 0; // 0 if -j is not used
+	int nGramOrder = 3;
+	int pruneCount = 1; // 1 if -p is not used
+	ArrayList mergeFiles = new ArrayList(); // documents given with -m
 	if(args.length < 1){
 	    System.out.println(usage);
 	    System.exit(1);
@@ -661,6 +655,46 @@ public class LangFreq
 			}else{
 			    outputFile = args[i].substring(2);
 			}
+		    }else if(args[i].substring(0, 2).equals("-m")){
+			if(args[i].length() == 2){
+			    i++;
+			    mergeFiles.add(args[i]);
+			}else{
+			    mergeFiles.add(args[i].substring(2));
+			}
+		    }else if(args[i].substring(0, 2).equals("-n")){
+			if(args[i].length() == 2){
+			    i++;
+			    nGramOrder = Integer.parseInt(args[i]);
+			}else{
+			    nGramOrder = Integer.parseInt(args[i].substring(2));
+			}
+			if(nGramOrder < 3 || nGramOrder > NGramCounter.MAX_ORDER){
+			    System.out.println(usage);
+			    System.exit(1);
+			}
+		    }else if(args[i].substring(0, 2).equals("-p")){
+			if(args[i].length() == 2){
+			    i++;
+			    pruneCount = Integer.parseInt(args[i]);
+			}else{
+			    pruneCount = Integer.parseInt(args[i].substring(2));
+			}
+			if(pruneCount < 1){
+			    System.out.println(usage);
+			    System.exit(1);
+			}
+		    }else if(args[i].substring(0, 2).equals("-j")){
+			if(args[i].length() == 2){
+			    i++;
+			    threads = Integer.parseInt(args[i]);
+			}else{
+			    threads = Integer.parseInt(args[i].substring(2));
+			}
+			if(threads < 1){
+			    System.out.println(usage);
+			    System.exit(1);
+			}
 		    }else{
 			System.out.println(usage);
 			System.exit(1);
@@ -671,6 +705,10 @@ public class LangFreq
 		   smaller than 2 */
 		System.out.println(usage);
 		System.exit(1);
+	    }catch(NumberFormatException nfe){
+		// the argument to -j, -n or -p is not a number
+		System.out.println(usage);
+		System.exit(1);
 	    }
 	}
 	if(xmlFile == null){
@@ -683,9 +721,19 @@ public class LangFreq
 	    /* Create an instance of LangFreq to generate the 
 	       relative frequencies file */
 	    LangFreq generator = new LangFreq(xmlFile);
+	    if(threads > 0){
+		generator.setNumberOfThreads(threads);
+	    }
+	    generator.setOrder(nGramOrder);
+	    generator.setMinimumCount(pruneCount);
 	    // read the input file and get the character frequencies
-	    System.out.println("\nGetting character, bigram and trigram frequencies. Please be patient.");
+	    System.out.println("\nGetting character and n-gram frequencies up to order " + nGramOrder + ". Please be patient.");
 	    generator.getFrequencies();
+	    // add the frequencies of the documents being merged
+	    for(int i=0; i<mergeFiles.size(); i++){
+		System.out.println("\nMerging " + mergeFiles.get(i));
+		generator.mergeFrequencies(new File((String)mergeFiles.get(i)));
+	    }
 	    // write the relative frequencies XML document
 	    File f = outputFile == null ? generator.getDefaultOutputFile()
 		                        : new File(outputFile);
@@ -720,6 +768,9 @@ public class LangFreq
 	    errorMsg = e.getMessage();
 	}catch(NullPointerException npe){
 	    errorMsg = usage;
+	}catch(OutOfMemoryError oome){
+	    errorMsg = "ERROR: Out of memory. Use -p to prune the n-grams or"+
+		       " give Java a larger heap (-Xmx)";
 	}finally{
 	    if(errorMsg != null){
 		System.err.println(errorMsg);
@@ -738,34 +789,139 @@ public class LangFreq
     }
 
     /**
-     * Adds a <code>StringFreq</code> with <code>strKey</code> and frequency 1
-     * to the ordered <code>List</code> <code>list</code> if it is not already
-     * in it and increments the number of occurrences otherwise.
+     * Copies the counts of the user characters in <code>counter</code> to
+     * <code>includeExLst</code> (or <code>includeLst</code> if the former is
+     * empty) and sets <code>bigramLst</code>, <code>trigramLst</code> and
+     * <code>nGramLsts</code> to the n-grams in it, without the ones less
+     * frequent than <code>minCount</code>.
+     *
+     * @param counter the <code>NGramCounter</code> used to count
+     * @param symbols the <code>CollationKey</code>s of the codes used in
+     *                <code>counter</code>
+     */
+    private final void addCounts(NGramCounter counter, List symbols){
+	List charLst = includeExLst.size() != 0 ? includeExLst : includeLst;
+	for(int code=0; code<symbols.size(); code++){
+	    int freq = counter.getCount(code);
+	    if(freq == 0){
+		continue;
+	    }
+	    CollationKey uCharKey = (CollationKey)symbols.get(code);
+	    int idx = Collections.binarySearch(charLst, uCharKey, csComp);
+	    if(idx>=0){
+		StringFreq sf = (StringFreq)charLst.get(idx);
+		sf.setFrequency(sf.getFrequency() + freq);
+	    } else{ // add it to the list
+		charLst.add(-(idx+1), new StringFreq(uCharKey, freq));
+	    }
+	}
+	for(int n=2; n<=order; n++){
+	    if(minCount > 1){
+		counter.prune(n, minCount);
+	    }
+	    ArrayList lst = counter.getStringFreqs(n, symbols, collator);
+	    if(n == 2){
+		bigramLst = lst;
+	    }else if(n == 3){
+		trigramLst = lst;
+	    }else{
+		nGramLsts[n-4] = lst;
+	    }
+	}
+    }
+
+    /**
+     * Adds the counts of all the <code>CountingWorker</code>s in
+     * <code>workers</code> and copies them to the lists of characters,
+     * bigrams, trigrams, etc. (see <code>addCounts</code>). Every worker has
+     * its own codes, so they are mapped to a common set of codes first.
+     *
+     * @param workers the <code>CountingWorker</code>s that have finished
+     */
+    private final void mergeCounts(CountingWorker[] workers){
+	if(workers.length == 1){
+	    addCounts(workers[0].counter, workers[0].symbols);
+	    return;
+	}
+	ArrayList symbols = new ArrayList();
+	HashMap symbolMap = new HashMap();
+	int[][] codes = new int[workers.length][];
+	for(int w=0; w<workers.length; w++){
+	    List wSymbols = workers[w].symbols;
+	    codes[w] = new int[wSymbols.size()];
+	    for(int i=0; i<codes[w].length; i++){
+		Object key = wSymbols.get(i);
+		Integer code = (Integer)symbolMap.get(key);
+		if(code == null){
+		    code = new Integer(symbols.size());
+		    symbolMap.put(key, code);
+		    symbols.add(key);
+		}
+		codes[w][i] = code.intValue();
+	    }
+	}
+	NGramCounter total = new NGramCounter(order, symbols.size());
+	int[] gram = new int[order];
+	for(int w=0; w<workers.length; w++){
+	    for(int n=1; n<=order; n++){
+		NGramCounter.Entries e = workers[w].counter.getEntries(n);
+		for(int i=0; i<e.size(); i++){
+		    for(int k=0; k<n; k++){
+			gram[k] = codes[w][e.codes[i*n + k]];
+		    }
+		    total.addCount(gram, 0, n, e.counts[i]);
+		}
+	    }
+	}
+	addCounts(total, symbols);
+    }
+
+    /**
+     * Sets the maximum number of threads used to count the source
+     * documents. By default it is the number of available processors.
      *
-     * @param strKey the string's <code>CollationKey</code>
-     * @param list the ordered <code>List</code> of arrays of
-     *             <code>Object</code>s
+     * @param n the number of threads
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
      */
-    private final void add(CollationKey strKey, List list){
-	int idx = Collections.binarySearch(list, strKey, csComp);
-	if(idx>=0){ // increment the number of occurrences
-	    ((StringFreq)list.get(idx)).increment();
-	} else{ // add it to the list
-	    list.add(-(idx+1), new StringFreq(strKey, 1));
+    public void setNumberOfThreads(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n < 1");
 	}
+	numThreads = n;
+    }
+
+    /**
+     * Returns the maximum number of threads used to count the source
+     * documents.
+     */
+    public int getNumberOfThreads(){
+	return numThreads;
     }
 
     /**
-     * Method that reads the input file <code>source</code> and gets the
-     * frequencies of the user characters, bigrams and trigrams.<br/>
+     * Method that reads the source documents and gets the frequencies of
+     * the user characters, bigrams, trigrams and, if <code>getOrder()</code>
+     * is larger than 3, the n-grams of higher orders.<br/>
      *
-     * The input file <code>source</code> is the file from which the
-     * language's relative frequencies are calculated.
+     * <code>source</code> may be the path of a file or directory, a
+     * pattern like <code>/corpus/*.txt</code> or a list of them separated
+     * by the path separator of the system (<code>:</code> or
+     * <code>;</code>); see <code>findSourceFiles</code>. The documents
+     * are counted by up to <code>getNumberOfThreads()</code>
+     * <code>CountingWorker</code>s, each one with its own counts, which
+     * are added at the end. No bigram or trigram spans two documents, so
+     * the result does not depend on the number of threads.<br/>
      *
-     * @throws FileNotFoundException if <code>source</code>  can not be found
-     * @throws SecurityException if the user is not allowed to read <code>source</code>
-     * @throws UnsupportedEncodingException if the encoding of <code>source</code> is not supported
-     * @throws IOException if an I/O error occurs
+     * Every document is read in chunks of <code>CHUNK_SIZE</code>
+     * characters, so the memory used does not depend on its size.
+     *
+     * @throws FileNotFoundException if a source document can not be found
+     * @throws SecurityException if the user is not allowed to read a source document
+     * @throws UnsupportedEncodingException if the encoding of the source documents is not supported
+     * @throws IOException if an I/O error occurs, or the thread is interrupted while it waits for the workers (<code>InterruptedIOException</code>)
+     * @throws RuntimeException if a worker throws one while counting
+     * @throws Error if a worker throws one while counting, e.g. an <code>OutOfMemoryError</code>
      */
     public final void getFrequencies() throws FileNotFoundException,
 					      SecurityException,
@@ -773,146 +929,668 @@ public class LangFreq
 					      IOException
     {
 	try{
-	    File f = new File(source);
-	    source = f.getCanonicalPath();
-	    FileInputStream fis = new FileInputStream(source);
-	    InputStreamReader isr = new InputStreamReader(fis,
-							  sourceEncoding);
-	    BufferedReader in = new BufferedReader(isr);
-	    String uChar = getNextUserChar(in);
-	    // Used in the creation of the trigram list
-	    String prevUChar = null;
-	    // Used in the creation of the bigram list
-	    String lastUChar = null;
-	    /* Used to avoid the creation of StringBuffers caused by the 
-	       use of the String operator + */
-	    StringBuffer sb = new StringBuffer();
-	    CollationKey repCharKey; // to store the replacement CollationKey
-	    if(includeExLst.size() != 0){ // use includeExLst
-		while(uChar != null){
-		    CollationKey uCharKey = collator.getCollationKey(uChar);
-		    // Replace the user character if so indicated in <replace>
-		    repCharKey = (CollationKey)replaceMap.get(uCharKey);
-		    if(repCharKey!=null){
-			uCharKey = repCharKey;
-			uChar = repCharKey.getSourceString();
-		    }
-		    /* Increment the number of occurrences if the caracter
-		       appears in <includeExclusively> */
-		    int idx = Collections.binarySearch(includeExLst, uCharKey, csComp);
-		    if(idx >= 0){
-			((StringFreq)includeExLst.get(idx)).increment();
-
-			if(prevUChar!=null){
-			    sb.delete(0, sb.length());
-			    String tmp = sb.append(prevUChar).append(lastUChar).append(uChar).toString();
-			    add(collator.getCollationKey(tmp), trigramLst);
-			}
-			if(lastUChar!=null){
-			    sb.delete(0, sb.length());
-			    String tmp = sb.append(lastUChar).append(uChar).toString();
-			    add(collator.getCollationKey(tmp), bigramLst);
-			    prevUChar = lastUChar;
+	    newDecoder(sourceEncoding);
+	}catch(UnsupportedEncodingException uee){
+	    throw new UnsupportedEncodingException(sourceEncoding +" is not " +
+						   "a supported encoding");
+	}
+	sourceFiles = findSourceFiles(source);
+	source = canonicalSource(source);
+	nextSource = 0;
+	failed = false;
+	CountingWorker[] workers =
+	    new CountingWorker[Math.min(numThreads, sourceFiles.length)];
+	for(int i=0; i<workers.length; i++){
+	    workers[i] = new CountingWorker();
+	}
+	if(workers.length == 1){
+	    workers[0].run();
+	}else{
+	    for(int i=0; i<workers.length; i++){
+		workers[i].start();
+	    }
+	    for(int i=0; i<workers.length; i++){
+		try{
+		    workers[i].join();
+		}catch(InterruptedException ie){
+		    // stop the workers after their current documents
+		    setFailed();
+		    Thread.currentThread().interrupt();
+		    throw new InterruptedIOException("Interrupted while counting"+
+						     " the source documents");
+		}
+	    }
+	}
+	for(int i=0; i<workers.length; i++){
+	    Throwable error = workers[i].error;
+	    if(error instanceof IOException){
+		throw (IOException)error;
+	    }else if(error instanceof RuntimeException){
+		throw (RuntimeException)error;
+	    }else if(error instanceof Error){
+		throw (Error)error;
+	    }
+	}
+	mergeCounts(workers);
+    }
+
+    /**
+     * Returns the next source document that should be counted or
+     * <code>null</code> if there are no more or a worker failed.
+     */
+    private synchronized File nextSourceFile(){
+	if(failed || nextSource == sourceFiles.length){
+	    return null;
+	}
+	return sourceFiles[nextSource++];
+    }
+
+    /**
+     * Called by a <code>CountingWorker</code> that failed to read a
+     * source document, so the others stop.
+     */
+    private synchronized void setFailed(){
+	failed = true;
+    }
+
+    /**
+     * Returns the source documents specified by <code>src</code>, a list
+     * of paths separated by <code>File.pathSeparator</code>. Every path
+     * may be a file, a directory (all the files in it and its
+     * subdirectories are used) or a pattern where the last name may
+     * contain the wildcards <code>*</code> and <code>?</code>. The files
+     * of a directory or pattern are sorted by name.
+     *
+     * @param src the paths of the source documents
+     * @throws FileNotFoundException if a path does not exist or a pattern matches no file
+     * @throws IOException if an I/O error occurs
+     */
+    private static File[] findSourceFiles(String src)
+	throws FileNotFoundException, IOException
+    {
+	ArrayList files = new ArrayList();
+	StringTokenizer st = new StringTokenizer(src, File.pathSeparator);
+	while(st.hasMoreTokens()){
+	    String path = st.nextToken().trim();
+	    if(path.length() == 0){
+		continue;
+	    }
+	    File f = new File(path);
+	    int found = files.size();
+	    if(isPattern(f.getName())){
+		File dir = f.getAbsoluteFile().getParentFile();
+		File[] lst = dir == null ? null : dir.listFiles();
+		if(lst != null){
+		    Arrays.sort(lst);
+		    for(int i=0; i<lst.length; i++){
+			if(lst[i].isFile() &&
+			   matches(f.getName(), lst[i].getName(), 0, 0)){
+			    files.add(new File(lst[i].getCanonicalPath()));
 			}
-			lastUChar = uChar;
 		    }
-		    uChar = getNextUserChar(in);
 		}
-	    } else{ // use includeLst and ignoreSet
-		while(uChar != null){
-		    CollationKey uCharKey = collator.getCollationKey(uChar);
-		    // Replace the user character if so indicated in <replace>
-		    repCharKey = (CollationKey)replaceMap.get(uCharKey);
-		    if(repCharKey!=null){
-			uCharKey = repCharKey;
-			uChar = repCharKey.getSourceString();
-		    }
-		    /* If the character is not in <ignore>, add it or
-		       increment the number of occurences in includeLst */
-		    if(!ignoreSet.contains(uCharKey)){
-			add(uCharKey, includeLst);
-			if(prevUChar!=null){
-			    sb.delete(0, sb.length());
-			    String tmp = sb.append(prevUChar).append(lastUChar).append(uChar).toString();
-			    add(collator.getCollationKey(tmp), trigramLst);
-			}
-			if(lastUChar!=null){
-			    sb.delete(0, sb.length());
-			    String tmp = sb.append(lastUChar).append(uChar).toString();
-			    add(collator.getCollationKey(tmp), bigramLst);
-			    prevUChar = lastUChar;
-			}
-			lastUChar = uChar;
+	    }else if(f.isDirectory()){
+		addFiles(f, files);
+	    }else if(f.exists()){
+		files.add(new File(f.getCanonicalPath()));
+	    }
+	    if(files.size() == found && !f.isDirectory()){
+		throw new FileNotFoundException("File \""+ path +
+						"\" not found");
+	    }
+	}
+	if(files.size() == 0){
+	    throw new FileNotFoundException("No source documents found in \""
+					    + src + "\"");
+	}
+	return (File[])files.toArray(new File[files.size()]);
+    }
+
+    /**
+     * Adds to <code>files</code> the files in the directory
+     * <code>dir</code> and its subdirectories, sorted by name.
+     */
+    private static void addFiles(File dir, List files) throws IOException
+    {
+	File[] lst = dir.listFiles();
+	if(lst == null){
+	    return;
+	}
+	Arrays.sort(lst);
+	for(int i=0; i<lst.length; i++){
+	    if(lst[i].isDirectory()){
+		addFiles(lst[i], files);
+	    }else if(lst[i].isFile()){
+		files.add(new File(lst[i].getCanonicalPath()));
+	    }
+	}
+    }
+
+    /**
+     * Returns <code>true</code> if <code>name</code> contains a wildcard.
+     */
+    private static boolean isPattern(String name){
+	return name.indexOf('*') >= 0 || name.indexOf('?') >= 0;
+    }
+
+    /**
+     * Returns <code>true</code> if <code>name</code>, from
+     * <code>n</code>, matches <code>pattern</code> from <code>p</code>.
+     * In the pattern, <code>*</code> matches any sequence of characters
+     * and <code>?</code> matches any character.
+     */
+    private static boolean matches(String pattern, String name, int p, int n){
+	while(p < pattern.length()){
+	    char c = pattern.charAt(p);
+	    if(c == '*'){
+		for(int i=n; i<=name.length(); i++){
+		    if(matches(pattern, name, p+1, i)){
+			return true;
 		    }
-		    uChar = getNextUserChar(in);
 		}
+		return false;
+	    }else if(n == name.length() || (c != '?' && c != name.charAt(n))){
+		return false;
 	    }
-	    in.close();
-	    isr.close();
-	    fis.close();
-	} catch(FileNotFoundException fnfe){
-	    throw new FileNotFoundException("File \""+ source +
-					    "\" not found");
-	} catch(SecurityException se){
-	    throw new SecurityException("Unable to read " + source +
-					"\". Permission denied.");
-	}catch(UnsupportedEncodingException uee){
-	    throw new UnsupportedEncodingException(sourceEncoding +" is not " +
-						   "a supported encoding");
+	    p++;
+	    n++;
 	}
+	return n == name.length();
     }
 
     /**
-     * Receives a <code>BufferedReader</code>, reads a user character and
-     * returns a string with that user character, or <code>null</code> if
-     * the end of the stream has been reached.
+     * Returns <code>src</code> with every path made canonical, used to
+     * write the <code>source</code> attribute.
+     */
+    private static String canonicalSource(String src) throws IOException
+    {
+	StringBuffer ret = new StringBuffer();
+	StringTokenizer st = new StringTokenizer(src, File.pathSeparator);
+	while(st.hasMoreTokens()){
+	    String path = st.nextToken().trim();
+	    if(path.length() == 0){
+		continue;
+	    }
+	    if(ret.length() != 0){
+		ret.append(File.pathSeparator);
+	    }
+	    File f = new File(path);
+	    if(isPattern(f.getName())){
+		File dir = f.getAbsoluteFile().getParentFile();
+		ret.append(new File(dir.getCanonicalPath(),
+				    f.getName()).getPath());
+	    }else{
+		ret.append(f.getCanonicalPath());
+	    }
+	}
+	return ret.toString();
+    }
+
+    /**
+     * Returns a <code>CharsetDecoder</code> for the encoding
+     * <code>encoding</code> that replaces malformed input and unmappable
+     * characters, as <code>InputStreamReader</code> does.
      *
-     * @param in the <code>BufferedReader</code> to read the user character
-     *           from
-     * @return a <code>String</code> with the next user character in
-     *         <code>in</code> or <code>null</code> if the end of the stream
-     *         has been reached
+     * @param encoding the name of the encoding
+     * @throws UnsupportedEncodingException if the encoding is not supported
      */
-    private String getNextUserChar(BufferedReader in) throws IOException
+    private static CharsetDecoder newDecoder(String encoding)
+	throws UnsupportedEncodingException
     {
-	in.mark(2);
-	int read = in.read();
-	StringBuffer uChar = new StringBuffer();
-	if(read == -1){
-	    return null;
-	} else{
-	    while(numChars(uChar.append((char)read).toString())<2 && 
-		  read != -1){
-		in.mark(2);
-		read = in.read();
+	try{
+	    return Charset.forName(encoding).newDecoder()
+		.onMalformedInput(CodingErrorAction.REPLACE)
+		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}catch(IllegalCharsetNameException icne){
+	    throw new UnsupportedEncodingException(encoding);
+	}catch(UnsupportedCharsetException uce){
+	    throw new UnsupportedEncodingException(encoding);
+	}
+    }
+
+    /**
+     * Thread that takes source documents from <code>nextSourceFile</code>
+     * until there are no more and counts their user characters, bigrams
+     * and trigrams. Every worker has its own codes, counts,
+     * <code>Collator</code> and <code>BreakIterator</code>, so it does
+     * not share anything that is modified with the other workers.
+     */
+    private class CountingWorker extends Thread{
+
+	/**
+	 * Used to create the <code>CollationKey</code>s of the user
+	 * characters read. */
+	private Collator wCollator = (Collator)collator.clone();
+
+	/**
+	 * Used to determine the limits of the user characters. */
+	private BreakIterator wCharIterator =
+	    BreakIterator.getCharacterInstance(locale);
+
+	/**
+	 * Maps the <code>String</code>s of the user characters read to their
+	 * codes (<code>Integer</code>s), or to <code>-1</code> if they are
+	 * not counted.
+	 *
+	 * @see #getCode(String)
+	 */
+	private HashMap codeMap = new HashMap();
+
+	/**
+	 * Maps the <code>CollationKey</code>s of the user characters counted
+	 * to their codes (<code>Integer</code>s). */
+	private HashMap symbolMap = new HashMap();
+
+	/**
+	 * For every <code>char</code>, the code of the user character formed
+	 * only by it (see <code>codeMap</code>), or <code>UNKNOWN_CODE</code>
+	 * if it has not been seen. Used to avoid creating a
+	 * <code>String</code> for every user character read.
+	 */
+	private int[] charCodes = new int[Character.MAX_VALUE + 1];
+
+	/**
+	 * The <code>CollationKey</code>s of the user characters counted, the
+	 * index of a character in this list is its code in
+	 * <code>counter</code>. */
+	private ArrayList symbols = new ArrayList();
+
+	/**
+	 * The counts of the documents read by this worker. */
+	private NGramCounter counter = new NGramCounter(order);
+
+	/**
+	 * The exception or error thrown while reading a document, if any. */
+	private Throwable error;
+
+	private CountingWorker(){
+	    Arrays.fill(charCodes, UNKNOWN_CODE);
+	}
+
+	public void run(){
+	    File f = null;
+	    try{
+		CharsetDecoder decoder = newDecoder(sourceEncoding);
+		while((f = nextSourceFile()) != null){
+		    FileInputStream fis = new FileInputStream(f);
+		    try{
+			countStream(fis.getChannel(), decoder);
+		    }finally{
+			fis.close();
+		    }
+		    // n-grams do not span documents
+		    counter.breakSequence();
+		    pruneLargeTables();
+		}
+	    }catch(FileNotFoundException fnfe){
+		error = new FileNotFoundException("File \""+ f.getPath() +
+						  "\" not found");
+		setFailed();
+	    }catch(SecurityException se){
+		error = new SecurityException("Unable to read " + f.getPath()
+					      + "\". Permission denied.");
+		setFailed();
+	    }catch(IOException ioe){
+		error = ioe;
+		setFailed();
+	    }catch(Throwable t){
+		error = t;
+		setFailed();
+	    }
+	}
+
+	/**
+	 * Prunes the n-grams seen only once from the orders of
+	 * <code>counter</code> that have more than <code>PRUNE_LIMIT</code>
+	 * different n-grams, if pruning was asked for. Only those are
+	 * removed because the documents not yet counted could make the
+	 * others reach <code>minCount</code>; the rest are pruned at the end.
+	 */
+	private final void pruneLargeTables(){
+	    if(minCount <= 1){
+		return;
 	    }
-	    if(read != -1){
-		in.reset();
+	    for(int n=2; n<=order; n++){
+		if(counter.getNumberOfEntries(n) > PRUNE_LIMIT){
+		    counter.prune(n, 2);
+		}
 	    }
-	    uChar.deleteCharAt(uChar.length()-1);
-	    return uChar.toString();
+	}
+
+	/**
+	 * Returns the code of the user character <code>uChar</code> in
+	 * <code>symbols</code> after replacing it if so indicated in
+	 * <code>&lt;replace&gt;</code>, or <code>-1</code> if it should not
+	 * be counted. The code of a character that has not been seen before
+	 * is the size of <code>symbols</code>, where its
+	 * <code>CollationKey</code> is added.<br/>
+	 *
+	 * The codes are stored in <code>codeMap</code>, so the
+	 * <code>CollationKey</code>s are only created the first time a
+	 * <code>String</code> is seen.
+	 *
+	 * @param uChar a user character
+	 */
+	private final int getCode(String uChar){
+	    Integer code = (Integer)codeMap.get(uChar);
+	    if(code != null){
+		return code.intValue();
+	    }
+	    CollationKey uCharKey = wCollator.getCollationKey(uChar);
+	    // Replace the user character if so indicated in <replace>
+	    CollationKey repCharKey = (CollationKey)replaceMap.get(uCharKey);
+	    if(repCharKey != null){
+		uCharKey = repCharKey;
+	    }
+	    int ret;
+	    if(includeExLst.size() != 0){
+		/* only the characters that appear in <includeExclusively> are
+		   counted */
+		ret = Collections.binarySearch(includeExLst, uCharKey, csComp) >= 0 ? 0 : -1;
+	    }else{
+		// the characters in <ignore> are not counted
+		ret = ignoreSet.contains(uCharKey) ? -1 : 0;
+	    }
+	    if(ret == 0){
+		Integer known = (Integer)symbolMap.get(uCharKey);
+		if(known == null){
+		    known = new Integer(symbols.size());
+		    symbolMap.put(uCharKey, known);
+		    symbols.add(uCharKey);
+		}
+		ret = known.intValue();
+	    }
+	    codeMap.put(uChar, new Integer(ret));
+	    return ret;
+	}
+
+	/**
+	 * Decodes the bytes read from <code>in</code> in chunks and counts
+	 * the user characters, bigrams and trigrams in them.<br/>
+	 *
+	 * The limits of the user characters of each chunk are found with a
+	 * single pass of <code>wCharIterator</code>. The last user character
+	 * of a chunk may continue in the next one (e.g. a u followed by a
+	 * combining ¨), so it is moved to the beginning of the buffer and
+	 * counted with the next chunk.
+	 *
+	 * @param in the source of the bytes
+	 * @param decoder the decoder for the source's encoding
+	 * @throws IOException if an I/O error occurs
+	 */
+	private final void countStream(ReadableByteChannel in,
+				       CharsetDecoder decoder)
+	    throws IOException
+	{
+	    ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+	    CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+	    CharArrayIterator charArrIter =
+		new CharArrayIterator(chars.array(), 0, 0);
+	    boolean eof = false;   // true if all the bytes have been read
+	    boolean done = false;  // true if all the chars have been decoded
+	    decoder.reset();
+	    while(!done){
+		if(!eof){
+		    eof = in.read(bytes) < 0;
+		}
+		bytes.flip();
+		CoderResult result = decoder.decode(bytes, chars, eof);
+		bytes.compact();
+		if(eof && result.isUnderflow()){
+		    done = decoder.flush(chars).isUnderflow();
+		}
+		char[] arr = chars.array();
+		int len = chars.position();
+		int counted = countChars(arr, len, done, charArrIter);
+		System.arraycopy(arr, counted, arr, 0, len-counted);
+		chars.position(len-counted);
+		if(counted == 0 && !chars.hasRemaining()){
+		    /* a single user character fills the buffer, make room for
+		       the rest of it */
+		    CharBuffer tmp = CharBuffer.allocate(chars.capacity()*2);
+		    chars.flip();
+		    tmp.put(chars);
+		    chars = tmp;
+		}
+	    }
+	}
+
+	/**
+	 * Counts the user characters in the first <code>len</code>
+	 * <code>char</code>s of <code>arr</code>. If <code>last</code> is
+	 * <code>false</code> the last user character is not counted because
+	 * it may not be complete.
+	 *
+	 * @return the number of <code>char</code>s counted
+	 */
+	private final int countChars(char[] arr,
+				     int len,
+				     boolean last,
+				     CharArrayIterator charArrIter)
+	{
+	    charArrIter.setText(arr, 0, len);
+	    wCharIterator.setText(charArrIter);
+	    int start = wCharIterator.first();
+	    int code;
+	    for(int end = wCharIterator.next();
+		end != BreakIterator.DONE && (last || end < len);
+		start = end, end = wCharIterator.next()){
+		if(end - start == 1){
+		    code = charCodes[arr[start]];
+		    if(code == UNKNOWN_CODE){
+			code = getCode(String.valueOf(arr[start]));
+			charCodes[arr[start]] = code;
+		    }
+		}else{
+		    code = getCode(new String(arr, start, end-start));
+		}
+		if(code >= 0){
+		    counter.add(code);
+		}
+	    }
+	    return start;
 	}
     }
 
     /**
-     * Function that returns the number of user characters in the
-     * string <code>str</code> according to <code>charIterator</code>
+     * Adds the frequencies of the user characters and n-grams in
+     * the instance of <code>LanguageFrequencies.xsd</code>
+     * <code>freqs</code> to the ones of this instance, so a corpus can be
+     * extended by counting only the new source documents. It must be
+     * called after <code>getFrequencies()</code>.<br/>
      *
-     * @param str a <code>String</code>
-     * @return the number of user characters in <code>str</code> according to
-     *         <code>charIterator</code>
+     * The frequencies in <code>freqs</code> must have been obtained for
+     * the same language and country, and every one of its user characters
+     * must be counted as itself by the rules of this instance (it is not
+     * replaced by another character nor ignored); otherwise the counts
+     * could not be combined and a <code>LangFreqException</code> is
+     * thrown. It must also have the n-grams of all the orders up to
+     * <code>getOrder()</code>. The source of <code>freqs</code> is added
+     * to <code>source</code>.
      *
-     * @see #setLocale
+     * @param freqs an instance of <code>LanguageFrequencies.xsd</code>
+     * @throws NullPointerException if <code>freqs</code> is <code>null</code>
+     * @throws LangFreqException if <code>freqs</code> is not compatible with the rules of this instance
+     * @throws SAXNotRecognizedException if W3C schemata, the schema source property or some other feature is not supported by the implementation of JAXP
+     * @throws SAXParseException if there is an error parsing <code>freqs</code>
+     * @throws SAXException if the parser reports an error
+     * @throws ParserConfigurationException if there is an error configuring the parser
+     * @throws SecurityException if the user is not allowed to read <code>freqs</code>
+     * @throws FileNotFoundException if <code>freqs</code> could not be found
+     * @throws IOException if an IOException occurs
+     */
+    public void mergeFrequencies(File freqs)
+	throws NullPointerException, LangFreqException,
+	       SAXNotRecognizedException, SAXParseException,
+	       SAXException, ParserConfigurationException, SecurityException,
+	       FileNotFoundException, IOException
+    {
+	if(freqs == null){
+	    throw new NullPointerException();
+	}
+	LanguageFrequenciesHandler handler = parseLanguageFrequencies(freqs);
+	if(!locale.equals(handler.getLocale())){
+	    throw new LangFreqException("ERROR: The language of \"" +
+					freqs.getPath() + "\" (" +
+					handler.getLocale() + ") is not " +
+					locale);
+	}
+	if(handler.getMaximumOrder() < order){
+	    throw new LangFreqException("ERROR: \"" + freqs.getPath() +
+					"\" has no n-grams of order " +
+					order);
+	}
+	ArrayList chars = toSortedList(handler.getAlphabet());
+	for(int i=0; i<chars.size(); i++){
+	    StringFreq sf = (StringFreq)chars.get(i);
+	    if(!countsAsItself(sf.getStringCK())){
+		throw new LangFreqException("ERROR: \"" + freqs.getPath() +
+					    "\" was obtained with incompatible"+
+					    " rules (\"" + handler.getRules() +
+					    "\"), the character \"" +
+					    sf.getString() + "\" is not " +
+					    "counted by " + rulesPath);
+	    }
+	}
+	if(includeExLst.size() != 0){
+	    includeExLst = mergeSorted(includeExLst, chars);
+	}else{
+	    includeLst = mergeSorted(includeLst, chars);
+	}
+	bigramLst = prune(mergeSorted(bigramLst,
+				      toSortedList(handler.getBigrams())));
+	trigramLst = prune(mergeSorted(trigramLst,
+				       toSortedList(handler.getTrigrams())));
+	for(int n=4; n<=order; n++){
+	    nGramLsts[n-4] = prune(mergeSorted(nGramLsts[n-4],
+					       toSortedList(handler.getNGrams(n))));
+	}
+	source = source + File.pathSeparator + handler.getSource();
+    }
+
+    /**
+     * Returns <code>true</code> if the user character <code>uCharKey</code>
+     * is counted as itself by the rules, i.e. it is not replaced by
+     * another character and it is not ignored.
+     */
+    private final boolean countsAsItself(CollationKey uCharKey){
+	CollationKey repCharKey = (CollationKey)replaceMap.get(uCharKey);
+	if(repCharKey != null && !repCharKey.equals(uCharKey)){
+	    return false;
+	}else if(includeExLst.size() != 0){
+	    return Collections.binarySearch(includeExLst, uCharKey, csComp) >= 0;
+	}
+	return !ignoreSet.contains(uCharKey);
+    }
+
+    /**
+     * Returns a sorted <code>ArrayList</code> with the
+     * <code>StringFreq</code>s of <code>freqs</code>, whose
+     * <code>CollationKey</code>s are created again with
+     * <code>collator</code> so they can be compared to the ones of this
+     * instance.
+     */
+    private final ArrayList toSortedList(Collection freqs){
+	ArrayList ret = new ArrayList(freqs.size());
+	for(Iterator iter = freqs.iterator(); iter.hasNext(); ){
+	    StringFreq sf = (StringFreq)iter.next();
+	    ret.add(new StringFreq(collator.getCollationKey(sf.getString()),
+				   sf.getFrequency()));
+	}
+	Collections.sort(ret);
+	return ret;
+    }
+
+    /**
+     * Returns a sorted <code>ArrayList</code> with the
+     * <code>StringFreq</code>s of the sorted lists <code>a</code> and
+     * <code>b</code>. The frequencies of equal <code>StringFreq</code>s
+     * are added. It takes time proportional to the size of both lists.
+     */
+    private static ArrayList mergeSorted(List a, List b){
+	ArrayList ret = new ArrayList(a.size() + b.size());
+	int i = 0;
+	int j = 0;
+	while(i < a.size() || j < b.size()){
+	    int cmp;
+	    if(i == a.size()){
+		cmp = 1;
+	    }else if(j == b.size()){
+		cmp = -1;
+	    }else{
+		cmp = ((StringFreq)a.get(i)).compareTo((StringFreq)b.get(j));
+	    }
+	    if(cmp < 0){
+		ret.add(a.get(i++));
+	    }else if(cmp > 0){
+		ret.add(b.get(j++));
+	    }else{
+		StringFreq sf = (StringFreq)a.get(i++);
+		sf.setFrequency(sf.getFrequency() +
+				((StringFreq)b.get(j++)).getFrequency());
+		ret.add(sf);
+	    }
+	}
+	return ret;
+    }
+
+    /**
+     * Removes from <code>lst</code> the <code>StringFreq</code>s whose
+     * frequency is smaller than <code>minCount</code> and returns it.
+     */
+    private final ArrayList prune(ArrayList lst){
+	if(minCount <= 1){
+	    return lst;
+	}
+	int last = 0;
+	for(int i=0; i<lst.size(); i++){
+	    if(((StringFreq)lst.get(i)).getFrequency() >= minCount){
+		lst.set(last++, lst.get(i));
+	    }
+	}
+	while(lst.size() > last){
+	    lst.remove(lst.size()-1);
+	}
+	return lst;
+    }
+
+    /**
+     * Parses the instance of <code>LanguageFrequencies.xsd</code>
+     * <code>freqs</code> and returns the
+     * <code>LanguageFrequenciesHandler</code> used to parse it.
      */
-    private final int numChars(String str){
-	charIterator.setText(str);
-	int boundary = charIterator.first();
-	int numChars = -1;
-	while(boundary != BreakIterator.DONE){
-	    boundary = charIterator.next();
-	    numChars++;
+    private final LanguageFrequenciesHandler parseLanguageFrequencies(File freqs)
+	throws SAXNotRecognizedException, SAXParseException,
+	       SAXException, ParserConfigurationException, SecurityException,
+	       FileNotFoundException, IOException
+    {
+	// use the binary companion if it is up to date
+	BinaryFrequencies binary = BinaryFrequencies.openCompanion(freqs);
+	if(binary != null){
+	    return new LanguageFrequenciesHandler(binary);
+	}
+	LanguageFrequenciesHandler handler = new LanguageFrequenciesHandler();
+	try{
+	    String schemataPath = AnalyzerConfiguration.findSchemataDir().getCanonicalPath() +
+		                  System.getProperty("file.separator");
+	    // Use a validating namespace aware parser for the schema
+	    ParserPool parsers =
+		ParserPool.getInstance(new File(schemataPath +
+						AnalyzerConstants.LANGUAGE_FREQUENCIES_SCHEMA_FILE));
+	    FileInputStream freqsIS = new FileInputStream(freqs);
+	    try{
+		parsers.parse(freqsIS, handler, schemataPath);
+	    }finally{
+		freqsIS.close();
+	    }
+        } catch(SecurityException se){
+	    throw new SecurityException("Unable to read\"" + freqs.getPath() +
+					"\". Permission denied.");
+        } catch(FileNotFoundException fnfe){
+	    throw new FileNotFoundException("File \"" + freqs.getPath() +
+					    "\" not found");
 	}
-	return numChars;
+	return handler;
     }
 
     /**
@@ -927,7 +1605,7 @@ public class LangFreq
 	File f = null;
 	String freqDir;
 	int i=1;
-	f = findLangFreqDir();
+	f = AnalyzerConfiguration.findLangFreqDir();
 	freqDir = f.getCanonicalPath() + System.getProperty("file.separator");
 	if(!f.canWrite()){
 	    f = new File(System.getProperty("user.home"));
@@ -945,8 +1623,10 @@ public class LangFreq
 
     /**
      * Writes a UTF-8 encoded XML document with the relative frequencies of
-     * the user characters, bigram and trigrams contained in <code>ag</code>
-     * to the <code>File</code> <code>f</code>.
+     * the user characters, bigrams, trigrams and higher order n-grams
+     * (up to <code>ag.getOrder()</code>) contained in <code>ag</code>
+     * to the <code>File</code> <code>f</code>, and its binary companion
+     * (see <code>BinaryFrequencies</code>) next to it.
      *
      * @param ag an <code>LangFreq</code> that has been used to get the
      *           relative frequencies of the characters, bigrams and
@@ -975,7 +1655,7 @@ public class LangFreq
 	    out.write("\"\n                     xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n                     xsi:schemaLocation=\"");
 	    out.write(LanguageFrequenciesHandler.NAMESPACE);
 	    out.write("\n                                         ");
-	    out.write((new File(ag.findSchemataDir().getCanonicalPath(),
+	    out.write((new File(AnalyzerConfiguration.findSchemataDir().getCanonicalPath(),
 				AnalyzerConstants.LANGUAGE_FREQUENCIES_SCHEMA_FILE)).toURI().toString());
 	    out.write("\"\n                     language=\"");
 	    out.write(ag.getLocale().getLanguage());
@@ -1028,10 +1708,35 @@ public class LangFreq
 		out.write(Integer.toString(tmpSF.getFrequency()));
 		out.write("\" />\n");
 	    }
-	    out.write(" </trigrams>\n</languageFrequencies>\n");
+	    out.write(" </trigrams>\n");
+	    for(int n=4; n<=ag.getOrder(); n++){
+		out.write(" <nGrams order=\"");
+		out.write(Integer.toString(n));
+		out.write("\">\n");
+		iterator = ag.getNGramLst(n).iterator();
+		while(iterator.hasNext()){
+		    tmpSF = (StringFreq)iterator.next();
+		    out.write("  <nGram sequence=\"");
+		    out.write(toAttributeString(tmpSF.getString()));
+		    out.write("\" frequency=\"");
+		    out.write(Integer.toString(tmpSF.getFrequency()));
+		    out.write("\" />\n");
+		}
+		out.write(" </nGrams>\n");
+	    }
+	    out.write("</languageFrequencies>\n");
 	    out.flush();
 	    out.close();
 	    fos.close();
+	    // the binary companion, read instead of the XML document
+	    Collection[] tables = new Collection[ag.getOrder()];
+	    tables[0] = ag.getIncludeExLst().size() != 0 ?
+		        ag.getIncludeExLst() : ag.getIncludeLst();
+	    for(int n=2; n<=ag.getOrder(); n++){
+		tables[n-1] = ag.getNGramLst(n);
+	    }
+	    BinaryFrequencies.write(f, ag.getLocale(), ag.getSource(),
+				    ag.getRulesPath(), tables);
 	} catch(SecurityException se){
 	    throw new SecurityException("Unable to write to \""+ f.getPath() +
 					"\". Permission denied");
@@ -0,0 +1,594 @@
+/*
+ * -- LanguageIdentifier.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua;
+
+import java.util.*;
+import java.io.*;
+import net.sourceforge.ganzua.handler.LanguageFrequenciesHandler;
+import net.sourceforge.ganzua.handler.ParserPool;
+import net.sourceforge.ganzua.text.BinaryFrequencies;
+import net.sourceforge.ganzua.text.PeriodSpectrum;
+import net.sourceforge.ganzua.text.StringFreq;
+
+/**
+ * Class used to guess the language of a ciphertext among several
+ * instances of <code>LanguageFrequencies.xsd</code>. Only statistics that
+ * a substitution does not change are compared: the coincidence index and
+ * the relative frequencies of the characters sorted from the most to the
+ * least frequent (the frequency profile). The ciphertext of a
+ * polyalphabetic cipher is divided in columns, one per alphabet, and the
+ * statistics of the columns are compared instead. A short sample of a
+ * language is less evenly distributed than the language, so the profile
+ * of a short column is compared with the expected profile of a sample as
+ * long.<br/>
+ *
+ * Every document is read once, by several threads, and only its locale,
+ * coincidence index, profile and alphabet are kept, so ranking a
+ * ciphertext takes time proportional to its length plus the total size
+ * of the alphabets and can be done every time a ciphertext is opened.
+ * The documents that can not be read are left out.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class LanguageIdentifier
+{
+    /**
+     * The largest period worth looking for in a ciphertext before
+     * comparing it with the languages */
+    public static final int MAX_PERIOD = 20;
+
+    /**
+     * Weight of the squared difference of the coincidence indices in the
+     * distance of a ciphertext to a language. The profiles of short
+     * columns are noisy, their coincidence index much less so. */
+    private static final double CI_WEIGHT = 100.0;
+
+    /**
+     * Columns at least this long are compared with the profile of the
+     * language rather than with the expected profile of a sample as long
+     * as them */
+    private static final int MAX_SAMPLED_LENGTH = 4096;
+
+    /**
+     * Number of random samples used to estimate the expected profile of
+     * a sample of a language */
+    private static final int NUM_SAMPLES = 32;
+
+    /**
+     * Seed of the random samples, so the distances do not change from one
+     * call to the next */
+    private static final long SEED = 0x67616e7a7561L;
+
+    /**
+     * Two distances closer than this are considered equal */
+    private static final double TIE = 1e-9;
+
+    /**
+     * The documents read, in the order of the languages */
+    private File[] files;
+
+    /**
+     * The <code>Locale</code> of every language */
+    private Locale[] locales;
+
+    /**
+     * The coincidence index of every language */
+    private double[] ci;
+
+    /**
+     * The profile of every language: the relative frequencies of the
+     * characters of the alphabet in descending order */
+    private double[][] profiles;
+
+    /**
+     * The characters of the alphabet of every language, as
+     * <code>String</code>s */
+    private Set[] alphabets;
+
+    /**
+     * The documents to read; only used while they are read */
+    private File[] pending;
+
+    /**
+     * The handlers of the documents read, <code>null</code> for those that
+     * could not be read; only used while they are read */
+    private LanguageFrequenciesHandler[] handlers;
+
+    /**
+     * The index in <code>pending</code> of the next document to read */
+    private int nextFile;
+
+    /**
+     * Path of the schemata directory, ending with the file separator */
+    private String schemataPath;
+
+    /**
+     * Constructor that reads the instances of
+     * <code>LanguageFrequencies.xsd</code> <code>freqs</code> using up to
+     * <code>numThreads</code> threads. The documents with an up to date
+     * binary companion written by <code>LangFreq</code> are not parsed.
+     *
+     * @param freqs the language frequencies
+     * @param schemataDir the directory the schemata can be found in,
+     *                    <code>null</code> to read only binary companions
+     * @param numThreads the maximum number of threads used to read the
+     *                   documents
+     * @throws NullPointerException if <code>freqs</code> or one of its elements is <code>null</code>
+     * @throws IllegalArgumentException if <code>numThreads</code> is less than 1
+     * @throws IOException if the path of <code>schemataDir</code> can not be resolved
+     */
+    public LanguageIdentifier(File[] freqs,
+			      File schemataDir,
+			      int numThreads) throws NullPointerException,
+						     IllegalArgumentException,
+						     IOException
+    {
+	if(numThreads < 1){
+	    throw new IllegalArgumentException("numThreads < 1");
+	}
+	for(int i=0; i<freqs.length; i++){
+	    if(freqs[i] == null){
+		throw new NullPointerException();
+	    }
+	}
+	schemataPath = schemataDir == null ? null
+	    : schemataDir.getCanonicalPath() + System.getProperty("file.separator");
+	pending = freqs;
+	handlers = new LanguageFrequenciesHandler[freqs.length];
+	nextFile = 0;
+	int n = Math.min(numThreads, freqs.length);
+	Loader[] loaders = new Loader[n];
+	for(int i=0; i<n; i++){
+	    loaders[i] = new Loader();
+	}
+	if(n == 1){
+	    loaders[0].run();
+	}else{
+	    for(int i=0; i<n; i++){
+		loaders[i].start();
+	    }
+	    for(int i=0; i<n; i++){
+		boolean joined = false;
+		while(!joined){
+		    try{
+			loaders[i].join();
+			joined = true;
+		    }catch(InterruptedException ie){}
+		}
+	    }
+	}
+	int numLangs = 0;
+	for(int i=0; i<handlers.length; i++){
+	    if(handlers[i] != null){
+		numLangs++;
+	    }
+	}
+	files = new File[numLangs];
+	locales = new Locale[numLangs];
+	ci = new double[numLangs];
+	profiles = new double[numLangs][];
+	alphabets = new Set[numLangs];
+	for(int i=0, l=0; i<handlers.length; i++){
+	    if(handlers[i] != null){
+		files[l] = freqs[i];
+		setLanguage(l++, handlers[i]);
+	    }
+	}
+	pending = null;
+	handlers = null;
+    }
+
+    /**
+     * Stores the statistics of <code>handler</code> as those of the
+     * language <code>l</code>.
+     */
+    private final void setLanguage(int l, LanguageFrequenciesHandler handler){
+	locales[l] = handler.getLocale();
+	Set alpha = handler.getAlphabet();
+	double[] profile = new double[alpha.size()];
+	alphabets[l] = new HashSet();
+	long total = 0;
+	int k = 0;
+	for(Iterator it=alpha.iterator(); it.hasNext(); k++){
+	    StringFreq sf = (StringFreq)it.next();
+	    alphabets[l].add(sf.getString());
+	    profile[k] = sf.getFrequency();
+	    total += sf.getFrequency();
+	}
+	Arrays.sort(profile);
+	double sumSq = 0;
+	for(int i=0, j=profile.length-1; i<=j; i++, j--){
+	    double tmp = profile[i];
+	    profile[i] = total == 0 ? 0 : profile[j]/total;
+	    profile[j] = total == 0 ? 0 : tmp/total;
+	}
+	for(int i=0; i<profile.length; i++){
+	    sumSq += profile[i]*profile[i];
+	}
+	profiles[l] = profile;
+	double langCI = handler.getCoincidenceIndex();
+	ci[l] = langCI > 0 ? langCI : sumSq;
+    }
+
+    /**
+     * Returns the instances of <code>LanguageFrequencies.xsd</code> in
+     * the directory <code>dir</code> (the files whose names end with
+     * <code>.xml</code>), sorted by name. Returns an empty array if
+     * <code>dir</code> is not a directory.
+     *
+     * @param dir the directory
+     * @throws NullPointerException if <code>dir</code> is <code>null</code>
+     */
+    public static File[] findLanguageFrequencies(File dir)
+	throws NullPointerException
+    {
+	File[] found = dir.listFiles(new FileFilter(){
+		public boolean accept(File f){
+		    return f.isFile() &&
+			f.getName().toLowerCase().endsWith(".xml");
+		}
+	    });
+	if(found == null){
+	    return new File[0];
+	}
+	Arrays.sort(found);
+	return found;
+    }
+
+    /**
+     * Returns the number of languages that could be read.
+     */
+    public int getNumberOfLanguages(){
+	return files.length;
+    }
+
+    /**
+     * Returns the document of the language <code>l</code>.
+     *
+     * @param l the index of the language
+     * @throws ArrayIndexOutOfBoundsException if <code>l</code> is not a valid index
+     */
+    public File getFile(int l) throws ArrayIndexOutOfBoundsException
+    {
+	return files[l];
+    }
+
+    /**
+     * Returns the <code>Locale</code> of the language <code>l</code>.
+     *
+     * @param l the index of the language
+     * @throws ArrayIndexOutOfBoundsException if <code>l</code> is not a valid index
+     */
+    public Locale getLocale(int l) throws ArrayIndexOutOfBoundsException
+    {
+	return locales[l];
+    }
+
+    /**
+     * Returns the coincidence index of the language <code>l</code>.
+     *
+     * @param l the index of the language
+     * @throws ArrayIndexOutOfBoundsException if <code>l</code> is not a valid index
+     */
+    public double getCoincidenceIndex(int l) throws ArrayIndexOutOfBoundsException
+    {
+	return ci[l];
+    }
+
+    /**
+     * Returns the number of alphabets a ciphertext should be divided in
+     * before comparing it with the languages: the first peak of its
+     * spectrum if the average coincidence index of the columns of that
+     * period is closer to the coincidence index of some language than
+     * that of the whole ciphertext, and 1 otherwise. Short
+     * monoalphabetic ciphertexts often have peaks that are only noise.
+     *
+     * @param spectrum the spectrum of the ciphertext
+     * @throws NullPointerException if <code>spectrum</code> is <code>null</code>
+     */
+    public int findPeriod(PeriodSpectrum spectrum) throws NullPointerException
+    {
+	int[] peaks = spectrum.getPeaks();
+	if(peaks.length == 0 || peaks[0] == 1){
+	    return 1;
+	}
+	double textCI = spectrum.getCoincidenceIndex(1);
+	double peakCI = spectrum.getCoincidenceIndex(peaks[0]);
+	return ciGap(peakCI) < ciGap(textCI) ? peaks[0] : 1;
+    }
+
+    /**
+     * Returns the absolute value of the logarithm of the ratio between
+     * <code>textCI</code> and the closest coincidence index of the
+     * languages.
+     */
+    private final double ciGap(double textCI){
+	double gap = Double.POSITIVE_INFINITY;
+	for(int l=0; l<ci.length; l++){
+	    gap = Math.min(gap, Math.abs(Math.log(textCI/ci[l])));
+	}
+	return gap;
+    }
+
+    /**
+     * Returns the distance from a ciphertext to every language; the
+     * smaller the distance, the more likely the language. The ciphertext
+     * is divided in <code>period</code> columns, as if it had been
+     * enciphered with <code>period</code> alphabets used in turn (see
+     * <code>PeriodSpectrum</code>), and its profile is the sum of the
+     * profiles of the columns. The distance is the sum of the squared
+     * differences between the profiles plus <code>CI_WEIGHT</code> times
+     * the squared difference between the average coincidence index of the
+     * columns and that of the language.
+     *
+     * @param text the codes of the characters of the ciphertext, from
+     *             <code>0</code> to <code>numSymbols-1</code>
+     * @param numSymbols the number of distinct codes
+     * @param period the number of alphabets of the cipher
+     * @return the distances, <code>NaN</code> for every language if no
+     *         column has two characters
+     * @throws NullPointerException if <code>text</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>numSymbols</code> or <code>period</code> is less than 1
+     * @throws ArrayIndexOutOfBoundsException if a code of <code>text</code> is out of range
+     */
+    public double[] getDistances(int[] text, int numSymbols, int period)
+	throws NullPointerException, IllegalArgumentException,
+	       ArrayIndexOutOfBoundsException
+    {
+	if(text == null){
+	    throw new NullPointerException();
+	}else if(numSymbols < 1 || period < 1){
+	    throw new IllegalArgumentException();
+	}
+	int[][] counts = new int[period][numSymbols];
+	for(int i=0, col=0; i<text.length; i++){
+	    counts[col][text[i]]++;
+	    if(++col == period){
+		col = 0;
+	    }
+	}
+	// the sum of the profiles of the columns, in descending order
+	double[] p = new double[numSymbols];
+	long pairs = 0;
+	long colPairs = 0;
+	for(int col=0; col<period; col++){
+	    int[] cnt = counts[col];
+	    Arrays.sort(cnt);
+	    long len = 0;
+	    for(int c=0; c<numSymbols; c++){
+		len += cnt[c];
+		pairs += (long)cnt[c]*(cnt[c]-1);
+		p[c] += cnt[numSymbols-1-c];
+	    }
+	    colPairs += len*(len-1);
+	}
+	double[] dist = new double[files.length];
+	if(colPairs == 0){
+	    Arrays.fill(dist, Double.NaN);
+	    return dist;
+	}
+	for(int c=0; c<numSymbols; c++){
+	    p[c] /= text.length;
+	}
+	double textCI = pairs/(double)colPairs;
+	int colLength = Math.max(1, text.length/period);
+	for(int l=0; l<files.length; l++){
+	    double[] q = colLength < MAX_SAMPLED_LENGTH
+		? sampledProfile(profiles[l], colLength)
+		: profiles[l];
+	    double d = 0;
+	    int len = Math.max(p.length, q.length);
+	    for(int r=0; r<len; r++){
+		double diff = (r < p.length ? p[r] : 0) - (r < q.length ? q[r] : 0);
+		d += diff*diff;
+	    }
+	    double ciDiff = textCI - ci[l];
+	    dist[l] = d + CI_WEIGHT*ciDiff*ciDiff;
+	}
+	return dist;
+    }
+
+    /**
+     * Returns the expected profile of a sample of <code>length</code>
+     * characters of a language whose profile is <code>profile</code>,
+     * estimated from <code>NUM_SAMPLES</code> random samples. The
+     * characters of a short sample are less evenly distributed than those
+     * of the language, so the most frequent ones seem more frequent than
+     * they are and the least frequent ones less.
+     */
+    private static final double[] sampledProfile(double[] profile, int length){
+	double[] cumulative = new double[profile.length];
+	double sum = 0;
+	for(int r=0; r<profile.length; r++){
+	    sum += profile[r];
+	    cumulative[r] = sum;
+	}
+	double[] expected = new double[profile.length];
+	if(!(sum > 0)){
+	    return expected;
+	}
+	Random rnd = new Random(SEED);
+	int[] cnt = new int[profile.length];
+	for(int s=0; s<NUM_SAMPLES; s++){
+	    Arrays.fill(cnt, 0);
+	    for(int i=0; i<length; i++){
+		int r = Arrays.binarySearch(cumulative, rnd.nextDouble()*sum);
+		cnt[r < 0 ? Math.min(-r-1, cnt.length-1) : r]++;
+	    }
+	    Arrays.sort(cnt);
+	    for(int r=0; r<cnt.length; r++){
+		expected[r] += cnt[cnt.length-1-r];
+	    }
+	}
+	for(int r=0; r<expected.length; r++){
+	    expected[r] /= (double)NUM_SAMPLES*length;
+	}
+	return expected;
+    }
+
+    /**
+     * Returns the indices of the languages sorted from the most to the
+     * least likely for a ciphertext. Languages at the same distance
+     * (documents with the same statistics, such as the upper and lower
+     * case versions of an alphabet) are sorted by the number of
+     * characters of the ciphertext in their alphabets, from the most to
+     * the fewest, and then by document.
+     *
+     * @param text the codes of the characters of the ciphertext, from
+     *             <code>0</code> to <code>numSymbols-1</code>
+     * @param numSymbols the number of distinct codes
+     * @param period the number of alphabets of the cipher
+     * @param cipherChars the <code>String</code>s of the characters of the
+     *                    ciphertext
+     * @return the indices of the languages, empty if no column of the
+     *         ciphertext has two characters
+     * @throws NullPointerException if <code>text</code> or <code>cipherChars</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>numSymbols</code> or <code>period</code> is less than 1
+     * @throws ArrayIndexOutOfBoundsException if a code of <code>text</code> is out of range
+     * @see #getDistances(int[], int, int)
+     */
+    public int[] rank(int[] text, int numSymbols, int period,
+		      Collection cipherChars)
+	throws NullPointerException, IllegalArgumentException,
+	       ArrayIndexOutOfBoundsException
+    {
+	final double[] dist = getDistances(text, numSymbols, period);
+	final int[] overlap = new int[files.length];
+	for(Iterator it=cipherChars.iterator(); it.hasNext(); ){
+	    Object c = it.next();
+	    for(int l=0; l<files.length; l++){
+		if(alphabets[l].contains(c)){
+		    overlap[l]++;
+		}
+	    }
+	}
+	if(files.length == 0 || Double.isNaN(dist[0])){
+	    return new int[0];
+	}
+	Integer[] order = new Integer[files.length];
+	for(int l=0; l<order.length; l++){
+	    order[l] = new Integer(l);
+	}
+	Arrays.sort(order, new Comparator(){
+		public int compare(Object o1, Object o2){
+		    int l1 = ((Integer)o1).intValue();
+		    int l2 = ((Integer)o2).intValue();
+		    if(Math.abs(dist[l1] - dist[l2]) > TIE){
+			return Double.compare(dist[l1], dist[l2]);
+		    }else if(overlap[l1] != overlap[l2]){
+			return overlap[l2] - overlap[l1];
+		    }
+		    return files[l1].compareTo(files[l2]);
+		}
+	    });
+	int[] ret = new int[order.length];
+	for(int l=0; l<ret.length; l++){
+	    ret[l] = order[l].intValue();
+	}
+	return ret;
+    }
+
+    /**
+     * Returns the index of the most likely language of a ciphertext,
+     * <code>-1</code> if there are no languages or no column of the
+     * ciphertext has two characters.
+     *
+     * @param text the codes of the characters of the ciphertext, from
+     *             <code>0</code> to <code>numSymbols-1</code>
+     * @param numSymbols the number of distinct codes
+     * @param period the number of alphabets of the cipher
+     * @param cipherChars the <code>String</code>s of the characters of the
+     *                    ciphertext
+     * @throws NullPointerException if <code>text</code> or <code>cipherChars</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>numSymbols</code> or <code>period</code> is less than 1
+     * @throws ArrayIndexOutOfBoundsException if a code of <code>text</code> is out of range
+     * @see #rank(int[], int, int, Collection)
+     */
+    public int identify(int[] text, int numSymbols, int period,
+			Collection cipherChars)
+	throws NullPointerException, IllegalArgumentException,
+	       ArrayIndexOutOfBoundsException
+    {
+	int[] ranked = rank(text, numSymbols, period, cipherChars);
+	return ranked.length == 0 ? -1 : ranked[0];
+    }
+
+    /**
+     * Returns the index in <code>pending</code> of the next document to
+     * read, or <code>-1</code> if there are none left.
+     */
+    private synchronized int nextFileIndex(){
+	if(nextFile >= pending.length){
+	    return -1;
+	}
+	return nextFile++;
+    }
+
+    /**
+     * Reads the instance of <code>LanguageFrequencies.xsd</code>
+     * <code>freqs</code>, or its binary companion if it is up to date.
+     * Returns <code>null</code> if the document can not be read.
+     */
+    private final LanguageFrequenciesHandler read(File freqs){
+	try{
+	    BinaryFrequencies binary = BinaryFrequencies.openCompanion(freqs);
+	    if(binary != null){
+		return new LanguageFrequenciesHandler(binary);
+	    }else if(schemataPath == null){
+		return null;
+	    }
+	    LanguageFrequenciesHandler handler = new LanguageFrequenciesHandler();
+	    ParserPool parsers =
+		ParserPool.getInstance(new File(schemataPath +
+						AnalyzerConstants.LANGUAGE_FREQUENCIES_SCHEMA_FILE));
+	    FileInputStream freqsIS = new FileInputStream(freqs);
+	    try{
+		parsers.parse(freqsIS, handler, schemataPath);
+	    }finally{
+		freqsIS.close();
+	    }
+	    return handler;
+	}catch(Exception e){
+	    return null;
+	}
+    }
+
+    /**
+     * Thread that reads documents until there are none left.
+     */
+    private class Loader extends Thread{
+
+	public void run(){
+	    for(int i=nextFileIndex(); i!=-1; i=nextFileIndex()){
+		handlers[i] = read(pending[i]);
+	    }
+	}
+    }
+}
+
+/*
+ * -- LanguageIdentifier.java ends here --
+ */
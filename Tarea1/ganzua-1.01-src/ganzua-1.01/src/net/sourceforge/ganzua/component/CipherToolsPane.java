@@ -28,6 +28,8 @@ import java.util.ResourceBundle;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.HashMap;
+import java.util.Collections;
 import javax.swing.*;
 import javax.swing.event.*;
 import javax.swing.border.*;
@@ -37,10 +39,13 @@ import java.awt.*;
 import java.awt.event.*;
 import net.sourceforge.ganzua.text.*;
 import net.sourceforge.ganzua.event.*;
+import net.sourceforge.ganzua.handler.LanguageFrequenciesHandler;
 // used in main(String[])
 import java.util.Locale;
 import java.util.ArrayList;
 import java.text.Collator;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Component used in <code>Analyzer</code>s to provide tools for
@@ -124,16 +129,113 @@ public class CipherToolsPane extends JPanel{
     protected JScrollPane kasiskiScroll;
 
     /**
-     * <code>JFrame</code> used to display <code>kasiskiScroll</code>
+     * <code>TableModel</code> that stores the histogram of the divisors of
+     * the distances found by the Kasiski Test.
+     */
+    protected KasiskiDivisorTableModel kasiskiDivMdl;
+
+    /**
+     * <code>JTable</code> used to display the data in
+     * <code>kasiskiDivMdl</code>
+     */
+    protected JTable kasiskiDivJT;
+
+    /**
+     * <code>JScrollPane</code> used to display <code>kasiskiDivJT</code>
+     */
+    protected JScrollPane kasiskiDivScroll;
+
+    /**
+     * <code>JProgressBar</code> displayed at the bottom of
+     * <code>kasiskiFrame</code> while the Kasiski Test runs
+     */
+    protected JProgressBar kasiskiProgress;
+
+    /**
+     * <code>JFrame</code> used to display <code>kasiskiScroll</code> and
+     * <code>kasiskiDivScroll</code>, in two tabs
      */
     protected JFrame kasiskiFrame;
 
+    /**
+     * The <code>Task</code> that performs the Kasiski Test, while it runs
+     */
+    private Task kasiskiTask;
+
+    /**
+     * Number of rows of the Kasiski table measured when its columns are
+     * resized, so the entries are not all formatted */
+    private static final int KASISKI_RESIZE_ROWS = 100;
+
     /**
      * Boolean used to indicate if the data in <code>kasiskiMdl</code>
      * is up to date. If it is, then it does not have to be recalculated. 
      */
     private boolean kasiskiDataCurrent = false;
 
+    /**
+     * The largest period of the spectrum displayed in
+     * <code>periodsFrame</code> */
+    public static final int MAX_PERIOD = 200;
+
+    /**
+     * <code>TableModel</code> that stores the average coincidence index of
+     * the columns of the ciphertext for every period.
+     */
+    protected PeriodSpectrumTableModel periodsMdl;
+
+    /**
+     * <code>JTable</code> used to display the data in <code>periodsMdl</code>
+     */
+    protected JTable periodsJT;
+
+    /**
+     * <code>JScrollPane</code> used to display <code>periodsJT</code>
+     */
+    protected JScrollPane periodsScroll;
+
+    /**
+     * <code>JFrame</code> used to display <code>periodsScroll</code>
+     */
+    protected JFrame periodsFrame;
+
+    /**
+     * Boolean used to indicate if the data in <code>periodsMdl</code>
+     * is up to date. If it is, then it does not have to be recalculated.
+     */
+    private boolean periodsDataCurrent = false;
+
+    /**
+     * The number of characters of the ciphertext deciphered with every
+     * shift in <code>shiftsFrame</code> */
+    public static final int PREVIEW_LENGTH = 80;
+
+    /**
+     * <code>TableModel</code> that stores the shifts of Caesar's cipher
+     * ranked by how likely they are.
+     */
+    protected CaesarTableModel shiftsMdl;
+
+    /**
+     * <code>JTable</code> used to display the data in <code>shiftsMdl</code>
+     */
+    protected JTable shiftsJT;
+
+    /**
+     * <code>JScrollPane</code> used to display <code>shiftsJT</code>
+     */
+    protected JScrollPane shiftsScroll;
+
+    /**
+     * <code>JFrame</code> used to display <code>shiftsScroll</code>
+     */
+    protected JFrame shiftsFrame;
+
+    /**
+     * The solver that ranked the shifts in <code>shiftsMdl</code>, used
+     * to apply them. <code>null</code> if none have been ranked. */
+    private CaesarSolver shiftsSolver;
+
     /**
      * The node selected after the last <code>TreeSelectionEvent</code>. */
     private DefaultMutableTreeNode selNode;
@@ -182,6 +284,21 @@ public class CipherToolsPane extends JPanel{
      * results visible in <code>kasiskiFrame</code> */
     private KasiskiAction kasiskiActn;
 
+    /**
+     * <code>Action</code> that computes the coincidence index of every
+     * period and makes the results visible in <code>periodsFrame</code> */
+    private PeriodsAction periodsActn;
+
+    /**
+     * <code>Action</code> that tries every shift of Caesar's cipher and
+     * makes the ranked shifts visible in <code>shiftsFrame</code> */
+    private ShiftsAction shiftsActn;
+
+    /**
+     * <code>Action</code> that selects the substitution of the shift
+     * selected in <code>shiftsJT</code> */
+    private ApplyShiftAction applyShiftActn;
+
     /**
      * <code>Action</code> that brings up a dialog that lets the user
      * group the ciphertext's characters in blocks. */
@@ -194,6 +311,49 @@ public class CipherToolsPane extends JPanel{
      */
     private CopyFirstSelectionAction copySelActn;
 
+    /**
+     * <code>Action</code> that searches for the key of the monoalphabetic
+     * substitution with the bigrams and trigrams of <code>langFreqs</code>
+     * and selects it. */
+    private SolveAction solveActn;
+
+    /**
+     * <code>Action</code> that searches for the key of the Vigenère
+     * substitution with the frequencies of <code>langFreqs</code>, sets
+     * the number of alphabets to its period and selects it. */
+    private VigenereSolveAction vigSolveActn;
+
+    /**
+     * <code>Action</code> that searches for the key of the polyalphabetic
+     * substitution with the bigrams and trigrams of <code>langFreqs</code>,
+     * using the current number of alphabets as the period, and selects
+     * it. */
+    private AlbertiSolveAction albSolveActn;
+
+    /**
+     * <code>Action</code> that searches for the key of the monoalphabetic
+     * substitution by matching the ciphertext words with the words of a
+     * word list */
+    private WordsAction wordsActn;
+
+    /**
+     * Used to let the user choose the word list used by
+     * <code>wordsActn</code> */
+    private TextFileChooser wordsChooser;
+
+    /**
+     * The index of the last word list used and its file. <code>null</code>
+     * if none has been used. */
+    private WordPatternIndex wordIndex;
+
+    private File wordIndexFile;
+
+    /**
+     * The language frequencies used to search for the key of the
+     * monoalphabetic substitution. <code>null</code> if none have been
+     * loaded. */
+    private LanguageFrequenciesHandler langFreqs;
+
     /**
      * <code>ResourceBundle</code> with localized labels */
     private ResourceBundle labelsRB;
@@ -267,6 +427,18 @@ public class CipherToolsPane extends JPanel{
 	kasiskiActn.putValue(Action.NAME, labelsRB.getString("kasiskiActn"));
 	kasiskiActn.putValue(Action.SHORT_DESCRIPTION,
 			     labelsRB.getString("kasiskiActnTT"));
+	periodsActn = new PeriodsAction();
+	periodsActn.putValue(Action.NAME, labelsRB.getString("periodsActn"));
+	periodsActn.putValue(Action.SHORT_DESCRIPTION,
+			     labelsRB.getString("periodsActnTT"));
+	shiftsActn = new ShiftsAction();
+	shiftsActn.putValue(Action.NAME, labelsRB.getString("shiftsActn"));
+	shiftsActn.putValue(Action.SHORT_DESCRIPTION,
+			    labelsRB.getString("shiftsActnTT"));
+	applyShiftActn = new ApplyShiftAction();
+	applyShiftActn.putValue(Action.NAME, labelsRB.getString("applyShiftActn"));
+	applyShiftActn.putValue(Action.SHORT_DESCRIPTION,
+				labelsRB.getString("applyShiftActnTT"));
 	groupActn = new GroupCharsAction();
 	groupActn.putValue(Action.NAME, labelsRB.getString("groupActn"));
 	groupActn.putValue(Action.SHORT_DESCRIPTION,
@@ -275,6 +447,22 @@ public class CipherToolsPane extends JPanel{
 	copySelActn.putValue(Action.NAME, labelsRB.getString("copySelActn"));
 	copySelActn.putValue(Action.SHORT_DESCRIPTION,
 			     labelsRB.getString("copySelActnTT"));
+	solveActn = new SolveAction();
+	solveActn.putValue(Action.NAME, labelsRB.getString("solveActn"));
+	solveActn.putValue(Action.SHORT_DESCRIPTION,
+			   labelsRB.getString("solveActnTT"));
+	vigSolveActn = new VigenereSolveAction();
+	vigSolveActn.putValue(Action.NAME, labelsRB.getString("solveActn"));
+	vigSolveActn.putValue(Action.SHORT_DESCRIPTION,
+			      labelsRB.getString("vigSolveActnTT"));
+	albSolveActn = new AlbertiSolveAction();
+	albSolveActn.putValue(Action.NAME, labelsRB.getString("solveActn"));
+	albSolveActn.putValue(Action.SHORT_DESCRIPTION,
+			      labelsRB.getString("albSolveActnTT"));
+	wordsActn = new WordsAction();
+	wordsActn.putValue(Action.NAME, labelsRB.getString("wordsActn"));
+	wordsActn.putValue(Action.SHORT_DESCRIPTION,
+			   labelsRB.getString("wordsActnTT"));
     }
 
     /**
@@ -386,10 +574,74 @@ public class CipherToolsPane extends JPanel{
 	kasiskiScroll = new JScrollPane(kasiskiJT,
 					JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
 					JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
-	kasiskiFrame.getContentPane().add(kasiskiScroll);
+	kasiskiDivMdl = new KasiskiDivisorTableModel(null);
+	kasiskiDivJT = new JTable(kasiskiDivMdl);
+	kasiskiDivJT.setDragEnabled(true); // enable automatic drag handling
+	kasiskiDivJT.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+	kasiskiDivMdl.addMouseListenerToHeaderInTable(kasiskiDivJT);
+	kasiskiDivScroll = new JScrollPane(kasiskiDivJT,
+					   JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
+					   JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
+	JTabbedPane kasiskiTabs = new JTabbedPane();
+	kasiskiTabs.addTab(labelsRB.getString("kasiskiSeqTab"), kasiskiScroll);
+	kasiskiTabs.addTab(labelsRB.getString("kasiskiDivTab"),
+			   kasiskiDivScroll);
+	kasiskiFrame.getContentPane().add(kasiskiTabs);
+	kasiskiProgress = new JProgressBar();
+	kasiskiProgress.setIndeterminate(true);
+	kasiskiProgress.setVisible(false);
+	kasiskiFrame.getContentPane().add(kasiskiProgress, BorderLayout.SOUTH);
+	kasiskiFrame.addWindowListener(new WindowAdapter(){
+		public void windowClosing(WindowEvent e){
+		    // the results would be discarded anyway
+		    if(kasiskiTask != null){
+			kasiskiTask.cancel();
+		    }
+		}
+	    });
 	kasiskiFrame.pack();
 	resizeTable(kasiskiJT, 
 		    kasiskiScroll.getViewport().getExtentSize().width);
+	resizeTable(kasiskiDivJT,
+		    kasiskiScroll.getViewport().getExtentSize().width);
+	// initialize the period spectrum's JFrame, JTable and JTableModel
+	periodsFrame = new JFrame(labelsRB.getString("periodsFrame"));
+	periodsMdl = new PeriodSpectrumTableModel(null);
+	periodsJT = new JTable(periodsMdl);
+	periodsJT.setDragEnabled(true); // enable automatic drag handling
+	periodsJT.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+	periodsMdl.addMouseListenerToHeaderInTable(periodsJT);
+	periodsScroll = new JScrollPane(periodsJT,
+					JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
+					JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
+	periodsFrame.getContentPane().add(periodsScroll);
+	periodsFrame.pack();
+	resizeTable(periodsJT,
+		    periodsScroll.getViewport().getExtentSize().width);
+	// initialize the Caesar shifts' JFrame, JTable and JTableModel
+	shiftsFrame = new JFrame(labelsRB.getString("shiftsFrame"));
+	shiftsMdl = new CaesarTableModel();
+	shiftsJT = new JTable(shiftsMdl);
+	shiftsJT.setDragEnabled(true); // enable automatic drag handling
+	shiftsJT.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+	shiftsJT.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+	shiftsMdl.addMouseListenerToHeaderInTable(shiftsJT);
+	shiftsJT.addMouseListener(new MouseAdapter(){
+		public void mouseClicked(MouseEvent e){
+		    if(e.getClickCount() == 2){
+			applyShiftActn.actionPerformed(null);
+		    }
+		}
+	    });
+	shiftsScroll = new JScrollPane(shiftsJT,
+				       JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
+				       JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
+	shiftsFrame.getContentPane().add(shiftsScroll, BorderLayout.CENTER);
+	shiftsFrame.getContentPane().add(new JButton(applyShiftActn),
+					 BorderLayout.SOUTH);
+	shiftsFrame.pack();
+	resizeTable(shiftsJT,
+		    shiftsScroll.getViewport().getExtentSize().width);
 	//set the CipherToolsPane's preferred size
 	Dimension prefSize = getPreferredSize();
 	Dimension treeDim = cipherTree.getPreferredSize();
@@ -427,7 +679,8 @@ public class CipherToolsPane extends JPanel{
      * or an unknown alphabet) or <code>CIPHER_ALPHABET</code>. The
      * <code>ChangeListener</code> updates <code>kasiskiMdl</code>'s data if
      * <code>kasiskiFrame</code> is visible and sets 
-     * <code>kasiskiDataCurrent</code> to <code>false</code> otherwise. In the
+     * <code>kasiskiDataCurrent</code> to <code>false</code> otherwise, and
+     * does the same with <code>periodsMdl</code>. In the
      * case of <code>IGNORED_CHARACTERS</code>, we only consider those
      * in alphabet 0 because those are the only ignored characters we use
      * when applying the Kasiski Test.
@@ -444,6 +697,13 @@ public class CipherToolsPane extends JPanel{
 			if(kasiskiFrame.isVisible()){
 			    SwingUtilities.invokeLater(kasiskiActn);
 			}
+			periodsDataCurrent = false;
+			if(periodsFrame.isVisible()){
+			    SwingUtilities.invokeLater(periodsActn);
+			}
+			if(shiftsFrame.isVisible()){
+			    SwingUtilities.invokeLater(shiftsActn);
+			}
 		    }
 		}
 	    });
@@ -548,37 +808,267 @@ public class CipherToolsPane extends JPanel{
 
     /**
      * <code>Action</code> used by the "Kasiski" button. Performs the Kasiski
-     * Test and displays the results in a frame.
+     * Test in the background and displays the results in a frame as they
+     * are found, from the longest sequences to the shortest, with the
+     * histogram of the divisors of the distances up to
+     * <code>MAX_PERIOD</code> in a second tab once it has finished.
      */
     private class KasiskiAction extends AbstractAction
 				implements Runnable
     {
 	/**
-	 * Performs the Kasiski Test.
+	 * Makes the frame visible and performs the Kasiski Test, cancelling
+	 * the one that is running, if any. The entries are added to the
+	 * table as <code>getKasiski</code> reports them.
 	 *
-	 * @see CiphertextManager#getKasiski(Set)
+	 * @see CiphertextManager#getKasiski(Set, int, int, SearchMonitor)
 	 */
 	public void run(){
-	    ArrayList tmpLst = subst.getIgnoredCharacters();
-	    Set tmpSet = (Set)tmpLst.get(0);
-	    kasiskiMdl.setData(cipherM.getKasiski(tmpSet));
-	    resizeTable(kasiskiJT, 
-			kasiskiScroll.getViewport().getExtentSize().width);
+	    if(kasiskiTask != null){
+		kasiskiTask.cancel();
+	    }
+	    final Set tmpSet = (Set)subst.getIgnoredCharacters().get(0);
+	    final ArrayList[] repeated = new ArrayList[1];
+	    final int[][] multiples = new int[1][];
+	    kasiskiTask = new Task(){
+		    protected void work(){
+			repeated[0] = cipherM.getKasiski(tmpSet, 2,
+							 Integer.MAX_VALUE,
+							 this);
+			if(!isCancelled()){
+			    multiples[0] = KasiskiEntry.countMultiples(repeated[0],
+								       MAX_PERIOD);
+			}
+		    }
+
+		    protected void process(Object entries){
+			if(kasiskiTask != this){
+			    return; // a newer test has started
+			}
+			boolean first = kasiskiMdl.getRowCount() == 0;
+			kasiskiMdl.appendData((java.util.List)entries);
+			if(first){
+			    resizeTable(kasiskiJT,
+					kasiskiScroll.getViewport().getExtentSize().width,
+					KASISKI_RESIZE_ROWS);
+			}
+			kasiskiProgress.setIndeterminate(false);
+			kasiskiProgress.setMaximum(getTotal());
+			kasiskiProgress.setValue(getProgress());
+		    }
+
+		    protected void done(){
+			if(kasiskiTask != this){
+			    return;
+			}
+			kasiskiTask = null;
+			kasiskiProgress.setVisible(false);
+			if(getFailure() != null){
+			    showFailure();
+			    return;
+			}else if(isCancelled()){
+			    return;
+			}
+			kasiskiMdl.appendData(repeated[0]);
+			resizeTable(kasiskiJT,
+				    kasiskiScroll.getViewport().getExtentSize().width,
+				    KASISKI_RESIZE_ROWS);
+			kasiskiDivMdl.setData(multiples[0]);
+			resizeTable(kasiskiDivJT,
+				    kasiskiDivScroll.getViewport().getExtentSize().width);
+			kasiskiDivScroll.getViewport().setViewPosition(new Point());
+			kasiskiDataCurrent = true;
+		    }
+		};
+	    kasiskiMdl.setData(new ArrayList());
 	    kasiskiScroll.getViewport().setViewPosition(new Point());
-	    kasiskiDataCurrent = true;
+	    kasiskiDivMdl.setData(null);
+	    kasiskiProgress.setIndeterminate(true);
+	    kasiskiProgress.setVisible(true);
+	    kasiskiFrame.getContentPane().validate();
+	    kasiskiFrame.setVisible(true);
+	    kasiskiTask.setParentComponent(kasiskiFrame);
+	    TaskExecutor.getShared().execute(kasiskiTask);
 	}
 
 	/**
-	 * Calls <code>run</code> (if the data in the frame that displays
-	 * the results is not current) and makes the frame visible.
+	 * Calls <code>run</code> if the data in the frame that displays
+	 * the results is not current, and makes the frame visible otherwise.
 	 *
 	 * @param e an <code>ActionEvent</code>
 	 */
 	public void actionPerformed(ActionEvent e){
 	    if(!kasiskiDataCurrent){
 		run();
+	    }else{
+		kasiskiFrame.setVisible(true);
 	    }
-	    kasiskiFrame.setVisible(true);
+	}
+    }
+
+    /**
+     * <code>Action</code> used by the "Periods" button. Computes the
+     * average coincidence index of the columns of the ciphertext for every
+     * period up to <code>MAX_PERIOD</code> while a <code>ProgressDialog</code>
+     * is displayed, and displays it in a frame.
+     *
+     * @see CiphertextManager#getPeriodSpectrum(Set, int)
+     */
+    private class PeriodsAction extends AbstractAction
+				implements Runnable
+    {
+	/**
+	 * Computes the spectrum and makes the frame visible.
+	 */
+	public void run(){
+	    final Set tmpSet = (Set)subst.getIgnoredCharacters().get(0);
+	    final PeriodSpectrum[] spectrum = new PeriodSpectrum[1];
+	    Runnable work = new Runnable(){
+		    public void run(){
+			spectrum[0] = cipherM.getPeriodSpectrum(tmpSet,
+								MAX_PERIOD);
+		    }
+		};
+	    Runnable gui = new Runnable(){
+		    public void run(){
+			periodsMdl.setData(spectrum[0]);
+			resizeTable(periodsJT,
+				    periodsScroll.getViewport().getExtentSize().width);
+			periodsScroll.getViewport().setViewPosition(new Point());
+			periodsDataCurrent = true;
+			periodsFrame.setVisible(true);
+		    }
+		};
+	    TaskExecutor.getShared().execute(new Task(work, gui),
+					     CipherToolsPane.this);
+	}
+
+	/**
+	 * Calls <code>run</code> if the data in the frame that displays
+	 * the results is not current, and makes the frame visible otherwise.
+	 *
+	 * @param e an <code>ActionEvent</code>
+	 */
+	public void actionPerformed(ActionEvent e){
+	    if(!periodsDataCurrent){
+		run();
+	    }else{
+		periodsFrame.setVisible(true);
+	    }
+	}
+    }
+
+    /**
+     * <code>Action</code> used by the "Shifts" button of the Caesar tools.
+     * Tries every shift of the selection (see <code>CaesarSolver</code>)
+     * while a <code>ProgressDialog</code> is displayed, and displays them
+     * in a frame from the most likely to the least likely, with the beginning
+     * of the plaintext they give.
+     */
+    private class ShiftsAction extends AbstractAction
+			       implements Runnable
+    {
+	/**
+	 * Ranks the shifts and makes the frame visible.
+	 */
+	public void run(){
+	    if(langFreqs == null){
+		JOptionPane.showMessageDialog(CipherToolsPane.this,
+					      labelsRB.getString("noFreqsMsg"),
+					      labelsRB.getString("noFreqsTtl"),
+					      JOptionPane.WARNING_MESSAGE);
+		return;
+	    }
+	    final ArrayList cipherAlpha = new ArrayList((Set)subst.getCipherAlphaMinusIgnoredCharacters().get(0));
+	    Collections.sort(cipherAlpha);
+	    final ArrayList plainAlpha = subst.getPlainAlpha();
+	    if(cipherAlpha.size() == 0 || plainAlpha.size() == 0){
+		return;
+	    }
+	    final int[] text = cipherM.getCodes((Set)subst.getIgnoredCharacters().get(0),
+						cipherAlpha);
+	    final LanguageFrequenciesHandler freqs = langFreqs;
+	    final boolean injective = subst.getInjective();
+	    final CaesarSolver[] solver = new CaesarSolver[1];
+	    final CaesarShift[][] ranked = new CaesarShift[1][];
+	    final String[][] previews = new String[1][];
+	    Runnable work = new Runnable(){
+		    public void run(){
+			try{
+			    CaesarSolver tmpSolver =
+				new CaesarSolver(cipherAlpha, plainAlpha,
+						 freqs.getAlphabet(),
+						 freqs.getBigrams(),
+						 freqs.getTrigrams(),
+						 subst.getPlainAlphaLocale(),
+						 subst.getCollator(),
+						 injective);
+			    ranked[0] = tmpSolver.rank(text);
+			    int numShifts = tmpSolver.getNumberOfShifts();
+			    previews[0] = new String[numShifts];
+			    for(int s=0; s<numShifts; s++){
+				ArrayList substLst = new ArrayList(1);
+				substLst.add(tmpSolver.getSubstitution(s));
+				previews[0][s] = cipherM.getPlaintext(substLst,
+								      PREVIEW_LENGTH);
+			    }
+			    solver[0] = tmpSolver;
+			}catch(IllegalArgumentException iae){
+			    // the language frequencies have no usable characters
+			}
+		    }
+		};
+	    Runnable gui = new Runnable(){
+		    public void run(){
+			if(solver[0] == null){
+			    JOptionPane.showMessageDialog(CipherToolsPane.this,
+							  labelsRB.getString("noFreqsMsg"),
+							  labelsRB.getString("noFreqsTtl"),
+							  JOptionPane.WARNING_MESSAGE);
+			    return;
+			}
+			shiftsSolver = solver[0];
+			shiftsMdl.setData(ranked[0], previews[0]);
+			resizeTable(shiftsJT,
+				    shiftsScroll.getViewport().getExtentSize().width);
+			shiftsScroll.getViewport().setViewPosition(new Point());
+			if(shiftsJT.getRowCount() > 0){
+			    shiftsJT.setRowSelectionInterval(0, 0);
+			}
+			shiftsFrame.setVisible(true);
+		    }
+		};
+	    TaskExecutor.getShared().execute(new Task(work, gui),
+					     CipherToolsPane.this);
+	}
+
+	/**
+	 * Calls <code>run</code>.
+	 *
+	 * @param e an <code>ActionEvent</code>
+	 */
+	public void actionPerformed(ActionEvent e){
+	    run();
+	}
+    }
+
+    /**
+     * <code>Action</code> used by the "Apply" button of the frame that
+     * displays the shifts of Caesar's cipher, and when a shift is double
+     * clicked. Selects the substitution of the selected shift.
+     *
+     * @see Substitution#setSubstitution(ArrayList)
+     */
+    private class ApplyShiftAction extends AbstractAction{
+	public void actionPerformed(ActionEvent e){
+	    int row = shiftsJT.getSelectedRow();
+	    if(shiftsSolver == null || row == -1 ||
+	       subst.getNumberOfAlphabets() != 1){
+		return;
+	    }
+	    ArrayList substLst = new ArrayList(1);
+	    substLst.add(shiftsSolver.getSubstitution(shiftsMdl.getShiftAt(row)));
+	    subst.setSubstitution(substLst);
 	}
     }
 
@@ -611,6 +1101,314 @@ public class CipherToolsPane extends JPanel{
 	}
     }
 
+    /**
+     * <code>Action</code> used by the "Solve" button. Searches for the key
+     * of the monoalphabetic substitution (see <code>MonoAlphaSolver</code>)
+     * while a <code>ProgressDialog</code> is displayed, from which it can
+     * be stopped, and selects it. The best key found so far is selected
+     * while the search goes on.
+     *
+     * @see Substitution#setSubstitution(ArrayList)
+     */
+    private class SolveAction extends AbstractAction{
+	public void actionPerformed(ActionEvent e){
+	    if(langFreqs == null){
+		JOptionPane.showMessageDialog(CipherToolsPane.this,
+					      labelsRB.getString("noFreqsMsg"),
+					      labelsRB.getString("noFreqsTtl"),
+					      JOptionPane.WARNING_MESSAGE);
+		return;
+	    }
+	    final ArrayList cipherAlpha = new ArrayList((Set)subst.getCipherAlphaMinusIgnoredCharacters().get(0));
+	    Collections.sort(cipherAlpha);
+	    final ArrayList plainAlpha = subst.getPlainAlpha();
+	    if(cipherAlpha.size() == 0 || plainAlpha.size() == 0){
+		return;
+	    }
+	    final int[] text = cipherM.getCodes((Set)subst.getIgnoredCharacters().get(0),
+						cipherAlpha);
+	    final LanguageFrequenciesHandler freqs = langFreqs;
+	    final boolean injective = subst.getInjective();
+	    final HashMap[] key = new HashMap[1];
+	    Task task = new Task(){
+		    protected void work(){
+			try{
+			    MonoAlphaSolver solver =
+				new MonoAlphaSolver(text, cipherAlpha, plainAlpha,
+						    freqs.getBigrams(),
+						    freqs.getTrigrams(),
+						    freqs.getNGrams(4),
+						    subst.getPlainAlphaLocale(),
+						    subst.getCollator(),
+						    injective);
+			    solver.setMonitor(this);
+			    key[0] = solver.solve();
+			}catch(IllegalArgumentException iae){
+			    // the language frequencies have no usable n-grams
+			}
+		    }
+
+		    protected void process(Object best){
+			select((HashMap)best);
+		    }
+
+		    protected void done(){
+			if(getFailure() != null){
+			    showFailure();
+			}else if(key[0] != null){
+			    select(key[0]);
+			}else if(!isCancelled()){
+			    JOptionPane.showMessageDialog(CipherToolsPane.this,
+							  labelsRB.getString("noFreqsMsg"),
+							  labelsRB.getString("noFreqsTtl"),
+							  JOptionPane.WARNING_MESSAGE);
+			}
+		    }
+		};
+	    TaskExecutor.getShared().execute(task, CipherToolsPane.this);
+	}
+
+	/**
+	 * Selects <code>key</code>, if there is only one alphabet.
+	 *
+	 * @param key the substitution of the cipher alphabet
+	 */
+	private void select(HashMap key){
+	    if(subst.getNumberOfAlphabets() == 1){
+		ArrayList substLst = new ArrayList(1);
+		substLst.add(key);
+		subst.setSubstitution(substLst);
+	    }
+	}
+    }
+
+    /**
+     * <code>Action</code> used by the "Solve" button of the Vigenère tools.
+     * Searches for the period and the shifts of the key (see
+     * <code>VigenereSolver</code>) while a <code>ProgressDialog</code>
+     * is displayed, sets the number of alphabets to the period (2 if it is 1)
+     * and selects the key.
+     *
+     * @see Substitution#setSubstitution(ArrayList)
+     */
+    private class VigenereSolveAction extends AbstractAction{
+	public void actionPerformed(ActionEvent e){
+	    if(langFreqs == null){
+		JOptionPane.showMessageDialog(CipherToolsPane.this,
+					      labelsRB.getString("noFreqsMsg"),
+					      labelsRB.getString("noFreqsTtl"),
+					      JOptionPane.WARNING_MESSAGE);
+		return;
+	    }
+	    final ArrayList cipherAlpha = new ArrayList((Set)subst.getCipherAlphaMinusIgnoredCharacters().get(0));
+	    Collections.sort(cipherAlpha);
+	    final ArrayList plainAlpha = subst.getPlainAlpha();
+	    if(cipherAlpha.size() == 0 || plainAlpha.size() == 0){
+		return;
+	    }
+	    final int[] text = cipherM.getCodes((Set)subst.getIgnoredCharacters().get(0),
+						cipherAlpha);
+	    final LanguageFrequenciesHandler freqs = langFreqs;
+	    final boolean injective = subst.getInjective();
+	    final VigenereSolver[] solver = new VigenereSolver[1];
+	    Runnable work = new Runnable(){
+		    public void run(){
+			try{
+			    VigenereSolver tmpSolver =
+				new VigenereSolver(text, cipherAlpha, plainAlpha,
+						   freqs.getAlphabet(),
+						   freqs.getBigrams(),
+						   freqs.getTrigrams(),
+						   subst.getPlainAlphaLocale(),
+						   subst.getCollator(),
+						   injective);
+			    tmpSolver.solve();
+			    solver[0] = tmpSolver;
+			}catch(IllegalArgumentException iae){
+			    // the language frequencies have no usable characters
+			}
+		    }
+		};
+	    Runnable gui = new Runnable(){
+		    public void run(){
+			if(solver[0] == null){
+			    JOptionPane.showMessageDialog(CipherToolsPane.this,
+							  labelsRB.getString("noFreqsMsg"),
+							  labelsRB.getString("noFreqsTtl"),
+							  JOptionPane.WARNING_MESSAGE);
+			    return;
+			}
+			int numAl = Math.max(solver[0].getPeriod(), 2);
+			setNumberOfAlphabets(numAl);
+			if(subst.getNumberOfAlphabets() == numAl){
+			    subst.setSubstitution(solver[0].getSubstitution(numAl));
+			}
+		    }
+		};
+	    TaskExecutor.getShared().execute(new Task(work, gui),
+					     CipherToolsPane.this);
+	}
+    }
+
+    /**
+     * <code>Action</code> used by the "Solve" button of the Alberti tools.
+     * Searches for the keys of all the alphabets (see
+     * <code>AlbertiSolver</code>), with the current number of alphabets
+     * as the period, while a <code>ProgressDialog</code> is displayed,
+     * from which it can be stopped, and selects them. The best keys found
+     * so far are selected while the search goes on.
+     *
+     * @see Substitution#setSubstitution(ArrayList)
+     */
+    private class AlbertiSolveAction extends AbstractAction{
+	public void actionPerformed(ActionEvent e){
+	    if(langFreqs == null){
+		JOptionPane.showMessageDialog(CipherToolsPane.this,
+					      labelsRB.getString("noFreqsMsg"),
+					      labelsRB.getString("noFreqsTtl"),
+					      JOptionPane.WARNING_MESSAGE);
+		return;
+	    }
+	    final ArrayList cipherAlpha = new ArrayList((Set)subst.getCipherAlphaMinusIgnoredCharacters().get(0));
+	    Collections.sort(cipherAlpha);
+	    final ArrayList plainAlpha = subst.getPlainAlpha();
+	    if(cipherAlpha.size() == 0 || plainAlpha.size() == 0){
+		return;
+	    }
+	    final int[] text = cipherM.getCodes((Set)subst.getIgnoredCharacters().get(0),
+						cipherAlpha);
+	    final int period = subst.getNumberOfAlphabets();
+	    final LanguageFrequenciesHandler freqs = langFreqs;
+	    final boolean injective = subst.getInjective();
+	    final ArrayList[] key = new ArrayList[1];
+	    Task task = new Task(){
+		    protected void work(){
+			try{
+			    AlbertiSolver solver =
+				new AlbertiSolver(text, period, cipherAlpha,
+						  plainAlpha,
+						  freqs.getBigrams(),
+						  freqs.getTrigrams(),
+						  freqs.getNGrams(4),
+						  subst.getPlainAlphaLocale(),
+						  subst.getCollator(),
+						  injective);
+			    solver.setMonitor(this);
+			    key[0] = solver.solve();
+			}catch(IllegalArgumentException iae){
+			    // the language frequencies have no usable n-grams
+			}
+		    }
+
+		    protected void process(Object best){
+			if(subst.getNumberOfAlphabets() == period){
+			    subst.setSubstitution((ArrayList)best);
+			}
+		    }
+
+		    protected void done(){
+			if(getFailure() != null){
+			    showFailure();
+			}else if(key[0] != null){
+			    process(key[0]);
+			}else if(!isCancelled()){
+			    JOptionPane.showMessageDialog(CipherToolsPane.this,
+							  labelsRB.getString("noFreqsMsg"),
+							  labelsRB.getString("noFreqsTtl"),
+							  JOptionPane.WARNING_MESSAGE);
+			}
+		    }
+		};
+	    TaskExecutor.getShared().execute(task, CipherToolsPane.this);
+	}
+    }
+
+    /**
+     * <code>Action</code> used by the "Words" button. Lets the user choose
+     * a word list, searches for the key of the monoalphabetic substitution
+     * by matching the ciphertext words with the words of the list that
+     * have the same letter-repetition pattern (see
+     * <code>WordPatternSolver</code>) while a <code>ProgressDialog</code>
+     * is displayed, and selects the characters of the words matched.
+     *
+     * @see Substitution#setSubstitution(ArrayList)
+     */
+    private class WordsAction extends AbstractAction{
+	public void actionPerformed(ActionEvent e){
+	    if(wordsChooser == null){
+		wordsChooser = new TextFileChooser();
+		wordsChooser.setDialogTitle(labelsRB.getString("wordsChooser"));
+	    }
+	    if(wordIndexFile != null){
+		wordsChooser.setSelectedFile(wordIndexFile);
+	    }
+	    if(wordsChooser.showOpenDialog(CipherToolsPane.this) !=
+	       TextFileChooser.APPROVE_OPTION){
+		return;
+	    }
+	    final File list = wordsChooser.getSelectedFile();
+	    final String encoding = wordsChooser.getEncoding();
+	    final ArrayList cipherAlpha = new ArrayList((Set)subst.getCipherAlphaMinusIgnoredCharacters().get(0));
+	    Collections.sort(cipherAlpha);
+	    final ArrayList plainAlpha = subst.getPlainAlpha();
+	    if(cipherAlpha.size() == 0 || plainAlpha.size() == 0){
+		return;
+	    }
+	    final ArrayList words = cipherM.getWords((Set)subst.getIgnoredCharacters().get(0),
+						     cipherAlpha);
+	    final boolean injective = subst.getInjective();
+	    final HashMap[] key = new HashMap[1];
+	    final IOException[] error = new IOException[1];
+	    Runnable work = new Runnable(){
+		    public void run(){
+			try{
+			    WordPatternIndex index = null;
+			    synchronized(CipherToolsPane.this){
+				if(list.equals(wordIndexFile)){
+				    index = wordIndex;
+				}
+			    }
+			    if(index == null){
+				index = WordPatternIndex.load(list, encoding);
+				synchronized(CipherToolsPane.this){
+				    wordIndex = index;
+				    wordIndexFile = list;
+				}
+			    }
+			    WordPatternSolver solver =
+				new WordPatternSolver(words, cipherAlpha, plainAlpha,
+						      index, injective);
+			    key[0] = solver.solve();
+			}catch(IOException ioe){
+			    error[0] = ioe;
+			}
+		    }
+		};
+	    Runnable gui = new Runnable(){
+		    public void run(){
+			if(error[0] != null){
+			    JOptionPane.showMessageDialog(CipherToolsPane.this,
+							  labelsRB.getString("wordsErrMsg") +
+							  "\n\"" + list.getName() + "\"",
+							  labelsRB.getString("wordsErrTtl"),
+							  JOptionPane.ERROR_MESSAGE);
+			}else if(key[0].isEmpty()){
+			    JOptionPane.showMessageDialog(CipherToolsPane.this,
+							  labelsRB.getString("noWordsMsg"),
+							  labelsRB.getString("noWordsTtl"),
+							  JOptionPane.WARNING_MESSAGE);
+			}else if(subst.getNumberOfAlphabets() == 1){
+			    ArrayList substLst = new ArrayList(1);
+			    substLst.add(key[0]);
+			    subst.setSubstitution(substLst);
+			}
+		    }
+		};
+	    TaskExecutor.getShared().execute(new Task(work, gui),
+					     CipherToolsPane.this);
+	}
+    }
+
     /**
      * <code>ToolPane</code> that contains the tools for the monoalphabetic
      * ciphers.
@@ -639,6 +1437,14 @@ public class CipherToolsPane extends JPanel{
 	    invert.setAlignmentX(Component.CENTER_ALIGNMENT);
 	    invert.setAlignmentY(Component.CENTER_ALIGNMENT);
 	    add(invert);
+	    JButton solve = new JButton(solveActn);
+	    solve.setAlignmentX(Component.CENTER_ALIGNMENT);
+	    solve.setAlignmentY(Component.CENTER_ALIGNMENT);
+	    add(solve);
+	    JButton words = new JButton(wordsActn);
+	    words.setAlignmentX(Component.CENTER_ALIGNMENT);
+	    words.setAlignmentY(Component.CENTER_ALIGNMENT);
+	    add(words);
 	}
     }
 
@@ -667,6 +1473,10 @@ public class CipherToolsPane extends JPanel{
 	    shiftPan.setAlignmentX(Component.CENTER_ALIGNMENT);
 	    shiftPan.setAlignmentY(Component.CENTER_ALIGNMENT);
 	    add(shiftPan);
+	    JButton shifts = new JButton(shiftsActn);
+	    shifts.setAlignmentX(Component.CENTER_ALIGNMENT);
+	    shifts.setAlignmentY(Component.CENTER_ALIGNMENT);
+	    add(shifts);
 	}
     }
 
@@ -681,6 +1491,15 @@ public class CipherToolsPane extends JPanel{
 	protected JSpinner numAlpha;
 
 	public AlbertiToolsPane(String name){
+	    this(name, true);
+	}
+
+	/**
+	 * Creates the pane, with the "Solve" button of the Alberti tools
+	 * only if <code>solve</code> is <code>true</code> (the Vigenère
+	 * tools have their own).
+	 */
+	protected AlbertiToolsPane(String name, boolean solve){
 	    super(name);
 	    spinMdl = new SpinnerNumberModel(new Integer(2),
 					     new Integer(2),
@@ -710,6 +1529,10 @@ public class CipherToolsPane extends JPanel{
 	    kasiskiBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
 	    kasiskiBtn.setAlignmentY(Component.CENTER_ALIGNMENT);
 	    add(kasiskiBtn);
+	    JButton periodsBtn = new JButton(periodsActn);
+	    periodsBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+	    periodsBtn.setAlignmentY(Component.CENTER_ALIGNMENT);
+	    add(periodsBtn);
 	    JButton groupBtn = new JButton(groupActn);
 	    groupBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
 	    groupBtn.setAlignmentY(Component.CENTER_ALIGNMENT);
@@ -739,6 +1562,12 @@ public class CipherToolsPane extends JPanel{
 	    invert.setAlignmentX(Component.CENTER_ALIGNMENT);
 	    invert.setAlignmentY(Component.CENTER_ALIGNMENT);
 	    add(invert);
+	    if(solve){
+		JButton solveBtn = new JButton(albSolveActn);
+		solveBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+		solveBtn.setAlignmentY(Component.CENTER_ALIGNMENT);
+		add(solveBtn);
+	    }
 	}
 
 	/**
@@ -785,7 +1614,7 @@ public class CipherToolsPane extends JPanel{
     private class VigenereToolsPane extends AlbertiToolsPane{
 
 	public VigenereToolsPane(String name){
-	    super(name);
+	    super(name, false);
 	    JPanel shiftPan = new JPanel();
 	    shiftPan.setLayout(new BoxLayout(shiftPan, BoxLayout.X_AXIS));
 	    TitledBorder border = BorderFactory.createTitledBorder(labelsRB.getString("shiftPan"));
@@ -804,6 +1633,10 @@ public class CipherToolsPane extends JPanel{
 	    shiftPan.setAlignmentX(Component.CENTER_ALIGNMENT);
 	    shiftPan.setAlignmentY(Component.CENTER_ALIGNMENT);
 	    add(shiftPan);
+	    JButton solve = new JButton(vigSolveActn);
+	    solve.setAlignmentX(Component.CENTER_ALIGNMENT);
+	    solve.setAlignmentY(Component.CENTER_ALIGNMENT);
+	    add(solve);
 	}
     }
 
@@ -838,6 +1671,17 @@ public class CipherToolsPane extends JPanel{
 	}
     }
 
+    /**
+     * Sets the language frequencies used to search for the keys of the
+     * monoalphabetic and Vigenère substitutions.
+     *
+     * @param freqs the language frequencies, <code>null</code> if there
+     *              are none
+     */
+    public void setLanguageFrequencies(LanguageFrequenciesHandler freqs){
+	langFreqs = freqs;
+    }
+
     /**
      * Returns the <code>JFrame</code> used to display the data that results
      * from applying the Kasiski Test.
@@ -916,6 +1760,23 @@ public class CipherToolsPane extends JPanel{
      * @throws IllegalArgumentException if <code>table</code> does not have columns
      */
     private static void resizeTable(JTable table, int minWidth){
+	resizeTable(table, minWidth, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Resizes a <code>JTable</code> like
+     * <code>resizeTable(JTable, int)</code>, but only measures the data in
+     * its first <code>maxRows</code> rows, so large tables whose cells
+     * are created when displayed are not formatted entirely.
+     *
+     * @param table a <code>JTable</code> that contains <code>String</code>s
+     *              exclusively and with all of its columns named
+     * @param minWidth a minimum width the table should have
+     * @param maxRows the number of rows measured
+     * @throws NullPointerException if <code>table</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>table</code> does not have columns
+     */
+    private static void resizeTable(JTable table, int minWidth, int maxRows){
 	if(table == null){
 	    throw new NullPointerException();
 	}
@@ -938,7 +1799,8 @@ public class CipherToolsPane extends JPanel{
 	    column = tableCM.getColumn(i);
 	    tmpColWidth = SwingUtilities.computeStringWidth(headerFM, colName) + 10;
 	    maxColWidth = Math.max(tmpColWidth, column.getWidth());
-	    for(int j=0; j<table.getRowCount(); j++){
+	    int numRows = Math.min(maxRows, table.getRowCount());
+	    for(int j=0; j<numRows; j++){
 		TableCellRenderer cellRen = table.getCellRenderer(j, i);
 		Component comp = cellRen.getTableCellRendererComponent(table, table.getValueAt(j, i), false, false, j, i);
 		tmpColWidth = comp.getPreferredSize().width + 10;
@@ -25,16 +25,24 @@
 package net.sourceforge.ganzua.component;
 
 import javax.swing.*;
-import javax.swing.text.DefaultEditorKit;
 import javax.swing.event.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
+import net.sourceforge.ganzua.text.PlaintextModel;
 
 /**
  * Component used to display the ciphertext and plaintext intercalated
  * (one line of ciphertext, one line of plaintext) or in different
- * <code>JTextArea</code>s.
+ * <code>TextRowsView</code>s.<br/>
+ *
+ * The lines are obtained from a <code>PlaintextModel</code> only when
+ * they are painted, so setting a new key renders again just the lines
+ * that are visible, whatever the size of the text.<br/>
+ *
+ * Clicking on a character highlights all the occurrences of the
+ * character of the ciphertext at that position, in the ciphertext and
+ * the plaintext.
  *
  * @author Jesús Adolfo García Pasquel
  * @version 0.01 August 2003
@@ -50,7 +58,8 @@ public class CiphertextPanel extends JPanel
 
     /**
      * Name of the mode in which <code>CiphertextPanel</code>s show
-     * the ciphertext and plaintext in different <code>JTextArea</code>s. */
+     * the ciphertext and plaintext in different <code>TextRowsView</code>s.
+     */
     public static final byte SEPARATE = 1;
 
     /**
@@ -59,34 +68,39 @@ public class CiphertextPanel extends JPanel
 
     /**
      * Indicates if the ciphertext and the plaintext are being displayed
-     * in different <code>JTextArea</code>s (<code>INTERCALATE</code>) or in
+     * in different <code>TextRowsView</code>s (<code>INTERCALATE</code>) or in
      * the same intercalaing lines (<code>SEPARATE</code>) */
     protected byte mode;
 
     /**
-     * The ciphertext */
-    protected String ciphertext;
+     * The model of the ciphertext and plaintext, or <code>null</code> */
+    protected PlaintextModel model;
 
     /**
-     * The plaintext */
-    protected String plaintext;
+     * The character of the ciphertext whose occurrences are highlighted,
+     * or <code>null</code> */
+    private java.text.CollationKey highlighted;
 
     /**
-     * <code>JTextArea</code> where the ciphertext is displayed*/
-    protected JTextArea ciphertextArea;
+     * The positions of the occurrences of <code>highlighted</code> */
+    private int[] highlightedPos;
+
+    /**
+     * <code>TextRowsView</code> where the ciphertext is displayed*/
+    protected TextRowsView ciphertextArea;
 
     protected JScrollPane ciphertextScroll;
 
     /**
-     * <code>JTextArea</code> where the plaintext is displayed*/
-    protected JTextArea plaintextArea;
+     * <code>TextRowsView</code> where the plaintext is displayed*/
+    protected TextRowsView plaintextArea;
 
     protected JScrollPane plaintextScroll;
 
     /**
-     * <code>JTextArea</code> where the ciphertext and the plaintext are
-     * displayed intercalating their lines */
-    protected JTextArea intercalatedArea;
+     * <code>TextRowsView</code> where the ciphertext and the plaintext are
+     * displayed intercalating their lines (and an empty one) */
+    protected TextRowsView intercalatedArea;
 
     protected JScrollPane intercalatedScroll;
 
@@ -140,36 +154,33 @@ public class CiphertextPanel extends JPanel
     protected Action copyAction = null;
 
     /**
-     * Creates a <code>CiphertextPanel</code> where the ciphertext and
-     * plaintext are <code>&quot;&quot;</code>, and the mode is
+     * The <code>TextRowsView</code> that last had the focus, whose
+     * selection is copied by <code>copyAction</code> */
+    private TextRowsView focusedArea;
+
+    /**
+     * Creates a <code>CiphertextPanel</code> without a model, so the
+     * ciphertext and plaintext are empty, and the mode is
      * <code>INTERCALATE</code>.
      */
     public CiphertextPanel(){
 	super();
 	mode = INTERCALATE;
-	ciphertext = "";
-	plaintext = "";
 	labelsRB = ResourceBundle.getBundle(CiphertextPanel.class.getName(),
 					    getDefaultLocale());
 	initializeGUI();
     }
 
     /**
-     * Creates a <code>CiphertextPanel</code> with ciphertext
-     * <code>cipher</code> and plaintext <code>plain</code> in
-     * <code>INTERCALATE</code> mode.
+     * Creates a <code>CiphertextPanel</code> that displays the lines of
+     * <code>model</code> in <code>INTERCALATE</code> mode.
      *
-     * @throws NullPointerException if <code>cipher</code> or 
-     *                       <code>plain</code> are <code>null</code>.
-     * @throws IllegalArgumentException if <code>cipher</code> and 
-     *                       <code>plain</code> have different number of lines.
+     * @param model the model of the ciphertext and plaintext
+     * @see #setModel(PlaintextModel)
      */
-    public CiphertextPanel(String cipher,
-			   String plain) throws NullPointerException,
-						IllegalArgumentException
-    {
+    public CiphertextPanel(PlaintextModel model){
 	this();
-	setText(cipher, plain);
+	setModel(model);
     }
 
     /**
@@ -185,19 +196,47 @@ public class CiphertextPanel extends JPanel
 	separatedPanel.setLayout(new BoxLayout(separatedPanel,
 					       BoxLayout.Y_AXIS));
 	// initialize separatedPanel
-	ciphertextArea = new JTextArea(ciphertext);
-	ciphertextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-	ciphertextArea.setEditable(false);
-	ciphertextArea.setDragEnabled(true);
+	ciphertextArea = new TextRowsView(){
+		public int getRowCount(){
+		    return model == null ? 0 : model.getNumberOfLines();
+		}
+
+		public String getRow(int row){
+		    return model.getCiphertextLine(row);
+		}
+
+		public int getMaximumRowLength(){
+		    return model == null ? 0 : model.getMaximumLineLength();
+		}
+
+		protected int[] getHighlights(int row){
+		    return highlightedPos == null ? null
+			: model.getOffsets(row, highlightedPos, false);
+		}
+	    };
 	JPanel ciphertextPanel = new JPanel(new BorderLayout());
 	ciphertextPanel.setBorder(BorderFactory.createTitledBorder(labelsRB.getString("cipher")));
 	ciphertextScroll = new JScrollPane(ciphertextArea,
 					   policyV, policyH);
 	ciphertextPanel.add(ciphertextScroll);
-	plaintextArea = new JTextArea(plaintext);
-	plaintextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-	plaintextArea.setEditable(false);
-	plaintextArea.setDragEnabled(true);
+	plaintextArea = new TextRowsView(){
+		public int getRowCount(){
+		    return model == null ? 0 : model.getNumberOfLines();
+		}
+
+		public String getRow(int row){
+		    return model.getPlaintextLine(row);
+		}
+
+		public int getMaximumRowLength(){
+		    return model == null ? 0 : model.getMaximumLineLength();
+		}
+
+		protected int[] getHighlights(int row){
+		    return highlightedPos == null ? null
+			: model.getOffsets(row, highlightedPos, true);
+		}
+	    };
 	JPanel plaintextPanel = new JPanel(new BorderLayout());
 	plaintextPanel.setBorder(BorderFactory.createTitledBorder(labelsRB.getString("plain")));
 	plaintextScroll = new JScrollPane(plaintextArea,
@@ -206,10 +245,34 @@ public class CiphertextPanel extends JPanel
 	separatedPanel.add(ciphertextPanel);
 	separatedPanel.add(plaintextPanel);
 	//initialize intercalatedPanel
-	intercalatedArea = new JTextArea("");
-	intercalatedArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-	intercalatedArea.setEditable(false);
-	intercalatedArea.setDragEnabled(true);
+	/* intercalatedArea has 3*number_of_lines_plaintextArea_has rows.
+	   This helps keep track of the lines the user is looking at
+	   when changing from INTERCALATED to SEPARATE mode and
+	   vice versa */
+	intercalatedArea = new TextRowsView(){
+		public int getRowCount(){
+		    return model == null ? 0 : 3*model.getNumberOfLines();
+		}
+
+		public String getRow(int row){
+		    switch(row%3){
+		    case 0: return model.getCiphertextLine(row/3);
+		    case 1: return model.getPlaintextLine(row/3);
+		    default: return "";
+		    }
+		}
+
+		public int getMaximumRowLength(){
+		    return model == null ? 0 : model.getMaximumLineLength();
+		}
+
+		protected int[] getHighlights(int row){
+		    if(highlightedPos == null || row%3 == 2){
+			return null;
+		    }
+		    return model.getOffsets(row/3, highlightedPos, row%3 == 1);
+		}
+	    };
 	intercalatedScroll = new JScrollPane(intercalatedArea,
 					     policyV, policyH);
 	intercalatedPanel.add(intercalatedScroll);
@@ -246,6 +309,27 @@ public class CiphertextPanel extends JPanel
 	ciphertextArea.addMouseListener(popupListener);
 	plaintextArea.addMouseListener(popupListener);
 	intercalatedArea.addMouseListener(popupListener);
+	// highlight the character clicked
+	MouseListener highlightListener = new MouseAdapter(){
+		public void mouseClicked(MouseEvent e){
+		    if(SwingUtilities.isLeftMouseButton(e)){
+			highlightCharacterAt((TextRowsView)e.getComponent(),
+					     e.getPoint());
+		    }
+		}
+	    };
+	ciphertextArea.addMouseListener(highlightListener);
+	plaintextArea.addMouseListener(highlightListener);
+	intercalatedArea.addMouseListener(highlightListener);
+	// remember the area whose selection should be copied
+	FocusListener focusListener = new FocusAdapter(){
+		public void focusGained(FocusEvent e){
+		    focusedArea = (TextRowsView)e.getComponent();
+		}
+	    };
+	ciphertextArea.addFocusListener(focusListener);
+	plaintextArea.addFocusListener(focusListener);
+	intercalatedArea.addFocusListener(focusListener);
 	/* add an AdjustmentListener to the JScrollBars of ciphertextScroll
 	   and plaintextScroll, so they show matching lines of ciphertext
 	   and plaintext */
@@ -255,7 +339,7 @@ public class CiphertextPanel extends JPanel
 	final JScrollBar ctHBar=ciphertextScroll.getHorizontalScrollBar();
 	final JScrollBar ptHBar=plaintextScroll.getHorizontalScrollBar();
 	final JScrollBar itHBar=intercalatedScroll.getHorizontalScrollBar();
-	final int fontH = ciphertextArea.getFontMetrics(ciphertextArea.getFont()).getHeight();
+	final int fontH = ciphertextArea.getRowHeight();
 	AdjustmentListener adVert =  new AdjustmentListener(){
 		public void adjustmentValueChanged(AdjustmentEvent e){
 		    int value = e.getValue();
@@ -324,7 +408,6 @@ public class CiphertextPanel extends JPanel
 				ctHBar.setValue(value);
 			    }
 			}
-			moveCarets(); // to avoid flicker when using setText
 		    }
 		}
 	    };
@@ -337,87 +420,67 @@ public class CiphertextPanel extends JPanel
     }
 
     /**
-     * Tries to place the carets of <code>ciphertextArea</code>, 
-     * <code>plaintextArea</code> and <code>intercalatedArea</code> somewhere
-     * in the visible area of their respective <code>JScrollPane</code>s.
-     * Having the carets in the visible portion allows for a flickerless 
-     * <code>setText()</code>
+     * Returns the plaintext shown in this panel, taken from the buffer the
+     * model keeps up to date as the key changes.
+     *
+     * @throws IllegalStateException if there is no model
      */
-    private void moveCarets(){
-	moveCaret(ciphertextArea, ciphertextScroll);
-	moveCaret(plaintextArea, plaintextScroll);
-	moveCaret(intercalatedArea, intercalatedScroll);
+    public String getPlaintext(){
+	if(model == null){
+	    throw new IllegalStateException("No model");
+	}
+	return model.getPlaintext();
     }
 
     /**
-     * Tries to place the carets of <code>textArea</code>, 
-     * somewhere in the visible area of its <code>JScrollPane</code>.
-     * Having the caret in the visible portion allows for a flickerless 
-     * <code>setText()</code>.
+     * Highlights the occurrences of the character of the ciphertext at the
+     * point <code>p</code> of <code>area</code>, or removes the highlight
+     * if there is no character there.
      *
-     * @param textArea a <code>JTextArea</code>
-     * @param scrollPane the <code>JScrollPane</code> textArea is in
-     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @param area one of the <code>TextRowsView</code>s
+     * @param p the point, in the coordinates of <code>area</code>
      */
-    private void moveCaret(JTextArea textArea, 
-			   JScrollPane scrollPane) throws NullPointerException
-    {
-	if(textArea.getSelectedText()!=null){
-	    return;
-	}
-	int fh = textArea.getFontMetrics(textArea.getFont()).getHeight()/2;
-	fh = fh > 0 ? fh : 1;
-	int caretDot = textArea.getCaret().getDot();
-	Rectangle mod2View = null;
-	Rectangle viewRect = null;
-	try{
-	    mod2View = textArea.modelToView(caretDot);
-	}catch(javax.swing.text.BadLocationException ble){
-	    assert false: "getDot returned an invalid caret position";
-	}
-	viewRect = scrollPane.getViewport().getViewRect();
-	if(mod2View!=null && viewRect.width>0 && viewRect.height>0 &&
-	   !viewRect.contains(mod2View)){
-	    int yMax = viewRect.y + viewRect.height;
-	    Point midPnt = new Point(viewRect.width/2 + viewRect.x,
-				     viewRect.height/2 + viewRect.y);
-	    /* Look for a valid caret position inside viewRect from the middle
-	       down. I start looking from the middle to avoid performing this
-	       operation if the textArea is scrolled half a screen up or down*/
-	    int i = midPnt.y;
-	    while(i<yMax && !viewRect.contains(mod2View)){
-		caretDot = textArea.viewToModel(midPnt);
-		if(caretDot >= 0){
-		    try{
-			mod2View = textArea.modelToView(caretDot);
-		    }catch(javax.swing.text.BadLocationException ble){
-			assert false: 
-			    "viewToModel returned an invalid position";
-		    }
+    private void highlightCharacterAt(TextRowsView area, Point p){
+	int[] at = area.characterAt(p);
+	int position = -1;
+	if(at != null && model != null){
+	    if(area == intercalatedArea){
+		if(at[0]%3 != 2){
+		    position = model.getPosition(at[0]/3, at[1], at[0]%3 == 1);
 		}
-		i+=fh;
-		midPnt.y = i;
-	    }
-	    /* Look for a valid caret position inside viewRect from the middle
-	       up. */
-	    i = midPnt.y - fh;
-	    while(i>viewRect.y && !viewRect.contains(mod2View)){
-		caretDot = textArea.viewToModel(midPnt);
-		if(caretDot >= 0){
-		    try{
-			mod2View = textArea.modelToView(caretDot);
-		    }catch(javax.swing.text.BadLocationException ble){
-			assert false: 
-			    "viewToModel returned an invalid position";
-		    }
-		}
-		i-=fh;
-		midPnt.y = i;
-	    }
-	    if(mod2View != null && viewRect.contains(mod2View)){
-		textArea.getCaret().setDot(caretDot);
+	    }else{
+		position = model.getPosition(at[0], at[1],
+					     area == plaintextArea);
 	    }
 	}
+	setHighlightedCharacter(position == -1 ? null
+				: model.getCharacter(position));
+    }
+
+    /**
+     * Highlights all the occurrences of the character <code>ck</code> of
+     * the ciphertext, and the characters that replace them in the
+     * plaintext. The occurrences are found in the position index of the
+     * model, and only those in the lines that are visible are painted.
+     *
+     * @param ck the <code>CollationKey</code> of the character, or
+     *           <code>null</code> to remove the highlight
+     */
+    public void setHighlightedCharacter(java.text.CollationKey ck){
+	highlighted = ck;
+	highlightedPos = ck == null || model == null ? null
+						     : model.getPositions(ck);
+	ciphertextArea.repaint();
+	plaintextArea.repaint();
+	intercalatedArea.repaint();
+    }
+
+    /**
+     * Returns the character of the ciphertext whose occurrences are
+     * highlighted, or <code>null</code>.
+     */
+    public java.text.CollationKey getHighlightedCharacter(){
+	return highlighted;
     }
 
     /**
@@ -430,75 +493,74 @@ public class CiphertextPanel extends JPanel
     }
 
     /**
-     * Sets the ciphertext and plaintext to those passed as argument.<br/>
+     * Sets the model of the ciphertext and plaintext that is displayed.
+     * <br/>
      *
      * Note that this will not change the view coordinates of the viewports,
      * so you may want to call <code>viewTop()</code> before using this
      * method.
      *
-     * @param cipher the new ciphertext
-     * @param plain the plaintext
-     * @throws NullPointerException if <code>cipher</code> or
-     *                      <code>plain</code> are <code>null</code>
-     * @throws IllegalArgumentException if <code>cipher</code> and 
-     *                      <code>plain</code> have different number of lines.
+     * @param model the model, or <code>null</code> to display nothing
      * @see #viewTop()
      */
-    public void setText(String cipher,
-			String plain) throws NullPointerException,
-					     IllegalArgumentException
+    public void setModel(PlaintextModel model){
+	this.model = model;
+	textChanged(true);
+    }
+
+    /**
+     * Returns the model of the ciphertext and plaintext that is displayed,
+     * or <code>null</code>.
+     */
+    public PlaintextModel getModel(){
+	return model;
+    }
+
+    /**
+     * Sets the key of the model and displays the plaintext it gives. Only
+     * the lines that are visible are rendered again, unless the ciphertext
+     * of the model has changed.
+     *
+     * @param subst an <code>ArrayList</code> of <code>HashMap</code>s. That
+     *              contains a <code>HashMap</code> for every alphabet the
+     *              substitution has.
+     * @throws NullPointerException if <code>subst</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>subst</code>'s size is <code>0</code>
+     * @throws IllegalStateException if there is no model
+     * @see PlaintextModel#setKey(ArrayList)
+     */
+    public void setKey(ArrayList subst) throws NullPointerException,
+					       IllegalArgumentException,
+					       IllegalStateException
     {
-	/* The method setText of the class JTextArea makes the parent
-	   JScrollPane scroll to the last line. Since I do not know how
-	   to avoid this, I store the current view position of the
-	   JScrollPane and set it after calling setText */
-	final Point ciphertextVP = new Point(ciphertextScroll.getViewport().getViewPosition());
-	final Point plaintextVP = new Point(plaintextScroll.getViewport().getViewPosition());
-	final Point intercalatedVP = new Point(intercalatedScroll.getViewport().getViewPosition());
-	if(cipher == null || plain == null){
-	    throw new NullPointerException();
+	if(model == null){
+	    throw new IllegalStateException("No model");
 	}
-	ciphertext = cipher;
-	plaintext = plain;
-	String[] splitCipher = ciphertext.split("\n");
-	String[] splitPlain = plaintext.split("\n");
-	if(splitCipher.length != splitPlain.length){
-	    throw new IllegalArgumentException("Plaintext and ciphertext have different number of lines");
-	}
-	StringBuffer sb = new StringBuffer();
-	for(int i=0; i<splitCipher.length; i++){
-	    /* The if was commented out to make intercalatedArea have
-	       3*number_of_lines_plaintextArea_has.
-	       This helps keep track of the lines the user is looking at
-	       when changing from INTERCALATED to SEPARATE mode and
-	       vice versa */
-	    //if(!splitCipher[i].equals("")){
-		sb.append(splitCipher[i]).append('\n');
-		sb.append(splitPlain[i]).append("\n\n");
-	    //}
+	textChanged(model.setKey(subst));
+    }
+
+    /**
+     * Repaints the <code>TextRowsView</code>s and notifies the
+     * <code>ChangeListener</code>s.
+     *
+     * @param resized <code>true</code> if the number or the length of the
+     *                lines may have changed
+     */
+    private void textChanged(boolean resized){
+	TextRowsView[] areas = {ciphertextArea, plaintextArea,
+				intercalatedArea};
+	if(resized){
+	    // the positions of the characters have changed
+	    highlighted = null;
+	    highlightedPos = null;
 	}
-	/* Since this method will be called mostly to change the plaintext,
-	   do not modify the contents of ciphertextArea when possible */
-	int dot; // stores the position of the JTextAreas' carets
-	if(!ciphertextArea.getText().equals(ciphertext)){
-	    dot = ciphertextArea.getCaret().getDot();
-	    ciphertextArea.setText(ciphertext);
-	    ciphertextArea.getCaret().setDot(dot);
+	for(int i=0; i<areas.length; i++){
+	    if(resized){
+		areas[i].clearSelection();
+		areas[i].revalidate();
+	    }
+	    areas[i].repaint();
 	}
-	dot = plaintextArea.getCaret().getDot();
-	plaintextArea.setText(plaintext);
-	plaintextArea.getCaret().setDot(dot);
-	dot = intercalatedArea.getCaret().getDot();
-	intercalatedArea.setText(sb.toString());
-	intercalatedArea.getCaret().setDot(dot);
-	// Set the view positions back to where they were.
-	SwingUtilities.invokeLater(new Runnable(){
-		public void run(){
-		    ciphertextScroll.getViewport().setViewPosition(ciphertextVP);
-		    plaintextScroll.getViewport().setViewPosition(plaintextVP);
-		    intercalatedScroll.getViewport().setViewPosition(intercalatedVP);
-		}
-	    });
 	fireStateChanged();
     }
 
@@ -512,14 +574,16 @@ public class CiphertextPanel extends JPanel
      */
     public Action getCopyAction(){
 	if(copyAction == null){
-	    Action[] actions = ciphertextArea.getActions();
-	    int i=0;
-	    while(i<actions.length && 
-		  actions[i].getValue(Action.NAME)!=DefaultEditorKit.copyAction){
-		i++;
-	    }
-	    copyAction = actions[i];
-	    copyAction.putValue(Action.NAME, labelsRB.getString("cpAtn"));
+	    copyAction = new AbstractAction(labelsRB.getString("cpAtn")){
+		    public void actionPerformed(ActionEvent e){
+			TextRowsView area = focusedArea;
+			if(area == null || !area.isShowing()){
+			    area = mode == INTERCALATE ? intercalatedArea
+						       : ciphertextArea;
+			}
+			area.copy();
+		    }
+		};
 	    copyAction.putValue(Action.SHORT_DESCRIPTION, 
 				labelsRB.getString("cpAtnTT"));
 	    copyAction.putValue(Action.ACCELERATOR_KEY,
@@ -676,9 +740,22 @@ public class CiphertextPanel extends JPanel
     public static void main(String[] args){
 	JFrame frame = new JFrame("Test");
 	frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+	Locale loc = new Locale("es", "MX");
+	java.text.Collator col = java.text.Collator.getInstance(loc);
 	String ciphertext = "ABCDEFGHI\nJKLMNÑOPQ\nRSTUVWXYZ";
-	String plaintext = "abcdefghi\njklmnñopq\nrstuvwxyz";
-	final CiphertextPanel cipherPan = new CiphertextPanel(ciphertext, plaintext);
+	net.sourceforge.ganzua.text.CiphertextManager manager =
+	    new net.sourceforge.ganzua.text.CiphertextManager(loc, col,
+							      ciphertext);
+	HashMap key = new HashMap();
+	ArrayList alpha = manager.getCipherAlphabet();
+	for(int i=0; i<alpha.size(); i++){
+	    java.text.CollationKey ck = (java.text.CollationKey)alpha.get(i);
+	    key.put(ck, col.getCollationKey(ck.getSourceString().toLowerCase(loc)));
+	}
+	ArrayList subst = new ArrayList();
+	subst.add(key);
+	final CiphertextPanel cipherPan = new CiphertextPanel(manager.getPlaintextModel());
+	cipherPan.setKey(subst);
 	frame.getContentPane().add(cipherPan);
 	frame.pack();
 	frame.setVisible(true);
@@ -0,0 +1,181 @@
+/*
+ * -- ProgressDialog.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.component;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.ResourceBundle;
+
+/**
+ * Modal <code>JDialog</code> displayed while a <code>Task</code> is
+ * executed. It shows a <code>JProgressBar</code>, in indeterminate mode
+ * until the task reports how many steps it has, and a button that cancels
+ * the task; closing the dialog cancels it too. The dialog disposes itself
+ * when the task is done.
+ *
+ * @see TaskExecutor#execute(Task, Component)
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class ProgressDialog extends JDialog{
+
+    /**
+     * The progress bar */
+    protected JProgressBar progressBar;
+
+    /**
+     * The label that reads <code>&quot;Working...&quot;</code> */
+    protected JLabel label;
+
+    /**
+     * The button that cancels the task */
+    protected JButton cancelB;
+
+    /**
+     * The task whose progress is displayed */
+    private Task task;
+
+    /**
+     * <code>ResourceBundle</code> with localized labels */
+    private ResourceBundle labelsRB;
+
+    /**
+     * Creates a modal dialog without a title with the specified
+     * <code>Frame</code> as its owner, that displays the progress of
+     * <code>task</code>.
+     *
+     * @param owner the <code>Frame</code> from which the dialog is displayed
+     * @param task the <code>Task</code> whose progress is displayed
+     * @throws NullPointerException if <code>task</code> is <code>null</code>
+     */
+    public ProgressDialog(Frame owner, Task task) throws NullPointerException{
+	super(owner);
+	if(task == null){
+	    throw new NullPointerException();
+	}
+	this.task = task;
+	setModal(true);
+	setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+	labelsRB = ResourceBundle.getBundle(ProgressDialog.class.getName(),
+					    JComponent.getDefaultLocale());
+	label = new JLabel(labelsRB.getString("label"));
+	progressBar = new JProgressBar();
+	cancelB = new JButton(labelsRB.getString("cancel"));
+	initGUI();
+	setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Creates a modal dialog without a title with the <code>Frame</code>
+     * that contains the component as its owner.
+     *
+     * @param parentComponent the <code>Component</code> that is in the frame
+     *                        from which the dialog is displayed
+     * @param task the <code>Task</code> whose progress is displayed
+     * @throws NullPointerException if <code>task</code> is <code>null</code>
+     * @see #ProgressDialog(Frame, Task)
+     */
+    public ProgressDialog(Component parentComponent, Task task)
+	throws NullPointerException
+    {
+	this(JOptionPane.getFrameForComponent(parentComponent), task);
+    }
+
+    /**
+     * Initializes the GUI of the <code>ProgressDialog</code>.
+     */
+    private void initGUI(){
+	label.setAlignmentX(Component.CENTER_ALIGNMENT);
+	label.setAlignmentY(Component.CENTER_ALIGNMENT);
+	progressBar.setStringPainted(true);
+	progressBar.setString("");
+	progressBar.setIndeterminate(true);
+	progressBar.setAlignmentX(Component.CENTER_ALIGNMENT);
+	progressBar.setAlignmentY(Component.CENTER_ALIGNMENT);
+	cancelB.setAlignmentX(Component.CENTER_ALIGNMENT);
+	cancelB.setAlignmentY(Component.CENTER_ALIGNMENT);
+	cancelB.addActionListener(new ActionListener(){
+		public void actionPerformed(ActionEvent e){
+		    cancel();
+		}
+	    });
+	addWindowListener(new WindowAdapter(){
+		public void windowClosing(WindowEvent e){
+		    cancel();
+		}
+	    });
+	task.addChangeListener(new ChangeListener(){
+		public void stateChanged(ChangeEvent e){
+		    updateProgress();
+		}
+	    });
+	Box content = new Box(BoxLayout.Y_AXIS);
+	content.add(Box.createVerticalGlue());
+	content.add(label);
+	content.add(Box.createVerticalStrut(3));
+	content.add(progressBar);
+	content.add(Box.createVerticalStrut(8));
+	content.add(cancelB);
+	content.add(Box.createVerticalGlue());
+	content.setBorder(BorderFactory.createEmptyBorder(5, 10, 10, 10));
+	getContentPane().add(content);
+	pack();
+	updateProgress();
+    }
+
+    /**
+     * Cancels the task. The dialog stays open, without the button, until
+     * the task has actually stopped.
+     */
+    private void cancel(){
+	task.cancel();
+	cancelB.setEnabled(false);
+	label.setText(labelsRB.getString("cancelling"));
+    }
+
+    /**
+     * Displays the progress reported by the task, and disposes the dialog
+     * if it is done.
+     */
+    private void updateProgress(){
+	if(task.isDone()){
+	    dispose();
+	    return;
+	}
+	int total = task.getTotal();
+	if(total > 0){
+	    progressBar.setIndeterminate(false);
+	    progressBar.setMaximum(total);
+	    progressBar.setValue(Math.min(task.getProgress(), total));
+	    progressBar.setString(null);
+	}
+    }
+}
+/*
+ * -- ProgressDialog.java ends here --
+ */
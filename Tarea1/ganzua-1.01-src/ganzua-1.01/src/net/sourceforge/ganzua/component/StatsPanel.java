@@ -32,8 +32,9 @@ import net.sourceforge.ganzua.handler.*;
 import net.sourceforge.ganzua.text.*;
 
 /**
- * Component that displays relative frequencies of characters, digrams and
- * trigrams (in the case of monoalphabetic statistics) or frequencies of
+ * Component that displays relative frequencies of characters, digrams,
+ * trigrams and, if they were counted, n-grams of higher orders (in the
+ * case of monoalphabetic statistics) or frequencies of
  * characters in different columns (polyalphabetic statistics). The relative
  * frequencies are displayed in tables available through different tabs.
  *
@@ -59,6 +60,28 @@ public class StatsPanel extends JTabbedPane{
      */
     protected ResourceBundle labelsRB;
 
+    /**
+     * The <code>LanguageFrequenciesHandler</code> whose trigrams and
+     * higher order n-grams will be put in their tables when their tabs
+     * are shown, or <code>null</code> if they are already in them. */
+    private LanguageFrequenciesHandler pendingNGrams;
+
+    /**
+     * <code>pendingTables[i]</code> is <code>true</code> if the table at
+     * index <code>i</code> still waits for the n-grams of
+     * <code>pendingNGrams</code>. */
+    private boolean[] pendingTables;
+
+    /**
+     * Loads the pending n-grams when the tab of their table is selected,
+     * or <code>null</code> if it has not been needed yet. */
+    private javax.swing.event.ChangeListener nGramTabListener;
+
+    /**
+     * The <code>Collator</code> set with <code>useCollator</code>, or
+     * <code>null</code> if it has not been called. */
+    private Collator collator;
+
 
     /**
      * Creates a <code>StatsPanel</code> that reflects the data (relative
@@ -70,7 +93,9 @@ public class StatsPanel extends JTabbedPane{
      * <code>Collection</code> of <code>StringFreq</code>s represents the
      * relative frequencies of the characters, the one at index 2 the relative
      * frequencies of the bigrams and that at index 3 the relative frequencies
-     * of the trigrams.<br/>
+     * of the trigrams. It may have up to <code>NGramCounter.MAX_ORDER</code>
+     * <code>Collection</code>s if the frequencies of n-grams of higher
+     * orders are to be shown too, each in its own tab.<br/>
      *
      * For polyalphabetic statistics, <code>collections</code> should be a
      * <code>List</code> of size greater or equal to 2, in which at every
@@ -105,8 +130,9 @@ public class StatsPanel extends JTabbedPane{
 	labelsRB = ResourceBundle.getBundle(StatsPanel.class.getName(), 
 					    getDefaultLocale());
 	if(type == Substitution.MONOALPHABETIC){
-	    if(collections.size()!=3){
-		throw new IllegalArgumentException("collections' size must be 3");
+	    if(collections.size()<3 ||
+	       collections.size()>NGramCounter.MAX_ORDER){
+		throw new IllegalArgumentException("collections' size must be between 3 and "+NGramCounter.MAX_ORDER);
 	    }
 	    Iterator it = collections.iterator();
 	    int i = 0;
@@ -153,11 +179,15 @@ public class StatsPanel extends JTabbedPane{
     public StatsPanel(LanguageFrequenciesHandler handler) throws NullPointerException
     {
 	this(putFreqsInList(handler), Substitution.MONOALPHABETIC);
+	setPendingNGrams(handler);
     }
 
     /**
      * Puts <code>h.getAlphabet()</code>, <code>h.getBigrams()</code> and
-     * <code>h.getTrigrams()</code> in a <code>List</code> */
+     * an empty <code>Collection</code> in place of the trigrams and of
+     * the n-grams of every higher order <code>h</code> has in a
+     * <code>List</code>. They are put in their tables by
+     * <code>loadPendingNGrams</code> when they are shown. */
     private static final ArrayList putFreqsInList(LanguageFrequenciesHandler h) throws NullPointerException
     {
 	if(h == null){
@@ -166,10 +196,57 @@ public class StatsPanel extends JTabbedPane{
 	ArrayList lst = new ArrayList();
 	lst.add(h.getAlphabet());
 	lst.add(h.getBigrams());
-	lst.add(h.getTrigrams());
+	for(int n=3; n<=h.getMaximumOrder(); n++){
+	    lst.add(Collections.EMPTY_LIST);
+	}
 	return lst;
     }
 
+    /**
+     * Makes the tables of the trigrams and higher order n-grams show the
+     * ones of <code>h</code> when their tab is selected (at once if it
+     * already is). Large n-gram tables are only read and sorted if the
+     * user looks at them.
+     *
+     * @param h the <code>LanguageFrequenciesHandler</code> with the n-grams
+     */
+    private final void setPendingNGrams(LanguageFrequenciesHandler h){
+	if(nGramTabListener == null){
+	    nGramTabListener = new javax.swing.event.ChangeListener(){
+		    public void stateChanged(javax.swing.event.ChangeEvent e){
+			loadPendingNGrams(getSelectedIndex());
+		    }
+		};
+	    addChangeListener(nGramTabListener);
+	}
+	pendingNGrams = h;
+	pendingTables = new boolean[models.size()];
+	for(int i=2; i<pendingTables.length; i++){
+	    pendingTables[i] = true;
+	}
+	loadPendingNGrams(getSelectedIndex());
+    }
+
+    /**
+     * Puts the n-grams of <code>pendingNGrams</code> in the table at
+     * index <code>idx</code> if they have not been put there.
+     *
+     * @param idx the index of the table, i.e. the order of its n-grams
+     *            minus one
+     */
+    private final void loadPendingNGrams(int idx){
+	if(pendingNGrams == null || type != Substitution.MONOALPHABETIC ||
+	   idx < 0 || idx >= pendingTables.length || !pendingTables[idx]){
+	    return;
+	}
+	StringFreqTableModel model = (StringFreqTableModel)models.get(idx);
+	model.setData(new ArrayList(pendingNGrams.getNGrams(idx+1)));
+	if(collator != null){
+	    model.useCollator(collator);
+	}
+	pendingTables[idx] = false;
+    }
+
     /**
      * Method that sets the component's GUI
      */
@@ -260,7 +337,8 @@ public class StatsPanel extends JTabbedPane{
      *
      * In <code>StatPanel</code>s that contain monoalphabetic stats,
      * the table with the character frequencies is at index 0, bigrams 
-     * at 1, and trigrams at 2. <code>StatPanel</code>s that contain 
+     * at 1, trigrams at 2 and the n-grams of order <code>n</code>, if
+     * any, at <code>n-1</code>. <code>StatPanel</code>s that contain 
      * polyalphabetic stats, have the stats of each alphabet at
      * <code>columnIndex-1</code> (e.g. the stats for the first column are
      * at index 0)
@@ -280,6 +358,9 @@ public class StatsPanel extends JTabbedPane{
 	if(tableIdx<0 || tableIdx>=models.size()){
 	    throw new IllegalArgumentException();
 	}
+	if(pendingNGrams != null){
+	    pendingTables[tableIdx] = false;
+	}
 	StringFreqTableModel sftm = (StringFreqTableModel)models.get(tableIdx);
 	sftm.setData(new ArrayList(data));
     }
@@ -294,7 +375,9 @@ public class StatsPanel extends JTabbedPane{
      * <code>Collection</code> of <code>StringFreq</code>s represents the
      * relative frequencies of the characters, the one at index 2 the relative
      * frequencies of the bigrams and that at index 3 the relative frequencies
-     * of the trigrams.<br/>
+     * of the trigrams. It may have up to <code>NGramCounter.MAX_ORDER</code>
+     * <code>Collection</code>s if the frequencies of n-grams of higher
+     * orders are to be shown too, each in its own tab.<br/>
      *
      * For polyalphabetic statistics, <code>collections</code> should be a
      * <code>List</code> of size greater or equal to 2, in which at every
@@ -324,10 +407,12 @@ public class StatsPanel extends JTabbedPane{
 	    throw new IllegalArgumentException("Invalid type");
 	}
 	this.type = type;
+	pendingNGrams = null;
 	models.clear();
 	if(type == Substitution.MONOALPHABETIC){
-	    if(collections.size()!=3){
-		throw new IllegalArgumentException("collections' size must be 3");
+	    if(collections.size()<3 ||
+	       collections.size()>NGramCounter.MAX_ORDER){
+		throw new IllegalArgumentException("collections' size must be between 3 and "+NGramCounter.MAX_ORDER);
 	    }
 	    Iterator it = collections.iterator();
 	    int i = 0;
@@ -367,8 +452,9 @@ public class StatsPanel extends JTabbedPane{
 
     /**
      * Makes this <code>StatsPanel</code> reflect the data (character,
-     * bigram and trigram relative frequencies) in the 
-     * <code>LanguageFrequenciesHandler</code> passed.<br/>
+     * bigram, trigram and higher order n-gram relative frequencies) in the
+     * <code>LanguageFrequenciesHandler</code> passed. There is a tab for
+     * every order up to <code>handler.getMaximumOrder()</code>.<br/>
      *
      * @param handler a <code>LanguageFrequenciesHandler</code>
      *
@@ -377,6 +463,7 @@ public class StatsPanel extends JTabbedPane{
     public void setData(LanguageFrequenciesHandler handler) throws NullPointerException
     {
 	setData(putFreqsInList(handler), Substitution.MONOALPHABETIC);
+	setPendingNGrams(handler);
     }
 
     /**
@@ -392,6 +479,10 @@ public class StatsPanel extends JTabbedPane{
      */
     public void useCollator(Collator collator) throws NullPointerException
     {
+	if(collator == null){
+	    throw new NullPointerException();
+	}
+	this.collator = collator;
 	Iterator it = models.iterator();
 	while(it.hasNext()){
 	    ((StringFreqTableModel)it.next()).useCollator(collator);
@@ -0,0 +1,418 @@
+/*
+ * -- Task.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.component;
+
+import java.util.ArrayList;
+import java.util.ResourceBundle;
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JComponent;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import net.sourceforge.ganzua.text.SearchMonitor;
+
+/**
+ * A time-consuming task executed by a <code>TaskExecutor</code> in one of
+ * its threads, with the GUI-related work that has to be done on the AWT
+ * event dispatching thread while it runs and once it has finished.<br/>
+ *
+ * The task can be cancelled from any thread; <code>work()</code> should
+ * check <code>isCancelled()</code> from time to time and return as soon
+ * as it is <code>true</code>. Since a <code>Task</code> is a
+ * <code>SearchMonitor</code>, it can be given to a solver, which does
+ * that by itself.<br/>
+ *
+ * The progress and the best result found so far are reported with
+ * <code>progress</code> and <code>improved</code> as often as the work
+ * likes, but they reach the event dispatching thread at most once every
+ * <code>UPDATE_INTERVAL</code> milliseconds, so the GUI is not flooded
+ * with events: <code>process</code> is called with the latest result
+ * and the <code>ChangeListener</code>s are notified. The latest ones are
+ * always delivered before <code>done()</code> is called.<br/>
+ *
+ * If <code>work()</code> throws an exception or an error (e.g. an
+ * <code>OutOfMemoryError</code>), it is kept (see
+ * <code>getFailure()</code>) and, by default,
+ * <code>done()</code> reports it in a dialog instead of running the
+ * GUI-related task.
+ *
+ * @see TaskExecutor
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class Task implements SearchMonitor{
+
+    /**
+     * Minimum number of milliseconds between two updates of the GUI */
+    public static final int UPDATE_INTERVAL = 100;
+
+    /**
+     * The work passed to the constructor, or <code>null</code> */
+    private Runnable workTask;
+
+    /**
+     * The GUI-related task passed to the constructor, or <code>null</code>
+     */
+    private Runnable eventTask;
+
+    /**
+     * <code>true</code> once <code>cancel()</code> has been called */
+    private volatile boolean cancelled;
+
+    /**
+     * The exception or error thrown by <code>work()</code>, if any */
+    private Throwable failure;
+
+    /**
+     * The <code>Component</code> over which the failure is reported, or
+     * <code>null</code> */
+    private Component parentComponent;
+
+    /**
+     * <code>true</code> once <code>work()</code> has returned and the
+     * final update has been delivered */
+    private boolean done;
+
+    /**
+     * The steps completed and the total, as last reported */
+    private int progress;
+
+    private int total;
+
+    /**
+     * The best result and its score, as last reported */
+    private Object best;
+
+    private double score = Double.NEGATIVE_INFINITY;
+
+    /**
+     * <code>true</code> if <code>best</code> has not been passed to
+     * <code>process</code> yet */
+    private boolean newBest;
+
+    /**
+     * <code>true</code> if an update of the GUI has been scheduled and
+     * has not been delivered yet */
+    private boolean updatePending;
+
+    /**
+     * The time of the last update of the GUI */
+    private long lastUpdate;
+
+    /**
+     * The <code>ChangeListener</code>s, only used in the event dispatching
+     * thread */
+    private ArrayList listeners = new ArrayList();
+
+    /**
+     * Creates a <code>Task</code> whose <code>work()</code> and
+     * <code>done()</code> methods should be overridden.
+     */
+    protected Task(){
+    }
+
+    /**
+     * Creates a <code>Task</code> that executes <code>work</code> in a
+     * thread of the <code>TaskExecutor</code> and <code>gui</code> on the
+     * AWT event dispatching thread after <code>work</code> has finished,
+     * unless the task was cancelled.
+     *
+     * @param work non-GUI-related task
+     * @param gui GUI-related task that should be executed after
+     *            <code>work</code> (may be <code>null</code>)
+     * @throws NullPointerException if <code>work</code> is <code>null</code>
+     */
+    public Task(Runnable work, Runnable gui) throws NullPointerException
+    {
+	if(work == null){
+	    throw new NullPointerException();
+	}
+	workTask = work;
+	eventTask = gui;
+    }
+
+    /**
+     * The time-consuming, non-GUI-related work. Called in a thread of the
+     * <code>TaskExecutor</code>, unless the task is cancelled before it
+     * starts. Runs the <code>Runnable</code> passed to the constructor by
+     * default.
+     */
+    protected void work(){
+	if(workTask != null){
+	    workTask.run();
+	}
+    }
+
+    /**
+     * Called on the event dispatching thread with the best result
+     * reported with <code>improved</code> since the last call. Does
+     * nothing by default.
+     *
+     * @param result the best result found so far
+     */
+    protected void process(Object result){
+    }
+
+    /**
+     * Called on the event dispatching thread once <code>work()</code> has
+     * returned, even if the task was cancelled or <code>work()</code>
+     * failed. By default, reports the failure with
+     * <code>showFailure()</code> if there was one, or else runs the
+     * GUI-related <code>Runnable</code> passed to the constructor, if the
+     * task was not cancelled.
+     */
+    protected void done(){
+	if(failure != null){
+	    showFailure();
+	}else if(eventTask != null && !cancelled){
+	    eventTask.run();
+	}
+    }
+
+    /**
+     * Displays a dialog with the exception thrown by <code>work()</code>.
+     * Must be called on the event dispatching thread, and only if
+     * <code>getFailure()</code> is not <code>null</code>.
+     */
+    protected void showFailure(){
+	ResourceBundle labelsRB =
+	    ResourceBundle.getBundle(Task.class.getName(),
+				     JComponent.getDefaultLocale());
+	StringBuffer message = new StringBuffer(labelsRB.getString("failText"));
+	int idx = message.toString().indexOf("EX");
+	if(idx >= 0){
+	    message.replace(idx, idx+2, failure.toString());
+	}
+	JOptionPane.showMessageDialog(parentComponent,
+				      message.toString(),
+				      labelsRB.getString("failTitle"),
+				      JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Asks the task to stop. <code>work()</code> is not called if it has
+     * not started yet.
+     */
+    public void cancel(){
+	cancelled = true;
+    }
+
+    /**
+     * Returns <code>true</code> if <code>cancel()</code> has been called.
+     */
+    public boolean isCancelled(){
+	return cancelled;
+    }
+
+    /**
+     * Returns the exception or error thrown by <code>work()</code>, or
+     * <code>null</code> if it did not throw one. Only meaningful once
+     * <code>done()</code> has been called.
+     */
+    public Throwable getFailure(){
+	return failure;
+    }
+
+    /**
+     * Sets the <code>Component</code> over which <code>showFailure()</code>
+     * displays its dialog. Called by the <code>TaskExecutor</code>.
+     *
+     * @param c the <code>Component</code>, may be <code>null</code>
+     */
+    void setParentComponent(Component c){
+	parentComponent = c;
+    }
+
+    /**
+     * Returns <code>true</code> if the task has finished and the final
+     * update has been delivered to the GUI. Only meaningful on the event
+     * dispatching thread.
+     */
+    public synchronized boolean isDone(){
+	return done;
+    }
+
+    /**
+     * Reports that <code>done</code> of the <code>total</code> steps of
+     * the work have been completed.
+     *
+     * @param done the number of steps completed
+     * @param total the number of steps, <code>0</code> if it is not known
+     */
+    public synchronized void progress(int done, int total){
+	progress = done;
+	this.total = total;
+	scheduleUpdate();
+    }
+
+    /**
+     * Reports a result better than the ones reported before. It is passed
+     * to <code>process</code> on the event dispatching thread, unless a
+     * better one is reported before the next update.
+     *
+     * @param best the result
+     * @param score the score of <code>best</code>
+     */
+    public synchronized void improved(Object best, double score){
+	this.best = best;
+	this.score = score;
+	newBest = true;
+	scheduleUpdate();
+    }
+
+    /**
+     * Returns the number of steps completed, as last delivered to the GUI.
+     */
+    public synchronized int getProgress(){
+	return progress;
+    }
+
+    /**
+     * Returns the number of steps of the work, <code>0</code> if it is not
+     * known.
+     */
+    public synchronized int getTotal(){
+	return total;
+    }
+
+    /**
+     * Returns the score of the best result reported, or
+     * <code>Double.NEGATIVE_INFINITY</code> if none has been.
+     */
+    public synchronized double getScore(){
+	return score;
+    }
+
+    /**
+     * Adds a <code>ChangeListener</code> that is notified on the event
+     * dispatching thread every time the GUI is updated and when the task
+     * finishes.
+     *
+     * @param l the <code>ChangeListener</code>
+     */
+    public void addChangeListener(ChangeListener l){
+	listeners.add(l);
+    }
+
+    /**
+     * Removes a <code>ChangeListener</code>.
+     *
+     * @param l the <code>ChangeListener</code>
+     */
+    public void removeChangeListener(ChangeListener l){
+	listeners.remove(l);
+    }
+
+    /**
+     * Called by the <code>TaskExecutor</code> in one of its threads.
+     * Calls <code>work()</code> (if the task was not cancelled), keeping
+     * whatever it throws, so the thread of the executor survives, and then
+     * delivers the final update and calls <code>done()</code> on the
+     * event dispatching thread.
+     */
+    final void execute(){
+	try{
+	    if(!cancelled){
+		work();
+	    }
+	}catch(Throwable t){
+	    failure = t;
+	}finally{
+	    SwingUtilities.invokeLater(new Runnable(){
+		    public void run(){
+			update(true);
+			done();
+		    }
+		});
+	}
+    }
+
+    /**
+     * Schedules an update of the GUI if there is none pending, at least
+     * <code>UPDATE_INTERVAL</code> milliseconds after the last one. Must
+     * be called holding the lock of the task.
+     */
+    private final void scheduleUpdate(){
+	if(updatePending || done){
+	    return;
+	}
+	updatePending = true;
+	long wait = lastUpdate + UPDATE_INTERVAL - System.currentTimeMillis();
+	if(wait <= 0){
+	    SwingUtilities.invokeLater(new Runnable(){
+		    public void run(){
+			update(false);
+		    }
+		});
+	}else{
+	    Timer timer = new Timer((int)wait, new ActionListener(){
+		    public void actionPerformed(ActionEvent e){
+			update(false);
+		    }
+		});
+	    timer.setRepeats(false);
+	    timer.start();
+	}
+    }
+
+    /**
+     * Delivers the latest result to <code>process</code> and notifies the
+     * <code>ChangeListener</code>s. Called on the event dispatching thread.
+     *
+     * @param last <code>true</code> if it is the final update
+     */
+    private final void update(boolean last){
+	Object result = null;
+	boolean hasResult;
+	synchronized(this){
+	    if(done){
+		return; // the final update has been delivered
+	    }
+	    updatePending = false;
+	    lastUpdate = System.currentTimeMillis();
+	    hasResult = newBest;
+	    if(newBest){
+		result = best;
+		newBest = false;
+	    }
+	    done = last;
+	}
+	if(hasResult){
+	    process(result);
+	}
+	ChangeEvent e = new ChangeEvent(this);
+	Object[] lst = listeners.toArray();
+	for(int i=0; i<lst.length; i++){
+	    ((ChangeListener)lst[i]).stateChanged(e);
+	}
+    }
+}
+/*
+ * -- Task.java ends here --
+ */
@@ -0,0 +1,184 @@
+/*
+ * -- TaskExecutor.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.component;
+
+import java.awt.Component;
+import java.util.LinkedList;
+import javax.swing.SwingUtilities;
+
+/**
+ * Executes <code>Task</code>s in a bounded pool of threads. The threads
+ * are created as they are needed, up to the maximum, and wait for more
+ * tasks afterwards; they are daemon threads and run with a priority
+ * lower than the AWT event dispatching thread's, so the GUI stays
+ * responsive while every processor is busy.<br/>
+ *
+ * The whole application should use the shared executor returned by
+ * <code>getShared()</code>, which has as many threads as there are
+ * processors available.
+ *
+ * @see Task
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class TaskExecutor{
+
+    /**
+     * The executor shared by the whole application */
+    private static TaskExecutor shared;
+
+    /**
+     * The <code>Task</code>s waiting for a thread */
+    private LinkedList queue = new LinkedList();
+
+    /**
+     * Maximum number of threads */
+    private int maxThreads;
+
+    /**
+     * Number of threads created */
+    private int threads;
+
+    /**
+     * Number of threads waiting for a <code>Task</code> */
+    private int idle;
+
+    /**
+     * Creates a <code>TaskExecutor</code> that executes at most
+     * <code>maxThreads</code> tasks at the same time.
+     *
+     * @param maxThreads the maximum number of threads
+     * @throws IllegalArgumentException if <code>maxThreads</code> is less
+     *                                  than <code>1</code>
+     */
+    public TaskExecutor(int maxThreads) throws IllegalArgumentException{
+	if(maxThreads < 1){
+	    throw new IllegalArgumentException("maxThreads < 1");
+	}
+	this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Returns the <code>TaskExecutor</code> shared by the whole
+     * application, with one thread per processor available.
+     */
+    public static synchronized TaskExecutor getShared(){
+	if(shared == null){
+	    int n = Runtime.getRuntime().availableProcessors();
+	    shared = new TaskExecutor(Math.max(1, n));
+	}
+	return shared;
+    }
+
+    /**
+     * Returns the maximum number of tasks executed at the same time.
+     */
+    public int getMaximumThreads(){
+	return maxThreads;
+    }
+
+    /**
+     * Schedules the execution of <code>task</code>. Its <code>work()</code>
+     * method is called in one of the threads of the executor as soon as one
+     * is free.
+     *
+     * @param task the <code>Task</code> to execute
+     * @throws NullPointerException if <code>task</code> is <code>null</code>
+     */
+    public synchronized void execute(Task task) throws NullPointerException{
+	if(task == null){
+	    throw new NullPointerException();
+	}
+	queue.addLast(task);
+	if(idle > 0){
+	    notify();
+	}else if(threads < maxThreads){
+	    threads++;
+	    Thread t = new Thread(new Runnable(){
+		    public void run(){
+			loop();
+		    }
+		}, "TaskExecutor-" + threads);
+	    t.setDaemon(true);
+	    t.setPriority(Thread.NORM_PRIORITY - 1);
+	    t.start();
+	}
+    }
+
+    /**
+     * Schedules the execution of <code>task</code> and displays a modal
+     * <code>ProgressDialog</code>, from which the task can be cancelled,
+     * until it is done. Must be called on the event dispatching thread.
+     * If the task fails, the error is reported over
+     * <code>parentComponent</code> too.
+     *
+     * @param task the <code>Task</code> to execute
+     * @param parentComponent a <code>Component</code> that is in the frame
+     *                        from which the dialog should be displayed
+     * @throws NullPointerException if <code>task</code> is <code>null</code>
+     */
+    public void execute(final Task task, final Component parentComponent)
+	throws NullPointerException
+    {
+	task.setParentComponent(parentComponent);
+	execute(task);
+	/* showing the modal dialog blocks, so it is done later */
+	SwingUtilities.invokeLater(new Runnable(){
+		public void run(){
+		    if(!task.isDone()){
+			ProgressDialog dialog = new ProgressDialog(parentComponent,
+								   task);
+			dialog.setVisible(true);
+		    }
+		}
+	    });
+    }
+
+    /**
+     * Executes the tasks in the queue, waiting for more when it is empty.
+     * Called by each thread of the executor.
+     */
+    private void loop(){
+	while(true){
+	    Task task;
+	    synchronized(this){
+		while(queue.isEmpty()){
+		    idle++;
+		    try{
+			wait();
+		    }catch(InterruptedException ie){
+		    }finally{
+			idle--;
+		    }
+		}
+		task = (Task)queue.removeFirst();
+	    }
+	    task.execute();
+	}
+    }
+}
+/*
+ * -- TaskExecutor.java ends here --
+ */
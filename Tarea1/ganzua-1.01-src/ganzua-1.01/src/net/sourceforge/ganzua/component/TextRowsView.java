@@ -0,0 +1,486 @@
+/*
+ * -- TextRowsView.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.component;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.awt.event.*;
+import javax.swing.event.MouseInputAdapter;
+
+/**
+ * Read-only component that displays rows of text that are obtained only
+ * when they are painted, so it can display texts of any size without
+ * holding them. Subclasses supply the rows; when they change,
+ * <code>repaint()</code> renders again only those that are visible, and
+ * <code>revalidate()</code> must be called if their number or length
+ * change.<br/>
+ *
+ * The text can be selected with the mouse, copied to the system's
+ * clipboard and dragged. Subclasses can also highlight parts of the rows
+ * with <code>getHighlights</code>. Rows are expected to be displayed in a
+ * monospaced font.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public abstract class TextRowsView extends JComponent implements Scrollable{
+
+    /**
+     * The number of spaces between tab stops */
+    public static final int TAB_SIZE = 8;
+
+    /**
+     * The space left at the left of the rows */
+    private static final int MARGIN = 2;
+
+    /**
+     * The color of the background of the highlighted parts of the rows */
+    private Color highlightColor = new Color(255, 225, 120);
+
+    /**
+     * The row and offset in the row where the selection started */
+    private int anchorRow, anchorCol;
+
+    /**
+     * The row and offset in the row where the selection ends */
+    private int dotRow, dotCol;
+
+    /**
+     * <code>true</code> if the mouse was pressed inside the selection, so
+     * dragging it exports the selected text */
+    private boolean dragSelection;
+
+    /**
+     * Creates an empty <code>TextRowsView</code> that uses a monospaced
+     * font.
+     */
+    public TextRowsView(){
+	setFont(new Font("Monospaced", Font.PLAIN, 12));
+	setOpaque(true);
+	setBackground(UIManager.getColor("TextArea.background"));
+	setForeground(UIManager.getColor("TextArea.foreground"));
+	setFocusable(true);
+	setAutoscrolls(true);
+	setCursor(Cursor.getPredefinedCursor(Cursor.TEXT_CURSOR));
+	setTransferHandler(new TransferHandler(){
+		public int getSourceActions(JComponent c){
+		    return COPY;
+		}
+
+		protected Transferable createTransferable(JComponent c){
+		    String text = getSelectedText();
+		    return text == null ? null : new StringSelection(text);
+		}
+	    });
+	MouseInputAdapter mouse = new MouseInputAdapter(){
+		public void mousePressed(MouseEvent e){
+		    if(!SwingUtilities.isLeftMouseButton(e)){
+			return;
+		    }
+		    requestFocusInWindow();
+		    int row = rowAt(e.getY());
+		    int col = offsetAt(row, e.getX());
+		    dragSelection = isSelected(row, col);
+		    if(!dragSelection){
+			repaintSelection();
+			anchorRow = dotRow = row;
+			anchorCol = dotCol = col;
+		    }
+		}
+
+		public void mouseReleased(MouseEvent e){
+		    if(dragSelection && SwingUtilities.isLeftMouseButton(e)){
+			// a click inside the selection removes it
+			dragSelection = false;
+			repaintSelection();
+			anchorRow = dotRow = rowAt(e.getY());
+			anchorCol = dotCol = offsetAt(anchorRow, e.getX());
+		    }
+		}
+
+		public void mouseDragged(MouseEvent e){
+		    if(!SwingUtilities.isLeftMouseButton(e)){
+			return;
+		    }
+		    if(dragSelection){
+			dragSelection = false;
+			getTransferHandler().exportAsDrag(TextRowsView.this, e,
+							  TransferHandler.COPY);
+			return;
+		    }
+		    int row = rowAt(e.getY());
+		    int col = offsetAt(row, e.getX());
+		    if(row != dotRow || col != dotCol){
+			int from = Math.min(row, dotRow);
+			int to = Math.max(row, dotRow);
+			dotRow = row;
+			dotCol = col;
+			repaintRows(from, to);
+		    }
+		    scrollRectToVisible(new Rectangle(e.getX(), e.getY(),
+						      1, 1));
+		}
+	    };
+	addMouseListener(mouse);
+	addMouseMotionListener(mouse);
+	int mask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+	getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, mask), "copy");
+	getActionMap().put("copy", new AbstractAction(){
+		public void actionPerformed(ActionEvent e){
+		    copy();
+		}
+	    });
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public abstract int getRowCount();
+
+    /**
+     * Returns the text of <code>row</code>, without the end of line.
+     *
+     * @param row the number of the row, from <code>0</code> to
+     *            <code>getRowCount()-1</code>
+     */
+    public abstract String getRow(int row);
+
+    /**
+     * Returns the number of characters of the longest row, used to compute
+     * the width of the component.
+     */
+    public abstract int getMaximumRowLength();
+
+    /**
+     * Returns where the parts of <code>row</code> that should be
+     * highlighted are, as the offset of the first character of each part
+     * followed by the offset after its last, or <code>null</code> if
+     * there are none. Returns <code>null</code> by default.
+     *
+     * @param row the number of the row, from <code>0</code> to
+     *            <code>getRowCount()-1</code>
+     */
+    protected int[] getHighlights(int row){
+	return null;
+    }
+
+    /**
+     * Returns the color of the background of the highlighted parts of the
+     * rows.
+     */
+    public Color getHighlightColor(){
+	return highlightColor;
+    }
+
+    /**
+     * Sets the color of the background of the highlighted parts of the
+     * rows.
+     *
+     * @param c the color
+     */
+    public void setHighlightColor(Color c){
+	highlightColor = c;
+	repaint();
+    }
+
+    /**
+     * Returns the row of the character at the point <code>p</code> and its
+     * offset in the row, or <code>null</code> if there is no character
+     * there.
+     *
+     * @param p a point in the coordinates of the component
+     */
+    public int[] characterAt(Point p){
+	int row = p.y/getRowHeight();
+	if(p.y < 0 || row >= getRowCount()){
+	    return null;
+	}
+	int[] xs = xPositions(getRow(row));
+	for(int i=0; i+1<xs.length; i++){
+	    if(p.x >= xs[i] && p.x < xs[i+1]){
+		return new int[]{row, i};
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Returns the height of a row.
+     */
+    public int getRowHeight(){
+	return getFontMetrics(getFont()).getHeight();
+    }
+
+    /**
+     * Returns the row at the vertical coordinate <code>y</code>, limited to
+     * the rows there are.
+     */
+    private int rowAt(int y){
+	int row = y/getRowHeight();
+	return Math.max(0, Math.min(row, getRowCount()-1));
+    }
+
+    /**
+     * Returns the horizontal coordinate of every character of
+     * <code>text</code>, followed by the one after the last.
+     */
+    private int[] xPositions(String text){
+	FontMetrics fm = getFontMetrics(getFont());
+	int tab = TAB_SIZE*fm.charWidth(' ');
+	int[] xs = new int[text.length()+1];
+	xs[0] = MARGIN;
+	for(int i=0; i<text.length(); i++){
+	    char c = text.charAt(i);
+	    xs[i+1] = c == '\t' ? (xs[i] - MARGIN + tab)/tab*tab + MARGIN
+				: xs[i] + fm.charWidth(c);
+	}
+	return xs;
+    }
+
+    /**
+     * Returns the offset of the character of <code>row</code> closest to
+     * the horizontal coordinate <code>x</code>.
+     */
+    private int offsetAt(int row, int x){
+	if(getRowCount() == 0){
+	    return 0;
+	}
+	int[] xs = xPositions(getRow(row));
+	for(int i=0; i+1<xs.length; i++){
+	    if(x < (xs[i] + xs[i+1])/2){
+		return i;
+	    }
+	}
+	return xs.length-1;
+    }
+
+    /**
+     * Returns the first and last rows of the selection and the offsets in
+     * them where it starts and ends, or <code>null</code> if there is no
+     * selection.
+     */
+    private int[] getSelection(){
+	if(anchorRow == dotRow && anchorCol == dotCol){
+	    return null;
+	}
+	if(anchorRow < dotRow || (anchorRow == dotRow && anchorCol < dotCol)){
+	    return new int[]{anchorRow, anchorCol, dotRow, dotCol};
+	}
+	return new int[]{dotRow, dotCol, anchorRow, anchorCol};
+    }
+
+    /**
+     * Returns <code>true</code> if the character at <code>col</code> in
+     * <code>row</code> is selected.
+     */
+    private boolean isSelected(int row, int col){
+	int[] sel = getSelection();
+	return sel != null &&
+	    (row > sel[0] || (row == sel[0] && col >= sel[1])) &&
+	    (row < sel[2] || (row == sel[2] && col < sel[3]));
+    }
+
+    /**
+     * Returns the selected text, with the rows separated by new lines, or
+     * <code>null</code> if there is none.
+     */
+    public String getSelectedText(){
+	int[] sel = getSelection();
+	if(sel == null || getRowCount() == 0){
+	    return null;
+	}
+	int toRow = Math.min(sel[2], getRowCount()-1);
+	StringBuffer sb = new StringBuffer();
+	for(int r=sel[0]; r<=toRow; r++){
+	    String text = getRow(r);
+	    int from = r == sel[0] ? Math.min(sel[1], text.length()) : 0;
+	    int to = r == sel[2] ? Math.min(sel[3], text.length())
+				 : text.length();
+	    if(from < to){
+		sb.append(text.substring(from, to));
+	    }
+	    if(r < toRow){
+		sb.append('\n');
+	    }
+	}
+	return sb.toString();
+    }
+
+    /**
+     * Copies the selected text to the system's clipboard.
+     */
+    public void copy(){
+	String text = getSelectedText();
+	if(text != null){
+	    StringSelection sel = new StringSelection(text);
+	    getToolkit().getSystemClipboard().setContents(sel, sel);
+	}
+    }
+
+    /**
+     * Removes the selection.
+     */
+    public void clearSelection(){
+	repaintSelection();
+	anchorRow = dotRow = 0;
+	anchorCol = dotCol = 0;
+    }
+
+    /**
+     * Repaints the rows that are selected.
+     */
+    private void repaintSelection(){
+	repaintRows(Math.min(anchorRow, dotRow), Math.max(anchorRow, dotRow));
+    }
+
+    /**
+     * Repaints the rows from <code>from</code> to <code>to</code>.
+     */
+    private void repaintRows(int from, int to){
+	int rh = getRowHeight();
+	repaint(0, from*rh, getWidth(), (to - from + 1)*rh);
+    }
+
+    /**
+     * Paints the rows that are visible, and the selection.
+     */
+    protected void paintComponent(Graphics g){
+	Rectangle clip = g.getClipBounds();
+	if(clip == null){
+	    clip = new Rectangle(0, 0, getWidth(), getHeight());
+	}
+	g.setColor(getBackground());
+	g.fillRect(clip.x, clip.y, clip.width, clip.height);
+	int rows = getRowCount();
+	if(rows == 0){
+	    return;
+	}
+	g.setFont(getFont());
+	FontMetrics fm = g.getFontMetrics();
+	int rh = fm.getHeight();
+	int first = Math.max(0, clip.y/rh);
+	int last = Math.min(rows-1, (clip.y + clip.height)/rh);
+	Color selBg = UIManager.getColor("TextArea.selectionBackground");
+	Color selFg = UIManager.getColor("TextArea.selectionForeground");
+	int[] sel = getSelection();
+	for(int r=first; r<=last; r++){
+	    String text = getRow(r);
+	    int[] xs = xPositions(text);
+	    int y = r*rh;
+	    int base = y + fm.getAscent();
+	    int[] high = getHighlights(r);
+	    if(high != null){
+		g.setColor(highlightColor);
+		for(int i=0; i+1<high.length; i+=2){
+		    g.fillRect(xs[high[i]], y, xs[high[i+1]] - xs[high[i]], rh);
+		}
+	    }
+	    if(sel == null || r < sel[0] || r > sel[2]){
+		drawText(g, text, xs, 0, text.length(), base, getForeground());
+		continue;
+	    }
+	    // the selected part of the row, and whether its end is selected
+	    int from = r == sel[0] ? Math.min(sel[1], text.length()) : 0;
+	    int to = r == sel[2] ? Math.min(sel[3], text.length())
+				 : text.length();
+	    boolean rowEnd = r < sel[2];
+	    int x1 = xs[to] + (rowEnd ? fm.charWidth(' ') : 0);
+	    g.setColor(selBg);
+	    g.fillRect(xs[from], y, x1 - xs[from], rh);
+	    drawText(g, text, xs, 0, from, base, getForeground());
+	    drawText(g, text, xs, from, to, base, selFg);
+	    drawText(g, text, xs, to, text.length(), base, getForeground());
+	}
+    }
+
+    /**
+     * Draws the characters of <code>text</code> from <code>from</code> to
+     * <code>to</code> at their horizontal coordinates <code>xs</code>,
+     * expanding the tabs.
+     */
+    private void drawText(Graphics g, String text, int[] xs, int from,
+			  int to, int y, Color color)
+    {
+	if(from >= to){
+	    return;
+	}
+	g.setColor(color);
+	int start = from;
+	for(int i=from; i<=to; i++){
+	    if(i == to || text.charAt(i) == '\t' ||
+	       Character.isISOControl(text.charAt(i))){
+		if(start < i){
+		    g.drawString(text.substring(start, i), xs[start], y);
+		}
+		start = i+1;
+	    }
+	}
+    }
+
+    public Dimension getPreferredSize(){
+	if(isPreferredSizeSet()){
+	    return super.getPreferredSize();
+	}
+	FontMetrics fm = getFontMetrics(getFont());
+	int width = (getMaximumRowLength()+1)*fm.charWidth('m');
+	return new Dimension(2*MARGIN + width,
+			     Math.max(1, getRowCount())*fm.getHeight());
+    }
+
+    public Dimension getPreferredScrollableViewportSize(){
+	return getPreferredSize();
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect,
+					  int orientation, int direction)
+    {
+	if(orientation == SwingConstants.VERTICAL){
+	    return getRowHeight();
+	}
+	return getFontMetrics(getFont()).charWidth('m');
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect,
+					   int orientation, int direction)
+    {
+	return orientation == SwingConstants.VERTICAL ? visibleRect.height
+						      : visibleRect.width;
+    }
+
+    public boolean getScrollableTracksViewportWidth(){
+	return getParent() instanceof JViewport &&
+	    getParent().getWidth() > getPreferredSize().width;
+    }
+
+    public boolean getScrollableTracksViewportHeight(){
+	return getParent() instanceof JViewport &&
+	    getParent().getHeight() > getPreferredSize().height;
+    }
+}
+/*
+ * -- TextRowsView.java ends here --
+ */
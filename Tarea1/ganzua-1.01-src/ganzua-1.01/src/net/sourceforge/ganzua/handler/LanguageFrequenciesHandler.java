@@ -100,6 +100,27 @@ public class LanguageFrequenciesHandler extends DefaultHandler
      */
     private Set trigrams;
 
+    /**
+     * <code>Set</code>s of <code>StringFreq</code>s used to store the
+     * values of the <code>&lt;nGram /&gt;</code> elements inside the
+     * <code>&lt;nGrams /&gt;</code> element of order <code>n</code>, at
+     * index <code>n-4</code>. The orders that are not in the document
+     * have no <code>Set</code>.
+     */
+    private Set[] nGrams = new Set[NGramCounter.MAX_ORDER - 3];
+
+    /**
+     * The largest order of the n-grams in the document, <code>3</code>
+     * if it has no <code>&lt;nGrams /&gt;</code> elements.
+     */
+    private int maxOrder = 3;
+
+    /**
+     * The order of the <code>&lt;nGrams /&gt;</code> element being
+     * parsed.
+     */
+    private int nGramsOrder;
+
     /**
      * <code>double</code> used to store the coincidence index of texts
      * written in the language. The coincidence index is calculated using
@@ -108,6 +129,16 @@ public class LanguageFrequenciesHandler extends DefaultHandler
      */
     private double coincidenceIndex;
 
+    /**
+     * The binary file the bigrams, trigrams and higher order n-grams are
+     * read from when they are first needed, or <code>null</code> if they
+     * have been read. Only used holding the lock of the handler, because
+     * the solvers ask for the n-grams on the threads of the
+     * <code>TaskExecutor</code> while the GUI may on the event dispatching
+     * thread.
+     */
+    private BinaryFrequencies binary;
+
     public LanguageFrequenciesHandler(){
 	super();
 	locale = Locale.getDefault();
@@ -137,6 +168,30 @@ public class LanguageFrequenciesHandler extends DefaultHandler
 	coincidenceIndex = crypHan.getCoincidenceIndex();
     }
 
+    /**
+     * Creates a new <code>LanguageFrequenciesHandler</code> with the data
+     * of the binary companion of an instance of
+     * <code>LanguageFrequencies.xsd</code>. Only the characters are read
+     * now, the bigrams, trigrams and higher order n-grams are read the
+     * first time <code>getBigrams()</code>, <code>getTrigrams()</code> or
+     * <code>getNGrams(int)</code> are called.
+     *
+     * @param bf the binary frequencies
+     * @see BinaryFrequencies#openCompanion(java.io.File)
+     */
+    public LanguageFrequenciesHandler(BinaryFrequencies bf){
+	super();
+	sourceDocument = bf.getSource();
+	rules = bf.getRules();
+	locale = bf.getLocale();
+	collator = Collator.getInstance(locale);
+	charIterator = BreakIterator.getCharacterInstance(locale);
+	alphabet = bf.getNGrams(1, collator);
+	maxOrder = bf.getMaximumOrder();
+	binary = bf;
+	updateCoincidenceIndex();
+    }
+
     /**
      * Returns a <code>Set</code> of <code>StringFreq</code>s with the
      * values of the <code>&lt;character /&gt;</code> elements inside the
@@ -174,7 +229,11 @@ public class LanguageFrequenciesHandler extends DefaultHandler
      *
      * @return <code>bigrams</code>
      */
-    public Set getBigrams(){
+    public synchronized Set getBigrams(){
+	if(bigrams == null){
+	    bigrams = binary.getNGrams(2, collator);
+	    releaseBinary();
+	}
 	return bigrams;
     }
 
@@ -185,10 +244,70 @@ public class LanguageFrequenciesHandler extends DefaultHandler
      *
      * @return <code>trigrams</code>
      */
-    public Set getTrigrams(){
+    public synchronized Set getTrigrams(){
+	if(trigrams == null){
+	    trigrams = binary.getNGrams(3, collator);
+	    releaseBinary();
+	}
 	return trigrams;
     }
 
+    /**
+     * Returns a <code>Set</code> of <code>StringFreq</code>s with the
+     * n-grams of order <code>n</code>: the characters if <code>n</code>
+     * is <code>1</code>, the bigrams if it is <code>2</code>, etc. The
+     * <code>Set</code> is empty if the n-grams of that order were not
+     * counted, e.g. if <code>n &gt; getMaximumOrder()</code>.
+     *
+     * @param n the order of the n-grams
+     * @throws IllegalArgumentException if <code>n &lt; 1</code> or <code>n &gt; NGramCounter.MAX_ORDER</code>
+     */
+    public synchronized Set getNGrams(int n) throws IllegalArgumentException
+    {
+	if(n < 1 || n > NGramCounter.MAX_ORDER){
+	    throw new IllegalArgumentException("n out of range");
+	}else if(n == 1){
+	    return alphabet;
+	}else if(n == 2){
+	    return getBigrams();
+	}else if(n == 3){
+	    return getTrigrams();
+	}
+	if(nGrams[n-4] == null){
+	    if(binary == null){ // the document skipped this order
+		return Collections.EMPTY_SET;
+	    }
+	    nGrams[n-4] = binary.getNGrams(n, collator);
+	    releaseBinary();
+	}
+	return nGrams[n-4];
+    }
+
+    /**
+     * Returns the largest order of the n-grams, <code>3</code> unless the
+     * frequencies of higher order n-grams were counted.
+     */
+    public int getMaximumOrder(){
+	return maxOrder;
+    }
+
+    /**
+     * Stops referencing <code>binary</code> once the bigrams, trigrams
+     * and higher order n-grams have been read. Must be called holding the
+     * lock of the handler.
+     */
+    private final void releaseBinary(){
+	if(bigrams == null || trigrams == null){
+	    return;
+	}
+	for(int n=4; n<=maxOrder; n++){
+	    if(nGrams[n-4] == null){
+		return;
+	    }
+	}
+	binary = null;
+    }
+
     /**
      * Returns the coincidence index calculated using the frequencies of the
      * <code>&lt;character /&gt;</code> elements inside the element 
@@ -366,6 +485,42 @@ public class LanguageFrequenciesHandler extends DefaultHandler
 		SAXException sxe = new SAXException("Duplicated entry: <trigram sequence=\"" + userChar+"\" frequency=\"...\" \\>");
 		throw sxe;
 	    }
+	} else if(sName.equals("nGrams")){
+	    nGramsOrder = 0;
+	    try{
+		nGramsOrder = Integer.parseInt(attrs.getValue("", "order"));
+	    }catch(NumberFormatException nfe){
+	    }
+	    if(nGramsOrder < 4 || nGramsOrder > NGramCounter.MAX_ORDER){
+		SAXException sxe = new SAXException("\""+attrs.getValue("", "order")+"\" is not a valid order");
+		throw sxe;
+	    }
+	    if(nGrams[nGramsOrder-4] != null){
+		SAXException sxe = new SAXException("Duplicated entry: <nGrams order=\"" + nGramsOrder+"\" \\>");
+		throw sxe;
+	    }
+	    nGrams[nGramsOrder-4] = new HashSet();
+	    maxOrder = Math.max(maxOrder, nGramsOrder);
+	} else if(sName.equals("nGram")){
+	    userChar = attrs.getValue("", "sequence");
+	    freq = 0;
+	    try{
+		freq = Integer.parseInt(attrs.getValue("", "frequency"));
+	    }catch(NumberFormatException nfe){
+		SAXException sxe = new SAXException("\""+attrs.getValue("", "frequency")+"\" is not a valid frequency");
+		throw sxe;
+	    }
+	    // Check that the string is an n-gram of the order being parsed
+	    if(numChars(userChar)!=nGramsOrder){
+		SAXException sxe = new SAXException("\""+userChar+"\" is not a valid n-gram of order "+nGramsOrder);
+		throw sxe;
+	    }
+	    boolean added = false;
+	    added=nGrams[nGramsOrder-4].add(new StringFreq(collator.getCollationKey(userChar), freq));
+	    if(!added){
+		SAXException sxe = new SAXException("Duplicated entry: <nGram sequence=\"" + userChar+"\" frequency=\"...\" \\>");
+		throw sxe;
+	    }
 	} else if(sName.equals("languageFrequencies")){
 	    String country = attrs.getValue("", "country");
 	    if(country==null || country==""){
@@ -397,17 +552,26 @@ public class LanguageFrequenciesHandler extends DefaultHandler
 	throws SAXException
     {
 	if(sName.equals("alphabet")){
-	    coincidenceIndex = 0;
-	    int cf; //used to store temporarily a character's frequency
-	    int totalChars = 0;
-	    for(Iterator iter = alphabet.iterator(); iter.hasNext(); ){
-		totalChars += ((StringFreq)iter.next()).getFrequency();
-	    }
-	    double N2 = (double)totalChars * (double)(totalChars - 1);
-	    for(Iterator iter = alphabet.iterator(); iter.hasNext(); ){
-		cf = ((StringFreq)iter.next()).getFrequency();
-		coincidenceIndex += ((double)cf * (double)(cf - 1))/N2;
-	    }
+	    updateCoincidenceIndex();
+	}
+    }
+
+    /**
+     * Calculates the coincidence index using the frequencies in
+     * <code>alphabet</code> and sets it as the value of
+     * <code>coincidenceIndex</code>.
+     */
+    private final void updateCoincidenceIndex(){
+	coincidenceIndex = 0;
+	int cf; //used to store temporarily a character's frequency
+	int totalChars = 0;
+	for(Iterator iter = alphabet.iterator(); iter.hasNext(); ){
+	    totalChars += ((StringFreq)iter.next()).getFrequency();
+	}
+	double N2 = (double)totalChars * (double)(totalChars - 1);
+	for(Iterator iter = alphabet.iterator(); iter.hasNext(); ){
+	    cf = ((StringFreq)iter.next()).getFrequency();
+	    coincidenceIndex += ((double)cf * (double)(cf - 1))/N2;
 	}
     }
 
@@ -0,0 +1,208 @@
+/*
+ * -- ParserPool.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.handler;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.LinkedList;
+import org.xml.sax.*;
+import org.xml.sax.helpers.DefaultHandler;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.ParserConfigurationException;
+import net.sourceforge.ganzua.AnalyzerConstants;
+
+/**
+ * Pool of validating, namespace aware <code>SAXParser</code>s for the
+ * instances of a W3C schema. There is one pool per schema file in the
+ * JVM, shared by all the threads.<br/>
+ *
+ * If the implementation of JAXP supports
+ * <code>javax.xml.validation</code> (JAXP 1.3), the schema and the
+ * schemata it imports are compiled only once, when the pool is created,
+ * and every parser validates against the compiled schema. Otherwise
+ * every parser uses the JAXP 1.2 schema source property. In both cases
+ * the parsers are reused, so parsing many documents does not pay for
+ * creating the factory and the parsers every time.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class ParserPool{
+
+    /**
+     * Maps the canonical path of the schemata to their pools */
+    private static final HashMap pools = new HashMap();
+
+    /**
+     * <code>true</code> if <code>javax.xml.validation</code> is
+     * available */
+    private static final boolean compiledSchemata;
+
+    static{
+	boolean available = false;
+	try{
+	    Class.forName("javax.xml.validation.SchemaFactory");
+	    available = true;
+	}catch(ClassNotFoundException cnfe){
+	}catch(LinkageError le){
+	}
+	compiledSchemata = available;
+    }
+
+    /**
+     * The schema */
+    private File schema;
+
+    /**
+     * The factory used to create the parsers */
+    private SAXParserFactory factory;
+
+    /**
+     * <code>true</code> if <code>factory</code> validates against a
+     * compiled schema */
+    private boolean compiled;
+
+    /**
+     * The parsers that are not being used */
+    private LinkedList idle = new LinkedList();
+
+    /**
+     * Creates a pool for the schema <code>schema</code>.
+     */
+    private ParserPool(File schema) throws SAXException
+    {
+	this.schema = schema;
+	if(compiledSchemata){
+	    factory = CompiledSchema.newFactory(schema);
+	    compiled = true;
+	}else{
+	    factory = SAXParserFactory.newInstance();
+	    factory.setValidating(true);
+	    factory.setNamespaceAware(true);
+	}
+    }
+
+    /**
+     * Returns the pool of parsers for the instances of the schema
+     * <code>schema</code>. The first time it is called for a schema, the
+     * schema is compiled (if <code>javax.xml.validation</code> is
+     * available).
+     *
+     * @param schema a W3C schema
+     * @throws NullPointerException if <code>schema</code> is <code>null</code>
+     * @throws SAXException if the schema can not be compiled
+     * @throws IOException if an I/O error occurs
+     */
+    public static ParserPool getInstance(File schema)
+	throws NullPointerException, SAXException, IOException
+    {
+	String key = schema.getCanonicalPath();
+	synchronized(pools){
+	    ParserPool pool = (ParserPool)pools.get(key);
+	    if(pool == null){
+		pool = new ParserPool(new File(key));
+		pools.put(key, pool);
+	    }
+	    return pool;
+	}
+    }
+
+    /**
+     * Parses the contents of <code>in</code> with a parser of the pool,
+     * using <code>handler</code> as the content and error handler.
+     *
+     * @param in the document
+     * @param handler the SAX handler
+     * @param systemId the system identifier used to resolve relative URIs
+     * @throws SAXNotRecognizedException if W3C schemata or the schema source property are not supported by the implementation of JAXP
+     * @throws SAXParseException if there is an error parsing the document
+     * @throws SAXException if the parser reports an error
+     * @throws ParserConfigurationException if a parser can not be created
+     * @throws IOException if an I/O error occurs
+     */
+    public void parse(InputStream in, DefaultHandler handler, String systemId)
+	throws SAXNotRecognizedException, SAXParseException, SAXException,
+	       ParserConfigurationException, IOException
+    {
+	SAXParser parser = acquire();
+	parser.parse(in, handler, systemId);
+	/* only parsers that finished without errors are reused, the state
+	   of the others is not known */
+	release(parser);
+    }
+
+    /**
+     * Returns an idle parser, or a new one if there are none.
+     */
+    private synchronized SAXParser acquire()
+	throws SAXNotRecognizedException, SAXException,
+	       ParserConfigurationException
+    {
+	if(idle.size() != 0){
+	    return (SAXParser)idle.removeFirst();
+	}
+	SAXParser parser = factory.newSAXParser();
+	if(!compiled){
+	    // use W3C schemata
+	    parser.setProperty(AnalyzerConstants.JAXP_SCHEMA_LANGUAGE,
+			       AnalyzerConstants.W3C_XML_SCHEMA);
+	    // Set schema source
+	    parser.setProperty(AnalyzerConstants.JAXP_SCHEMA_SOURCE, schema);
+	}
+	return parser;
+    }
+
+    /**
+     * Puts <code>parser</code> back in the pool.
+     */
+    private synchronized void release(SAXParser parser){
+	idle.addFirst(parser);
+    }
+
+    /**
+     * Uses <code>javax.xml.validation</code> to compile the schemata. It is
+     * a separate class so it is only loaded if JAXP 1.3 is available.
+     */
+    private static class CompiledSchema{
+
+	/**
+	 * Returns a namespace aware <code>SAXParserFactory</code> whose
+	 * parsers validate against the compiled <code>schema</code>.
+	 */
+	static SAXParserFactory newFactory(File schema) throws SAXException
+	{
+	    javax.xml.validation.SchemaFactory sf =
+		javax.xml.validation.SchemaFactory.newInstance(AnalyzerConstants.W3C_XML_SCHEMA);
+	    SAXParserFactory factory = SAXParserFactory.newInstance();
+	    factory.setNamespaceAware(true);
+	    factory.setSchema(sf.newSchema(schema));
+	    return factory;
+	}
+    }
+}
+/*
+ * -- ParserPool.java ends here --
+ */
@@ -0,0 +1,769 @@
+/*
+ * -- AlbertiSolver.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.*;
+import java.text.Collator;
+
+/**
+ * Class that searches for the key of a periodic polyalphabetic
+ * substitution with unrelated alphabets (Alberti's cipher): the character
+ * at the position <code>i</code> of the ciphertext is replaced with the
+ * alphabet <code>i mod period</code>. A key is scored with the sum of the
+ * logarithms of the relative frequencies, in the language, of the bigrams,
+ * trigrams and, if they are given, quadgrams of the plaintext it gives
+ * (see <code>FitnessScorer</code>), so the alphabets are searched
+ * jointly: an n-gram that crosses columns scores the replacements of all
+ * of them. The search is a hill climbing that starts from a random key and
+ * changes the replacement of one cipher character in one alphabet at a
+ * time (swapping it with the one of the cipher character of the same
+ * alphabet that has the new replacement, if the substitution is injective)
+ * while the score improves. It is restarted several times and the best
+ * key is kept. The restarts are divided among several threads.<br/>
+ *
+ * Every character of the ciphertext is numbered by its alphabet and its
+ * code, so the search works on <code>period</code> times as many
+ * characters as a monoalphabetic one but over the same text. The
+ * ciphertext is reduced once to its distinct bigrams, trigrams and
+ * quadgrams of those numbers and the number of times they appear, which
+ * all the threads and restarts share, and the score of every one of them
+ * is stored. When the replacements of two characters change, only the
+ * n-grams that contain those characters are scored again, so a change
+ * costs about <code>1/period</code> of what it costs in a monoalphabetic
+ * search.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class AlbertiSolver{
+
+    /**
+     * The smallest order of the n-grams used to score the keys */
+    public static final int MIN_ORDER = 2;
+
+    /**
+     * The largest order of the n-grams used to score the keys */
+    public static final int MAX_ORDER = 4;
+
+    /**
+     * The cipher alphabet (sorted <code>CollationKey</code>s). The codes of
+     * the ciphertext are indices in this list. */
+    protected List cipherAlpha;
+
+    /**
+     * The plain alphabet (sorted <code>CollationKey</code>s). */
+    protected List plainAlpha;
+
+    /**
+     * Number of characters in <code>cipherAlpha</code> */
+    private int numCipher;
+
+    /**
+     * Number of alphabets of the substitution */
+    private int period;
+
+    /**
+     * Number of characters of all the alphabets,
+     * <code>period*numCipher</code>. The character <code>c</code> of the
+     * alphabet <code>a</code> is numbered <code>a*numCipher + c</code>. */
+    private int numVars;
+
+    /**
+     * Number of characters in <code>plainAlpha</code> */
+    private int numPlain;
+
+    /**
+     * <code>true</code> if two cipher characters can not have the same
+     * replacement in the same alphabet */
+    private boolean injective;
+
+    /**
+     * For every order, the logarithm of the relative frequency of every
+     * n-gram of the plain alphabet, indexed by the codes of its characters
+     * as the digits of a number in base <code>numPlain</code>.
+     * <code>null</code> if the order is not used. */
+    private float[][] logFreq = new float[MAX_ORDER-MIN_ORDER+1][];
+
+    /**
+     * For every order, the numbers of the characters of the distinct
+     * n-grams of the ciphertext, one n-gram after the other. */
+    private int[][] nGrams = new int[MAX_ORDER-MIN_ORDER+1][];
+
+    /**
+     * For every order, the number of times every n-gram in
+     * <code>nGrams</code> appears in the ciphertext */
+    private int[][] nGramCounts = new int[MAX_ORDER-MIN_ORDER+1][];
+
+    /**
+     * For every order and character of every alphabet, the indices of the
+     * n-grams that contain the character */
+    private int[][][] charNGrams = new int[MAX_ORDER-MIN_ORDER+1][][];
+
+    /**
+     * Number of threads used to search for the key. */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of times the hill climbing is started. */
+    private int numRestarts = 20;
+
+    /**
+     * Seed of the random numbers. Restart <code>r</code> uses
+     * <code>seed + r</code>, so the result does not depend on the number
+     * of threads. */
+    private long seed = System.currentTimeMillis();
+
+    /**
+     * The next restart to be run by a <code>Climber</code> */
+    private int nextRestart;
+
+    /**
+     * The best key found, the replacement of every character of every
+     * alphabet */
+    private int[] bestKey;
+
+    /**
+     * The score of <code>bestKey</code> */
+    private double bestScore;
+
+    /**
+     * The restart that found <code>bestKey</code> */
+    private int bestRestart;
+
+    /**
+     * The number of restarts that have finished */
+    private int restartsDone;
+
+    /**
+     * Follows the search, or <code>null</code> */
+    private SearchMonitor monitor;
+
+    /**
+     * Creates a solver for the ciphertext <code>text</code> enciphered
+     * with <code>period</code> alphabets.
+     *
+     * @param text the ciphertext as indices in <code>cipherAlpha</code>
+     *             (see <code>CiphertextManager.getCodes</code>)
+     * @param period the number of alphabets
+     * @param cipherAlpha the cipher alphabet, a sorted <code>List</code> of
+     *                    <code>CollationKey</code>s
+     * @param plainAlpha the plain alphabet, a sorted <code>List</code> of
+     *                   <code>CollationKey</code>s
+     * @param bigrams the <code>StringFreq</code>s of the bigrams of the
+     *                language
+     * @param trigrams the <code>StringFreq</code>s of the trigrams of the
+     *                 language
+     * @param locale used to find the user characters of the n-grams
+     * @param collator used to create the <code>CollationKey</code>s of the
+     *                 characters of the n-grams
+     * @param injective <code>true</code> if two cipher characters can not
+     *                  have the same replacement in the same alphabet.
+     *                  Ignored if the cipher alphabet is larger than the
+     *                  plain alphabet.
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IllegalArgumentException if <code>period</code> is less than 1, an alphabet is empty, a code of <code>text</code> is not an index of <code>cipherAlpha</code> or no n-gram of the language can be used
+     * @see CiphertextManager#getCodes(Set, List)
+     */
+    public AlbertiSolver(int[] text,
+			 int period,
+			 List cipherAlpha,
+			 List plainAlpha,
+			 Collection bigrams,
+			 Collection trigrams,
+			 Locale locale,
+			 Collator collator,
+			 boolean injective) throws NullPointerException,
+						   IllegalArgumentException
+    {
+	this(text, period, cipherAlpha, plainAlpha, bigrams, trigrams, null,
+	     locale, collator, injective);
+    }
+
+    /**
+     * Creates a solver for the ciphertext <code>text</code> enciphered
+     * with <code>period</code> alphabets that also scores the quadgrams
+     * of the plaintexts.
+     *
+     * @param text the ciphertext as indices in <code>cipherAlpha</code>
+     *             (see <code>CiphertextManager.getCodes</code>)
+     * @param period the number of alphabets
+     * @param cipherAlpha the cipher alphabet, a sorted <code>List</code> of
+     *                    <code>CollationKey</code>s
+     * @param plainAlpha the plain alphabet, a sorted <code>List</code> of
+     *                   <code>CollationKey</code>s
+     * @param bigrams the <code>StringFreq</code>s of the bigrams of the
+     *                language
+     * @param trigrams the <code>StringFreq</code>s of the trigrams of the
+     *                 language
+     * @param quadgrams the <code>StringFreq</code>s of the quadgrams of the
+     *                  language, <code>null</code> or empty if they were
+     *                  not counted (see
+     *                  <code>LanguageFrequenciesHandler.getNGrams(4)</code>)
+     * @param locale used to find the user characters of the n-grams
+     * @param collator used to create the <code>CollationKey</code>s of the
+     *                 characters of the n-grams
+     * @param injective <code>true</code> if two cipher characters can not
+     *                  have the same replacement in the same alphabet.
+     *                  Ignored if the cipher alphabet is larger than the
+     *                  plain alphabet.
+     * @throws NullPointerException if any of the arguments but <code>quadgrams</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>period</code> is less than 1, an alphabet is empty, a code of <code>text</code> is not an index of <code>cipherAlpha</code> or no n-gram of the language can be used
+     * @see CiphertextManager#getCodes(Set, List)
+     */
+    public AlbertiSolver(int[] text,
+			 int period,
+			 List cipherAlpha,
+			 List plainAlpha,
+			 Collection bigrams,
+			 Collection trigrams,
+			 Collection quadgrams,
+			 Locale locale,
+			 Collator collator,
+			 boolean injective) throws NullPointerException,
+						   IllegalArgumentException
+    {
+	if(text == null || cipherAlpha == null || plainAlpha == null ||
+	   bigrams == null || trigrams == null || locale == null ||
+	   collator == null){
+	    throw new NullPointerException();
+	}
+	numCipher = cipherAlpha.size();
+	numPlain = plainAlpha.size();
+	if(period < 1){
+	    throw new IllegalArgumentException("period must be greater than 0");
+	}else if(numCipher == 0 || numPlain == 0){
+	    throw new IllegalArgumentException("Empty alphabet");
+	}
+	this.period = period;
+	numVars = period*numCipher;
+	// every character numbered by its alphabet and code
+	int[] vars = new int[text.length];
+	for(int i=0, a=0; i<text.length; i++){
+	    if(text[i] < 0 || text[i] >= numCipher){
+		throw new IllegalArgumentException("Code out of range");
+	    }
+	    vars[i] = a*numCipher + text[i];
+	    if(++a == period){
+		a = 0;
+	    }
+	}
+	this.cipherAlpha = cipherAlpha;
+	this.plainAlpha = plainAlpha;
+	this.injective = injective && numCipher <= numPlain;
+	FitnessScorer scorer =
+	    new FitnessScorer(plainAlpha,
+			      new Collection[]{null, bigrams, trigrams,
+					       quadgrams},
+			      locale, collator);
+	for(int n=MIN_ORDER; n<=MAX_ORDER; n++){
+	    // the n-grams must fit in a long as numbers in base numVars
+	    if(Math.pow(numVars, n) < Long.MAX_VALUE){
+		logFreq[n-MIN_ORDER] = scorer.getTable(n);
+	    }
+	    initNGrams(vars, n);
+	}
+    }
+
+    /**
+     * Initializes <code>nGrams</code>, <code>nGramCounts</code> and
+     * <code>charNGrams</code> for the order <code>n</code>, from the
+     * numbers of the characters of the ciphertext. They are left empty if
+     * the order is not used.
+     */
+    private final void initNGrams(int[] vars, int n){
+	int o = n - MIN_ORDER;
+	int len = logFreq[o] == null ? 0 : Math.max(vars.length - n + 1, 0);
+	// every n-gram as a number in base numVars, sorted to count them
+	long[] ids = new long[len];
+	for(int i=0; i<len; i++){
+	    long id = 0;
+	    for(int k=0; k<n; k++){
+		id = id*numVars + vars[i+k];
+	    }
+	    ids[i] = id;
+	}
+	Arrays.sort(ids);
+	int numNGrams = 0;
+	for(int i=0; i<len; i++){
+	    if(i == 0 || ids[i] != ids[i-1]){
+		numNGrams++;
+	    }
+	}
+	nGrams[o] = new int[numNGrams*n];
+	nGramCounts[o] = new int[numNGrams];
+	int t = -1;
+	for(int i=0; i<len; i++){
+	    if(i == 0 || ids[i] != ids[i-1]){
+		t++;
+		long id = ids[i];
+		for(int k=n-1; k>=0; k--){
+		    nGrams[o][t*n+k] = (int)(id % numVars);
+		    id /= numVars;
+		}
+	    }
+	    nGramCounts[o][t]++;
+	}
+	// the n-grams every character is in (once per n-gram)
+	int[] numIn = new int[numVars];
+	for(t=0; t<numNGrams; t++){
+	    for(int k=0; k<n; k++){
+		if(firstIndexOf(o, t, nGrams[o][t*n+k]) == k){
+		    numIn[nGrams[o][t*n+k]]++;
+		}
+	    }
+	}
+	charNGrams[o] = new int[numVars][];
+	for(int c=0; c<numVars; c++){
+	    charNGrams[o][c] = new int[numIn[c]];
+	    numIn[c] = 0;
+	}
+	for(t=0; t<numNGrams; t++){
+	    for(int k=0; k<n; k++){
+		int c = nGrams[o][t*n+k];
+		if(firstIndexOf(o, t, c) == k){
+		    charNGrams[o][c][numIn[c]++] = t;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Returns the first position of the character <code>c</code> in the
+     * n-gram <code>t</code> of the order <code>o + MIN_ORDER</code>.
+     */
+    private final int firstIndexOf(int o, int t, int c){
+	int n = o + MIN_ORDER;
+	for(int k=0; k<n; k++){
+	    if(nGrams[o][t*n+k] == c){
+		return k;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Sets the maximum number of threads used to search for the key.
+     * By default, one per available processor.
+     *
+     * @param n the number of threads
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setNumberOfThreads(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n must be greater than 0");
+	}
+	numThreads = n;
+    }
+
+    /**
+     * Sets the number of times the hill climbing is started from a random
+     * key. By default 20.
+     *
+     * @param n the number of restarts
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setNumberOfRestarts(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n must be greater than 0");
+	}
+	numRestarts = n;
+    }
+
+    /**
+     * Sets the seed of the random keys. By default, the time the solver
+     * was created.
+     *
+     * @param s the seed
+     */
+    public void setSeed(long s){
+	seed = s;
+    }
+
+    /**
+     * Sets the <code>SearchMonitor</code> that follows the search. It is
+     * told about every restart that finishes and every key better than
+     * the ones found before, and the search stops when it is cancelled.
+     *
+     * @param m the monitor, <code>null</code> for none
+     */
+    public void setMonitor(SearchMonitor m){
+	monitor = m;
+    }
+
+    /**
+     * Searches for the key and returns it as an <code>ArrayList</code>
+     * with a <code>HashMap</code> for every alphabet, that maps every
+     * character of the cipher alphabet to its replacement
+     * (<code>CollationKey</code>s), as used by
+     * <code>Substitution.setSubstitution</code>. If the monitor cancels the
+     * search, the best key found until then is returned.
+     *
+     * @return the best key found, or <code>null</code> if the search was
+     *         cancelled before any was
+     */
+    public ArrayList solve(){
+	nextRestart = 0;
+	bestKey = null;
+	bestScore = Double.NEGATIVE_INFINITY;
+	bestRestart = -1;
+	restartsDone = 0;
+	int n = Math.min(numThreads, numRestarts);
+	Climber[] climbers = new Climber[n];
+	for(int i=0; i<n; i++){
+	    climbers[i] = new Climber();
+	}
+	if(n == 1){
+	    climbers[0].run();
+	}else{
+	    for(int i=0; i<n; i++){
+		climbers[i].start();
+	    }
+	    for(int i=0; i<n; i++){
+		boolean joined = false;
+		while(!joined){
+		    try{
+			climbers[i].join();
+			joined = true;
+		    }catch(InterruptedException ie){}
+		}
+	    }
+	}
+	if(bestKey == null){
+	    return null;
+	}
+	return toSubstitution(bestKey);
+    }
+
+    /**
+     * Returns <code>key</code> in the format returned by
+     * <code>solve()</code>.
+     */
+    private final ArrayList toSubstitution(int[] key){
+	ArrayList ret = new ArrayList(period);
+	for(int a=0; a<period; a++){
+	    HashMap alpha = new HashMap(numCipher*2);
+	    for(int c=0; c<numCipher; c++){
+		alpha.put(cipherAlpha.get(c),
+			  plainAlpha.get(key[a*numCipher + c]));
+	    }
+	    ret.add(alpha);
+	}
+	return ret;
+    }
+
+    /**
+     * Returns the score of the key returned by the last call to
+     * <code>solve()</code>: the sum of the logarithms of the relative
+     * frequencies of the bigrams, trigrams and quadgrams (if used) of the
+     * plaintext.
+     */
+    public double getScore(){
+	return bestScore;
+    }
+
+    /**
+     * Returns the next restart to be run, or <code>-1</code> if there are
+     * none left or the search was cancelled.
+     */
+    private synchronized int nextRestart(){
+	if(nextRestart >= numRestarts ||
+	   (monitor != null && monitor.isCancelled())){
+	    return -1;
+	}
+	return nextRestart++;
+    }
+
+    /**
+     * Keeps <code>key</code> if it is better than the best key found so far.
+     * If the scores are equal, the key of the first restart is kept.
+     */
+    private synchronized void offer(int restart, double score, int[] key){
+	if(bestKey == null || score > bestScore ||
+	   (score == bestScore && restart < bestRestart)){
+	    bestKey = (int[])key.clone();
+	    bestScore = score;
+	    bestRestart = restart;
+	    if(monitor != null){
+		monitor.improved(toSubstitution(bestKey), bestScore);
+	    }
+	}
+	restartsDone++;
+	if(monitor != null){
+	    monitor.progress(restartsDone, numRestarts);
+	}
+    }
+
+    /**
+     * Thread that runs restarts of the hill climbing until there are none
+     * left.
+     */
+    private class Climber extends Thread{
+
+	/**
+	 * The replacement of every character of every alphabet */
+	int[] key = new int[numVars];
+
+	/**
+	 * The character replaced by every plain character in every alphabet,
+	 * at <code>a*numPlain + p</code>, or <code>-1</code>. Only used if
+	 * the substitution is injective. */
+	int[] owner = new int[period*numPlain];
+
+	/**
+	 * The score of every n-gram of every order with <code>key</code> */
+	float[][] scores = new float[nGrams.length][];
+
+	Climber(){
+	    for(int o=0; o<nGrams.length; o++){
+		scores[o] = new float[nGramCounts[o].length];
+	    }
+	}
+
+	public void run(){
+	    for(int r=nextRestart(); r!=-1; r=nextRestart()){
+		offer(r, climb(new Random(seed + r)), key);
+	    }
+	}
+
+	/**
+	 * Climbs from a random key until no change of a replacement
+	 * improves the score or the search is cancelled, and returns the
+	 * score.
+	 */
+	private double climb(Random rnd){
+	    randomKey(rnd);
+	    double score = 0;
+	    for(int o=0; o<nGrams.length; o++){
+		for(int t=0; t<scores[o].length; t++){
+		    scores[o][t] = score(o, t);
+		    score += scores[o][t];
+		}
+	    }
+	    boolean improved = true;
+	    while(improved && (monitor == null || !monitor.isCancelled())){
+		improved = false;
+		for(int c=0; c<numVars; c++){
+		    int base = (c/numCipher)*numPlain;
+		    for(int p=0; p<numPlain; p++){
+			if(key[c] == p){
+			    continue;
+			}
+			int d = injective ? owner[base + p] : -1;
+			double delta = tryChange(c, d, p);
+			if(delta > 1e-6){
+			    change(c, d, p);
+			    score += delta;
+			    improved = true;
+			}
+		    }
+		}
+	    }
+	    return score;
+	}
+
+	/**
+	 * Sets <code>key</code> to a random key.
+	 */
+	private void randomKey(Random rnd){
+	    if(injective){
+		int[] perm = new int[numPlain];
+		for(int p=0; p<numPlain; p++){
+		    perm[p] = p;
+		}
+		Arrays.fill(owner, -1);
+		for(int a=0; a<period; a++){
+		    for(int p=numPlain-1; p>0; p--){
+			int q = rnd.nextInt(p+1);
+			int tmp = perm[p];
+			perm[p] = perm[q];
+			perm[q] = tmp;
+		    }
+		    for(int c=0; c<numCipher; c++){
+			key[a*numCipher + c] = perm[c];
+			owner[a*numPlain + perm[c]] = a*numCipher + c;
+		    }
+		}
+	    }else{
+		for(int c=0; c<numVars; c++){
+		    key[c] = rnd.nextInt(numPlain);
+		}
+	    }
+	}
+
+	/**
+	 * Returns the score of the n-gram <code>t</code> of the order
+	 * <code>o + MIN_ORDER</code> with <code>key</code>.
+	 */
+	private float score(int o, int t){
+	    float[] table = logFreq[o];
+	    if(table == null){
+		return 0;
+	    }
+	    int n = o + MIN_ORDER;
+	    int[] codes = nGrams[o];
+	    int index = 0;
+	    for(int k=t*n, end=k+n; k<end; k++){
+		index = index*numPlain + key[codes[k]];
+	    }
+	    return nGramCounts[o][t]*table[index];
+	}
+
+	/**
+	 * Returns how much the score changes if <code>p</code> becomes the
+	 * replacement of <code>c</code> and, if <code>d != -1</code>, the
+	 * replacement of <code>c</code> becomes the one of <code>d</code>
+	 * (a character of the same alphabet).
+	 * This is where the solver spends its time, so every order is scored
+	 * by a separate loop.
+	 */
+	private double tryChange(int c, int d, int p){
+	    int old = key[c];
+	    key[c] = p;
+	    if(d != -1){
+		key[d] = old;
+	    }
+	    double delta = 0;
+	    float[] table = logFreq[0];
+	    if(table != null){
+		int[] codes = nGrams[0];
+		int[] counts = nGramCounts[0];
+		float[] sc = scores[0];
+		int[] lst = charNGrams[0][c];
+		for(int i=0; i<lst.length; i++){
+		    int t = lst[i];
+		    int k = t << 1;
+		    delta += counts[t]*table[key[codes[k]]*numPlain +
+					     key[codes[k+1]]] - sc[t];
+		}
+		if(d != -1){
+		    lst = charNGrams[0][d];
+		    for(int i=0; i<lst.length; i++){
+			int t = lst[i];
+			int k = t << 1;
+			if(codes[k] != c && codes[k+1] != c){
+			    delta += counts[t]*table[key[codes[k]]*numPlain +
+						     key[codes[k+1]]] - sc[t];
+			}
+		    }
+		}
+	    }
+	    table = logFreq[1];
+	    if(table != null){
+		int[] codes = nGrams[1];
+		int[] counts = nGramCounts[1];
+		float[] sc = scores[1];
+		int[] lst = charNGrams[1][c];
+		for(int i=0; i<lst.length; i++){
+		    int t = lst[i];
+		    int k = t*3;
+		    delta += counts[t]*table[(key[codes[k]]*numPlain +
+					      key[codes[k+1]])*numPlain +
+					     key[codes[k+2]]] - sc[t];
+		}
+		if(d != -1){
+		    lst = charNGrams[1][d];
+		    for(int i=0; i<lst.length; i++){
+			int t = lst[i];
+			int k = t*3;
+			if(codes[k] != c && codes[k+1] != c && codes[k+2] != c){
+			    delta += counts[t]*table[(key[codes[k]]*numPlain +
+						      key[codes[k+1]])*numPlain +
+						     key[codes[k+2]]] - sc[t];
+			}
+		    }
+		}
+	    }
+	    table = logFreq[2];
+	    if(table != null){
+		int[] codes = nGrams[2];
+		int[] counts = nGramCounts[2];
+		float[] sc = scores[2];
+		int[] lst = charNGrams[2][c];
+		for(int i=0; i<lst.length; i++){
+		    int t = lst[i];
+		    int k = t << 2;
+		    delta += counts[t]*table[((key[codes[k]]*numPlain +
+					       key[codes[k+1]])*numPlain +
+					      key[codes[k+2]])*numPlain +
+					     key[codes[k+3]]] - sc[t];
+		}
+		if(d != -1){
+		    lst = charNGrams[2][d];
+		    for(int i=0; i<lst.length; i++){
+			int t = lst[i];
+			int k = t << 2;
+			if(codes[k] != c && codes[k+1] != c && codes[k+2] != c &&
+			   codes[k+3] != c){
+			    delta += counts[t]*table[((key[codes[k]]*numPlain +
+						       key[codes[k+1]])*numPlain +
+						      key[codes[k+2]])*numPlain +
+						     key[codes[k+3]]] - sc[t];
+			}
+		    }
+		}
+	    }
+	    key[c] = old;
+	    if(d != -1){
+		key[d] = p;
+	    }
+	    return delta;
+	}
+
+	/**
+	 * Makes <code>p</code> the replacement of <code>c</code> and, if
+	 * <code>d != -1</code>, the old replacement of <code>c</code> the one
+	 * of <code>d</code>, and scores again the n-grams that contain them.
+	 */
+	private void change(int c, int d, int p){
+	    int old = key[c];
+	    key[c] = p;
+	    if(injective){
+		int base = (c/numCipher)*numPlain;
+		owner[base + p] = c;
+		owner[base + old] = d;
+		if(d != -1){
+		    key[d] = old;
+		}
+	    }
+	    for(int o=0; o<nGrams.length; o++){
+		int[] lst = charNGrams[o][c];
+		for(int i=0; i<lst.length; i++){
+		    scores[o][lst[i]] = score(o, lst[i]);
+		}
+		if(d != -1){
+		    lst = charNGrams[o][d];
+		    for(int i=0; i<lst.length; i++){
+			scores[o][lst[i]] = score(o, lst[i]);
+		    }
+		}
+	    }
+	}
+    }
+}
+/*
+ * -- AlbertiSolver.java ends here --
+ */
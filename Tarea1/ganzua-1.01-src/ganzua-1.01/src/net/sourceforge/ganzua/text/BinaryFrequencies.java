@@ -0,0 +1,377 @@
+/*
+ * -- BinaryFrequencies.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.io.*;
+import java.util.*;
+import java.nio.MappedByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.text.BreakIterator;
+import java.text.Collator;
+
+/**
+ * Class that reads and writes the binary companion of an instance of
+ * <code>LanguageFrequencies.xsd</code>. The XML document is still the
+ * format used to exchange the frequencies, the binary file is written
+ * next to it by <code>LangFreq</code> and, if it is up to date, read
+ * instead of parsing the XML document.<br/>
+ *
+ * The file has a table with the user characters and the counts of the
+ * characters, bigrams, trigrams and, if they were counted, the n-grams
+ * of higher orders as codes of that table. When it is
+ * opened only the header is read; the file is memory mapped and every
+ * table is turned into <code>StringFreq</code>s when it is asked for.
+ * All the values are written in big endian order:
+ * <pre>
+ *   int     MAGIC, VERSION
+ *   long    length of the XML document
+ *   string  language, country, source, rules
+ *   int     number of user characters, followed by their strings
+ *   int     the largest order of the n-grams (at least 3)
+ *   int     number of characters, followed by (code, frequency) pairs
+ *   int     number of bigrams, followed by (code, code, frequency)
+ *   int     number of trigrams, followed by (code, code, code, frequency)
+ *   ...     the same for every order up to the largest one
+ * </pre>
+ * where a string is its length followed by its <code>char</code>s.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class BinaryFrequencies{
+
+    /**
+     * The first <code>int</code> of the file ("GZFQ") */
+    public static final int MAGIC = 0x475A4651;
+
+    /**
+     * The version of the format */
+    public static final int VERSION = 2;
+
+    /**
+     * The extension of the binary files */
+    public static final String EXTENSION = ".gfq";
+
+    /**
+     * The contents of the file */
+    private MappedByteBuffer buf;
+
+    /**
+     * The language and country */
+    private Locale locale;
+
+    /**
+     * The <code>source</code> and <code>rules</code> attributes of the
+     * XML document */
+    private String source;
+
+    private String rules;
+
+    /**
+     * The strings of the user characters */
+    private String[] symbols;
+
+    /**
+     * The positions in <code>buf</code> where the tables of characters,
+     * bigrams, trigrams, etc. start */
+    private int[] tablePos;
+
+    /**
+     * Opens the binary file <code>f</code> and reads its header. It is
+     * only accepted if it was written for an XML document of length
+     * <code>xmlLength</code>.
+     *
+     * @param f the binary file
+     * @param xmlLength the length of the XML document it belongs to
+     * @throws NullPointerException if <code>f</code> is <code>null</code>
+     * @throws FileNotFoundException if <code>f</code> could not be found
+     * @throws IOException if <code>f</code> can not be read or it is not a valid binary file for the XML document
+     */
+    public BinaryFrequencies(File f, long xmlLength)
+	throws NullPointerException, FileNotFoundException, IOException
+    {
+	FileInputStream fis = new FileInputStream(f);
+	try{
+	    FileChannel ch = fis.getChannel();
+	    buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+	}finally{
+	    fis.close();
+	}
+	try{
+	    if(buf.getInt() != MAGIC || buf.getInt() != VERSION ||
+	       buf.getLong() != xmlLength){
+		throw new IOException("Invalid binary frequencies file");
+	    }
+	    String language = getString();
+	    String country = getString();
+	    locale = country.length() == 0 ? new Locale(language)
+		                           : new Locale(language, country);
+	    source = getString();
+	    rules = getString();
+	    symbols = new String[buf.getInt()];
+	    for(int i=0; i<symbols.length; i++){
+		symbols[i] = getString();
+	    }
+	    int maxOrder = buf.getInt();
+	    if(maxOrder < 3 || maxOrder > NGramCounter.MAX_ORDER){
+		throw new IOException("Invalid binary frequencies file");
+	    }
+	    // find where every table starts
+	    tablePos = new int[maxOrder];
+	    for(int n=1; n<=maxOrder; n++){
+		tablePos[n-1] = buf.position();
+		int size = buf.getInt();
+		buf.position(buf.position() + size*(n+1)*4);
+	    }
+	}catch(BufferUnderflowException bue){
+	    throw new IOException("Invalid binary frequencies file");
+	}catch(IllegalArgumentException iae){
+	    throw new IOException("Invalid binary frequencies file");
+	}
+    }
+
+    /**
+     * Returns the binary file that belongs to the XML document
+     * <code>xml</code>, i.e. the one with the same name and the extension
+     * <code>EXTENSION</code> instead of <code>.xml</code>.
+     *
+     * @param xml an instance of <code>LanguageFrequencies.xsd</code>
+     * @throws NullPointerException if <code>xml</code> is <code>null</code>
+     */
+    public static File companionOf(File xml) throws NullPointerException
+    {
+	String path = xml.getPath();
+	if(path.toLowerCase().endsWith(".xml")){
+	    path = path.substring(0, path.length()-4);
+	}
+	return new File(path + EXTENSION);
+    }
+
+    /**
+     * Opens the binary file that belongs to the XML document
+     * <code>xml</code> if it exists and is up to date, otherwise returns
+     * <code>null</code>.
+     *
+     * @param xml an instance of <code>LanguageFrequencies.xsd</code>
+     * @throws NullPointerException if <code>xml</code> is <code>null</code>
+     */
+    public static BinaryFrequencies openCompanion(File xml)
+	throws NullPointerException
+    {
+	File f = companionOf(xml);
+	try{
+	    if(f.isFile() && f.lastModified() >= xml.lastModified()){
+		return new BinaryFrequencies(f, xml.length());
+	    }
+	}catch(IOException ioe){
+	    // use the XML document
+	}catch(SecurityException se){
+	    // use the XML document
+	}
+	return null;
+    }
+
+    /**
+     * Returns the language and country of the frequencies.
+     */
+    public Locale getLocale(){
+	return locale;
+    }
+
+    /**
+     * Returns the value of the <code>source</code> attribute of the XML
+     * document.
+     */
+    public String getSource(){
+	return source;
+    }
+
+    /**
+     * Returns the value of the <code>rules</code> attribute of the XML
+     * document.
+     */
+    public String getRules(){
+	return rules;
+    }
+
+    /**
+     * Returns the largest order of the n-grams in the file.
+     */
+    public int getMaximumOrder(){
+	return tablePos.length;
+    }
+
+    /**
+     * Returns a <code>Set</code> of <code>StringFreq</code>s with the
+     * characters (<code>n == 1</code>), bigrams (<code>n == 2</code>),
+     * trigrams (<code>n == 3</code>), etc. and their frequencies.
+     *
+     * @param n the order of the n-grams
+     * @param collator used to create the <code>CollationKey</code>s
+     * @throws NullPointerException if <code>collator</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public synchronized Set getNGrams(int n, Collator collator)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(n < 1 || n > tablePos.length){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	buf.position(tablePos[n-1]);
+	int size = buf.getInt();
+	HashSet ret = new HashSet(size*2);
+	StringBuffer sb = new StringBuffer();
+	for(int i=0; i<size; i++){
+	    sb.setLength(0);
+	    for(int k=0; k<n; k++){
+		sb.append(symbols[buf.getInt()]);
+	    }
+	    ret.add(new StringFreq(collator.getCollationKey(sb.toString()),
+				   buf.getInt()));
+	}
+	return ret;
+    }
+
+    /**
+     * Reads a string from <code>buf</code>.
+     */
+    private final String getString(){
+	char[] arr = new char[buf.getInt()];
+	for(int i=0; i<arr.length; i++){
+	    arr[i] = buf.getChar();
+	}
+	return new String(arr);
+    }
+
+    /**
+     * Writes the binary companion of the XML document <code>xml</code>,
+     * which has already been written with the same data. If some n-gram
+     * of order <code>n</code> is not formed by <code>n</code> user
+     * characters, no binary file is written and the XML document is used.
+     *
+     * @param xml the instance of <code>LanguageFrequencies.xsd</code>
+     * @param locale the language and country
+     * @param source the value of the <code>source</code> attribute
+     * @param rules the value of the <code>rules</code> attribute
+     * @param tables the <code>StringFreq</code>s of the characters at index
+     *               <code>0</code>, of the bigrams at index <code>1</code>,
+     *               and so on; it must have at least the first three
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IllegalArgumentException if the number of tables is out of range
+     * @throws FileNotFoundException if the file could not be written
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(File xml,
+			     Locale locale,
+			     String source,
+			     String rules,
+			     Collection[] tables)
+	throws NullPointerException, IllegalArgumentException,
+	       FileNotFoundException, IOException
+    {
+	if(tables.length < 3 || tables.length > NGramCounter.MAX_ORDER){
+	    throw new IllegalArgumentException("Invalid number of tables");
+	}
+	BreakIterator charIterator = BreakIterator.getCharacterInstance(locale);
+	ArrayList symbols = new ArrayList();
+	HashMap symbolCodes = new HashMap();
+	int[][] codes = new int[tables.length][];
+	for(int n=1; n<=tables.length; n++){
+	    codes[n-1] = new int[tables[n-1].size()*n];
+	    int i = 0;
+	    for(Iterator iter=tables[n-1].iterator(); iter.hasNext(); ){
+		String str = ((StringFreq)iter.next()).getString();
+		charIterator.setText(str);
+		int start = charIterator.first();
+		int end = charIterator.next();
+		for(int k=0; k<n; k++){
+		    if(end == BreakIterator.DONE){
+			/* not formed by n user characters, the XML document
+			   would not be valid either */
+			companionOf(xml).delete();
+			return;
+		    }
+		    String uChar = str.substring(start, end);
+		    Integer code = (Integer)symbolCodes.get(uChar);
+		    if(code == null){
+			code = new Integer(symbols.size());
+			symbolCodes.put(uChar, code);
+			symbols.add(uChar);
+		    }
+		    codes[n-1][i++] = code.intValue();
+		    start = end;
+		    end = charIterator.next();
+		}
+		if(end != BreakIterator.DONE){
+		    companionOf(xml).delete();
+		    return;
+		}
+	    }
+	}
+	File f = companionOf(xml);
+	DataOutputStream out =
+	    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+	try{
+	    out.writeInt(MAGIC);
+	    out.writeInt(VERSION);
+	    out.writeLong(xml.length());
+	    writeString(out, locale.getLanguage());
+	    writeString(out, locale.getCountry());
+	    writeString(out, source);
+	    writeString(out, rules);
+	    out.writeInt(symbols.size());
+	    for(int i=0; i<symbols.size(); i++){
+		writeString(out, (String)symbols.get(i));
+	    }
+	    out.writeInt(tables.length);
+	    for(int n=1; n<=tables.length; n++){
+		out.writeInt(tables[n-1].size());
+		int i = 0;
+		for(Iterator iter=tables[n-1].iterator(); iter.hasNext(); ){
+		    for(int k=0; k<n; k++){
+			out.writeInt(codes[n-1][i++]);
+		    }
+		    out.writeInt(((StringFreq)iter.next()).getFrequency());
+		}
+	    }
+	}finally{
+	    out.close();
+	}
+    }
+
+    /**
+     * Writes the length and the <code>char</code>s of <code>str</code>.
+     */
+    private static void writeString(DataOutputStream out, String str)
+	throws IOException
+    {
+	out.writeInt(str.length());
+	out.writeChars(str);
+    }
+}
+/*
+ * -- BinaryFrequencies.java ends here --
+ */
@@ -0,0 +1,112 @@
+/*
+ * -- CaesarShift.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package net.sourceforge.ganzua.text;
+
+/**
+ * Class used to store how well a shift of the identity deciphers a
+ * ciphertext enciphered with Caesar's cipher: the sum of the logarithms of
+ * the relative frequencies of the n-grams of the plaintext, and the
+ * chi-squared statistic of its characters against the frequencies of the
+ * language. The natural order puts the most likely shifts first.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ * @see CaesarSolver
+ */
+public class CaesarShift implements Comparable{
+
+    /**
+     * The shift */
+    protected int shift;
+
+    /**
+     * The sum of the logarithms of the relative frequencies of the n-grams
+     * of the plaintext */
+    protected double score;
+
+    /**
+     * The chi-squared statistic of the characters of the plaintext */
+    protected double chiSquared;
+
+    /**
+     * Constructor that sets the shift and its scores.
+     *
+     * @param shift the shift
+     * @param score the sum of the logarithms of the relative frequencies
+     *              of the n-grams of the plaintext
+     * @param chiSquared the chi-squared statistic of the characters of the
+     *                   plaintext
+     */
+    public CaesarShift(int shift, double score, double chiSquared){
+	this.shift = shift;
+	this.score = score;
+	this.chiSquared = chiSquared;
+    }
+
+    /**
+     * Compares this <code>CaesarShift</code> with <code>o</code>. The one
+     * with the larger score goes first; if the scores are equal, the one
+     * with the smaller chi-squared statistic, and then the smaller shift.
+     *
+     * @param o the <code>CaesarShift</code> this one is compared to
+     * @throws ClassCastException if <code>o</code> is not a <code>CaesarShift</code>
+     */
+    public int compareTo(Object o) throws ClassCastException
+    {
+	CaesarShift param = (CaesarShift)o;
+	int ret = Double.compare(param.score, score);
+	if(ret == 0){
+	    ret = Double.compare(chiSquared, param.chiSquared);
+	}
+	return ret != 0 ? ret : shift - param.shift;
+    }
+
+    /**
+     * Returns the shift.
+     */
+    public int getShift(){
+	return shift;
+    }
+
+    /**
+     * Returns the sum of the logarithms of the relative frequencies of the
+     * n-grams of the plaintext.
+     */
+    public double getScore(){
+	return score;
+    }
+
+    /**
+     * Returns the chi-squared statistic of the characters of the
+     * plaintext against the frequencies of the language.
+     */
+    public double getChiSquared(){
+	return chiSquared;
+    }
+}
+/*
+ * -- CaesarShift.java ends here --
+ */
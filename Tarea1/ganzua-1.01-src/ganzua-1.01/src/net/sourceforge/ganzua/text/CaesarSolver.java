@@ -0,0 +1,320 @@
+/*
+ * -- CaesarSolver.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package net.sourceforge.ganzua.text;
+
+import java.util.*;
+import java.text.Collator;
+
+/**
+ * Class that tries every shift of Caesar's cipher on a ciphertext. Every
+ * shift is scored with the chi-squared statistic of the characters of the
+ * plaintext it gives against the frequencies of the language, and with the
+ * sum of the logarithms of the relative frequencies, in the language, of
+ * its bigrams and trigrams. The shifts are those of the identity chosen as
+ * <code>MonoAlphaSubst.selectIdentity()</code> does, as
+ * <code>shiftSelection</code> moves them.<br/>
+ *
+ * The tables of the language are built once, so a solver can rank the
+ * shifts of many ciphertexts, even from several threads at the same time.
+ * The characters of a ciphertext are counted once for all the shifts. The
+ * n-grams are scored one by one if the ciphertext is short, and counted
+ * first if it is longer than the number of distinct n-grams it can have.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ * @see CaesarShift
+ */
+public class CaesarSolver{
+
+    /**
+     * The smallest order of the n-grams used to score the shifts */
+    public static final int MIN_ORDER = 2;
+
+    /**
+     * The largest order of the n-grams used to score the shifts */
+    public static final int MAX_ORDER = 3;
+
+    /**
+     * The cipher alphabet (sorted <code>CollationKey</code>s). */
+    protected List cipherAlpha;
+
+    /**
+     * The plain alphabet (sorted <code>CollationKey</code>s). */
+    protected List plainAlpha;
+
+    /**
+     * Number of characters in <code>cipherAlpha</code> */
+    private int numCipher;
+
+    /**
+     * Number of characters in <code>plainAlpha</code> */
+    private int numPlain;
+
+    /**
+     * For every shift, the replacement of every cipher character, or
+     * <code>-1</code> if it has none */
+    private int[][] shifted;
+
+    /**
+     * The relative frequency of every character of the plain alphabet in
+     * the language */
+    private double[] charFreq;
+
+    /**
+     * For every order, the logarithm of the relative frequency of every
+     * n-gram of the plain alphabet, indexed by the codes of its characters
+     * as the digits of a number in base <code>numPlain</code>.
+     * <code>null</code> if the order is not used. */
+    private float[][] logFreq = new float[MAX_ORDER-MIN_ORDER+1][];
+
+    /**
+     * Creates a solver for ciphertexts in the cipher alphabet
+     * <code>cipherAlpha</code>.
+     *
+     * @param cipherAlpha the cipher alphabet, a sorted <code>List</code> of
+     *                    <code>CollationKey</code>s
+     * @param plainAlpha the plain alphabet, a sorted <code>List</code> of
+     *                   <code>CollationKey</code>s
+     * @param chars the <code>StringFreq</code>s of the characters of the
+     *              language
+     * @param bigrams the <code>StringFreq</code>s of the bigrams of the
+     *                language
+     * @param trigrams the <code>StringFreq</code>s of the trigrams of the
+     *                 language
+     * @param locale used to find the user characters of the n-grams
+     * @param collator used to create the <code>CollationKey</code>s of the
+     *                 characters of the n-grams
+     * @param injective <code>true</code> if two cipher characters can not
+     *                  have the same replacement in the identity
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IllegalArgumentException if an alphabet is empty or no character of the language is in the plain alphabet
+     * @see CiphertextManager#getCodes(Set, List)
+     */
+    public CaesarSolver(List cipherAlpha,
+			List plainAlpha,
+			Collection chars,
+			Collection bigrams,
+			Collection trigrams,
+			Locale locale,
+			Collator collator,
+			boolean injective) throws NullPointerException,
+						  IllegalArgumentException
+    {
+	if(cipherAlpha == null || plainAlpha == null || chars == null ||
+	   bigrams == null || trigrams == null || locale == null ||
+	   collator == null){
+	    throw new NullPointerException();
+	}
+	numCipher = cipherAlpha.size();
+	numPlain = plainAlpha.size();
+	if(numCipher == 0 || numPlain == 0){
+	    throw new IllegalArgumentException("Empty alphabet");
+	}
+	this.cipherAlpha = cipherAlpha;
+	this.plainAlpha = plainAlpha;
+	FitnessScorer scorer =
+	    new FitnessScorer(plainAlpha,
+			      new Collection[]{chars, bigrams, trigrams},
+			      locale, collator);
+	float[] logChars = scorer.getTable(1);
+	if(logChars == null){
+	    throw new IllegalArgumentException("No characters of the plain alphabet");
+	}
+	charFreq = new double[numPlain];
+	for(int p=0; p<numPlain; p++){
+	    charFreq[p] = Math.exp(logChars[p]);
+	}
+	logFreq[0] = scorer.getTable(2);
+	logFreq[1] = scorer.getTable(3);
+	shifted = VigenereSolver.shiftTable(VigenereSolver.identity(cipherAlpha,
+								    plainAlpha,
+								    locale,
+								    collator,
+								    injective));
+    }
+
+    /**
+     * Returns the number of shifts, the size of the cipher alphabet.
+     */
+    public int getNumberOfShifts(){
+	return numCipher;
+    }
+
+    /**
+     * Scores every shift on the ciphertext <code>text</code> and returns
+     * them sorted from the most likely to the least likely.
+     *
+     * @param text the ciphertext as indices in the cipher alphabet
+     *             (see <code>CiphertextManager.getCodes</code>)
+     * @return a <code>CaesarShift</code> for every shift
+     * @throws NullPointerException if <code>text</code> is <code>null</code>
+     * @throws IllegalArgumentException if a code of <code>text</code> is not an index of the cipher alphabet
+     */
+    public CaesarShift[] rank(int[] text) throws NullPointerException,
+						 IllegalArgumentException
+    {
+	int[] counts = new int[numCipher];
+	for(int i=0; i<text.length; i++){
+	    if(text[i] < 0 || text[i] >= numCipher){
+		throw new IllegalArgumentException("Code out of range");
+	    }
+	    counts[text[i]]++;
+	}
+	double[] score = new double[numCipher];
+	for(int o=0; o<logFreq.length; o++){
+	    if(logFreq[o] != null){
+		addNGramScores(text, o, score);
+	    }
+	}
+	CaesarShift[] ranked = new CaesarShift[numCipher];
+	double[] observed = new double[numPlain];
+	for(int s=0; s<numCipher; s++){
+	    Arrays.fill(observed, 0);
+	    int[] r = shifted[s];
+	    double len = 0;
+	    for(int c=0; c<numCipher; c++){
+		if(r[c] != -1){
+		    observed[r[c]] += counts[c];
+		    len += counts[c];
+		}
+	    }
+	    double chi = 0;
+	    for(int p=0; p<numPlain; p++){
+		double expected = len*charFreq[p];
+		double diff = observed[p] - expected;
+		chi += diff*diff/expected;
+	    }
+	    ranked[s] = new CaesarShift(s, score[s], chi);
+	}
+	Arrays.sort(ranked);
+	return ranked;
+    }
+
+    /**
+     * Adds to <code>score[s]</code> the score of the n-grams of the order
+     * <code>o + MIN_ORDER</code> of <code>text</code> deciphered with the
+     * shift <code>s</code>, for every shift. The n-grams with a character
+     * that has no replacement are not scored.
+     */
+    private final void addNGramScores(int[] text, int o, double[] score){
+	int n = o + MIN_ORDER;
+	float[] table = logFreq[o];
+	int len = text.length - n + 1;
+	if(len <= 0){
+	    return;
+	}
+	long size = 1;
+	for(int k=0; k<n; k++){
+	    size *= numCipher;
+	}
+	int[] codes; // the codes of the n-grams, one after the other
+	int[] nGramCounts; // null if every n-gram is counted once
+	int numNGrams;
+	if(size <= len){
+	    // count the distinct n-grams
+	    int[] found = new int[(int)size];
+	    for(int i=0; i<len; i++){
+		int id = 0;
+		for(int k=0; k<n; k++){
+		    id = id*numCipher + text[i+k];
+		}
+		found[id]++;
+	    }
+	    numNGrams = 0;
+	    for(int id=0; id<found.length; id++){
+		if(found[id] != 0){
+		    numNGrams++;
+		}
+	    }
+	    codes = new int[numNGrams*n];
+	    nGramCounts = new int[numNGrams];
+	    for(int id=0, t=0; id<found.length; id++){
+		if(found[id] != 0){
+		    nGramCounts[t] = found[id];
+		    for(int k=n-1, rest=id; k>=0; k--){
+			codes[t*n+k] = rest % numCipher;
+			rest /= numCipher;
+		    }
+		    t++;
+		}
+	    }
+	}else{
+	    numNGrams = len;
+	    codes = new int[len*n];
+	    nGramCounts = null;
+	    for(int i=0; i<len; i++){
+		System.arraycopy(text, i, codes, i*n, n);
+	    }
+	}
+	for(int s=0; s<numCipher; s++){
+	    int[] r = shifted[s];
+	    double sum = 0;
+	    for(int t=0, k=0; t<numNGrams; t++){
+		int index = 0;
+		boolean replaced = true;
+		for(int end=k+n; k<end; k++){
+		    int p = r[codes[k]];
+		    if(p == -1){
+			replaced = false;
+		    }
+		    index = index*numPlain + p;
+		}
+		if(replaced){
+		    sum += nGramCounts == null ? table[index]
+			                       : nGramCounts[t]*table[index];
+		}
+	    }
+	    score[s] += sum;
+	}
+    }
+
+    /**
+     * Returns the substitution of the shift <code>shift</code> as a
+     * <code>HashMap</code> that maps every character of the cipher
+     * alphabet to its replacement (<code>CollationKey</code>s, or
+     * <code>null</code> if it has none), as used by
+     * <code>Substitution.setSubstitution</code>.
+     *
+     * @param shift the shift
+     * @throws IllegalArgumentException if <code>shift</code> is not between 0 and <code>getNumberOfShifts()-1</code>
+     */
+    public HashMap getSubstitution(int shift) throws IllegalArgumentException
+    {
+	if(shift < 0 || shift >= numCipher){
+	    throw new IllegalArgumentException("shift out of range");
+	}
+	int[] repl = shifted[shift];
+	HashMap key = new HashMap(numCipher*2);
+	for(int c=0; c<numCipher; c++){
+	    key.put(cipherAlpha.get(c),
+		    repl[c] == -1 ? null : plainAlpha.get(repl[c]));
+	}
+	return key;
+    }
+}
+/*
+ * -- CaesarSolver.java ends here --
+ */
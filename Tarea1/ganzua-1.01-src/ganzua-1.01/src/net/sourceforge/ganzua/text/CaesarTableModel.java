@@ -0,0 +1,323 @@
+/*
+ * -- CaesarTableModel.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.ResourceBundle;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.text.NumberFormat;
+import java.text.DecimalFormat;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.InputEvent;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <code>TableModel</code> used to create <code>JTables</code> that display
+ * the shifts of a ciphertext enciphered with Caesar's cipher ranked by a
+ * <code>CaesarSolver</code>: the shift, its scores and the beginning of
+ * the plaintext it gives. The user can sort the data by shift, score or
+ * chi-squared statistic.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ * @see CaesarSolver#rank(int[])
+ */
+public class CaesarTableModel extends AbstractTableModel{
+
+    protected static final byte UNSORTED = 0;
+
+    protected static final byte SORTED_BY_SHIFT = 8;
+
+    protected static final byte SORTED_BY_SCORE = 4;
+
+    protected static final byte SORTED_BY_CHI_SQUARED = 2;
+
+    protected static final byte REVERSED = 1;
+
+    protected static final DecimalFormat df;
+
+    /**
+     * The shifts in the order they are displayed */
+    protected CaesarShift[] rows = new CaesarShift[0];
+
+    /**
+     * The beginning of the plaintext of every shift, at the index of the
+     * shift */
+    protected String[] previews = new String[0];
+
+    /**
+     * <code>ResourceBundle</code> with the localized names of the columns */
+    protected ResourceBundle labelsRB;
+
+    /**
+     * <code>byte</code> used to store the state of the table
+     * (<code>UNSORTED</code>, <code>SORTED_BY_SHIFT</code>,
+     * <code>SORTED_BY_SCORE</code>, <code>SORTED_BY_CHI_SQUARED</code>,
+     * <code>REVERSED</code>) */
+    protected byte state = UNSORTED;
+
+    /**
+     * Sorts the shifts in ascending order */
+    private static final Comparator shiftComp = new Comparator(){
+	    public int compare(Object o1, Object o2){
+		return ((CaesarShift)o1).getShift() - ((CaesarShift)o2).getShift();
+	    }
+	};
+
+    /**
+     * Sorts the shifts by chi-squared statistic in ascending order */
+    private static final Comparator chiComp = new Comparator(){
+	    public int compare(Object o1, Object o2){
+		CaesarShift cs1 = (CaesarShift)o1;
+		CaesarShift cs2 = (CaesarShift)o2;
+		int cmp = Double.compare(cs1.getChiSquared(), cs2.getChiSquared());
+		return cmp != 0 ? cmp : cs1.getShift() - cs2.getShift();
+	    }
+	};
+
+    static{
+	NumberFormat nf = DecimalFormat.getInstance(JComponent.getDefaultLocale());
+	if(nf instanceof DecimalFormat){
+	    df = (DecimalFormat)nf;
+	} else{
+	    df = new DecimalFormat();
+	}
+	df.applyPattern("0.##");
+    }
+
+    /**
+     * Constructor that creates an empty table.
+     */
+    public CaesarTableModel(){
+	labelsRB = ResourceBundle.getBundle(CaesarTableModel.class.getName(),
+					    JComponent.getDefaultLocale());
+    }
+
+    /**
+     * Returns the number of columns in the model (<code>4</code>).
+     *
+     * @return the number of columns in the model (<code>4</code>)
+     */
+    public int getColumnCount(){
+	return 4;
+    }
+
+    /**
+     * Returns the name of the column <code>col</code> or <code>null</code>
+     * if no such column exists.
+     *
+     * @param col the column being queried
+     * @return the name of the column or <code>null</code> if no such column
+     *         exists
+     */
+    public String getColumnName(int col){
+	String ret;
+	switch(col){
+	case 0:
+	    ret = labelsRB.getString("shift");
+	    break;
+	case 1:
+	    ret = labelsRB.getString("score");
+	    break;
+	case 2:
+	    ret = labelsRB.getString("chiSquared");
+	    break;
+	case 3:
+	    ret = labelsRB.getString("plaintext");
+	    break;
+	default:
+	    ret = null;
+	    break;
+	}
+	return ret;
+    }
+
+    /**
+     * Returns the number of rows in the model
+     *
+     * @return the number of rows in the model
+     */
+    public int getRowCount(){
+	return rows.length;
+    }
+
+    /**
+     * Returns the value for the cell at <code>col</code> and <code>row</code>
+     *
+     * @param row the row's index
+     * @param col the column's index
+     */
+    public Object getValueAt(int row, int col){
+	CaesarShift cs = rows[row];
+	String ret = null;
+	switch(col){
+	case 0:
+	    ret = Integer.toString(cs.getShift());
+	    break;
+	case 1:
+	    ret = df.format(cs.getScore());
+	    break;
+	case 2:
+	    ret = df.format(cs.getChiSquared());
+	    break;
+	case 3:
+	    ret = previews[cs.getShift()];
+	    break;
+	default:
+	    break;
+	}
+	return ret;
+    }
+
+    /**
+     * The class of all the cell values in the column.
+     *
+     * @return <code>String</code>
+     */
+    public Class getColumnClass(int col){
+	return String.class;
+    }
+
+    /**
+     * Returns the shift displayed in the row <code>row</code>.
+     *
+     * @param row the row's index
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public int getShiftAt(int row) throws IndexOutOfBoundsException
+    {
+	return rows[row].getShift();
+    }
+
+    /**
+     * Sorts the data by <code>column</code> in ascending or descending order.
+     * Note that for column 1 (the column with the scores), ascending
+     * actually means descending (from the most likely shift to the least
+     * likely).
+     *
+     * @param column the column to order by
+     * @param ascending true if the data should be sorded in ascending order,
+     *                  false otherwise
+     */
+    protected void sort(int column, boolean ascending){
+	if(column < 0 || column > 2){
+	    return;
+	}
+	byte prevState = state;
+	if(column == 0){
+	    if((state&SORTED_BY_SHIFT) != SORTED_BY_SHIFT){
+		Arrays.sort(rows, shiftComp);
+		state = SORTED_BY_SHIFT;
+	    }
+	}else if(column == 1){
+	    if((state&SORTED_BY_SCORE) != SORTED_BY_SCORE){
+		Arrays.sort(rows);
+		state = SORTED_BY_SCORE;
+	    }
+	}else if((state&SORTED_BY_CHI_SQUARED) != SORTED_BY_CHI_SQUARED){
+	    Arrays.sort(rows, chiComp);
+	    state = SORTED_BY_CHI_SQUARED;
+	}
+	if(!ascending && (state&REVERSED)!=REVERSED){
+	    reverse();
+	    state |= REVERSED;
+	}else if(ascending && (state&REVERSED)==REVERSED){
+	    reverse();
+	    state &= ~REVERSED;
+	}
+	if(state != prevState){
+	    fireTableDataChanged();
+	}
+    }
+
+    /**
+     * Reverses the order of <code>rows</code>.
+     */
+    private final void reverse(){
+	for(int i=0, j=rows.length-1; i<j; i++, j--){
+	    CaesarShift tmp = rows[i];
+	    rows[i] = rows[j];
+	    rows[j] = tmp;
+	}
+    }
+
+    /**
+     * Sets the shifts displayed, from the most likely to the least likely.
+     * The white space of the previews is displayed as spaces.
+     *
+     * @param ranked the shifts as returned by <code>CaesarSolver.rank</code>
+     * @param plaintexts the beginning of the plaintext of every shift, at
+     *                   the index of the shift
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IllegalArgumentException if there is no preview for a shift
+     */
+    public void setData(CaesarShift[] ranked, String[] plaintexts)
+	throws NullPointerException, IllegalArgumentException
+    {
+	for(int i=0; i<ranked.length; i++){
+	    int shift = ranked[i].getShift();
+	    if(shift < 0 || shift >= plaintexts.length){
+		throw new IllegalArgumentException("No preview for shift " + shift);
+	    }
+	}
+	rows = (CaesarShift[])ranked.clone();
+	previews = new String[plaintexts.length];
+	for(int i=0; i<plaintexts.length; i++){
+	    previews[i] = plaintexts[i] == null ? ""
+		          : plaintexts[i].replace('\n', ' ').replace('\r', ' ').replace('\t', ' ');
+	}
+	state = SORTED_BY_SCORE;
+	fireTableDataChanged();
+    }
+
+    /**
+     * Adds the <code>MouseListener</code> needed to let the user sort the
+     * data.
+     *
+     * @param table the <code>JTable</code> created using this instance of
+     *              <code>CaesarTableModel</code>
+     */
+    public void addMouseListenerToHeaderInTable(final JTable table){
+	table.setColumnSelectionAllowed(false);
+	MouseAdapter mouseListener = new MouseAdapter(){
+		public void mouseClicked(MouseEvent e){
+		    int viewCol = table.getColumnModel().getColumnIndexAtX(e.getX());
+		    int column = table.convertColumnIndexToModel(viewCol);
+		    if(e.getClickCount() == 1 && column != -1){
+			boolean ascending = (e.getModifiers()&InputEvent.SHIFT_MASK)==0;
+			sort(column, ascending);
+		    }
+		}
+	    };
+	table.getTableHeader().addMouseListener(mouseListener);
+    }
+}
+
+/*
+ * -- CaesarTableModel.java ends here --
+ */
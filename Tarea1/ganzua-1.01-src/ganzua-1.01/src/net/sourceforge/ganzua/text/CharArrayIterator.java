@@ -0,0 +1,152 @@
+/*
+ * -- CharArrayIterator.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.text.CharacterIterator;
+
+/**
+ * <code>CharacterIterator</code> over a segment of a <code>char</code>
+ * array. Unlike <code>StringCharacterIterator</code> it does not need a
+ * <code>String</code>, so the same array can be reused to iterate over
+ * different texts (e.g. the chunks of a large file) by calling
+ * <code>setText</code>.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class CharArrayIterator implements CharacterIterator{
+
+    /**
+     * The characters */
+    private char[] text;
+
+    /**
+     * The index of the first character */
+    private int begin;
+
+    /**
+     * The index after the last character */
+    private int end;
+
+    /**
+     * The current index */
+    private int pos;
+
+    /**
+     * Creates a <code>CharArrayIterator</code> over the characters of
+     * <code>text</code> from <code>begin</code> (inclusive) to
+     * <code>end</code> (exclusive).
+     *
+     * @throws NullPointerException if <code>text</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>begin</code> or <code>end</code> are out of bounds
+     */
+    public CharArrayIterator(char[] text, int begin, int end)
+	throws NullPointerException, IllegalArgumentException
+    {
+	setText(text, begin, end);
+    }
+
+    /**
+     * Sets the characters to iterate over and moves to
+     * <code>begin</code>.
+     *
+     * @throws NullPointerException if <code>text</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>begin</code> or <code>end</code> are out of bounds
+     */
+    public void setText(char[] text, int begin, int end)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(begin < 0 || begin > end || end > text.length){
+	    throw new IllegalArgumentException();
+	}
+	this.text = text;
+	this.begin = begin;
+	this.end = end;
+	pos = begin;
+    }
+
+    public char first(){
+	pos = begin;
+	return current();
+    }
+
+    public char last(){
+	pos = end > begin ? end-1 : end;
+	return current();
+    }
+
+    public char current(){
+	return pos >= begin && pos < end ? text[pos] : DONE;
+    }
+
+    public char next(){
+	if(pos < end-1){
+	    pos++;
+	    return text[pos];
+	}
+	pos = end;
+	return DONE;
+    }
+
+    public char previous(){
+	if(pos <= begin){
+	    return DONE;
+	}
+	pos--;
+	return text[pos];
+    }
+
+    public char setIndex(int position) throws IllegalArgumentException
+    {
+	if(position < begin || position > end){
+	    throw new IllegalArgumentException("Invalid index");
+	}
+	pos = position;
+	return current();
+    }
+
+    public int getBeginIndex(){
+	return begin;
+    }
+
+    public int getEndIndex(){
+	return end;
+    }
+
+    public int getIndex(){
+	return pos;
+    }
+
+    public Object clone(){
+	try{
+	    return super.clone();
+	}catch(CloneNotSupportedException e){
+	    throw new InternalError();
+	}
+    }
+}
+/*
+ * -- CharArrayIterator.java ends here --
+ */
@@ -69,10 +69,101 @@ public class CiphertextManager{
     protected String ciphertext;
 
     /**
-     * The ciphertext in the form of an <code>ArrayList</code> of 
-     * <code>CollationKey</code>s of user characters
+     * The distinct user characters that appear in the ciphertext, in the
+     * order in which they first appear, in the form of
+     * <code>CollationKey</code>s. The index of a user character in this
+     * list is its code in <code>ciphertextCodes</code>.
      */
-    protected ArrayList ciphertextAL;
+    protected ArrayList symbols;
+
+    /**
+     * Maps the <code>String</code> of every user character in
+     * <code>symbols</code> to its code (an <code>Integer</code>).
+     */
+    private HashMap symbolCodes;
+
+    /**
+     * For every code, the smallest code whose <code>CollationKey</code> is
+     * equal to its own. User characters with different strings may have
+     * equal <code>CollationKey</code>s, depending on the <code>Collator</code>
+     * being used, and they must be counted as the same character.
+     */
+    protected int[] symbolKey;
+
+    /**
+     * The distinct <code>CollationKey</code>s in <code>symbols</code>,
+     * sorted, and the smallest code of each one. Used to look up a user
+     * character with <code>Collections.binarySearch</code>.
+     */
+    private ArrayList sortedSymbols;
+
+    private int[] sortedCodes;
+
+    /**
+     * For every code, <code>true</code> if the user character
+     * <code>isISOControl</code>
+     */
+    protected boolean[] symbolCtrl;
+
+    /**
+     * For every code, <code>true</code> if the user character
+     * <code>isWhitespace</code>
+     */
+    protected boolean[] symbolWhite;
+
+    /**
+     * The ciphertext in the form of an array with the codes of its user
+     * characters.
+     *
+     * @see #symbols
+     */
+    protected int[] ciphertextCodes;
+
+    /**
+     * The counts of the characters, bigrams and trigrams of the ciphertext
+     * for the characters last counted. Created when first needed and
+     * discarded when the ciphertext or the codes change.
+     */
+    private CiphertextStatistics statistics;
+
+    /**
+     * Number of entries <code>getKasiski</code> creates between two
+     * reports to its monitor */
+    private static final int KASISKI_BATCH = 256;
+
+    /**
+     * The model used to display the ciphertext and its plaintext, created
+     * when first needed */
+    private PlaintextModel plaintextModel;
+
+    /**
+     * The last key compiled by <code>getPlaintext</code>, with a row of
+     * <code>symbols.size()</code> entries for every alphabet. Every entry
+     * is the character that replaces the code, or <code>MULTI_CHAR</code>
+     * if the replacement is in <code>keyStrings</code>, and has
+     * <code>ADVANCE</code> set if the alphabet changes after it. The
+     * tables are reused while their dimensions don't change.
+     */
+    private int[][] keyTable;
+
+    /**
+     * The replacements of the codes in <code>keyTable</code> */
+    private String[][] keyStrings;
+
+    /**
+     * Whether the alphabet changes after the codes in
+     * <code>keyTable</code> */
+    private boolean[][] keyAdvance;
+
+    /**
+     * Set in the entries of <code>keyTable</code> after which the alphabet
+     * changes */
+    private static final int ADVANCE = 0x10000;
+
+    /**
+     * Set in the entries of <code>keyTable</code> whose replacement has
+     * more than one <code>char</code> */
+    private static final int MULTI_CHAR = 0x20000;
 
     /**
      * Indicates if white spaces (characters that return <code>true</code>
@@ -90,6 +181,12 @@ public class CiphertextManager{
      */
     protected boolean ignoreControl = true;
 
+    /**
+     * Used to compare <code>CollationKey</code>s and 
+     * <code>StringFreq</code>s  by ignoring the 
+     * <code>StringFreq</code>'s frequency */
+    private static final StringFreqCollationKeyComparator csComp = new StringFreqCollationKeyComparator();
+
     /**
      * Used to register all the <code>ChangeListener</code>s interested
      * in the <code>CiphertextManager</code> */
@@ -117,22 +214,234 @@ public class CiphertextManager{
 	this.locale = loc;
 	this.collator = col;
 	charIterator = BreakIterator.getCharacterInstance(locale);
-	ciphertextAL = new ArrayList();
 	initCiphertextAL();
     }
 
     /**
-     * Method that initializes <code>ciphertextAL</code>.
+     * Method that initializes <code>symbols</code> and
+     * <code>ciphertextCodes</code>.
      */
     private final void initCiphertextAL(){
-	CollationKey uc; // the CollationKey of a user character
+	String uc; // a user character
+	Integer code;
+	int[] codes = new int[ciphertext.length()];
+	int numCodes = 0;
+	symbols = new ArrayList();
+	symbolCodes = new HashMap();
 	charIterator.setText(ciphertext);
 	int start = charIterator.first();
 	for (int end = charIterator.next(); 
 	     end != BreakIterator.DONE;
 	     start = end, end = charIterator.next()) {
-	    uc = collator.getCollationKey(ciphertext.substring(start, end));
-	    ciphertextAL.add(uc);
+	    uc = ciphertext.substring(start, end);
+	    code = (Integer)symbolCodes.get(uc);
+	    if(code == null){
+		code = new Integer(symbols.size());
+		symbolCodes.put(uc, code);
+		symbols.add(collator.getCollationKey(uc));
+	    }
+	    codes[numCodes++] = code.intValue();
+	}
+	ciphertextCodes = new int[numCodes];
+	System.arraycopy(codes, 0, ciphertextCodes, 0, numCodes);
+	int numSymbols = symbols.size();
+	symbolCtrl = new boolean[numSymbols];
+	symbolWhite = new boolean[numSymbols];
+	for(int i=0; i<numSymbols; i++){
+	    char c = ((CollationKey)symbols.get(i)).getSourceString().charAt(0);
+	    symbolCtrl[i] = Character.isISOControl(c);
+	    symbolWhite[i] = Character.isWhitespace(c);
+	}
+	initSymbolKey();
+    }
+
+    /**
+     * Method that initializes <code>symbolKey</code>,
+     * <code>sortedSymbols</code> and <code>sortedCodes</code> with the
+     * <code>CollationKey</code>s currently in <code>symbols</code>.
+     */
+    private final void initSymbolKey(){
+	HashMap firstCode = new HashMap(); // maps CollationKeys to codes
+	symbolKey = new int[symbols.size()];
+	sortedSymbols = new ArrayList();
+	for(int i=0; i<symbolKey.length; i++){
+	    Integer code = (Integer)firstCode.get(symbols.get(i));
+	    if(code == null){
+		firstCode.put(symbols.get(i), new Integer(i));
+		symbolKey[i] = i;
+		sortedSymbols.add(symbols.get(i));
+	    }else{
+		symbolKey[i] = code.intValue();
+	    }
+	}
+	Collections.sort(sortedSymbols);
+	sortedCodes = new int[sortedSymbols.size()];
+	for(int i=0; i<sortedCodes.length; i++){
+	    sortedCodes[i] = ((Integer)firstCode.get(sortedSymbols.get(i))).intValue();
+	}
+	statistics = null;
+    }
+
+    /**
+     * Returns the positions in <code>ciphertextCodes</code> where the user
+     * character with code <code>code</code> appears, in ascending order,
+     * taken from the index of the <code>CiphertextStatistics</code>. The
+     * array returned must not be modified.
+     *
+     * @param code the code of the user character
+     */
+    final int[] getPositions(int code){
+	return getStatistics().getPositions(code);
+    }
+
+    /**
+     * Returns the positions of the ciphertext where the user character
+     * <code>ck</code> appears, in ascending order, counting user characters
+     * from <code>0</code>. User characters with different strings but
+     * equal <code>CollationKey</code>s are the same character.
+     *
+     * @param ck the <code>CollationKey</code> of the user character
+     * @return the positions, an empty array if it does not appear
+     * @throws NullPointerException if <code>ck</code> is <code>null</code>
+     */
+    public int[] getPositions(CollationKey ck) throws NullPointerException{
+	if(ck == null){
+	    throw new NullPointerException();
+	}
+	int idx = Collections.binarySearch(sortedSymbols, ck);
+	if(idx < 0){
+	    return new int[0];
+	}
+	int c = sortedCodes[idx];
+	int[] ret = getPositions(c);
+	for(int d=c+1; d<symbolKey.length; d++){
+	    if(symbolKey[d] == c){ // same CollationKey, merge
+		int[] more = getPositions(d);
+		int[] merged = new int[ret.length + more.length];
+		System.arraycopy(ret, 0, merged, 0, ret.length);
+		System.arraycopy(more, 0, merged, ret.length, more.length);
+		Arrays.sort(merged);
+		ret = merged;
+	    }
+	}
+	return ret == getPositions(c) ? (int[])ret.clone() : ret;
+    }
+
+    /**
+     * Returns the <code>CiphertextStatistics</code> of the ciphertext
+     * after setting the characters it should count.
+     *
+     * @param counted the codes of the characters to count
+     * @see #countedCodes(Set, boolean)
+     */
+    private CiphertextStatistics getStatistics(boolean[] counted){
+	getStatistics().setCounted(counted);
+	return statistics;
+    }
+
+    /**
+     * Returns the <code>CiphertextStatistics</code> of the ciphertext,
+     * creating it if needed, without changing the characters it counts.
+     */
+    private CiphertextStatistics getStatistics(){
+	if(statistics == null){
+	    statistics = new CiphertextStatistics(ciphertextCodes, symbolKey);
+	}
+	return statistics;
+    }
+
+    /**
+     * Returns <code>true</code> if the character with code <code>code</code>
+     * should be counted according to <code>ignoreWhite</code> and
+     * <code>ignoreControl</code> when getting frequencies.
+     */
+    private final boolean isCountable(int code){
+	boolean isCtrl = symbolCtrl[code];
+	boolean isWhite = symbolWhite[code];
+	return !(isCtrl || isWhite) ||
+	    (isCtrl && !ignoreControl) || (isWhite && !ignoreWhite);
+    }
+
+    /**
+     * Returns <code>true</code> if the character with code <code>code</code>
+     * should be removed from the ciphertext according to
+     * <code>ignoreWhite</code> and <code>ignoreControl</code> when getting
+     * the cipher alphabet or applying the Kasiski Test.
+     */
+    private final boolean isRemovable(int code){
+	return (symbolCtrl[code] && ignoreControl) ||
+	    (symbolWhite[code] && ignoreWhite);
+    }
+
+    /**
+     * Returns an array that has, for every code, <code>true</code> if the
+     * character with that code should be counted when getting the
+     * frequencies.
+     *
+     * @param charSet a <code>Set</code> of <code>CollationKey</code>s
+     * @param inSet if <code>true</code> only the characters in
+     *              <code>charSet</code> are counted, if <code>false</code>
+     *              those in it are ignored
+     */
+    private boolean[] countedCodes(Set charSet, boolean inSet){
+	boolean[] counted = new boolean[symbols.size()];
+	for(int i=0; i<counted.length; i++){
+	    counted[i] = (charSet.contains(symbols.get(i)) == inSet) &&
+		isCountable(i);
+	}
+	return counted;
+    }
+
+    /**
+     * Returns an array that has the number of times the user character
+     * with each code appears in <code>counter</code>.
+     *
+     * @param counter an <code>NGramCounter</code> that uses the same codes
+     */
+    private int[] getCounts(NGramCounter counter){
+	int[] counts = new int[symbols.size()];
+	for(int i=0; i<counts.length; i++){
+	    counts[i] = counter.getCount(i);
+	}
+	return counts;
+    }
+
+    /**
+     * Adds a <code>StringFreq</code> to <code>sfLst</code> for every
+     * code that has a positive count in <code>counts</code> and sorts
+     * <code>sfLst</code>.
+     *
+     * @param counts the count of every code
+     * @param sfLst the <code>List</code> where the <code>StringFreq</code>s
+     *              will be added
+     */
+    private void addCounts(int[] counts, java.util.List sfLst){
+	for(int i=0; i<counts.length; i++){
+	    if(counts[i] > 0){
+		sfLst.add(new StringFreq((CollationKey)symbols.get(i),
+					 counts[i]));
+	    }
+	}
+	Collections.sort(sfLst);
+    }
+
+    /**
+     * Adds the counts in <code>counts</code> to the <code>StringFreq</code>s
+     * in the ordered <code>List</code> <code>sfLst</code> that have
+     * the same strings, which must be in it.
+     *
+     * @param counts the count of every code
+     * @param sfLst the ordered <code>List</code> of <code>StringFreq</code>s
+     */
+    private void addCountsTo(int[] counts, java.util.List sfLst){
+	StringFreq sf;
+	for(int i=0; i<counts.length; i++){
+	    if(counts[i] > 0){
+		int idx = Collections.binarySearch(sfLst, symbols.get(i),
+						   csComp);
+		sf = (StringFreq)sfLst.get(idx);
+		sf.setFrequency(sf.getFrequency() + counts[i]);
+	    }
 	}
     }
 
@@ -141,23 +450,12 @@ public class CiphertextManager{
      * appear in the ciphertext in the form of <code>CollationKey</code>s. 
      */
     public ArrayList getCipherAlphabet(){
-	ArrayList ret = null;
-	HashSet alphaSet = new HashSet(100);
-	alphaSet.addAll(ciphertextAL);
-	CollationKey uCharKey = null;
-	String uChar = null;
-	boolean isCtrl;    // true if the current character isISOControl
-	boolean isWhite;   // true if the current character isWhitespace
-	for(Iterator iter=alphaSet.iterator(); iter.hasNext(); ){
-	    uCharKey = (CollationKey)iter.next();
-	    uChar = uCharKey.getSourceString();
-	    isCtrl = Character.isISOControl(uChar.charAt(0));
-	    isWhite = Character.isWhitespace(uChar.charAt(0));
-	    if((isCtrl && ignoreControl) || (isWhite && ignoreWhite)){
-		iter.remove();
+	ArrayList ret = new ArrayList(symbols.size());
+	for(int i=0; i<symbolKey.length; i++){
+	    if(symbolKey[i] == i && !isRemovable(i)){
+		ret.add(symbols.get(i));
 	    }
 	}
-	ret = new ArrayList(alphaSet);
 	Collections.sort(ret);
 	return ret;
     }
@@ -202,93 +500,41 @@ public class CiphertextManager{
 	}else if(ignoredChars.size() != numAlpha){
 	    throw new IllegalArgumentException("ignoredChars.size() does not match numAlpha");
 	}
-	Iterator iter = ciphertextAL.iterator();
-	Set igSet = null; //set of ignored characters
-	/* sb is used to avoid the creation of StringBuffers caused by the 
-	   String operator + */
-	StringBuffer sb = new StringBuffer();
-	CollationKey uCharKey = null;
-	String uChar = null;
-	boolean isCtrl;    // true if the current character isISOControl
-	boolean isWhite;   // true if the current character isWhitespace
-	boolean isIgnored; // true if the current character is in igSet
+	int code;          // the code of the current character
+	boolean[] counted; // the codes of the characters to count
 	ArrayList[] freqs; // used to store the relative frequencies
 	if(numAlpha == 1){ // monoalphabetic
-	    String prevUChar = null; //Used in the creation of the trigram list
-	    String lastUChar = null; //Used in the creation of the bigram list
-	    igSet = (Set)ignoredChars.get(0);
+	    counted = countedCodes((Set)ignoredChars.get(0), false);
+	    NGramCounter counter = getStatistics(counted).getCounter();
 	    freqs = new ArrayList[3];
-	    for(int i=0; i<3; i++){
-		freqs[i] = new ArrayList();
-	    }
-	    while(iter.hasNext()){
-		uCharKey = (CollationKey)iter.next();
-		uChar = uCharKey.getSourceString();
-		isCtrl = Character.isISOControl(uChar.charAt(0));
-		isWhite = Character.isWhitespace(uChar.charAt(0));
-		isIgnored = igSet.contains(uCharKey);
-		if(!isIgnored && 
-		   (!(isCtrl || isWhite) ||
-		    (isCtrl && !ignoreControl) || (isWhite && !ignoreWhite))){
-		    add(uCharKey, freqs[0]);
-		    if(prevUChar != null){
-			sb.delete(0, sb.length());
-			String tmp = sb.append(prevUChar).append(lastUChar).append(uChar).toString();
-			add(collator.getCollationKey(tmp), freqs[2]);
-		    }
-		    if(lastUChar != null){
-			sb.delete(0, sb.length());
-			String tmp = sb.append(lastUChar).append(uChar).toString();
-			add(collator.getCollationKey(tmp), freqs[1]);
-			prevUChar = lastUChar;
-		    }
-		    lastUChar = uChar;
-		}
-	    }
+	    freqs[0] = counter.getStringFreqs(1, symbols, collator);
+	    freqs[1] = counter.getStringFreqs(2, symbols, collator);
+	    freqs[2] = counter.getStringFreqs(3, symbols, collator);
 	}else{ // polyalphabetic
 	    int i; // the alphabet the current character is in
 	    freqs = new ArrayList[numAlpha];
+	    boolean[][] countedAlpha = new boolean[numAlpha][];
+	    int[][] counts = new int[numAlpha][symbols.size()];
 	    for(i=0; i<numAlpha; i++){
 		freqs[i] = new ArrayList();
+		countedAlpha[i] = countedCodes((Set)ignoredChars.get(i), false);
 	    }
 	    i=0;
-	    while(iter.hasNext()){
-		igSet = (Set)ignoredChars.get(i);
-		uCharKey = (CollationKey)iter.next();
-		uChar = uCharKey.getSourceString();
-		isCtrl = Character.isISOControl(uChar.charAt(0));
-		isWhite = Character.isWhitespace(uChar.charAt(0));
-		isIgnored = igSet.contains(uCharKey);
-		if(!isIgnored && 
-		   (!(isCtrl || isWhite) ||
-		    (isCtrl && !ignoreControl) || (isWhite && !ignoreWhite))){
-		    add(uCharKey, freqs[i]);
+	    for(int j=0; j<ciphertextCodes.length; j++){
+		code = ciphertextCodes[j];
+		if(countedAlpha[i][code]){
+		    counts[i][symbolKey[code]]++;
 		    i++;
 		    i = i%numAlpha;
 		}
 	    }
+	    for(i=0; i<numAlpha; i++){
+		addCounts(counts[i], freqs[i]);
+	    }
 	}
 	return Arrays.asList(freqs);
     }
 
-    /**
-     * Adds a <code>StringFreq</code> with <code>strKey</code> and frequency 1
-     * to the ordered <code>List</code> <code>list</code> if it is not already
-     * in it and increments the number of occurrences otherwise.
-     *
-     * @param strKey the string's <code>CollationKey</code>
-     * @param list the ordered <code>List</code> of arrays of <code>Object</code>s
-     */
-    private static final void add(CollationKey strKey, java.util.List list){
-	StringFreqCollationKeyComparator csComp = new StringFreqCollationKeyComparator();
-	int idx = Collections.binarySearch(list, strKey, csComp);
-	if(idx>=0){ // increment the number of occurrences
-	    ((StringFreq)list.get(idx)).increment();
-	} else{ // add it to the list
-	    list.add(-(idx+1), new StringFreq(strKey, 1));
-	}
-    }
-
     /**
      * Method that gets the relative frequencies of the characters, digrams and
      * trigrams in the ciphertext in the case of a monoalphabetic cipher
@@ -328,73 +574,40 @@ public class CiphertextManager{
 	    throw new IllegalArgumentException("alphabets must contain at least one alphabet");
 	}
 	int numAlpha = alphabets.size();
-	Iterator iter = ciphertextAL.iterator();
-	Set alphaSet = null; //set of characters not to be ignored
-	/* sb is used to avoid the creation of StringBuffers caused by the 
-	   String operator + */
-	StringBuffer sb = new StringBuffer();
-	CollationKey uCharKey = null;
-	String uChar = null;
-	boolean isCtrl;    // true if the current character isISOControl
-	boolean isWhite;   // true if the current character isWhitespace
-	boolean isInAlpha; // true if the current character is in alphaSet
+	int code;          // the code of the current character
+	boolean[] counted; // the codes of the characters to count
 	ArrayList[] freqs; // used to store the relative frequencies
 	if(numAlpha == 1){ // monoalphabetic
-	    String prevUChar = null; //Used in the creation of the trigram list
-	    String lastUChar = null; //Used in the creation of the bigram list
-	    alphaSet = (Set)alphabets.get(0);
+	    counted = countedCodes((Set)alphabets.get(0), true);
+	    NGramCounter counter = getStatistics(counted).getCounter();
 	    freqs = new ArrayList[3];
-	    for(int i=0; i<3; i++){
-		freqs[i] = new ArrayList();
-	    }
+	    freqs[0] = new ArrayList();
 	    addAsStringFreqs((Set)alphabets.get(0), freqs[0]);
-	    while(iter.hasNext()){
-		uCharKey = (CollationKey)iter.next();
-		uChar = uCharKey.getSourceString();
-		isCtrl = Character.isISOControl(uChar.charAt(0));
-		isWhite = Character.isWhitespace(uChar.charAt(0));
-		isInAlpha = alphaSet.contains(uCharKey);
-		if(isInAlpha && 
-		   (!(isCtrl || isWhite) ||
-		    (isCtrl && !ignoreControl) || (isWhite && !ignoreWhite))){
-		    add(uCharKey, freqs[0]);
-		    if(prevUChar != null){
-			sb.delete(0, sb.length());
-			String tmp = sb.append(prevUChar).append(lastUChar).append(uChar).toString();
-			add(collator.getCollationKey(tmp), freqs[2]);
-		    }
-		    if(lastUChar != null){
-			sb.delete(0, sb.length());
-			String tmp = sb.append(lastUChar).append(uChar).toString();
-			add(collator.getCollationKey(tmp), freqs[1]);
-			prevUChar = lastUChar;
-		    }
-		    lastUChar = uChar;
-		}
-	    }
+	    addCountsTo(getCounts(counter), freqs[0]);
+	    freqs[1] = counter.getStringFreqs(2, symbols, collator);
+	    freqs[2] = counter.getStringFreqs(3, symbols, collator);
 	}else{ // polyalphabetic
 	    int i; // the alphabet the current character is in
 	    freqs = new ArrayList[numAlpha];
+	    boolean[][] countedAlpha = new boolean[numAlpha][];
+	    int[][] counts = new int[numAlpha][symbols.size()];
 	    for(i=0; i<numAlpha; i++){
 		freqs[i] = new ArrayList();
 		addAsStringFreqs((Set)alphabets.get(i), freqs[i]);
+		countedAlpha[i] = countedCodes((Set)alphabets.get(i), true);
 	    }
 	    i=0;
-	    while(iter.hasNext()){
-		alphaSet = (Set)alphabets.get(i);
-		uCharKey = (CollationKey)iter.next();
-		uChar = uCharKey.getSourceString();
-		isCtrl = Character.isISOControl(uChar.charAt(0));
-		isWhite = Character.isWhitespace(uChar.charAt(0));
-		isInAlpha = alphaSet.contains(uCharKey);
-		if(isInAlpha && 
-		   (!(isCtrl || isWhite) ||
-		    (isCtrl && !ignoreControl) || (isWhite && !ignoreWhite))){
-		    add(uCharKey, freqs[i]);
+	    for(int j=0; j<ciphertextCodes.length; j++){
+		code = ciphertextCodes[j];
+		if(countedAlpha[i][code]){
+		    counts[i][symbolKey[code]]++;
 		    i++;
 		    i = i%numAlpha;
 		}
 	    }
+	    for(i=0; i<numAlpha; i++){
+		addCountsTo(counts[i], freqs[i]);
+	    }
 	}
 	return Arrays.asList(freqs);
     }
@@ -433,35 +646,7 @@ public class CiphertextManager{
 	if(ignoredChars == null){
 	    throw new NullPointerException();
 	}
-	int numChars = 0; // stores the number of characters not to be ignored
-	double ci = 0; // coincidence index
-	ArrayList freqs = new ArrayList();
-	Iterator iter = ciphertextAL.iterator();
-	CollationKey uCharKey = null;
-	String uChar = null;
-	boolean isCtrl;    // true if the current character isISOControl
-	boolean isWhite;   // true if the current character isWhitespace
-	boolean isIgnored; // true if the current character is in ignoredChars
-	while(iter.hasNext()){
-	    uCharKey = (CollationKey)iter.next();
-	    uChar = uCharKey.getSourceString();
-	    isCtrl = Character.isISOControl(uChar.charAt(0));
-	    isWhite = Character.isWhitespace(uChar.charAt(0));
-	    isIgnored = ignoredChars.contains(uCharKey);
-	    if(!isIgnored && 
-	       (!(isCtrl || isWhite) ||
-		(isCtrl && !ignoreControl) || (isWhite && !ignoreWhite))){
-		add(uCharKey, freqs);
-		numChars++;
-	    }
-	}
-	double N2 = (double)numChars * (double)(numChars - 1);
-	int charFreq; // frequency of a user character
-	iter = freqs.iterator();
-	while(iter.hasNext()){
-	    charFreq = ((StringFreq)iter.next()).getFrequency();
-	    ci += ((double)charFreq * (double)(charFreq -1))/N2;
-	}
+	double ci = getStatistics(countedCodes(ignoredChars, false)).getCoincidenceIndex();
 	return ci;
     }
 
@@ -498,28 +683,61 @@ public class CiphertextManager{
 	double textCI = getCoincidenceIndex(ignoredChars);
 	double randCI = 1.0/(double)numCharsLang;
 	double diff = langCI - randCI;
-	int numCharsText = 0; //number of characters not to be ignored
-	CollationKey uCharKey = null;
-	String uChar = null;
-	boolean isCtrl;    // true if the current character isISOControl
-	boolean isWhite;   // true if the current character isWhitespace
-	boolean isIgnored; // true if the current character is in ignoredChars
-	for(Iterator iter = ciphertextAL.iterator(); iter.hasNext(); ){
-	    uCharKey = (CollationKey)iter.next();
-	    uChar = uCharKey.getSourceString();
-	    isCtrl = Character.isISOControl(uChar.charAt(0));
-	    isWhite = Character.isWhitespace(uChar.charAt(0));
-	    isIgnored = ignoredChars.contains(uCharKey);
-	    if(!isIgnored && 
-	       (!(isCtrl || isWhite) ||
-		(isCtrl && !ignoreControl) || (isWhite && !ignoreWhite))){
-		numCharsText++;
-	    }
-	}
+	//number of characters not to be ignored
+	long numCharsText = getStatistics(countedCodes(ignoredChars, false)).getNumberOfCharacters();
 	double estimate = (diff*(double)numCharsText) / (textCI*(double)(numCharsText-1) - randCI*numCharsText + langCI);
 	return estimate;
     }
 
+    /**
+     * Returns the average coincidence index of the columns of the
+     * ciphertext for every period from 1 to <code>maxPeriod</code> (see
+     * <code>PeriodSpectrum</code>). The columns are taken from the
+     * ciphertext without the characters ignored, as in the Kasiski Test.
+     * The characters are counted by one thread per available processor.
+     *
+     * @param ignoreSet a <code>Set</code> that contains the
+     *                  <code>CollationKey</code>s of the characters to ignore
+     *                  (do as if they did not appear in the ciphertext)
+     * @param maxPeriod the largest period
+     * @throws NullPointerException if <code>ignoreSet</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>maxPeriod &lt; 1</code>
+     */
+    public PeriodSpectrum getPeriodSpectrum(Set ignoreSet, int maxPeriod)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(ignoreSet == null){
+	    throw new NullPointerException();
+	}else if(maxPeriod < 1){
+	    throw new IllegalArgumentException();
+	}
+	/* number the characters not to be ignored from 0, using the same
+	   number for characters with equal CollationKeys, so the tables of
+	   counts are as small as possible */
+	int[] index = new int[symbols.size()];
+	int numSymbols = 0;
+	Arrays.fill(index, -1);
+	for(int i=0; i<index.length; i++){
+	    if(!ignoreSet.contains(symbols.get(i)) && !isRemovable(i)){
+		if(symbolKey[i] == i){
+		    index[i] = numSymbols++;
+		}else{
+		    index[i] = index[symbolKey[i]];
+		}
+	    }
+	}
+	int[] ciphertextArr = new int[ciphertextCodes.length];
+	int arrLen = 0;
+	for(int i=0; i<ciphertextCodes.length; i++){
+	    if(index[ciphertextCodes[i]] != -1){
+		ciphertextArr[arrLen++] = index[ciphertextCodes[i]];
+	    }
+	}
+	return new PeriodSpectrum(ciphertextArr, arrLen,
+				  Math.max(numSymbols, 1), maxPeriod,
+				  Runtime.getRuntime().availableProcessors());
+    }
+
     /**
      * Returns a <code>String</code> with this <code>CiphertextManager</code>'s
      * ciphertext
@@ -544,11 +762,13 @@ public class CiphertextManager{
 	}
 	HashSet remHS = new HashSet(Arrays.asList(toBeRemoved));
 	StringBuffer sb = new StringBuffer();
-	CollationKey tmpCK;
-	for(Iterator iter=ciphertextAL.iterator(); iter.hasNext(); ){
-	    tmpCK = (CollationKey)iter.next();
-	    if(!remHS.contains(tmpCK)){
-		sb.append(tmpCK.getSourceString());
+	boolean[] removed = new boolean[symbols.size()];
+	for(int i=0; i<removed.length; i++){
+	    removed[i] = remHS.contains(symbols.get(i));
+	}
+	for(int i=0; i<ciphertextCodes.length; i++){
+	    if(!removed[ciphertextCodes[i]]){
+		sb.append(((CollationKey)symbols.get(ciphertextCodes[i])).getSourceString());
 	    }
 	}
 	return sb.toString();
@@ -568,16 +788,16 @@ public class CiphertextManager{
 	    throw new IllegalArgumentException();
 	}
 	StringBuffer sb = new StringBuffer(); //stores the new ciphertext
-	CollationKey uCharKey = null;
 	String uChar = null;
+	int code;
 	int maxCharsLine = 60; // maximum number of characters per line
 	int blocksInLine = 0;  // blocks that have been put in the line
 	String newline = System.getProperty("line.separator");
 	int i=0;
-	for(Iterator iter=ciphertextAL.iterator(); iter.hasNext(); ){
-	    uCharKey = (CollationKey)iter.next();
-	    uChar = uCharKey.getSourceString();
-	    if(!Character.isWhitespace(uChar.charAt(0))){
+	for(int j=0; j<ciphertextCodes.length; j++){
+	    code = ciphertextCodes[j];
+	    if(!symbolWhite[code]){
+		uChar = ((CollationKey)symbols.get(code)).getSourceString();
 		if(i<blockSize){
 		    sb.append(uChar);
 		    i++;
@@ -593,11 +813,10 @@ public class CiphertextManager{
 		}
 	    }
 	}
-	if(ciphertextAL.size()>0){
+	if(ciphertextCodes.length>0){
 	    sb.append(newline);
 	}
 	ciphertext = sb.toString();
-	ciphertextAL.clear();
 	initCiphertextAL();
 	fireStateChanged();
     }
@@ -615,7 +834,6 @@ public class CiphertextManager{
 	    throw new NullPointerException();
 	}
 	this.ciphertext = ciphertext;
-	ciphertextAL.clear();
 	initCiphertextAL();
 	fireStateChanged();
     }
@@ -633,153 +851,436 @@ public class CiphertextManager{
      */
     public String getPlaintext(ArrayList subst) throws NullPointerException,
 						       IllegalArgumentException
+    {
+	return getPlaintext(subst, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Method that returns a <code>String</code> where the first
+     * <code>maxLength</code> user characters of the ciphertext have been
+     * replaced according to <code>subst</code>. Used for previews, so the
+     * rest of the ciphertext is not replaced.<br/>
+     *
+     * The key is compiled into a table with an entry for every alphabet
+     * and user character, that is reused between calls, and the
+     * ciphertext decrypted with it into a <code>char</code> array of the
+     * size of the plaintext, so nothing else is allocated.
+     *
+     * @param subst an <code>ArrayList</code> of <code>HashMap</code>s. That
+     *              contains a <code>HashMap</code> for every alphabet the
+     *              substitution has.
+     * @param maxLength the number of user characters of the ciphertext
+     *                  replaced
+     * @throws NullPointerException if <code>subst</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>subst</code>'s size is <code>0</code> or <code>maxLength</code> is negative
+     * @see #getPlaintext(ArrayList)
+     */
+    public synchronized String getPlaintext(ArrayList subst, int maxLength)
+	throws NullPointerException, IllegalArgumentException
     {
 	if(subst == null){
 	    throw new NullPointerException();
-	}else if(subst.size() == 0){
+	}else if(subst.size() == 0 || maxLength < 0){
 	    throw new IllegalArgumentException();
 	}
 	int numAlpha = subst.size();
-	Iterator iter = ciphertextAL.iterator();
-	StringBuffer sb = new StringBuffer();
+	int numSymbols = symbols.size();
+	if(keyTable == null || keyTable.length != numAlpha
+	   || keyTable[0].length != numSymbols){
+	    keyTable = new int[numAlpha][numSymbols];
+	    keyStrings = new String[numAlpha][numSymbols];
+	    keyAdvance = new boolean[numAlpha][numSymbols];
+	}
+	compileKey(subst, keyStrings, keyAdvance);
+	boolean singleChars = true;
+	int entry;
+	for(int i=0; i<numAlpha; i++){
+	    for(int j=0; j<numSymbols; j++){
+		if(keyStrings[i][j].length() == 1){
+		    entry = keyStrings[i][j].charAt(0);
+		}else{
+		    entry = MULTI_CHAR;
+		    singleChars = false;
+		}
+		keyTable[i][j] = keyAdvance[i][j] ? entry | ADVANCE : entry;
+	    }
+	}
+	int length = Math.min(maxLength, ciphertextCodes.length);
+	int i; // the alphabet the current character is in
+	int[] row;
+	int code;
+	// the size of the plaintext
+	int size = length;
+	if(!singleChars){
+	    size = 0;
+	    i = 0;
+	    row = keyTable[0];
+	    for(int j=0; j<length; j++){
+		code = ciphertextCodes[j];
+		entry = row[code];
+		size += (entry & MULTI_CHAR) == 0
+		    ? 1 : keyStrings[i][code].length();
+		if((entry & ADVANCE) != 0){
+		    i++;
+		    i = i%numAlpha;
+		    row = keyTable[i];
+		}
+	    }
+	}
+	char[] buff = new char[size];
+	int k = 0; // the position in buff
+	i = 0;
+	row = keyTable[0];
+	for(int j=0; j<length; j++){
+	    code = ciphertextCodes[j];
+	    entry = row[code];
+	    if((entry & MULTI_CHAR) == 0){
+		buff[k++] = (char)entry;
+	    }else{
+		String r = keyStrings[i][code];
+		r.getChars(0, r.length(), buff, k);
+		k += r.length();
+	    }
+	    if((entry & ADVANCE) != 0){
+		i++;
+		i = i%numAlpha;
+		row = keyTable[i];
+	    }
+	}
+	return new String(buff);
+    }
+
+    /**
+     * Computes the replacement of every code in every alphabet of
+     * <code>subst</code>, and whether the alphabet changes after it. The
+     * user characters that are not in the alphabets are left as they are,
+     * and those that are but have no replacement are replaced with a
+     * space.
+     *
+     * @param subst an <code>ArrayList</code> with a <code>HashMap</code>
+     *              for every alphabet
+     * @param repl where the replacements are stored, with a row of
+     *             <code>symbols.size()</code> for every alphabet
+     * @param advance where it is stored whether the alphabet changes, with
+     *                the same dimensions as <code>repl</code>
+     */
+    final void compileKey(ArrayList subst, String[][] repl,
+			  boolean[][] advance)
+    {
 	HashMap substMono = null;
 	CollationKey ciphChar = null;
 	CollationKey plnChar = null;
-	int i=0; // the alphabet the current character is in
-	while(iter.hasNext()){
+	for(int i=0; i<repl.length; i++){
 	    substMono = (HashMap)subst.get(i);
-	    ciphChar = (CollationKey)iter.next();
-	    plnChar = (CollationKey)substMono.get(ciphChar);
-	    if(plnChar == null){
-		if(substMono.containsKey(ciphChar)){
-		    sb.append(' ');
-		    i++;
+	    for(int j=0; j<repl[i].length; j++){
+		ciphChar = (CollationKey)symbols.get(j);
+		plnChar = (CollationKey)substMono.get(ciphChar);
+		if(plnChar == null){
+		    if(substMono.containsKey(ciphChar)){
+			repl[i][j] = " ";
+			advance[i][j] = true;
+		    }else{
+			repl[i][j] = ciphChar.getSourceString();
+			advance[i][j] = false;
+		    }
 		}else{
-		    sb.append(ciphChar.getSourceString());
+		    repl[i][j] = plnChar.getSourceString();
+		    advance[i][j] = true;
 		}
+	    }
+	}
+    }
+
+    /**
+     * Returns a <code>PlaintextModel</code> of the ciphertext, that renders
+     * its lines on demand. The same model is returned every time; it
+     * follows the changes of the ciphertext when its key is set.
+     *
+     * @see PlaintextModel#setKey(ArrayList)
+     */
+    public PlaintextModel getPlaintextModel(){
+	if(plaintextModel == null){
+	    plaintextModel = new PlaintextModel(this);
+	}
+	return plaintextModel;
+    }
+
+    /**
+     * Returns the ciphertext as an array with the index in
+     * <code>alphabet</code> of every one of its user characters. The
+     * characters in <code>ignoreSet</code>, those that are not in
+     * <code>alphabet</code> and, depending on <code>ignoreWhite</code> and
+     * <code>ignoreControl</code>, white spaces and control characters are
+     * left out.
+     *
+     * @param ignoreSet a <code>Set</code> that contains the
+     *                  <code>CollationKey</code>s of the characters to ignore
+     * @param alphabet a sorted <code>List</code> of <code>CollationKey</code>s
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     */
+    public int[] getCodes(Set ignoreSet, java.util.List alphabet)
+	throws NullPointerException
+    {
+	if(ignoreSet == null || alphabet == null){
+	    throw new NullPointerException();
+	}
+	int[] index = new int[symbols.size()];
+	for(int i=0; i<index.length; i++){
+	    if(ignoreSet.contains(symbols.get(i)) || isRemovable(i)){
+		index[i] = -1;
 	    }else{
-		sb.append(plnChar.getSourceString());
-		i++;
+		index[i] = Collections.binarySearch(alphabet, symbols.get(i));
 	    }
-	    i = i%numAlpha;
 	}
-	return sb.toString();
+	int[] codes = new int[ciphertextCodes.length];
+	int numCodes = 0;
+	for(int i=0; i<ciphertextCodes.length; i++){
+	    if(index[ciphertextCodes[i]] >= 0){
+		codes[numCodes++] = index[ciphertextCodes[i]];
+	    }
+	}
+	int[] ret = new int[numCodes];
+	System.arraycopy(codes, 0, ret, 0, numCodes);
+	return ret;
+    }
+
+    /**
+     * Returns the words of the ciphertext, every one of them as an array
+     * with the index in <code>alphabet</code> of its user characters. The
+     * words are separated by the characters in <code>ignoreSet</code>,
+     * those that are not in <code>alphabet</code> and, depending on
+     * <code>ignoreWhite</code> and <code>ignoreControl</code>, white spaces
+     * and control characters, so the ciphertext must keep the spaces
+     * between the words of the plaintext.
+     *
+     * @param ignoreSet a <code>Set</code> that contains the
+     *                  <code>CollationKey</code>s of the characters that
+     *                  separate words
+     * @param alphabet a sorted <code>List</code> of <code>CollationKey</code>s
+     * @return an <code>ArrayList</code> with the <code>int[]</code> of
+     *         every word, in the order they appear in the ciphertext
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @see #getCodes(Set, java.util.List)
+     */
+    public ArrayList getWords(Set ignoreSet, java.util.List alphabet)
+	throws NullPointerException
+    {
+	if(ignoreSet == null || alphabet == null){
+	    throw new NullPointerException();
+	}
+	int[] index = new int[symbols.size()];
+	for(int i=0; i<index.length; i++){
+	    if(ignoreSet.contains(symbols.get(i)) || isRemovable(i)){
+		index[i] = -1;
+	    }else{
+		index[i] = Collections.binarySearch(alphabet, symbols.get(i));
+	    }
+	}
+	ArrayList words = new ArrayList();
+	int start = 0;
+	for(int i=0; i<=ciphertextCodes.length; i++){
+	    if(i == ciphertextCodes.length || index[ciphertextCodes[i]] < 0){
+		if(i > start){
+		    int[] word = new int[i - start];
+		    for(int j=0; j<word.length; j++){
+			word[j] = index[ciphertextCodes[start + j]];
+		    }
+		    words.add(word);
+		}
+		start = i+1;
+	    }
+	}
+	return words;
     }
 
     /**
      * Performs the Kasiski Test on the ciphertext an returns a 
      * <code>List</code> of <code>KasiskiEntries</code> with the data.
+     * Equivalent to <code>getKasiski(ignoreSet, 2, Integer.MAX_VALUE)</code>.
      *
      * @param ignoreSet a <code>Set</code> that contains the
      *                  <code>CollationKey</code>s of the characters to ignore
      *                  (do as if they did not appear in the ciphertext) while
      *                  applying the Kasiski Test.
+     * @see #getKasiski(Set, int, int)
      */
     public ArrayList getKasiski(Set ignoreSet) throws NullPointerException
+    {
+	return getKasiski(ignoreSet, 2, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs the Kasiski Test on the ciphertext an returns a 
+     * <code>List</code> of <code>KasiskiEntries</code> with the maximal
+     * repeats (sequences that appear more than once and can not be made
+     * longer without losing an occurrence) whose length is between
+     * <code>minLen</code> and <code>maxLen</code>; a longer repeat is
+     * reported as its first <code>maxLen</code> characters. The positions
+     * are indices in the ciphertext without the characters ignored.
+     * Equivalent to <code>getKasiski(ignoreSet, minLen, maxLen, null)</code>.
+     *
+     * @param ignoreSet a <code>Set</code> that contains the
+     *                  <code>CollationKey</code>s of the characters to ignore
+     *                  (do as if they did not appear in the ciphertext) while
+     *                  applying the Kasiski Test.
+     * @param minLen the minimum length of the sequences, in user characters
+     * @param maxLen the maximum length of the sequences, in user characters
+     * @throws NullPointerException if <code>ignoreSet</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>minLen &lt; 2</code> or <code>maxLen &lt; minLen</code>
+     * @see #getKasiski(Set, int, int, SearchMonitor)
+     */
+    public ArrayList getKasiski(Set ignoreSet,
+				int minLen,
+				int maxLen) throws NullPointerException,
+						   IllegalArgumentException
+    {
+	return getKasiski(ignoreSet, minLen, maxLen, null);
+    }
+
+    /**
+     * Performs the Kasiski Test on the ciphertext an returns a 
+     * <code>List</code> of <code>KasiskiEntries</code> with the maximal
+     * repeats (sequences that appear more than once and can not be made
+     * longer without losing an occurrence) whose length is between
+     * <code>minLen</code> and <code>maxLen</code>, sorted from the longest
+     * to the shortest (see <code>KasiskiEntry.compareTo</code>). A repeat
+     * longer than <code>maxLen</code> is reported as its first
+     * <code>maxLen</code> characters, with all the positions where they
+     * appear (see <code>SuffixArray.findMaximalRepeats</code>). The
+     * positions are indices in the ciphertext without the characters
+     * ignored.<br/>
+     *
+     * The repeats are found with the suffix array of the ciphertext
+     * (see <code>SuffixArray</code>) in O(n log n) time, and their
+     * distances factorized with the shared <code>PrimeSieve</code>. They
+     * are first collected as primitive triples and sorted, and then the
+     * entries are created in order, so <code>monitor</code> can be given
+     * the longest ones while the rest are created. The entries don't
+     * store their sequences, they build them from the ciphertext when they
+     * are asked for.<br/>
+     *
+     * Every so often <code>monitor.improved</code> is passed an
+     * unmodifiable <code>List</code> with the entries created so far, in
+     * order, and the number of entries as the score; every list starts
+     * with the entries of the previous one. If the monitor is cancelled,
+     * the entries created so far are returned.
+     *
+     * @param ignoreSet a <code>Set</code> that contains the
+     *                  <code>CollationKey</code>s of the characters to ignore
+     *                  (do as if they did not appear in the ciphertext) while
+     *                  applying the Kasiski Test.
+     * @param minLen the minimum length of the sequences, in user characters
+     * @param maxLen the maximum length of the sequences, in user characters
+     * @param monitor follows the search, may be <code>null</code>
+     * @throws NullPointerException if <code>ignoreSet</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>minLen &lt; 2</code> or <code>maxLen &lt; minLen</code>
+     */
+    public ArrayList getKasiski(Set ignoreSet,
+				int minLen,
+				int maxLen,
+				SearchMonitor monitor)
+	throws NullPointerException, IllegalArgumentException
     {
 	if(ignoreSet == null){
 	    throw new NullPointerException();
+	}else if(minLen < 2 || maxLen < minLen){
+	    throw new IllegalArgumentException();
 	}
-	/* maps the character sequences to an array of Objects of length 2 that
-	   contans their length in user characters (according to charIterator)
-	   and positions in the text */
-	HashMap seqPosHM = new HashMap();
-	StringBuffer sb = new StringBuffer();
-	ArrayList ctxtMinusIgnAL= (ArrayList)ciphertextAL.clone();
-	CollationKey uCharKey;
-	String uChar;
-	boolean isCtrl;    // true if the character isISOControl
-	boolean isWhite;   // true if the character isWhitespace
-	//remove the characters to be ignored from ctxtMinusIgnAl
-	for(Iterator iter=ctxtMinusIgnAL.iterator(); iter.hasNext(); ){
-	    uCharKey = (CollationKey)iter.next();
-	    uChar = uCharKey.getSourceString();
-	    isCtrl = Character.isISOControl(uChar.charAt(0));
-	    isWhite = Character.isWhitespace(uChar.charAt(0));
-	    if(ignoreSet.contains(uCharKey) || 
-	       (isCtrl && ignoreControl) || (isWhite && ignoreWhite)){
-		iter.remove();
+	/* number the characters not to be ignored in alphabetical order,
+	   using the same code for characters with equal CollationKeys, so
+	   the suffixes are sorted in the order of the sequences */
+	boolean[] removed = new boolean[symbols.size()];
+	ArrayList keys = new ArrayList();
+	for(int i=0; i<removed.length; i++){
+	    removed[i] = ignoreSet.contains(symbols.get(i)) || isRemovable(i);
+	    if(!removed[i] && symbolKey[i] == i){
+		keys.add(symbols.get(i));
 	    }
 	}
-	// put the characters in ctxtMinusIgnAl in an array
-	CollationKey[] ciphertextArr = {};
-	ciphertextArr = (CollationKey[])ctxtMinusIgnAL.toArray(ciphertextArr);
-	/* Find the repeated sequences by "moving" the array to the left (i)
-	   and comparing the shifted characters to those that were not (j).
-	   Then add the substrings of the long sequences, since they are 
-	   repeated sequences too. */
-	for(int i=1; i<ciphertextArr.length; i++){
-	    for(int j=0; i+j<ciphertextArr.length; j++){
-		int k;
-		for(k=j; i+k<ciphertextArr.length &&
-			 ciphertextArr[i+k].equals(ciphertextArr[k]); k++);
-		if(k>j+1){
-		    int seqLen = k-j;
-		    //get substrings and  positions
-		    for(int m=2; m<=seqLen; m++){
-			for(int n=j; n+m<=k; n++){
-			    String str = substring(ciphertextArr, n, n+m, sb);
-			    sb.delete(0, sb.length());
-			    CollationKey seqCK = collator.getCollationKey(str);
-			    //stores the positions the sequence appears in
-			    HashSet hs;
-			    /* since the length of the string in user 
-			       characters depends on the locale and that number
-			       is needed later on, we store it at
-			       strLen_hs[0] and put hs in strLen_hs[1]. */
-			    Object[] strLen_hs;
-			    if(seqPosHM.containsKey(seqCK)){
-				hs=(HashSet)((Object[])seqPosHM.get(seqCK))[1];
-				hs.add(new Integer(n));
-				hs.add(new Integer(i+n));
-			    }else{
-				hs = new HashSet();
-				hs.add(new Integer(n));
-				hs.add(new Integer(i+n));
-				strLen_hs = new Object[2];
-				strLen_hs[0] = new Integer(m);
-				strLen_hs[1]= hs;
-				seqPosHM.put(seqCK, strLen_hs);
-			    }
+	Collections.sort(keys);
+	String[] strings = new String[keys.size()];
+	for(int i=0; i<strings.length; i++){
+	    strings[i] = ((CollationKey)keys.get(i)).getSourceString();
+	}
+	int[] rank = new int[removed.length];
+	for(int i=0; i<rank.length; i++){
+	    rank[i] = removed[i] ? -1
+		: Collections.binarySearch(keys, symbols.get(symbolKey[i]));
+	}
+	int[] ciphertextArr = new int[ciphertextCodes.length];
+	int arrLen = 0;
+	for(int i=0; i<ciphertextCodes.length; i++){
+	    if(!removed[ciphertextCodes[i]]){
+		ciphertextArr[arrLen++] = rank[ciphertextCodes[i]];
+	    }
+	}
+	// build the sieve the entries factorize their distances with once
+	PrimeSieve.getShared(Math.max(1, arrLen));
+	SuffixArray suffixArr = new SuffixArray(ciphertextArr, arrLen,
+						strings.length);
+	if(monitor != null && monitor.isCancelled()){
+	    return new ArrayList();
+	}
+	// collect the repeats: their length and interval of the suffix array
+	final int[][] repeats = new int[3][1024];
+	final int[] numRepeats = new int[1];
+	suffixArr.findMaximalRepeats(minLen, maxLen,
+				     new SuffixArray.RepeatHandler(){
+		public void repeat(int length, int[] sa, int from, int to){
+		    int n = numRepeats[0];
+		    if(n == repeats[0].length){
+			for(int k=0; k<3; k++){
+			    int[] tmp = new int[n*2];
+			    System.arraycopy(repeats[k], 0, tmp, 0, n);
+			    repeats[k] = tmp;
 			}
 		    }
+		    repeats[0][n] = length;
+		    repeats[1][n] = from;
+		    repeats[2][n] = to;
+		    numRepeats[0]++;
 		}
-		if(k>j+1){
-		    j=k-1;
+	    });
+	/* sort them from the longest to the shortest. The repeats of the
+	   same length are disjoint intervals of the suffix array, found from
+	   left to right, so they are already in alphabetical order. */
+	int numEntries = numRepeats[0];
+	long[] order = new long[numEntries];
+	for(int i=0; i<numEntries; i++){
+	    order[i] = ((long)(Integer.MAX_VALUE - repeats[0][i]) << 32) | i;
+	}
+	Arrays.sort(order);
+	// create the entries in order
+	int[] sa = suffixArr.getSuffixArray();
+	KasiskiEntry.Source source = new KasiskiEntry.Source(ciphertextArr,
+							     strings,
+							     collator);
+	KasiskiEntry[] entries = new KasiskiEntry[numEntries];
+	java.util.List entryLst = Arrays.asList(entries);
+	int created = 0;
+	for(; created<numEntries; created++){
+	    if(monitor != null && created%KASISKI_BATCH == 0){
+		if(monitor.isCancelled()){
+		    break;
+		}else if(created > 0){
+		    monitor.improved(Collections.unmodifiableList(entryLst.subList(0, created)),
+				     created);
+		    monitor.progress(created, numEntries);
 		}
 	    }
+	    int r = (int)order[created];
+	    int from = repeats[1][r];
+	    int[] positions = new int[repeats[2][r] - from + 1];
+	    System.arraycopy(sa, from, positions, 0, positions.length);
+	    entries[created] = new KasiskiEntry(source, created,
+						repeats[0][r], positions);
 	}
-	ArrayList retLst = new ArrayList();
-	for(Iterator iter=seqPosHM.keySet().iterator(); iter.hasNext(); ){
-	    CollationKey seq = (CollationKey)iter.next();
-	    Object[] strLen_hs = (Object[])seqPosHM.get(seq);
-	    retLst.add(new KasiskiEntry(seq,
-					((Integer)strLen_hs[0]).intValue(),
-					(HashSet)strLen_hs[1]));
+	if(monitor != null){
+	    monitor.improved(Collections.unmodifiableList(entryLst.subList(0, created)),
+			     created);
+	    monitor.progress(created, numEntries);
 	}
-	return retLst;
-    }
-
-    /**
-     * Receives an array of <code>CollationKey</code>s, and stores the sequence
-     * of <code>String</code> represented by those between the indices
-     * <code>start</code> (inclusive) and <code>end</code> (exclusive)
-     * in the <code>StringBuffer</code>. If <code>sb</code> is not empty, the
-     * the substring is appended.
-     *
-     * @throws NullPointerException if <code>str</code> or <code>sb</code> are <code>null</code>
-     * @throws IndexOutOfBoundsException if <code>start</code> or <code>end</code> are out of bounds.
-     */
-    private static String substring(CollationKey[] str, 
-				    int start,
-				    int end,
-				    StringBuffer sb)
-	throws IndexOutOfBoundsException, NullPointerException
-    {
-	for(int i=start; i<end; i++){
-	    sb.append(str[i].getSourceString());
-	}
-	return sb.toString();
+	return new ArrayList(entryLst.subList(0, created));
     }
 
     /**
@@ -821,7 +1322,7 @@ public class CiphertextManager{
      * If the <code>Locale</code> passed is not equal to the one being used
      * then the <code>BreakIterator</code> being used 
      * (<code>charIterator</code>) is replaced with an instance that uses
-     * the new <code>Locale</code> and <code>ciphertextAL</code> is
+     * the new <code>Locale</code> and <code>ciphertextCodes</code> is
      * recalculated.<br/>
      * Note that the <code>Collator</code> being used is not changed.
      *
@@ -840,7 +1341,6 @@ public class CiphertextManager{
 	}
 	locale = loc;
 	charIterator = BreakIterator.getCharacterInstance(locale);
-	ciphertextAL.clear();
 	initCiphertextAL();
     }
 
@@ -858,7 +1358,7 @@ public class CiphertextManager{
     /**
      * Sets the <code>Collator</code> that the <code>CiphertextManager</code>
      * should use and generates new <code>CollationKey</code>s for
-     * <code>ciphertextAL</code>.<br/>
+     * <code>symbols</code>.<br/>
      * Note that the <code>Locale</code> being used is not changed.
      *
      * @param col the <code>Collator</code> the <code>CiphertextManager</code>
@@ -872,10 +1372,11 @@ public class CiphertextManager{
 	    throw new NullPointerException();
 	}
 	collator = col;
-	for(int i=0; i<ciphertextAL.size(); i++){
-	    ciphertextAL.set(i,
-			     collator.getCollationKey(((CollationKey)ciphertextAL.get(i)).getSourceString()));
+	for(int i=0; i<symbols.size(); i++){
+	    symbols.set(i,
+			collator.getCollationKey(((CollationKey)symbols.get(i)).getSourceString()));
 	}
+	initSymbolKey();
     }
 
     /**
@@ -951,46 +1452,62 @@ public class CiphertextManager{
 	    emptyIgn.add(new HashSet());
 	}
 	java.util.List freqs = cipherMan.getFrequencies(numAlpha, emptyIgn );
-
 	//GUI
-	JFrame frame = new JFrame("Substitution");
-	final JFrame statsFrame = new JFrame("Stats");
-	final StatsPanel statsPan = new StatsPanel(freqs, 
-						   numAlpha == 1 ? Substitution.MONOALPHABETIC : Substitution.POLYALPHABETIC);
-	statsPan.setPreferredSize(new Dimension(338, 422));
-	statsFrame.getContentPane().add(statsPan);
-	statsFrame.pack();
-	statsFrame.setVisible(true);
-	ArrayList alphaLst = cipherMan.getCipherAlphabet();
-	final Substitution subst = new Substitution(loc,
-						    collator,
-						    alphaLst,
-						    (ArrayList)alphaLst.clone());
-	subst.setNumberOfAlphabets(numAlpha);
-	ChangeListener change = new ChangeListener(){
-		public void stateChanged(ChangeEvent e){
-		    SubstitutionEvent se = (SubstitutionEvent)e;
-		    if(se.getChangeType()==SubstitutionEvent.IGNORED_CHARACTERS){
-			System.out.println("State changed");
-			java.util.List stats = cipherMan.getFrequencies(numAlpha, subst.getIgnoredCharacters());
-			int i=0;
-			Iterator iter = stats.iterator();
-			while(iter.hasNext()){
-			    statsPan.setTableData((ArrayList)iter.next(), i);
-			    i++;
+	TestFrames.show(cipherMan, loc, collator, freqs, numAlpha);
+    }
+
+    /**
+     * The windows of the program used to test the class. They are in a
+     * separate class so the Swing components are not loaded with
+     * <code>CiphertextManager</code>.
+     */
+    private static class TestFrames{
+
+	static void show(final CiphertextManager cipherMan,
+			 Locale loc,
+			 Collator collator,
+			 java.util.List freqs,
+			 final int numAlpha)
+	{
+	    JFrame frame = new JFrame("Substitution");
+	    final JFrame statsFrame = new JFrame("Stats");
+	    final StatsPanel statsPan = new StatsPanel(freqs, 
+						       numAlpha == 1 ? Substitution.MONOALPHABETIC : Substitution.POLYALPHABETIC);
+	    statsPan.setPreferredSize(new Dimension(338, 422));
+	    statsFrame.getContentPane().add(statsPan);
+	    statsFrame.pack();
+	    statsFrame.setVisible(true);
+	    ArrayList alphaLst = cipherMan.getCipherAlphabet();
+	    final Substitution subst = new Substitution(loc,
+							collator,
+							alphaLst,
+							(ArrayList)alphaLst.clone());
+	    subst.setNumberOfAlphabets(numAlpha);
+	    ChangeListener change = new ChangeListener(){
+		    public void stateChanged(ChangeEvent e){
+			SubstitutionEvent se = (SubstitutionEvent)e;
+			if(se.getChangeType()==SubstitutionEvent.IGNORED_CHARACTERS){
+			    System.out.println("State changed");
+			    java.util.List stats = cipherMan.getFrequencies(numAlpha, subst.getIgnoredCharacters());
+			    int i=0;
+			    Iterator iter = stats.iterator();
+			    while(iter.hasNext()){
+				statsPan.setTableData((ArrayList)iter.next(), i);
+				i++;
+			    }
+			}else{
+			    System.out.println("I don't care about this change");
 			}
-		    }else{
-			System.out.println("I don't care about this change");
 		    }
-		}
-	    };
-	subst.addChangeListener(change);
-	subst.setPreferredSize(new Dimension(400,
-					     subst.getPreferredSize().height));
-	frame.getContentPane().add(subst);
-	frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-	frame.pack();
-	frame.setVisible(true);
+		};
+	    subst.addChangeListener(change);
+	    subst.setPreferredSize(new Dimension(400,
+						 subst.getPreferredSize().height));
+	    frame.getContentPane().add(subst);
+	    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+	    frame.pack();
+	    frame.setVisible(true);
+	}
     }
 }
 /*
@@ -0,0 +1,309 @@
+/*
+ * -- CiphertextStatistics.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+/**
+ * Class that keeps the counts of the user characters, bigrams and
+ * trigrams of a ciphertext formed only by the characters that are
+ * being counted (those that are not ignored).<br/>
+ *
+ * When the set of characters counted changes, the counts are updated by
+ * looking only at the positions of the characters that were added or
+ * removed and at their neighbours, so ignoring a character costs time
+ * proportional to the number of times it appears instead of the length
+ * of the ciphertext.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class CiphertextStatistics{
+
+    /**
+     * The order of the largest n-grams counted (trigrams). */
+    private static final int ORDER = 3;
+
+    /**
+     * The ciphertext as an array of codes. */
+    protected int[] text;
+
+    /**
+     * For every code, the code it is counted as. */
+    protected int[] countAs;
+
+    /**
+     * For every code, the sorted positions in which it appears in
+     * <code>text</code>. */
+    protected int[][] positions;
+
+    /**
+     * For every code, <code>true</code> if it is being counted. */
+    protected boolean[] counted;
+
+    /**
+     * The counts of the user characters, bigrams and trigrams. */
+    protected NGramCounter counter;
+
+    /**
+     * Buffers used to build the sequences around the positions of
+     * a character being added or removed. */
+    private int[] seqWith = new int[64];
+
+    private int[] seqWithout = new int[64];
+
+    /**
+     * Creates a <code>CiphertextStatistics</code> for the ciphertext
+     * <code>text</code>. Initially no character is counted.
+     *
+     * @param text the ciphertext as an array of codes
+     *             (<code>0 &lt;= text[i] &lt; countAs.length</code>)
+     * @param countAs the code each code is counted as. Used to count
+     *                as one the characters with equal
+     *                <code>CollationKey</code>s
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     */
+    public CiphertextStatistics(int[] text, int[] countAs)
+	throws NullPointerException
+    {
+	if(text == null || countAs == null){
+	    throw new NullPointerException();
+	}
+	this.text = text;
+	this.countAs = countAs;
+	int numCodes = countAs.length;
+	int[] numPos = new int[numCodes];
+	for(int i=0; i<text.length; i++){
+	    numPos[text[i]]++;
+	}
+	positions = new int[numCodes][];
+	for(int i=0; i<numCodes; i++){
+	    positions[i] = new int[numPos[i]];
+	    numPos[i] = 0;
+	}
+	for(int i=0; i<text.length; i++){
+	    positions[text[i]][numPos[text[i]]++] = i;
+	}
+	counted = new boolean[numCodes];
+	counter = new NGramCounter(ORDER, numCodes);
+    }
+
+    /**
+     * Returns the sorted positions in which the character with code
+     * <code>code</code> appears in the ciphertext. The array returned
+     * must not be modified.
+     *
+     * @param code the code of a character
+     */
+    public int[] getPositions(int code){
+	return positions[code];
+    }
+
+    /**
+     * Sets the characters that should be counted and updates the counts.
+     * If only a few characters change, only their positions are looked at,
+     * otherwise the ciphertext is counted again.
+     *
+     * @param newCounted for every code, <code>true</code> if the character
+     *                   should be counted
+     * @throws NullPointerException if <code>newCounted</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>newCounted</code> does not have a value for every code
+     */
+    public void setCounted(boolean[] newCounted)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(newCounted.length != counted.length){
+	    throw new IllegalArgumentException();
+	}
+	long changedPos = 0; // positions of the characters that change
+	for(int i=0; i<counted.length; i++){
+	    if(counted[i] != newCounted[i]){
+		changedPos += positions[i].length;
+	    }
+	}
+	if(changedPos == 0){
+	    return;
+	}else if(changedPos > text.length/4){
+	    System.arraycopy(newCounted, 0, counted, 0, counted.length);
+	    recount();
+	}else{
+	    for(int i=0; i<counted.length; i++){
+		if(counted[i] != newCounted[i]){
+		    toggle(i, newCounted[i]);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Returns the <code>NGramCounter</code> with the current counts. It
+     * must not be modified.
+     */
+    public NGramCounter getCounter(){
+	return counter;
+    }
+
+    /**
+     * Returns the number of characters counted.
+     */
+    public long getNumberOfCharacters(){
+	return counter.getTotal(1);
+    }
+
+    /**
+     * Returns the coincidence index of the characters counted.
+     */
+    public double getCoincidenceIndex(){
+	long numChars = counter.getTotal(1);
+	double N2 = (double)numChars * (double)(numChars - 1);
+	double ci = 0;
+	int charFreq; // frequency of a user character
+	for(int i=0; i<countAs.length; i++){
+	    charFreq = counter.getCount(i);
+	    ci += ((double)charFreq * (double)(charFreq -1))/N2;
+	}
+	return ci;
+    }
+
+    /**
+     * Counts the characters, bigrams and trigrams of the whole ciphertext
+     * again.
+     */
+    private void recount(){
+	counter.clear();
+	int code;
+	for(int i=0; i<text.length; i++){
+	    code = text[i];
+	    if(counted[code]){
+		counter.add(countAs[code]);
+	    }
+	}
+    }
+
+    /**
+     * Starts or stops counting the character with code <code>code</code>
+     * and updates the counts.<br/>
+     *
+     * The occurrences of the character are put in groups, where the
+     * occurrences in a group have less than <code>ORDER-1</code> counted
+     * characters between them. For every group, the n-grams of the
+     * sequence of counted characters that goes from the
+     * <code>ORDER-1</code> counted characters before the group to the
+     * <code>ORDER-1</code> after it are taken out of the counts and the ones
+     * of the same sequence with (or without) the character are put in.
+     * The n-grams that are only formed by characters before or after the
+     * group do not change and are not touched.
+     *
+     * @param code the code of the character
+     * @param count <code>true</code> if the character should be counted
+     */
+    private void toggle(int code, boolean count){
+	counted[code] = false;
+	int[] pos = positions[code];
+	int i = 0;
+	while(i < pos.length){
+	    int first = pos[i];
+	    int last = pos[i];
+	    int j = i+1;
+	    while(j < pos.length){
+		int between = 0; // counted characters between occurrences
+		for(int p=last+1; p<pos[j] && between<ORDER-1; p++){
+		    if(counted[text[p]]){
+			between++;
+		    }
+		}
+		if(between < ORDER-1){
+		    last = pos[j];
+		    j++;
+		}else{
+		    break;
+		}
+	    }
+	    // the counted characters before the group
+	    int lStart = first;
+	    int lLen = 0;
+	    for(int p=first-1; p>=0 && lLen<ORDER-1; p--){
+		if(counted[text[p]]){
+		    lStart = p;
+		    lLen++;
+		}
+	    }
+	    // the counted characters after the group
+	    int rEnd = last;
+	    int rLen = 0;
+	    for(int p=last+1; p<text.length && rLen<ORDER-1; p++){
+		if(counted[text[p]]){
+		    rEnd = p;
+		    rLen++;
+		}
+	    }
+	    ensureSeqCapacity(rEnd - lStart + 1);
+	    int withLen = 0;
+	    int withoutLen = 0;
+	    for(int p=lStart; p<=rEnd; p++){
+		int c = text[p];
+		if(counted[c]){
+		    seqWith[withLen++] = countAs[c];
+		    seqWithout[withoutLen++] = countAs[c];
+		}else if(c == code){
+		    seqWith[withLen++] = countAs[c];
+		}
+	    }
+	    addNGrams(seqWith, withLen, lLen, rLen, count ? 1 : -1);
+	    addNGrams(seqWithout, withoutLen, lLen, rLen, count ? -1 : 1);
+	    i = j;
+	}
+	counted[code] = count;
+    }
+
+    /**
+     * Adds <code>delta</code> to the counts of the n-grams of
+     * <code>seq</code> that are not formed only by its first
+     * <code>lLen</code> or its last <code>rLen</code> characters.
+     */
+    private void addNGrams(int[] seq, int len, int lLen, int rLen, int delta){
+	for(int n=1; n<=ORDER; n++){
+	    for(int s=0; s+n<=len; s++){
+		if(s+n-1 < lLen || s >= len-rLen){
+		    continue;
+		}
+		counter.addCount(seq, s, n, delta);
+	    }
+	}
+    }
+
+    /**
+     * Makes sure <code>seqWith</code> and <code>seqWithout</code> have
+     * room for <code>len</code> codes.
+     */
+    private void ensureSeqCapacity(int len){
+	if(seqWith.length < len){
+	    int newLen = Math.max(len, seqWith.length*2);
+	    seqWith = new int[newLen];
+	    seqWithout = new int[newLen];
+	}
+    }
+}
+/*
+ * -- CiphertextStatistics.java ends here --
+ */
@@ -0,0 +1,223 @@
+/*
+ * -- FitnessScorer.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.*;
+import java.text.BreakIterator;
+import java.text.CollationKey;
+import java.text.Collator;
+
+/**
+ * Class that holds the tables the solvers use to score how much a
+ * plaintext looks like a language: the sum, over the n-grams of the
+ * plaintext, of the logarithm of the relative frequency of the n-gram in
+ * the language. Every order given (characters, bigrams, trigrams and
+ * quadgrams) adds its own sum.<br/>
+ *
+ * The logarithms are kept in one <code>float[]</code> per order, indexed
+ * by the indices of the characters of the n-gram in the plain alphabet as
+ * the digits of a number in base <code>numPlain</code>, so scoring an
+ * n-gram takes a single look up. The solvers read the tables directly
+ * (see <code>getTable</code>) because each one reduces the ciphertext to
+ * the n-grams its search changes.<br/>
+ *
+ * A <code>FitnessScorer</code> does not change once created, so a single
+ * instance can be shared by any number of threads without
+ * synchronization.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class FitnessScorer{
+
+    /**
+     * The largest order of the n-grams that can be used */
+    public static final int MAX_ORDER = 4;
+
+    /**
+     * The largest number of entries a table of logarithms can have. If the
+     * table of an order would be larger, the n-grams of that order are
+     * not used. */
+    static final int MAX_TABLE_SIZE = 1 << 24;
+
+    /**
+     * Number of characters of the plain alphabet */
+    private final int numPlain;
+
+    /**
+     * For every order <code>n</code>, at <code>n-1</code>, the table of
+     * logarithms of the relative frequencies of the n-grams of the plain
+     * alphabet. <code>null</code> if the order is not used. */
+    private final float[][] logFreq;
+
+    /**
+     * Creates the tables of the n-grams given that are formed by
+     * characters of <code>plainAlpha</code>. The n-grams that do not
+     * appear in the language are given a hundredth of the frequency of one
+     * that appears once.
+     *
+     * @param plainAlpha the plain alphabet, a sorted <code>List</code> of
+     *                   <code>CollationKey</code>s
+     * @param nGrams the <code>StringFreq</code>s of the n-grams of the
+     *               language, those of order <code>n</code> at
+     *               <code>n-1</code>; an element may be <code>null</code>
+     *               if the order is not to be used, and the elements past
+     *               <code>MAX_ORDER</code> are ignored
+     * @param locale used to find the user characters of the n-grams
+     * @param collator used to create the <code>CollationKey</code>s of the
+     *                 characters of the n-grams
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IllegalArgumentException if the plain alphabet is empty or no n-gram of the language can be used
+     */
+    public FitnessScorer(List plainAlpha,
+			 Collection[] nGrams,
+			 Locale locale,
+			 Collator collator) throws NullPointerException,
+						   IllegalArgumentException
+    {
+	if(plainAlpha == null || nGrams == null || locale == null ||
+	   collator == null){
+	    throw new NullPointerException();
+	}
+	numPlain = plainAlpha.size();
+	if(numPlain == 0){
+	    throw new IllegalArgumentException("Empty alphabet");
+	}
+	BreakIterator charIterator = BreakIterator.getCharacterInstance(locale);
+	logFreq = new float[MAX_ORDER][];
+	boolean found = false;
+	for(int n=1; n<=MAX_ORDER; n++){
+	    if(n <= nGrams.length && nGrams[n-1] != null){
+		logFreq[n-1] = initLogFreq(nGrams[n-1], n, plainAlpha,
+					   charIterator, collator);
+		found |= logFreq[n-1] != null;
+	    }
+	}
+	if(!found){
+	    throw new IllegalArgumentException("No n-grams of the plain alphabet");
+	}
+    }
+
+    /**
+     * Returns the table of logarithms of the relative frequencies of the
+     * n-grams of order <code>n</code> in <code>freqs</code> that are formed
+     * by characters of <code>plainAlpha</code>, or <code>null</code> if
+     * there are none or the table would be too large. The n-grams that do
+     * not appear in the language are given a hundredth of the frequency of
+     * one that appears once.
+     */
+    static final float[] initLogFreq(Collection freqs,
+				     int n,
+				     List plainAlpha,
+				     BreakIterator charIterator,
+				     Collator collator)
+    {
+	int numPlain = plainAlpha.size();
+	long size = 1;
+	for(int k=0; k<n; k++){
+	    size *= numPlain;
+	}
+	if(size > MAX_TABLE_SIZE){
+	    return null;
+	}
+	float[] table = new float[(int)size];
+	double total = 0;
+	boolean found = false;
+	for(Iterator iter=freqs.iterator(); iter.hasNext(); ){
+	    StringFreq sf = (StringFreq)iter.next();
+	    total += sf.getFrequency();
+	    String str = sf.getString();
+	    charIterator.setText(str);
+	    int start = charIterator.first();
+	    int end = charIterator.next();
+	    int index = 0;
+	    int k = 0;
+	    while(k < n && end != BreakIterator.DONE){
+		CollationKey ck = collator.getCollationKey(str.substring(start, end));
+		int code = Collections.binarySearch(plainAlpha, ck);
+		if(code < 0){
+		    break;
+		}
+		index = index*numPlain + code;
+		k++;
+		start = end;
+		end = charIterator.next();
+	    }
+	    if(k == n && end == BreakIterator.DONE){
+		table[index] += sf.getFrequency();
+		found = true;
+	    }
+	}
+	if(!found){
+	    return null;
+	}
+	float floor = (float)Math.log(0.01/total);
+	for(int i=0; i<table.length; i++){
+	    table[i] = table[i] == 0 ? floor : (float)Math.log(table[i]/total);
+	}
+	return table;
+    }
+
+    /**
+     * Returns the table of order <code>n</code>, or <code>null</code> if
+     * the order is not used. The table is shared, not copied, so it must
+     * not be changed.
+     */
+    final float[] getTable(int n){
+	return n < 1 || n > MAX_ORDER ? null : logFreq[n-1];
+    }
+
+    /**
+     * Returns the number of characters of the plain alphabet.
+     */
+    public int getNumberOfCharacters(){
+	return numPlain;
+    }
+
+    /**
+     * Returns <code>true</code> if the n-grams of order <code>n</code>
+     * are used to score the plaintexts.
+     *
+     * @param n the order
+     */
+    public boolean hasOrder(int n){
+	return getTable(n) != null;
+    }
+
+    /**
+     * Returns the largest order of the n-grams used to score the
+     * plaintexts.
+     */
+    public int getMaximumOrder(){
+	int n = MAX_ORDER;
+	while(logFreq[n-1] == null){
+	    n--;
+	}
+	return n;
+    }
+}
+/*
+ * -- FitnessScorer.java ends here --
+ */
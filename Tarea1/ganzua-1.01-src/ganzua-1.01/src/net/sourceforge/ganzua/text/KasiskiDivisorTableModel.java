@@ -0,0 +1,292 @@
+/*
+ * -- KasiskiDivisorTableModel.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.ResourceBundle;
+import java.util.Arrays;
+import java.text.NumberFormat;
+import java.text.DecimalFormat;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.InputEvent;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <code>TableModel</code> used to create <code>JTables</code> that display
+ * the histogram of the divisors of the distances found by the Kasiski
+ * Test: for every divisor, how many of the distances are its multiples
+ * and what percentage of all the distances they are. The user can sort
+ * the data by divisor or number of distances.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ * @see KasiskiEntry#countMultiples(java.util.List, int)
+ */
+public class KasiskiDivisorTableModel extends AbstractTableModel{
+
+    protected static final byte UNSORTED = 0;
+
+    protected static final byte SORTED_BY_DIVISOR = 4;
+
+    protected static final byte SORTED_BY_MULTIPLES = 2;
+
+    protected static final byte REVERSED = 1;
+
+    protected static final DecimalFormat df;
+
+    /**
+     * The number of distances that are multiples of every divisor, at the
+     * index of the divisor (the index <code>1</code> has the number of
+     * distances) */
+    protected int[] multiples = new int[0];
+
+    /**
+     * The divisor displayed in every row */
+    protected int[] rows = new int[0];
+
+    /**
+     * <code>ResourceBundle</code> with the localized names of the columns */
+    protected ResourceBundle labelsRB;
+
+    /**
+     * <code>byte</code> used to store the state of the table
+     * (<code>UNSORTED</code>, <code>SORTED_BY_DIVISOR</code>,
+     * <code>SORTED_BY_MULTIPLES</code>, <code>REVERSED</code>) */
+    protected byte state = UNSORTED;
+
+    static{
+	NumberFormat nf = DecimalFormat.getInstance(JComponent.getDefaultLocale());
+	if(nf instanceof DecimalFormat){
+	    df = (DecimalFormat)nf;
+	} else{
+	    df = new DecimalFormat();
+	}
+	df.applyPattern("0.##");
+    }
+
+    /**
+     * Constructor that sets the histogram displayed to
+     * <code>data</code>.
+     *
+     * @param data the number of distances that are multiples of every
+     *             divisor, as returned by
+     *             <code>KasiskiEntry.countMultiples</code>, or
+     *             <code>null</code> for an empty table
+     */
+    public KasiskiDivisorTableModel(int[] data){
+	labelsRB = ResourceBundle.getBundle(KasiskiDivisorTableModel.class.getName(),
+					    JComponent.getDefaultLocale());
+	setData(data);
+    }
+
+    /**
+     * Returns the number of columns in the model (<code>3</code>).
+     *
+     * @return the number of columns in the model (<code>3</code>)
+     */
+    public int getColumnCount(){
+	return 3;
+    }
+
+    /**
+     * Returns the name of the column <code>col</code> or <code>null</code>
+     * if no such column exists.
+     *
+     * @param col the column being queried
+     * @return the name of the column or <code>null</code> if no such column
+     *         exists
+     */
+    public String getColumnName(int col){
+	String ret;
+	switch(col){
+	case 0:
+	    ret = labelsRB.getString("divisor");
+	    break;
+	case 1:
+	    ret = labelsRB.getString("multiples");
+	    break;
+	case 2:
+	    ret = labelsRB.getString("percent");
+	    break;
+	default:
+	    ret = null;
+	    break;
+	}
+	return ret;
+    }
+
+    /**
+     * Returns the number of rows in the model
+     *
+     * @return the number of rows in the model
+     */
+    public int getRowCount(){
+	return rows.length;
+    }
+
+    /**
+     * Returns the value for the cell at <code>col</code> and <code>row</code>
+     *
+     * @param row the row's index
+     * @param col the column's index
+     */
+    public Object getValueAt(int row, int col){
+	int divisor = rows[row];
+	String ret = null;
+	switch(col){
+	case 0:
+	    ret = Integer.toString(divisor);
+	    break;
+	case 1:
+	    ret = Integer.toString(multiples[divisor]);
+	    break;
+	case 2:
+	    ret = multiples[1] == 0 ? ""
+		: df.format(100.0*multiples[divisor]/multiples[1]);
+	    break;
+	default:
+	    break;
+	}
+	return ret;
+    }
+
+    /**
+     * The class of all the cell values in the column.
+     *
+     * @return <code>String</code>
+     */
+    public Class getColumnClass(int col){
+	return String.class;
+    }
+
+    /**
+     * Sorts the data by <code>column</code> in ascending or descending order.
+     * Note that for column 1 (the column with the number of distances),
+     * ascending actually means descending (from the largest to the
+     * smallest). The rows are sorted as primitive keys that hold the
+     * number of distances and the divisor, so no objects are created.
+     *
+     * @param column the column to order by
+     * @param ascending true if the data should be sorded in ascending order,
+     *                  false otherwise
+     */
+    protected void sort(int column, boolean ascending){
+	if(column < 0 || column > 1){
+	    return;
+	}
+	byte prevState = state;
+	if(column == 0){
+	    if((state&SORTED_BY_DIVISOR) != SORTED_BY_DIVISOR){
+		for(int i=0; i<rows.length; i++){
+		    rows[i] = i+2;
+		}
+		state = SORTED_BY_DIVISOR;
+	    }
+	}else if((state&SORTED_BY_MULTIPLES) != SORTED_BY_MULTIPLES){
+	    // the most multiples first, and the smallest divisor on ties
+	    long[] keys = new long[rows.length];
+	    for(int d=2; d<multiples.length; d++){
+		keys[d-2] = ((long)(Integer.MAX_VALUE - multiples[d]) << 32) | d;
+	    }
+	    Arrays.sort(keys);
+	    for(int i=0; i<rows.length; i++){
+		rows[i] = (int)keys[i];
+	    }
+	    state = SORTED_BY_MULTIPLES;
+	}
+	if(!ascending && (state&REVERSED)!=REVERSED){
+	    reverse();
+	    state |= REVERSED;
+	}else if(ascending && (state&REVERSED)==REVERSED){
+	    reverse();
+	    state &= ~REVERSED;
+	}
+	if(state != prevState){
+	    fireTableDataChanged();
+	}
+    }
+
+    /**
+     * Reverses the order of <code>rows</code>.
+     */
+    private final void reverse(){
+	for(int i=0, j=rows.length-1; i<j; i++, j--){
+	    int tmp = rows[i];
+	    rows[i] = rows[j];
+	    rows[j] = tmp;
+	}
+    }
+
+    /**
+     * Sets the histogram displayed to <code>data</code>, keeping the order
+     * of the rows.
+     *
+     * @param data the number of distances that are multiples of every
+     *             divisor, as returned by
+     *             <code>KasiskiEntry.countMultiples</code>, or
+     *             <code>null</code> for an empty table
+     */
+    public void setData(int[] data){
+	byte sorted = state;
+	boolean ascending = !((sorted&REVERSED)==REVERSED);
+	state = UNSORTED;
+	multiples = data == null ? new int[0] : data;
+	rows = new int[Math.max(0, multiples.length - 2)];
+	if((sorted&SORTED_BY_MULTIPLES)==SORTED_BY_MULTIPLES){
+	    sort(1, ascending);
+	}else{
+	    sort(0, ascending);
+	}
+	fireTableDataChanged();
+    }
+
+    /**
+     * Adds the <code>MouseListener</code> needed to let the user sort the
+     * data.
+     *
+     * @param table the <code>JTable</code> created using this instance of
+     *              <code>KasiskiDivisorTableModel</code>
+     */
+    public void addMouseListenerToHeaderInTable(final JTable table){
+	table.setColumnSelectionAllowed(false);
+	MouseAdapter mouseListener = new MouseAdapter(){
+		public void mouseClicked(MouseEvent e){
+		    int viewCol = table.getColumnModel().getColumnIndexAtX(e.getX());
+		    int column = table.convertColumnIndexToModel(viewCol);
+		    if(e.getClickCount() == 1 && column != -1){
+			boolean ascending = (e.getModifiers()&InputEvent.SHIFT_MASK)==0;
+			sort(column, ascending);
+		    }
+		}
+	    };
+	table.getTableHeader().addMouseListener(mouseListener);
+    }
+}
+
+/*
+ * -- KasiskiDivisorTableModel.java ends here --
+ */
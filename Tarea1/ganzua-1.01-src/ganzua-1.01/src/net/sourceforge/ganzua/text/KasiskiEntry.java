@@ -25,15 +25,24 @@
 package net.sourceforge.ganzua.text;
 
 import java.text.CollationKey;
+import java.text.Collator;
 import java.util.Set;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Iterator;
 import java.util.Arrays;
 
 /**
  * Class used to store the data entries that results from performing Kasiski's
  * test on a cryptogram (character sequence, frequency, distance between
- * an occurrence an the next, prime factors of those distances).
+ * an occurrence an the next, prime factors of those distances).<br/>
+ *
+ * The distances are factorized with the shared <code>PrimeSieve</code>,
+ * which <code>CiphertextManager.getKasiski</code> builds up to the length
+ * of the text before creating the entries. The factors are not stored,
+ * they are computed every time they are asked for. The entries created by
+ * <code>getKasiski</code> don't store their sequence either: they share
+ * the text it is taken from, and build it only when it is asked for, so
+ * a large number of entries can be kept without their strings.
  *
  * @author Jesús Adolfo García Pasquel
  * @version 0.01 Feb 2004
@@ -41,9 +50,20 @@ import java.util.Arrays;
 public class KasiskiEntry implements Comparable{
 
     /**
-     * The sequence */
+     * The sequence, <code>null</code> if it is taken from
+     * <code>source</code> */
     protected CollationKey seq;
 
+    /**
+     * The text the sequence is taken from, <code>null</code> if it is
+     * in <code>seq</code> */
+    private Source source;
+
+    /**
+     * The index of this entry among those taken from <code>source</code>,
+     * in the order of <code>compareTo</code> */
+    private int order;
+
     /**
      * The sequence's length in user characters */
     protected int seqLen;
@@ -57,11 +77,6 @@ public class KasiskiEntry implements Comparable{
      * next. */
     protected int[] distances;
 
-    /**
-     * Stores the prime factors of the distances between occurrences
-     * <code>distances</code>. */
-    protected int[][] distFactors;
-
     /**
      * Constructor that sets the sequence to <code>sequence</code>, its
      * length in user characters to <code>sequenceLength</code> and the
@@ -97,7 +112,6 @@ public class KasiskiEntry implements Comparable{
 	seqLen = sequenceLength;
 	initPositions(positions);
 	initDistances();
-	initPrimeFactors();
     }
 
     /**
@@ -129,52 +143,6 @@ public class KasiskiEntry implements Comparable{
 	}
     }
 
-    /**
-     * Initializes <code>distFactors</code> using the numbers
-     * in <code>distances</code>
-     */
-    private final void initPrimeFactors(){
-	distFactors = new int[distances.length][];
-	for(int i=0; i<distances.length; i++){
-	    distFactors[i] = primeFactors(distances[i]);
-	}
-    }
-
-    /**
-     * Returns an array of integers with the prime factors of 
-     * <code>n</code>.
-     *
-     * @param n an <code>int</code> greater or equal to <code>1</code>
-     * @throws IllegalArgumentException if <code>n &lt; 1</code>
-     */
-    private static final int[] primeFactors(int n)
-	throws IllegalArgumentException
-    {
-	int[] factorArr;
-	if(n<1){
-	    throw new IllegalArgumentException();
-	}
-	if(n == 1){
-	    factorArr = new int[1];
-	    factorArr[0] = 1;
-	    return factorArr;
-	}
-	ArrayList factorLst = new ArrayList();
-	int factor=2;
-	while(n>1){
-	    while(n%factor==0){
-		factorLst.add(new Integer(factor));
-		n/=factor;
-	    }
-	    factor+= factor==2?1:2;
-	}
-	factorArr = new int[factorLst.size()];
-	int i=0;
-	for(Iterator iter=factorLst.iterator(); iter.hasNext(); i++){
-	    factorArr[i] = ((Integer)iter.next()).intValue();
-	}
-	return factorArr;
-    }
 
     /**
      * Constructor that sets the sequence to <code>sequence</code>, its
@@ -208,6 +176,30 @@ public class KasiskiEntry implements Comparable{
 	seqLen = sequenceLength;
 	this.positions = positions;
 	Arrays.sort(this.positions);
+	initDistances();
+    }
+
+    /**
+     * Constructor used by <code>CiphertextManager.getKasiski</code>, that
+     * takes the sequence from <code>source</code> when it is asked for.
+     *
+     * @param source the text the sequence is taken from
+     * @param order the index of the entry among those taken from
+     *              <code>source</code>, in the order of
+     *              <code>compareTo</code>
+     * @param sequenceLength the length of the sequence in user characters
+     * @param positions the indices the sequence appears in (without
+     *                  repetitions)
+     */
+    KasiskiEntry(Source source, int order, int sequenceLength,
+		 int[] positions)
+    {
+	this.source = source;
+	this.order = order;
+	seqLen = sequenceLength;
+	this.positions = positions;
+	Arrays.sort(this.positions);
+	initDistances();
     }
 
     /**
@@ -220,7 +212,10 @@ public class KasiskiEntry implements Comparable{
      * Note: The comparison is made using the length and alphabetical order 
      * of the sequences. Sorting <code>KasiskiEntry</code>s using this
      * method orders them from the one with longest sequence to the 
-     * one with the shortest.
+     * one with the shortest. The entries created by the same call to
+     * <code>CiphertextManager.getKasiski</code> are compared by the order
+     * it created them in, which is the same, without building their
+     * sequences.
      *
      * @param o an instance of <code>StringFreq</code>
      * @return A negative integer, zero, or a positive integer as this
@@ -232,7 +227,12 @@ public class KasiskiEntry implements Comparable{
     {
 	KasiskiEntry param = (KasiskiEntry)o;
 	int ret = param.seqLen - seqLen;
-	return ret != 0 ? ret : seq.compareTo(param.seq);
+	if(ret != 0){
+	    return ret;
+	}else if(source != null && source == param.source){
+	    return order - param.order;
+	}
+	return getSequence().compareTo(param.getSequence());
     }
 
     /**
@@ -241,7 +241,8 @@ public class KasiskiEntry implements Comparable{
      * @return the sequence
      */
     public CollationKey getSequence(){
-	return seq;
+	return seq != null ? seq
+	    : source.collator.getCollationKey(getSequenceAsString());
     }
 
     /**
@@ -250,7 +251,8 @@ public class KasiskiEntry implements Comparable{
      * @return the sequence in the form of a <code>String</code>.
      */
     public String getSequenceAsString(){
-	return seq.getSourceString();
+	return seq != null ? seq.getSourceString()
+	    : source.substring(positions[0], seqLen);
     }
 
     /**
@@ -293,14 +295,105 @@ public class KasiskiEntry implements Comparable{
 
     /**
      * Returns an array with the prime factors of the integers in 
-     * <code>distances</code>.
+     * <code>distances</code>, computed with the shared
+     * <code>PrimeSieve</code>. The factors of <code>1</code> are
+     * <code>{1}</code>.
      *
      * @return an array with the prime factors of the integers in
      *         <code>distances</code>
      */
     public int[][] getDistFactors(){
+	int[][] distFactors = new int[distances.length][];
+	// no distance is larger than the span of the positions
+	PrimeSieve sieve = PrimeSieve.getShared(Math.max(1,
+	    positions[positions.length-1] - positions[0]));
+	for(int i=0; i<distances.length; i++){
+	    distFactors[i] = distances[i] == 1 ? new int[]{1}
+					       : sieve.factor(distances[i]);
+	}
 	return distFactors;
     }
+
+    /**
+     * Returns, for every number <code>d</code> from <code>1</code> to
+     * <code>maxDivisor</code>, how many of the distances of all the
+     * <code>KasiskiEntry</code>s in <code>entries</code> are multiples of
+     * <code>d</code>, at the index <code>d</code> of the array (so the
+     * index <code>1</code> has the number of distances). The
+     * period of the cipher and its divisors divide most of the distances,
+     * so it is usually the largest number with a high count.<br/>
+     *
+     * Only the divisors of every distance up to <code>maxDivisor</code>
+     * are visited, generated from its prime factors.
+     *
+     * @param entries a <code>List</code> of <code>KasiskiEntry</code>s
+     * @param maxDivisor the largest divisor counted
+     * @throws NullPointerException if <code>entries</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>maxDivisor &lt; 2</code>
+     * @throws ClassCastException if <code>entries</code> contains an <code>Object</code> that is not a <code>KasiskiEntry</code>
+     */
+    public static int[] countMultiples(List entries, int maxDivisor)
+	throws NullPointerException, IllegalArgumentException,
+	       ClassCastException
+    {
+	if(entries == null){
+	    throw new NullPointerException();
+	}else if(maxDivisor < 2){
+	    throw new IllegalArgumentException("maxDivisor must be greater "+
+					       "than or equal to 2");
+	}
+	int[] counts = new int[maxDivisor+1];
+	int[] divisors = new int[maxDivisor];
+	PrimeSieve sieve = PrimeSieve.getShared(maxDivisor);
+	for(Iterator iter=entries.iterator(); iter.hasNext(); ){
+	    int[] dist = ((KasiskiEntry)iter.next()).distances;
+	    counts[1] += dist.length;
+	    for(int k=0; k<dist.length; k++){
+		int n = sieve.divisors(dist[k], maxDivisor, divisors);
+		for(int j=0; j<n; j++){
+		    counts[divisors[j]]++;
+		}
+	    }
+	}
+	return counts;
+    }
+
+    /**
+     * The text the sequences of the <code>KasiskiEntry</code>s created by
+     * a call to <code>CiphertextManager.getKasiski</code> are taken from.
+     */
+    static final class Source{
+
+	/**
+	 * The text, as indices in <code>strings</code> */
+	final int[] text;
+
+	/**
+	 * The user character of every code of <code>text</code> */
+	final String[] strings;
+
+	/**
+	 * Used to create the <code>CollationKey</code>s of the sequences */
+	final Collator collator;
+
+	Source(int[] text, String[] strings, Collator collator){
+	    this.text = text;
+	    this.strings = strings;
+	    this.collator = collator;
+	}
+
+	/**
+	 * Returns the <code>length</code> user characters of the text from
+	 * <code>start</code>.
+	 */
+	String substring(int start, int length){
+	    StringBuffer sb = new StringBuffer(length);
+	    for(int i=start; i<start+length; i++){
+		sb.append(strings[text[i]]);
+	    }
+	    return sb.toString();
+	}
+    }
 }
 
 /*
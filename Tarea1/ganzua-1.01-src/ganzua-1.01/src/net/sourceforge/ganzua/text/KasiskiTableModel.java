@@ -26,6 +26,7 @@ package net.sourceforge.ganzua.text;
 
 import java.util.ResourceBundle;
 import java.util.List;
+import java.util.Arrays;
 import java.util.Collections;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -39,6 +40,11 @@ import javax.swing.event.TableModelEvent;
 /**
  * <code>TableModel</code> used to create <code>JTables</code> that display
  * the data contained in a <code>List</code> of <code>KasiskiEntry</code>s.
+ * The list is kept in the order of the sequences and never rearranged:
+ * the rows are mapped to it through an index, and the cells are only
+ * formatted when the table asks for them, so just the entries in the
+ * visible rows build their sequences and factors. More entries can be
+ * appended while the Kasiski Test runs (see <code>appendData</code>).
  *
  * @author Jesús Adolfo García Pasquel
  * @version 0.01 Mar 2004
@@ -54,17 +60,18 @@ public class KasiskiTableModel extends AbstractTableModel
 
     protected static final byte REVERSED = 1;
 
-    /**
-     * Comparator used to sort <code>keLst</code> by frequency in descending
-     * order.
-     */
-    protected static final KasiskiEntryFreqComparator kefComp = new KasiskiEntryFreqComparator();
-
     /**
      * <code>List</code> of <code>KasiskiEntry</code>s that stores the data 
-     * to be displayed in the table. */
+     * to be displayed in the table, sorted as by
+     * <code>KasiskiEntry.compareTo</code>. */
     protected List keLst;
 
+    /**
+     * The index in <code>keLst</code> of the entry displayed in every row
+     * when sorted by frequency (before reversing), <code>null</code> if
+     * it has to be computed again. */
+    private int[] freqRows;
+
     /**
      * <code>ResourceBundle</code> with the localized names of the columns */
     protected ResourceBundle labelsRB;
@@ -78,7 +85,8 @@ public class KasiskiTableModel extends AbstractTableModel
     /**
      * Constructor that sets the list of <code>KasiskiEntry</code>s that
      * stores the table's data (<code>keLst</code>) to <code>data</code>.
-     * <code>keLst</code> is a shallow copy of <code>data</code>.
+     * <code>data</code> is sorted if it is not in the order of the
+     * sequences.
      *
      * @param data a <code>List</code> of <code>KasiskiEntry</code>s
      * @throws NullPointerException if <code>data</code> is <code>null</code>
@@ -88,6 +96,7 @@ public class KasiskiTableModel extends AbstractTableModel
 	    throw new NullPointerException();
 	}
 	keLst = data;
+	sortData();
 	labelsRB = ResourceBundle.getBundle(KasiskiTableModel.class.getName(),
 					    JComponent.getDefaultLocale());
 	sort(0, true);
@@ -150,16 +159,17 @@ public class KasiskiTableModel extends AbstractTableModel
     public Object getValueAt(int row, int col){
 	String ret = null;
 	StringBuffer sb;
+	KasiskiEntry entry = (KasiskiEntry)keLst.get(getEntryIndex(row));
 	switch(col){
 	case 0:
-	    ret = ((KasiskiEntry)keLst.get(row)).getSequenceAsString();
+	    ret = entry.getSequenceAsString();
 	    break;
 	case 1:
-	    ret = Integer.toString(((KasiskiEntry)keLst.get(row)).getFrequency());
+	    ret = Integer.toString(entry.getFrequency());
 	    break;
 	case 2:
 	    sb = new StringBuffer();
-	    int[] distances = ((KasiskiEntry)keLst.get(row)).getDistances();
+	    int[] distances = entry.getDistances();
 	    int last = distances.length-1;
 	    for(int i=0; i<last; i++){
 		sb.append(distances[i]).append(", ");
@@ -169,7 +179,7 @@ public class KasiskiTableModel extends AbstractTableModel
 	    break;
 	case 3:
 	    sb = new StringBuffer();
-	    int[][] distFactors = ((KasiskiEntry)keLst.get(row)).getDistFactors();
+	    int[][] distFactors = entry.getDistFactors();
 	    int i;
 	    int j;
 	    for(i=0; i<distFactors.length-1; i++){
@@ -218,7 +228,8 @@ public class KasiskiTableModel extends AbstractTableModel
      * Sorts the data by <code>column</code> in ascending or descending order.
      * Note that for column 1 (the column with the frequencies), ascending
      * actually means descending (from the most frequent to the least 
-     * frequent).
+     * frequent). Only the state changes; the rows are mapped to the
+     * entries when they are displayed.
      *
      * @param column the column to order by
      * @param ascending true if the data should be sorded in ascending order,
@@ -230,20 +241,12 @@ public class KasiskiTableModel extends AbstractTableModel
 	}
 	byte prevState = state;
 	if(column==0){ 
-	    if((state&SORTED_BY_SEQUENCE_LENGTH) != SORTED_BY_SEQUENCE_LENGTH){
-		Collections.sort(keLst);
-		state = SORTED_BY_SEQUENCE_LENGTH;
-	    }
-	}else if((state&SORTED_BY_FREQUENCY) != SORTED_BY_FREQUENCY){
-	    Collections.sort(keLst, kefComp);
+	    state = SORTED_BY_SEQUENCE_LENGTH;
+	}else{
 	    state = SORTED_BY_FREQUENCY;
 	}
-	if(!ascending && (state&REVERSED)!=REVERSED){
-	    Collections.reverse(keLst);
+	if(!ascending){
 	    state |= REVERSED;
-	}else if(ascending && (state&REVERSED)==REVERSED){
-		Collections.reverse(keLst);
-		state &= ~REVERSED;
 	}
 	if(state != prevState){
 	    tableChanged();
@@ -251,10 +254,59 @@ public class KasiskiTableModel extends AbstractTableModel
     }
 
     /**
-     * Sets the table's data to that in <code>data</code>.
-     * (<code>keLst</code> becomes a shallow copy of <code>data</code>)
+     * Returns the index in <code>keLst</code> of the entry displayed in
+     * the row <code>row</code>. The rows sorted by sequence are the
+     * entries in the order of <code>keLst</code>; those sorted by
+     * frequency are found by sorting primitive keys with the frequency and
+     * the index of every entry, the first time they are needed after the
+     * data changes.
+     *
+     * @param row the row's index
+     */
+    protected int getEntryIndex(int row){
+	if((state&REVERSED) == REVERSED){
+	    row = keLst.size() - 1 - row;
+	}
+	if((state&SORTED_BY_FREQUENCY) != SORTED_BY_FREQUENCY){
+	    return row;
+	}
+	if(freqRows == null){
+	    // the most frequent first, and in the order of keLst on ties
+	    long[] keys = new long[keLst.size()];
+	    for(int i=0; i<keys.length; i++){
+		int freq = ((KasiskiEntry)keLst.get(i)).getFrequency();
+		keys[i] = ((long)(Integer.MAX_VALUE - freq) << 32) | i;
+	    }
+	    Arrays.sort(keys);
+	    freqRows = new int[keys.length];
+	    for(int i=0; i<keys.length; i++){
+		freqRows[i] = (int)keys[i];
+	    }
+	}
+	return freqRows[row];
+    }
+
+    /**
+     * Sorts <code>keLst</code> if it is not in the order of
+     * <code>KasiskiEntry.compareTo</code>, and discards the rows sorted by
+     * frequency.
+     */
+    private final void sortData(){
+	for(int i=1; i<keLst.size(); i++){
+	    if(((KasiskiEntry)keLst.get(i-1)).compareTo(keLst.get(i)) > 0){
+		Collections.sort(keLst);
+		break;
+	    }
+	}
+	freqRows = null;
+    }
+
+    /**
+     * Sets the table's data to that in <code>data</code>, keeping the
+     * order of the rows. <code>data</code> is sorted if it is not in the
+     * order of the sequences.
      *
-     * @param data a <code>List</code> of <code>StringFreq</code>s
+     * @param data a <code>List</code> of <code>KasiskiEntry</code>s
      * @throws NullPointerException if <code>data</code> is <code>null</code>
      */
     public void setData(List data) throws NullPointerException
@@ -262,14 +314,47 @@ public class KasiskiTableModel extends AbstractTableModel
 	if(data == null){
 	    throw new NullPointerException();
 	}
-	byte sorted = state;
-	boolean ascending = !((sorted&REVERSED)==REVERSED);
-	state = UNSORTED;
 	keLst = data;
-	if((sorted&SORTED_BY_FREQUENCY)==SORTED_BY_FREQUENCY){
-	    sort(1, ascending);
+	sortData();
+	tableChanged();
+    }
+
+    /**
+     * Sets the table's data to <code>data</code>, which starts with the
+     * entries currently displayed, in the same order, followed by new
+     * ones; as the lists passed by
+     * <code>CiphertextManager.getKasiski</code> to its monitor. Only the
+     * new rows are reported to the listeners, unless the table is sorted
+     * by frequency.
+     *
+     * @param data a <code>List</code> of <code>KasiskiEntry</code>s
+     * @throws NullPointerException if <code>data</code> is <code>null</code>
+     * @see CiphertextManager#getKasiski(java.util.Set, int, int, SearchMonitor)
+     */
+    public void appendData(List data) throws NullPointerException
+    {
+	if(data == null){
+	    throw new NullPointerException();
+	}
+	int prevSize = keLst.size();
+	int size = data.size();
+	if(size < prevSize
+	   || (prevSize > 0 && size > prevSize
+	       && ((KasiskiEntry)data.get(prevSize-1)).compareTo(data.get(prevSize)) > 0)){
+	    setData(data);
+	    return;
+	}
+	keLst = data;
+	freqRows = null;
+	if(size == prevSize){
+	    return;
+	}
+	if((state&SORTED_BY_FREQUENCY) == SORTED_BY_FREQUENCY){
+	    tableChanged();
+	}else if((state&REVERSED) == REVERSED){
+	    fireTableRowsInserted(0, size - prevSize - 1);
 	}else{
-	    sort(0, ascending);
+	    fireTableRowsInserted(prevSize, size - 1);
 	}
     }
 
@@ -0,0 +1,233 @@
+/*
+ * -- MonoAlphaSolver.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.*;
+import java.text.Collator;
+
+/**
+ * Class that searches for the key of a monoalphabetic substitution. A key
+ * is scored with the sum of the logarithms of the relative frequencies,
+ * in the language, of the bigrams, trigrams and, if they are given,
+ * quadgrams of the plaintext it gives.
+ * The search is a hill climbing that starts from a random key and changes
+ * the replacement of one cipher character at a time (swapping it with the
+ * one of the cipher character that has the new replacement, if the
+ * substitution is injective) while the score improves. It is restarted
+ * several times and the best key is kept. The restarts are divided among
+ * several threads.<br/>
+ *
+ * A monoalphabetic substitution is a polyalphabetic one with a single
+ * alphabet, so the search is done by an <code>AlbertiSolver</code> with a
+ * period of 1.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ * @see AlbertiSolver
+ */
+public class MonoAlphaSolver{
+
+    /**
+     * The smallest order of the n-grams used to score the keys */
+    public static final int MIN_ORDER = AlbertiSolver.MIN_ORDER;
+
+    /**
+     * The largest order of the n-grams used to score the keys */
+    public static final int MAX_ORDER = AlbertiSolver.MAX_ORDER;
+
+    /**
+     * The solver of the substitution with a single alphabet */
+    private AlbertiSolver solver;
+
+    /**
+     * Creates a solver for the ciphertext <code>text</code>.
+     *
+     * @param text the ciphertext as indices in <code>cipherAlpha</code>
+     *             (see <code>CiphertextManager.getCodes</code>)
+     * @param cipherAlpha the cipher alphabet, a sorted <code>List</code> of
+     *                    <code>CollationKey</code>s
+     * @param plainAlpha the plain alphabet, a sorted <code>List</code> of
+     *                   <code>CollationKey</code>s
+     * @param bigrams the <code>StringFreq</code>s of the bigrams of the
+     *                language
+     * @param trigrams the <code>StringFreq</code>s of the trigrams of the
+     *                 language
+     * @param locale used to find the user characters of the n-grams
+     * @param collator used to create the <code>CollationKey</code>s of the
+     *                 characters of the n-grams
+     * @param injective <code>true</code> if two cipher characters can not
+     *                  have the same replacement. Ignored if the cipher
+     *                  alphabet is larger than the plain alphabet.
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IllegalArgumentException if an alphabet is empty, a code of <code>text</code> is not an index of <code>cipherAlpha</code> or no n-gram of the language can be used
+     * @see CiphertextManager#getCodes(Set, List)
+     */
+    public MonoAlphaSolver(int[] text,
+			   List cipherAlpha,
+			   List plainAlpha,
+			   Collection bigrams,
+			   Collection trigrams,
+			   Locale locale,
+			   Collator collator,
+			   boolean injective) throws NullPointerException,
+						     IllegalArgumentException
+    {
+	this(text, cipherAlpha, plainAlpha, bigrams, trigrams, null, locale,
+	     collator, injective);
+    }
+
+    /**
+     * Creates a solver for the ciphertext <code>text</code> that also
+     * scores the quadgrams of the plaintexts.
+     *
+     * @param text the ciphertext as indices in <code>cipherAlpha</code>
+     *             (see <code>CiphertextManager.getCodes</code>)
+     * @param cipherAlpha the cipher alphabet, a sorted <code>List</code> of
+     *                    <code>CollationKey</code>s
+     * @param plainAlpha the plain alphabet, a sorted <code>List</code> of
+     *                   <code>CollationKey</code>s
+     * @param bigrams the <code>StringFreq</code>s of the bigrams of the
+     *                language
+     * @param trigrams the <code>StringFreq</code>s of the trigrams of the
+     *                 language
+     * @param quadgrams the <code>StringFreq</code>s of the quadgrams of the
+     *                  language, <code>null</code> or empty if they were
+     *                  not counted
+     * @param locale used to find the user characters of the n-grams
+     * @param collator used to create the <code>CollationKey</code>s of the
+     *                 characters of the n-grams
+     * @param injective <code>true</code> if two cipher characters can not
+     *                  have the same replacement. Ignored if the cipher
+     *                  alphabet is larger than the plain alphabet.
+     * @throws NullPointerException if any of the arguments but <code>quadgrams</code> is <code>null</code>
+     * @throws IllegalArgumentException if an alphabet is empty, a code of <code>text</code> is not an index of <code>cipherAlpha</code> or no n-gram of the language can be used
+     * @see CiphertextManager#getCodes(Set, List)
+     */
+    public MonoAlphaSolver(int[] text,
+			   List cipherAlpha,
+			   List plainAlpha,
+			   Collection bigrams,
+			   Collection trigrams,
+			   Collection quadgrams,
+			   Locale locale,
+			   Collator collator,
+			   boolean injective) throws NullPointerException,
+						     IllegalArgumentException
+    {
+	solver = new AlbertiSolver(text, 1, cipherAlpha, plainAlpha, bigrams,
+				   trigrams, quadgrams, locale, collator,
+				   injective);
+    }
+
+    /**
+     * Sets the maximum number of threads used to search for the key.
+     * By default, one per available processor.
+     *
+     * @param n the number of threads
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setNumberOfThreads(int n) throws IllegalArgumentException
+    {
+	solver.setNumberOfThreads(n);
+    }
+
+    /**
+     * Sets the number of times the hill climbing is started from a random
+     * key. By default 20.
+     *
+     * @param n the number of restarts
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setNumberOfRestarts(int n) throws IllegalArgumentException
+    {
+	solver.setNumberOfRestarts(n);
+    }
+
+    /**
+     * Sets the seed of the random keys. By default, the time the solver
+     * was created.
+     *
+     * @param s the seed
+     */
+    public void setSeed(long s){
+	solver.setSeed(s);
+    }
+
+    /**
+     * Sets the <code>SearchMonitor</code> that follows the search. It is
+     * told about every restart that finishes and every key better than
+     * the ones found before (a <code>HashMap</code>, as returned by
+     * <code>solve()</code>), and the search stops when it is cancelled.
+     *
+     * @param m the monitor, <code>null</code> for none
+     */
+    public void setMonitor(final SearchMonitor m){
+	if(m == null){
+	    solver.setMonitor(null);
+	    return;
+	}
+	solver.setMonitor(new SearchMonitor(){
+		public boolean isCancelled(){
+		    return m.isCancelled();
+		}
+
+		public void progress(int done, int total){
+		    m.progress(done, total);
+		}
+
+		public void improved(Object best, double score){
+		    m.improved(((ArrayList)best).get(0), score);
+		}
+	    });
+    }
+
+    /**
+     * Searches for the key and returns it as a <code>HashMap</code> that
+     * maps every character of the cipher alphabet to its replacement
+     * (<code>CollationKey</code>s), as used by
+     * <code>Substitution.setSubstitution</code>. If the monitor cancels the
+     * search, the best key found until then is returned.
+     *
+     * @return the best key found, or <code>null</code> if the search was
+     *         cancelled before any was
+     */
+    public HashMap solve(){
+	ArrayList key = solver.solve();
+	return key == null ? null : (HashMap)key.get(0);
+    }
+
+    /**
+     * Returns the score of the key returned by the last call to
+     * <code>solve()</code>: the sum of the logarithms of the relative
+     * frequencies of the bigrams, trigrams and quadgrams (if used) of the
+     * plaintext.
+     */
+    public double getScore(){
+	return solver.getScore();
+    }
+}
+/*
+ * -- MonoAlphaSolver.java ends here --
+ */
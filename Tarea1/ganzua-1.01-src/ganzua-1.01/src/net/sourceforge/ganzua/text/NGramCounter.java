@@ -0,0 +1,812 @@
+/*
+ * -- NGramCounter.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.text.Collator;
+import java.text.CollationKey;
+
+/**
+ * Class used to count the user characters, bigrams, trigrams, etc. (the
+ * n-grams) of a text whose user characters have been replaced by codes,
+ * small non negative <code>int</code>s assigned by the user of the class
+ * (e.g. the index of the user character in a list of
+ * <code>CollationKey</code>s).<br/>
+ *
+ * While the number of possible n-grams of an order is small, the counts
+ * are stored in a flat <code>int</code> array indexed by the codes, e.g.
+ * the trigram <code>a b c</code> is at <code>(a*K + b)*K + c</code>, where
+ * <code>K</code> is the number of codes the counter can hold. When the
+ * array would be too large, the counts of that order are kept in a hash
+ * table of <code>long</code> keys instead. When there are so many codes
+ * that an n-gram does not fit in one <code>long</code>, the keys of the
+ * hash tables are widened to two. Either way, counting an n-gram does not
+ * create objects; the <code>StringFreq</code>s are only created
+ * when <code>getStringFreqs</code> is called.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class NGramCounter{
+
+    /**
+     * The largest order an <code>NGramCounter</code> can count. */
+    public static final int MAX_ORDER = 5;
+
+    /**
+     * The largest number of entries a flat count array may have. Orders
+     * that would need a larger array use a hash table. */
+    protected static final int DENSE_LIMIT = 1 << 21;
+
+    /**
+     * The largest order of the n-grams counted. */
+    protected int order;
+
+    /**
+     * The number of codes the flat arrays can hold (<code>K</code>). */
+    protected int capacity;
+
+    /**
+     * The number of bits used for every code in the keys of the hash
+     * tables. */
+    protected int codeBits;
+
+    /**
+     * Whether the keys of the hash tables have two <code>long</code>s,
+     * which happens when a code does not fit in <code>codeBits</code> bits
+     * with one. */
+    protected boolean wide;
+
+    /**
+     * The flat count arrays. <code>dense[n-1]</code> has the counts of
+     * the n-grams of order <code>n</code>, or is <code>null</code> if
+     * those are in <code>hashed[n-1]</code>. */
+    protected int[][] dense;
+
+    /**
+     * The hash tables used for the orders whose flat array would be
+     * larger than <code>DENSE_LIMIT</code>. */
+    protected CountTable[] hashed;
+
+    /**
+     * The total of n-grams counted for each order. */
+    protected long[] totals;
+
+    /**
+     * The last codes added, used to form the n-grams that end with the
+     * next one. The most recent one is at <code>window[windowLen-1]</code>.
+     */
+    private int[] window;
+
+    /**
+     * The number of codes in <code>window</code>. */
+    private int windowLen;
+
+    /**
+     * Creates an <code>NGramCounter</code> that counts the n-grams of
+     * orders <code>1</code> to <code>order</code>.
+     *
+     * @param order the largest order of the n-grams to count
+     * @throws IllegalArgumentException if <code>order &lt; 1</code> or <code>order &gt; MAX_ORDER</code>
+     */
+    public NGramCounter(int order) throws IllegalArgumentException
+    {
+	this(order, 32);
+    }
+
+    /**
+     * Creates an <code>NGramCounter</code> that counts the n-grams of
+     * orders <code>1</code> to <code>order</code> and has room for
+     * <code>numCodes</code> codes. The counter grows if a larger code is
+     * added.
+     *
+     * @param order the largest order of the n-grams to count
+     * @param numCodes the number of codes expected
+     * @throws IllegalArgumentException if <code>order &lt; 1</code>, <code>order &gt; MAX_ORDER</code> or <code>numCodes &lt; 0</code>
+     */
+    public NGramCounter(int order, int numCodes) throws IllegalArgumentException
+    {
+	if(order < 1 || order > MAX_ORDER){
+	    throw new IllegalArgumentException("order out of range");
+	}else if(numCodes < 0){
+	    throw new IllegalArgumentException("numCodes out of range");
+	}
+	this.order = order;
+	codeBits = Math.min(31, 63/order);
+	capacity = Math.max(1, numCodes);
+	dense = new int[order][];
+	hashed = new CountTable[order];
+	totals = new long[order];
+	window = new int[order];
+	for(int n=1; n<=order; n++){
+	    if(power(capacity, n) <= DENSE_LIMIT){
+		dense[n-1] = new int[(int)power(capacity, n)];
+	    }else{
+		hashed[n-1] = new CountTable(0, false);
+	    }
+	}
+	if(capacity - 1 > (1 << codeBits) - 1){
+	    widenKeys();
+	}
+    }
+
+    /**
+     * Returns the largest order of the n-grams counted.
+     */
+    public int getOrder(){
+	return order;
+    }
+
+    /**
+     * Returns the largest code the counter accepts.
+     */
+    public int getMaxCode(){
+	return (1 << Math.min(31, 126/order)) - 1;
+    }
+
+    /**
+     * Adds the code of the next user character of the text. The user
+     * character and the n-grams that end with it are counted.
+     *
+     * @param code the code of the user character
+     * @throws IllegalArgumentException if <code>code &lt; 0</code> or <code>code &gt; getMaxCode()</code>
+     */
+    public void add(int code) throws IllegalArgumentException
+    {
+	if(code < 0){
+	    throw new IllegalArgumentException("code out of range");
+	}else if(code >= capacity){
+	    ensureCapacity(code + 1);
+	}
+	if(windowLen == order){
+	    System.arraycopy(window, 1, window, 0, order-1);
+	    windowLen--;
+	}
+	window[windowLen++] = code;
+	for(int n=1; n<=windowLen; n++){
+	    increment(window, windowLen-n, n, 1);
+	}
+    }
+
+    /**
+     * Ends the current sequence of user characters, the next code added
+     * does not form n-grams with the ones added before.
+     */
+    public void breakSequence(){
+	windowLen = 0;
+    }
+
+    /**
+     * Sets all the counts to <code>0</code> and ends the current sequence.
+     */
+    public void clear(){
+	for(int n=1; n<=order; n++){
+	    if(dense[n-1] != null){
+		java.util.Arrays.fill(dense[n-1], 0);
+	    }else{
+		hashed[n-1] = new CountTable(0, wide);
+	    }
+	    totals[n-1] = 0;
+	}
+	windowLen = 0;
+    }
+
+    /**
+     * Adds <code>delta</code> to the count of the n-gram of order
+     * <code>n</code> whose codes are in <code>gram</code>, starting at
+     * <code>off</code>. <code>delta</code> may be negative.
+     *
+     * @param gram an array with the codes of the n-gram
+     * @param off the index of the n-gram's first code in <code>gram</code>
+     * @param n the order of the n-gram
+     * @param delta the number to add to the n-gram's count
+     * @throws NullPointerException if <code>gram</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>n</code> or a code are out of range
+     */
+    public void addCount(int[] gram, int off, int n, int delta)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(n < 1 || n > order){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	for(int i=off; i<off+n; i++){
+	    if(gram[i] < 0){
+		throw new IllegalArgumentException("code out of range");
+	    }else if(gram[i] >= capacity){
+		ensureCapacity(gram[i] + 1);
+	    }
+	}
+	increment(gram, off, n, delta);
+    }
+
+    /**
+     * Returns the count of the n-gram of order <code>n</code> whose codes
+     * are in <code>gram</code>, starting at <code>off</code>.
+     *
+     * @param gram an array with the codes of the n-gram
+     * @param off the index of the n-gram's first code in <code>gram</code>
+     * @param n the order of the n-gram
+     * @throws NullPointerException if <code>gram</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public int getCount(int[] gram, int off, int n)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(n < 1 || n > order){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	for(int i=off; i<off+n; i++){
+	    if(gram[i] < 0 || gram[i] >= capacity){
+		return 0;
+	    }
+	}
+	if(dense[n-1] != null){
+	    return dense[n-1][denseIndex(gram, off, n)];
+	}else{
+	    return hashed[n-1].get(highKey(gram, off, n), hashKey(gram, off, n));
+	}
+    }
+
+    /**
+     * Returns the count of the user character with code <code>code</code>.
+     *
+     * @param code the code of the user character
+     */
+    public int getCount(int code){
+	if(code < 0 || code >= capacity){
+	    return 0;
+	}
+	return dense[0][code];
+    }
+
+    /**
+     * Returns the sum of the counts of the n-grams of order <code>n</code>.
+     *
+     * @param n the order
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public long getTotal(int n) throws IllegalArgumentException
+    {
+	if(n < 1 || n > order){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	return totals[n-1];
+    }
+
+    /**
+     * Returns the number of different n-grams of order <code>n</code> that
+     * have a count different from <code>0</code>.
+     *
+     * @param n the order
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public int getNumberOfEntries(int n) throws IllegalArgumentException
+    {
+	if(n < 1 || n > order){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	int ret = 0;
+	if(dense[n-1] != null){
+	    int[] counts = dense[n-1];
+	    for(int i=0; i<counts.length; i++){
+		if(counts[i] != 0){
+		    ret++;
+		}
+	    }
+	}else{
+	    CountTable table = hashed[n-1];
+	    for(int i=0; i<table.keys.length; i++){
+		if(table.keys[i] != CountTable.FREE && table.vals[i] != 0){
+		    ret++;
+		}
+	    }
+	}
+	return ret;
+    }
+
+    /**
+     * Removes the n-grams of order <code>n</code> whose count is smaller
+     * than <code>minCount</code>. A hash table is rebuilt with only the
+     * n-grams that remain, so the memory used by the rare ones is freed.
+     * The total returned by <code>getTotal(n)</code> does not change.
+     *
+     * @param n the order
+     * @param minCount the smallest count an n-gram must have to be kept
+     * @return the number of n-grams removed
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public int prune(int n, int minCount) throws IllegalArgumentException
+    {
+	if(n < 1 || n > order){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	int removed = 0;
+	if(dense[n-1] != null){
+	    int[] counts = dense[n-1];
+	    for(int i=0; i<counts.length; i++){
+		if(counts[i] != 0 && counts[i] < minCount){
+		    counts[i] = 0;
+		    removed++;
+		}
+	    }
+	}else{
+	    CountTable old = hashed[n-1];
+	    int kept = 0;
+	    for(int i=0; i<old.keys.length; i++){
+		if(old.keys[i] != CountTable.FREE && old.vals[i] != 0){
+		    if(old.vals[i] < minCount){
+			removed++;
+		    }else{
+			kept++;
+		    }
+		}
+	    }
+	    if(removed > 0){
+		CountTable table = new CountTable(kept, wide);
+		for(int i=0; i<old.keys.length; i++){
+		    if(old.keys[i] != CountTable.FREE &&
+		       old.vals[i] >= minCount){
+			table.add(old.high(i), old.keys[i], old.vals[i]);
+		    }
+		}
+		hashed[n-1] = table;
+	    }
+	}
+	return removed;
+    }
+
+    /**
+     * Returns the n-grams of order <code>n</code> that have a count
+     * different from <code>0</code>, in no particular order.
+     *
+     * @param n the order
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public Entries getEntries(int n) throws IllegalArgumentException
+    {
+	if(n < 1 || n > order){
+	    throw new IllegalArgumentException("n out of range");
+	}
+	Entries ret = new Entries(n);
+	int[] gram = new int[n];
+	if(dense[n-1] != null){
+	    int[] counts = dense[n-1];
+	    for(int i=0; i<counts.length; i++){
+		if(counts[i] != 0){
+		    decodeDense(i, n, capacity, gram);
+		    ret.add(gram, counts[i]);
+		}
+	    }
+	}else{
+	    CountTable table = hashed[n-1];
+	    for(int i=0; i<table.keys.length; i++){
+		if(table.keys[i] != CountTable.FREE && table.vals[i] != 0){
+		    decodeHash(table.high(i), table.keys[i], n, gram);
+		    ret.add(gram, table.vals[i]);
+		}
+	    }
+	}
+	return ret;
+    }
+
+    /**
+     * Returns a sorted <code>ArrayList</code> of <code>StringFreq</code>s
+     * with the n-grams of order <code>n</code> that have a positive count.
+     * The <code>String</code> of an n-gram is the concatenation of the
+     * <code>String</code>s of its user characters, and n-grams whose
+     * <code>CollationKey</code>s are equal are counted as one.
+     *
+     * @param n the order
+     * @param symbols a <code>List</code> that has at every code's index
+     *                the <code>CollationKey</code> of the user character
+     * @param collator the <code>Collator</code> used to create the
+     *                 <code>CollationKey</code>s of the n-grams
+     * @throws NullPointerException if <code>symbols</code> or <code>collator</code> are <code>null</code>
+     * @throws IllegalArgumentException if <code>n</code> is out of range
+     */
+    public ArrayList getStringFreqs(int n,
+				    List symbols,
+				    Collator collator)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(symbols == null || collator == null){
+	    throw new NullPointerException();
+	}
+	Entries entries = getEntries(n);
+	ArrayList ret = new ArrayList(entries.size());
+	StringBuffer sb = new StringBuffer();
+	CollationKey ck;
+	for(int i=0; i<entries.size(); i++){
+	    if(entries.counts[i] <= 0){
+		continue;
+	    }
+	    if(n == 1){
+		ck = (CollationKey)symbols.get(entries.codes[i]);
+	    }else{
+		sb.delete(0, sb.length());
+		for(int j=i*n; j<(i+1)*n; j++){
+		    sb.append(((CollationKey)symbols.get(entries.codes[j])).getSourceString());
+		}
+		ck = collator.getCollationKey(sb.toString());
+	    }
+	    ret.add(new StringFreq(ck, entries.counts[i]));
+	}
+	Collections.sort(ret);
+	// merge the n-grams with equal CollationKeys
+	int last = -1;
+	for(int i=0; i<ret.size(); i++){
+	    StringFreq sf = (StringFreq)ret.get(i);
+	    if(last >= 0 && sf.equals(ret.get(last))){
+		StringFreq lastSF = (StringFreq)ret.get(last);
+		lastSF.setFrequency(lastSF.getFrequency() + sf.getFrequency());
+	    }else{
+		ret.set(++last, sf);
+	    }
+	}
+	while(ret.size() > last+1){
+	    ret.remove(ret.size()-1);
+	}
+	return ret;
+    }
+
+    /**
+     * Adds <code>delta</code> to the count of an n-gram whose codes are
+     * within the capacity.
+     */
+    private final void increment(int[] gram, int off, int n, int delta){
+	if(dense[n-1] != null){
+	    dense[n-1][denseIndex(gram, off, n)] += delta;
+	}else{
+	    hashed[n-1].add(highKey(gram, off, n), hashKey(gram, off, n), delta);
+	}
+	totals[n-1] += delta;
+    }
+
+    /**
+     * Returns the index of an n-gram in its flat count array.
+     */
+    private final int denseIndex(int[] gram, int off, int n){
+	int idx = gram[off];
+	for(int i=off+1; i<off+n; i++){
+	    idx = idx*capacity + gram[i];
+	}
+	return idx;
+    }
+
+    /**
+     * Returns the key of an n-gram in its hash table. If the keys are
+     * wide, it has the lower 63 bits of the codes and
+     * <code>highKey</code> the rest.
+     */
+    private final long hashKey(int[] gram, int off, int n){
+	long key = gram[off];
+	for(int i=off+1; i<off+n; i++){
+	    key = ((key << codeBits) & Long.MAX_VALUE) | gram[i];
+	}
+	return key;
+    }
+
+    /**
+     * Returns the bits of the key of an n-gram that do not fit in the
+     * ones returned by <code>hashKey</code>, or <code>0</code> if the keys
+     * are not wide.
+     */
+    private final long highKey(int[] gram, int off, int n){
+	if(!wide){
+	    return 0;
+	}
+	long high = 0;
+	long key = gram[off];
+	for(int i=off+1; i<off+n; i++){
+	    high = (high << codeBits) | (key >>> (63 - codeBits));
+	    key = ((key << codeBits) & Long.MAX_VALUE) | gram[i];
+	}
+	return high;
+    }
+
+    /**
+     * Stores in <code>gram</code> the codes of the n-gram at
+     * <code>idx</code> in a flat array for <code>cap</code> codes.
+     */
+    private static final void decodeDense(int idx, int n, int cap, int[] gram){
+	for(int i=n-1; i>=0; i--){
+	    gram[i] = idx % cap;
+	    idx /= cap;
+	}
+    }
+
+    /**
+     * Stores in <code>gram</code> the codes of the n-gram whose hash table
+     * key is <code>key</code>.
+     */
+    private final void decodeHash(long high, long key, int n, int[] gram){
+	long mask = (1L << codeBits) - 1;
+	for(int i=n-1; i>=0; i--){
+	    gram[i] = (int)(key & mask);
+	    key = (key >>> codeBits) | ((high & mask) << (63 - codeBits));
+	    high >>>= codeBits;
+	}
+    }
+
+    /**
+     * Changes the keys of the hash tables to two <code>long</code>s, so
+     * the codes can have up to <code>31</code> bits (<code>25</code> if
+     * <code>order</code> is <code>5</code>), and moves the counts to the
+     * new tables.
+     */
+    private final void widenKeys(){
+	int oldBits = codeBits;
+	int[] gram = new int[order];
+	codeBits = Math.min(31, 126/order);
+	wide = true;
+	for(int n=1; n<=order; n++){
+	    CountTable old = hashed[n-1];
+	    if(old == null){
+		continue;
+	    }
+	    CountTable table = new CountTable(old.used, true);
+	    for(int i=0; i<old.keys.length; i++){
+		if(old.keys[i] != CountTable.FREE && old.vals[i] != 0){
+		    long key = old.keys[i];
+		    for(int j=n-1; j>=0; j--){
+			gram[j] = (int)(key & ((1L << oldBits) - 1));
+			key >>>= oldBits;
+		    }
+		    table.add(highKey(gram, 0, n), hashKey(gram, 0, n), old.vals[i]);
+		}
+	    }
+	    hashed[n-1] = table;
+	}
+    }
+
+    /**
+     * Makes room for at least <code>numCodes</code> codes, moving the counts
+     * of the flat arrays to larger ones (or to hash tables when they would
+     * be too large) and widening the keys of the hash tables if the codes
+     * no longer fit in them.
+     *
+     * @throws IllegalArgumentException if <code>numCodes - 1 &gt; getMaxCode()</code>
+     */
+    private final void ensureCapacity(int numCodes) throws IllegalArgumentException
+    {
+	if(numCodes - 1 > getMaxCode()){
+	    throw new IllegalArgumentException("code out of range");
+	}
+	int newCap = (int)Math.max(numCodes,
+				   Math.min(capacity*2L, getMaxCode()+1L));
+	if(!wide && newCap - 1 > (1 << codeBits) - 1){
+	    widenKeys();
+	}
+	int[] gram = new int[order];
+	for(int n=1; n<=order; n++){
+	    int[] old = dense[n-1];
+	    if(old == null){
+		continue; // hash table keys do not depend on the capacity
+	    }
+	    if(power(newCap, n) <= DENSE_LIMIT){
+		dense[n-1] = new int[(int)power(newCap, n)];
+		for(int i=0; i<old.length; i++){
+		    if(old[i] != 0){
+			decodeDense(i, n, capacity, gram);
+			int idx = gram[0];
+			for(int j=1; j<n; j++){
+			    idx = idx*newCap + gram[j];
+			}
+			dense[n-1][idx] = old[i];
+		    }
+		}
+	    }else{
+		dense[n-1] = null;
+		hashed[n-1] = new CountTable(0, wide);
+		for(int i=0; i<old.length; i++){
+		    if(old[i] != 0){
+			decodeDense(i, n, capacity, gram);
+			hashed[n-1].add(highKey(gram, 0, n), hashKey(gram, 0, n), old[i]);
+		    }
+		}
+	    }
+	}
+	capacity = newCap;
+    }
+
+    /**
+     * Returns <code>base</code> to the power <code>exp</code>, or
+     * <code>Long.MAX_VALUE</code> if the result is larger than
+     * <code>Integer.MAX_VALUE</code>.
+     */
+    private static final long power(int base, int exp){
+	long ret = 1;
+	for(int i=0; i<exp; i++){
+	    ret *= base;
+	    if(ret > Integer.MAX_VALUE){
+		return Long.MAX_VALUE;
+	    }
+	}
+	return ret;
+    }
+
+    /**
+     * The n-grams of an order that have a count different from
+     * <code>0</code>. The codes of the n-gram <code>i</code> are at
+     * <code>codes[i*order]</code> to <code>codes[(i+1)*order - 1]</code>
+     * and its count at <code>counts[i]</code>.
+     */
+    public static class Entries{
+
+	/**
+	 * The order of the n-grams */
+	public final int order;
+
+	/**
+	 * The codes of the n-grams */
+	public int[] codes;
+
+	/**
+	 * The counts of the n-grams */
+	public int[] counts;
+
+	/**
+	 * The number of n-grams */
+	private int size;
+
+	private Entries(int order){
+	    this.order = order;
+	    codes = new int[order*16];
+	    counts = new int[16];
+	}
+
+	/**
+	 * Returns the number of n-grams.
+	 */
+	public int size(){
+	    return size;
+	}
+
+	private void add(int[] gram, int count){
+	    if(size == counts.length){
+		int[] tmp = new int[counts.length*2];
+		System.arraycopy(counts, 0, tmp, 0, size);
+		counts = tmp;
+		tmp = new int[codes.length*2];
+		System.arraycopy(codes, 0, tmp, 0, size*order);
+		codes = tmp;
+	    }
+	    System.arraycopy(gram, 0, codes, size*order, order);
+	    counts[size++] = count;
+	}
+    }
+
+    /**
+     * Open addressing hash table that maps <code>long</code> keys (that
+     * are never negative) to <code>int</code> counts. A wide table has a
+     * second <code>long</code> in every key, kept in <code>highs</code>.
+     */
+    protected static class CountTable{
+
+	/**
+	 * Marks the free slots */
+	static final long FREE = -1L;
+
+	long[] keys;
+
+	/**
+	 * The high parts of the keys, or <code>null</code> if the table is
+	 * not wide */
+	long[] highs;
+
+	int[] vals;
+
+	/**
+	 * The number of slots in use */
+	int used;
+
+	/**
+	 * Creates a table with room for <code>expected</code> keys before
+	 * it has to grow.
+	 */
+	CountTable(int expected, boolean wide){
+	    int size = 1024;
+	    while(size < expected*2 + 2 && size < (1 << 30)){
+		size <<= 1;
+	    }
+	    keys = new long[size];
+	    vals = new int[size];
+	    java.util.Arrays.fill(keys, FREE);
+	    if(wide){
+		highs = new long[size];
+	    }
+	}
+
+	/**
+	 * Returns the high part of the key in slot <code>i</code>.
+	 */
+	final long high(int i){
+	    return highs == null ? 0 : highs[i];
+	}
+
+	/**
+	 * Returns the slot of the key, or the free slot where it should go.
+	 */
+	private final int slot(long high, long key){
+	    int mask = keys.length - 1;
+	    long h = (key ^ (high * 0xC2B2AE3D27D4EB4FL)) * 0x9E3779B97F4A7C15L;
+	    int i = (int)(h >>> 32) & mask;
+	    while(keys[i] != FREE && (keys[i] != key || high(i) != high)){
+		i = (i + 1) & mask;
+	    }
+	    return i;
+	}
+
+	int get(long high, long key){
+	    int i = slot(high, key);
+	    return keys[i] == FREE ? 0 : vals[i];
+	}
+
+	void add(long high, long key, int delta){
+	    int i = slot(high, key);
+	    if(keys[i] == FREE){
+		keys[i] = key;
+		if(highs != null){
+		    highs[i] = high;
+		}
+		used++;
+		vals[i] = delta;
+		if(used*2 > keys.length){
+		    rehash();
+		}
+	    }else{
+		vals[i] += delta;
+	    }
+	}
+
+	private void rehash(){
+	    long[] oldKeys = keys;
+	    long[] oldHighs = highs;
+	    int[] oldVals = vals;
+	    keys = new long[oldKeys.length*2];
+	    vals = new int[oldKeys.length*2];
+	    java.util.Arrays.fill(keys, FREE);
+	    if(oldHighs != null){
+		highs = new long[oldKeys.length*2];
+	    }
+	    for(int i=0; i<oldKeys.length; i++){
+		if(oldKeys[i] != FREE){
+		    long high = oldHighs == null ? 0 : oldHighs[i];
+		    int j = slot(high, oldKeys[i]);
+		    keys[j] = oldKeys[i];
+		    if(highs != null){
+			highs[j] = high;
+		    }
+		    vals[j] = oldVals[i];
+		}
+	    }
+	}
+    }
+}
+/*
+ * -- NGramCounter.java ends here --
+ */
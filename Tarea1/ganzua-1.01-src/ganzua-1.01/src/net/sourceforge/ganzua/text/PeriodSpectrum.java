@@ -0,0 +1,350 @@
+/*
+ * -- PeriodSpectrum.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+/**
+ * The average coincidence index of the columns of a text for every period
+ * from 1 to a maximum period. The column <code>j</code> of the period
+ * <code>p</code> has the characters at the positions
+ * <code>j, j+p, j+2p, ...</code>; if the text was enciphered with
+ * <code>p</code> alphabets used in turn, they are the characters
+ * enciphered with the alphabet <code>j</code>. The coincidence index of
+ * the columns is close to that of the language at the period of the
+ * cipher and its multiples, and close to that of random text at the other
+ * periods.<br/>
+ *
+ * The characters of every column are counted in a single pass over the
+ * text, divided in blocks small enough to stay in the cache while all the
+ * periods are counted. Only the periods larger than half the maximum
+ * period are counted: the column <code>j</code> of the period
+ * <code>p</code> is made of the columns <code>j</code> and
+ * <code>j+p</code> of the period <code>2p</code>, so the counts of the
+ * smaller periods are sums of those of their doubles. The time is linear
+ * in the length of the text times half the number of periods, and the
+ * periods are divided among several threads.<br/>
+ *
+ * A period is flagged as a peak if its coincidence index is a local
+ * maximum of the spectrum and is closer to the largest coincidence index
+ * of the spectrum than to the smallest. If the spectrum is flat (the
+ * smallest coincidence index is more than 80% of the largest), as it is
+ * for a monoalphabetic cipher, only the period 1 is flagged. The
+ * coincidence index of short columns is mostly noise, so only the periods
+ * whose columns have at least 10 characters are considered.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class PeriodSpectrum{
+
+    /**
+     * Number of characters of the text counted for all the periods before
+     * counting the next ones */
+    private static final int BLOCK_SIZE = 1 << 14;
+
+    /**
+     * A spectrum is flat if its smallest coincidence index is more than
+     * this fraction of the largest */
+    private static final double FLAT_RATIO = 0.8;
+
+    /**
+     * The smallest number of characters the columns of a period must have
+     * for the period to be flagged as a peak */
+    private static final int MIN_PEAK_COLUMN_LENGTH = 10;
+
+    /**
+     * The text, codes from <code>0</code> to <code>numSymbols-1</code> */
+    private int[] text;
+
+    /**
+     * Number of characters of <code>text</code> used */
+    private int length;
+
+    /**
+     * Number of distinct codes the text can have */
+    private int numSymbols;
+
+    /**
+     * The largest period */
+    private int maxPeriod;
+
+    /**
+     * The count of every code in every column of every period, at the
+     * index of the period. Only used while the spectrum is computed. */
+    private int[][] counts;
+
+    /**
+     * The average coincidence index of the columns of every period, at
+     * the index of the period (<code>ci[0]</code> is not used) */
+    private double[] ci;
+
+    /**
+     * <code>true</code> for the periods that are peaks of the spectrum */
+    private boolean[] peak;
+
+    /**
+     * Computes the spectrum of the first <code>length</code> characters of
+     * <code>text</code> for the periods from 1 to <code>maxPeriod</code>
+     * (but not larger than half the length of the text, so every column
+     * has at least two characters).
+     *
+     * @param text the codes of the characters of the text, from
+     *             <code>0</code> to <code>numSymbols-1</code>
+     * @param length the number of characters of <code>text</code> to use
+     * @param numSymbols the number of distinct codes
+     * @param maxPeriod the largest period
+     * @param numThreads the maximum number of threads used to count the
+     *                   characters
+     * @throws NullPointerException if <code>text</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>length</code> is negative or larger than the length of <code>text</code>, or <code>numSymbols</code>, <code>maxPeriod</code> or <code>numThreads</code> is less than 1
+     */
+    public PeriodSpectrum(int[] text,
+			  int length,
+			  int numSymbols,
+			  int maxPeriod,
+			  int numThreads) throws NullPointerException,
+						 IllegalArgumentException
+    {
+	if(text == null){
+	    throw new NullPointerException();
+	}else if(length < 0 || length > text.length){
+	    throw new IllegalArgumentException("length out of range");
+	}else if(numSymbols < 1 || maxPeriod < 1 || numThreads < 1){
+	    throw new IllegalArgumentException();
+	}
+	this.text = text;
+	this.length = length;
+	this.numSymbols = numSymbols;
+	this.maxPeriod = Math.max(1, Math.min(maxPeriod, length/2));
+	ci = new double[this.maxPeriod+1];
+	ci[0] = Double.NaN;
+	counts = new int[this.maxPeriod+1][];
+	int first = this.maxPeriod/2 + 1;
+	int n = Math.min(numThreads, this.maxPeriod - first + 1);
+	Counter[] counters = new Counter[n];
+	for(int i=0; i<n; i++){
+	    counters[i] = new Counter(first+i, n);
+	}
+	if(n == 1){
+	    counters[0].run();
+	}else{
+	    for(int i=0; i<n; i++){
+		counters[i].start();
+	    }
+	    for(int i=0; i<n; i++){
+		boolean joined = false;
+		while(!joined){
+		    try{
+			counters[i].join();
+			joined = true;
+		    }catch(InterruptedException ie){}
+		}
+	    }
+	}
+	this.text = null;
+	for(int p=this.maxPeriod; p>=first; p--){
+	    ci[p] = coincidenceIndex(p);
+	}
+	for(int p=first-1; p>=1; p--){
+	    int[] doubled = counts[2*p];
+	    int[] cnt = new int[p*numSymbols];
+	    for(int c=0; c<cnt.length; c++){
+		cnt[c] = doubled[c] + doubled[c + cnt.length];
+	    }
+	    counts[p] = cnt;
+	    counts[2*p] = null;
+	    ci[p] = coincidenceIndex(p);
+	}
+	counts = null;
+	findPeaks();
+    }
+
+    /**
+     * Flags the peaks of the spectrum.
+     */
+    private final void findPeaks(){
+	peak = new boolean[maxPeriod+1];
+	int maxPeak = Math.min(maxPeriod, length/MIN_PEAK_COLUMN_LENGTH);
+	double min = Double.POSITIVE_INFINITY;
+	double max = Double.NEGATIVE_INFINITY;
+	for(int p=1; p<=maxPeak; p++){
+	    if(!Double.isNaN(ci[p])){
+		min = Math.min(min, ci[p]);
+		max = Math.max(max, ci[p]);
+	    }
+	}
+	if(!(max > 0)){
+	    return;
+	}
+	if(min > FLAT_RATIO*max){
+	    peak[1] = true;
+	    return;
+	}
+	double threshold = (min + max)/2;
+	for(int p=1; p<=maxPeak; p++){
+	    peak[p] = ci[p] >= threshold &&
+		(p == 1 || ci[p] > ci[p-1]) &&
+		(p == maxPeriod || ci[p] >= ci[p+1]);
+	}
+    }
+
+    /**
+     * Returns the largest period of the spectrum.
+     */
+    public int getMaximumPeriod(){
+	return maxPeriod;
+    }
+
+    /**
+     * Returns the number of characters of the text.
+     */
+    public int getLength(){
+	return length;
+    }
+
+    /**
+     * Returns the average coincidence index of the columns of the period
+     * <code>period</code>, <code>NaN</code> if the text has less than two
+     * characters.
+     *
+     * @param period the period
+     * @throws IllegalArgumentException if <code>period</code> is not between 1 and <code>getMaximumPeriod()</code>
+     */
+    public double getCoincidenceIndex(int period) throws IllegalArgumentException
+    {
+	if(period < 1 || period > maxPeriod){
+	    throw new IllegalArgumentException("period out of range");
+	}
+	return ci[period];
+    }
+
+    /**
+     * Returns <code>true</code> if the period <code>period</code> is a
+     * peak of the spectrum.
+     *
+     * @param period the period
+     * @throws IllegalArgumentException if <code>period</code> is not between 1 and <code>getMaximumPeriod()</code>
+     */
+    public boolean isPeak(int period) throws IllegalArgumentException
+    {
+	if(period < 1 || period > maxPeriod){
+	    throw new IllegalArgumentException("period out of range");
+	}
+	return peak[period];
+    }
+
+    /**
+     * Returns the periods that are peaks of the spectrum, in ascending
+     * order.
+     */
+    public int[] getPeaks(){
+	int numPeaks = 0;
+	for(int p=1; p<=maxPeriod; p++){
+	    if(peak[p]){
+		numPeaks++;
+	    }
+	}
+	int[] peaks = new int[numPeaks];
+	for(int p=1, i=0; p<=maxPeriod; p++){
+	    if(peak[p]){
+		peaks[i++] = p;
+	    }
+	}
+	return peaks;
+    }
+
+    /**
+     * Returns the average coincidence index of the columns of the period
+     * <code>p</code>, from <code>counts[p]</code>.
+     */
+    private final double coincidenceIndex(int p){
+	int[] cnt = counts[p];
+	double sum = 0;
+	int numCols = 0;
+	for(int col=0; col<p; col++){
+	    long len = length/p + (col < length%p ? 1 : 0);
+	    if(len < 2){
+		continue;
+	    }
+	    long pairs = 0;
+	    for(int c=col*numSymbols, end=c+numSymbols; c<end; c++){
+		pairs += (long)cnt[c]*(cnt[c]-1);
+	    }
+	    sum += pairs/(double)(len*(len-1));
+	    numCols++;
+	}
+	return numCols == 0 ? Double.NaN : sum/numCols;
+    }
+
+    /**
+     * Thread that counts the codes in the columns of the periods
+     * <code>first, first+step, first+2*step, ...</code> up to
+     * <code>maxPeriod</code>.
+     */
+    private class Counter extends Thread{
+
+	/**
+	 * The first period */
+	int first;
+
+	/**
+	 * The difference between consecutive periods */
+	int step;
+
+	Counter(int first, int step){
+	    this.first = first;
+	    this.step = step;
+	}
+
+	public void run(){
+	    int numPeriods = (maxPeriod - first)/step + 1;
+	    int[][] cnts = new int[numPeriods][];
+	    for(int k=0; k<numPeriods; k++){
+		cnts[k] = new int[(first + k*step)*numSymbols];
+	    }
+	    for(int start=0; start<length; start+=BLOCK_SIZE){
+		int end = Math.min(start + BLOCK_SIZE, length);
+		for(int k=0; k<numPeriods; k++){
+		    int[] cnt = cnts[k];
+		    int p = first + k*step;
+		    // the column of the character at start
+		    int startCol = start % p;
+		    for(int col=0; col<p; col++){
+			int base = col*numSymbols;
+			int i = start + (col - startCol + p) % p;
+			for(; i<end; i+=p){
+			    cnt[base + text[i]]++;
+			}
+		    }
+		}
+	    }
+	    for(int k=0; k<numPeriods; k++){
+		counts[first + k*step] = cnts[k];
+	    }
+	}
+    }
+}
+/*
+ * -- PeriodSpectrum.java ends here --
+ */
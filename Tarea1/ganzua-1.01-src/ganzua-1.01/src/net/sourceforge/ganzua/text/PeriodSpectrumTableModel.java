@@ -0,0 +1,291 @@
+/*
+ * -- PeriodSpectrumTableModel.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.ResourceBundle;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.text.NumberFormat;
+import java.text.DecimalFormat;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.InputEvent;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <code>TableModel</code> used to create <code>JTables</code> that display
+ * a <code>PeriodSpectrum</code>: the average coincidence index of the
+ * columns of every period, and whether the period is a peak. The user can
+ * sort the data by period or coincidence index.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class PeriodSpectrumTableModel extends AbstractTableModel{
+
+    protected static final byte UNSORTED = 0;
+
+    protected static final byte SORTED_BY_PERIOD = 4;
+
+    protected static final byte SORTED_BY_COINCIDENCE_INDEX = 2;
+
+    protected static final byte REVERSED = 1;
+
+    /**
+     * The text displayed in the third column for the peaks */
+    protected static final String PEAK_MARK = "*";
+
+    protected static final DecimalFormat df;
+
+    /**
+     * The spectrum displayed, <code>null</code> if there is none */
+    protected PeriodSpectrum spectrum;
+
+    /**
+     * The period displayed in every row */
+    protected Integer[] rows = new Integer[0];
+
+    /**
+     * <code>ResourceBundle</code> with the localized names of the columns */
+    protected ResourceBundle labelsRB;
+
+    /**
+     * <code>byte</code> used to store the state of the table
+     * (<code>UNSORTED</code>, <code>SORTED_BY_PERIOD</code>,
+     * <code>SORTED_BY_COINCIDENCE_INDEX</code>, <code>REVERSED</code>) */
+    protected byte state = UNSORTED;
+
+    /**
+     * Sorts the periods by coincidence index in descending order */
+    private final Comparator ciComp = new Comparator(){
+	    public int compare(Object o1, Object o2){
+		double ci1 = spectrum.getCoincidenceIndex(((Integer)o1).intValue());
+		double ci2 = spectrum.getCoincidenceIndex(((Integer)o2).intValue());
+		int cmp = Double.compare(ci2, ci1);
+		return cmp != 0 ? cmp : ((Integer)o1).intValue() - ((Integer)o2).intValue();
+	    }
+	};
+
+    static{
+	NumberFormat nf = DecimalFormat.getInstance(JComponent.getDefaultLocale());
+	if(nf instanceof DecimalFormat){
+	    df = (DecimalFormat)nf;
+	} else{
+	    df = new DecimalFormat();
+	}
+	df.applyPattern("0.######");
+    }
+
+    /**
+     * Constructor that sets the spectrum displayed to <code>data</code>.
+     *
+     * @param data the spectrum, <code>null</code> for an empty table
+     */
+    public PeriodSpectrumTableModel(PeriodSpectrum data){
+	labelsRB = ResourceBundle.getBundle(PeriodSpectrumTableModel.class.getName(),
+					    JComponent.getDefaultLocale());
+	setData(data);
+    }
+
+    /**
+     * Returns the number of columns in the model (<code>3</code>).
+     *
+     * @return the number of columns in the model (<code>3</code>)
+     */
+    public int getColumnCount(){
+	return 3;
+    }
+
+    /**
+     * Returns the name of the column <code>col</code> or <code>null</code>
+     * if no such column exists.
+     *
+     * @param col the column being queried
+     * @return the name of the column or <code>null</code> if no such column
+     *         exists
+     */
+    public String getColumnName(int col){
+	String ret;
+	switch(col){
+	case 0:
+	    ret = labelsRB.getString("period");
+	    break;
+	case 1:
+	    ret = labelsRB.getString("ci");
+	    break;
+	case 2:
+	    ret = labelsRB.getString("peak");
+	    break;
+	default:
+	    ret = null;
+	    break;
+	}
+	return ret;
+    }
+
+    /**
+     * Returns the number of rows in the model
+     *
+     * @return the number of rows in the model
+     */
+    public int getRowCount(){
+	return rows.length;
+    }
+
+    /**
+     * Returns the value for the cell at <code>col</code> and <code>row</code>
+     *
+     * @param row the row's index
+     * @param col the column's index
+     */
+    public Object getValueAt(int row, int col){
+	int period = rows[row].intValue();
+	String ret = null;
+	switch(col){
+	case 0:
+	    ret = Integer.toString(period);
+	    break;
+	case 1:
+	    double ci = spectrum.getCoincidenceIndex(period);
+	    ret = Double.isNaN(ci) ? "" : df.format(ci);
+	    break;
+	case 2:
+	    ret = spectrum.isPeak(period) ? PEAK_MARK : "";
+	    break;
+	default:
+	    break;
+	}
+	return ret;
+    }
+
+    /**
+     * The class of all the cell values in the column.
+     *
+     * @return <code>String</code>
+     */
+    public Class getColumnClass(int col){
+	return String.class;
+    }
+
+    /**
+     * Sorts the data by <code>column</code> in ascending or descending order.
+     * Note that for column 1 (the column with the coincidence indices),
+     * ascending actually means descending (from the largest to the
+     * smallest).
+     *
+     * @param column the column to order by
+     * @param ascending true if the data should be sorded in ascending order,
+     *                  false otherwise
+     */
+    protected void sort(int column, boolean ascending){
+	if(column < 0 || column > 1){
+	    return;
+	}
+	byte prevState = state;
+	if(column == 0){
+	    if((state&SORTED_BY_PERIOD) != SORTED_BY_PERIOD){
+		for(int i=0; i<rows.length; i++){
+		    rows[i] = new Integer(i+1);
+		}
+		state = SORTED_BY_PERIOD;
+	    }
+	}else if((state&SORTED_BY_COINCIDENCE_INDEX) != SORTED_BY_COINCIDENCE_INDEX){
+	    for(int i=0; i<rows.length; i++){
+		rows[i] = new Integer(i+1);
+	    }
+	    Arrays.sort(rows, ciComp);
+	    state = SORTED_BY_COINCIDENCE_INDEX;
+	}
+	if(!ascending && (state&REVERSED)!=REVERSED){
+	    reverse();
+	    state |= REVERSED;
+	}else if(ascending && (state&REVERSED)==REVERSED){
+	    reverse();
+	    state &= ~REVERSED;
+	}
+	if(state != prevState){
+	    fireTableDataChanged();
+	}
+    }
+
+    /**
+     * Reverses the order of <code>rows</code>.
+     */
+    private final void reverse(){
+	for(int i=0, j=rows.length-1; i<j; i++, j--){
+	    Integer tmp = rows[i];
+	    rows[i] = rows[j];
+	    rows[j] = tmp;
+	}
+    }
+
+    /**
+     * Sets the spectrum displayed to <code>data</code>, keeping the order
+     * of the rows.
+     *
+     * @param data the spectrum, <code>null</code> for an empty table
+     */
+    public void setData(PeriodSpectrum data){
+	byte sorted = state;
+	boolean ascending = !((sorted&REVERSED)==REVERSED);
+	state = UNSORTED;
+	spectrum = data;
+	rows = new Integer[data == null ? 0 : data.getMaximumPeriod()];
+	if((sorted&SORTED_BY_COINCIDENCE_INDEX)==SORTED_BY_COINCIDENCE_INDEX){
+	    sort(1, ascending);
+	}else{
+	    sort(0, ascending);
+	}
+	fireTableDataChanged();
+    }
+
+    /**
+     * Adds the <code>MouseListener</code> needed to let the user sort the
+     * data.
+     *
+     * @param table the <code>JTable</code> created using this instance of
+     *              <code>PeriodSpectrumTableModel</code>
+     */
+    public void addMouseListenerToHeaderInTable(final JTable table){
+	table.setColumnSelectionAllowed(false);
+	MouseAdapter mouseListener = new MouseAdapter(){
+		public void mouseClicked(MouseEvent e){
+		    int viewCol = table.getColumnModel().getColumnIndexAtX(e.getX());
+		    int column = table.convertColumnIndexToModel(viewCol);
+		    if(e.getClickCount() == 1 && column != -1){
+			boolean ascending = (e.getModifiers()&InputEvent.SHIFT_MASK)==0;
+			sort(column, ascending);
+		    }
+		}
+	    };
+	table.getTableHeader().addMouseListener(mouseListener);
+    }
+}
+
+/*
+ * -- PeriodSpectrumTableModel.java ends here --
+ */
@@ -0,0 +1,636 @@
+/*
+ * -- PlaintextModel.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.ArrayList;
+import java.text.CollationKey;
+
+/**
+ * The ciphertext of a <code>CiphertextManager</code> and its plaintext for
+ * a key, by lines, rendered on demand. Only the line index and the
+ * replacement of every user character in every alphabet are computed
+ * beforehand, so a component can display a text of any size by asking
+ * only for the lines it shows, and changing the key does not require
+ * building the whole plaintext again.<br/>
+ *
+ * The lines are separated by the user characters that contain a new line
+ * or carriage return, which are not part of them. A separator at the end
+ * of the text does not start a new line.<br/>
+ *
+ * When every replacement is a single character, as usual, the plaintext
+ * is also kept in a buffer with one character per position of the
+ * ciphertext. A new key only rewrites the positions of the characters
+ * whose replacement has changed, found in the position index of the
+ * <code>CiphertextManager</code>, so changing one pair takes time
+ * proportional to the occurrences of its character.
+ *
+ * @see CiphertextManager#getPlaintextModel()
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class PlaintextModel{
+
+    /**
+     * The <code>CiphertextManager</code> whose ciphertext is modeled */
+    private CiphertextManager manager;
+
+    /**
+     * The ciphertext codes the lines were computed for */
+    private int[] codes;
+
+    /**
+     * The source strings of the user characters, by code */
+    private String[] symbolStr;
+
+    /**
+     * For every code, <code>true</code> if it separates lines */
+    private boolean[] symbolBreak;
+
+    /**
+     * <code>true</code> if the strings of the user characters are single
+     * characters, not counting the separators of lines */
+    private boolean singleChars;
+
+    /**
+     * <code>true</code> if the separators of lines are single characters
+     */
+    private boolean singleBreaks;
+
+    /**
+     * The index in <code>codes</code> of the first user character of every
+     * line, followed by <code>codes.length</code> */
+    private int[] lineStart;
+
+    /**
+     * The number of lines */
+    private int numLines;
+
+    /**
+     * The number of user characters of the longest line */
+    private int maxLineLength;
+
+    /**
+     * The number of alphabets of the key */
+    private int numAlpha;
+
+    /**
+     * The replacement of every code in every alphabet of the key, or
+     * <code>null</code> if no key has been set */
+    private String[][] repl;
+
+    /**
+     * For every alphabet and code, <code>true</code> if the alphabet
+     * changes after the user character */
+    private boolean[][] advance;
+
+    /**
+     * The alphabet of the first user character of every line, or
+     * <code>null</code> if it has to be computed again */
+    private int[] lineAlpha;
+
+    /**
+     * The plaintext, with the replacement of the user character at every
+     * position of <code>codes</code> (and the separators of lines), or
+     * <code>null</code> if it has to be computed again or some replacement
+     * is not a single character */
+    private char[] plain;
+
+    /**
+     * For every alphabet and code, the positions where the user character
+     * is replaced using that alphabet, in ascending order, or
+     * <code>null</code> if they have to be computed again. Only used with
+     * more than one alphabet. */
+    private int[][][] alphaPositions;
+
+    /**
+     * Creates the model of the ciphertext of <code>manager</code>.
+     *
+     * @param manager the <code>CiphertextManager</code>
+     */
+    PlaintextModel(CiphertextManager manager){
+	this.manager = manager;
+	initLines();
+    }
+
+    /**
+     * Computes the line index if the ciphertext of the
+     * <code>CiphertextManager</code> has changed.
+     *
+     * @return <code>true</code> if it had changed
+     */
+    private final boolean initLines(){
+	if(codes == manager.ciphertextCodes){
+	    return false;
+	}
+	codes = manager.ciphertextCodes;
+	ArrayList symbols = manager.symbols;
+	symbolStr = new String[symbols.size()];
+	symbolBreak = new boolean[symbolStr.length];
+	singleChars = true;
+	singleBreaks = true;
+	for(int i=0; i<symbolStr.length; i++){
+	    symbolStr[i] = ((CollationKey)symbols.get(i)).getSourceString();
+	    symbolBreak[i] = symbolStr[i].indexOf('\n') != -1 ||
+		symbolStr[i].indexOf('\r') != -1;
+	    if(symbolStr[i].length() != 1){
+		if(symbolBreak[i]){
+		    singleBreaks = false;
+		}else{
+		    singleChars = false;
+		}
+	    }
+	}
+	int count = 0;
+	for(int i=0; i<codes.length; i++){
+	    if(symbolBreak[codes[i]]){
+		count++;
+	    }
+	}
+	if(codes.length > 0 && !symbolBreak[codes[codes.length-1]]){
+	    count++; // the last line has no separator
+	}
+	numLines = count;
+	lineStart = new int[numLines+1];
+	maxLineLength = 0;
+	int line = 0;
+	int start = 0;
+	for(int i=0; i<codes.length; i++){
+	    if(symbolBreak[codes[i]]){
+		lineStart[line++] = start;
+		maxLineLength = Math.max(maxLineLength, i - start);
+		start = i+1;
+	    }
+	}
+	if(line < numLines){
+	    lineStart[line] = start;
+	    maxLineLength = Math.max(maxLineLength, codes.length - start);
+	}
+	lineStart[numLines] = codes.length;
+	repl = null;
+	advance = null;
+	lineAlpha = null;
+	plain = null;
+	alphaPositions = null;
+	return true;
+    }
+
+    /**
+     * Sets the key used to render the plaintext. The line index is
+     * computed again if the ciphertext has changed, and the alphabet every
+     * line starts with if the characters of the alphabets have changed.
+     * Otherwise only the positions of the user characters whose
+     * replacement has changed are rewritten in the plaintext.
+     *
+     * @param subst an <code>ArrayList</code> of <code>HashMap</code>s. That
+     *              contains a <code>HashMap</code> for every alphabet the
+     *              substitution has.
+     * @return <code>true</code> if the ciphertext had changed, and the
+     *         number of lines and their lengths may be different
+     * @throws NullPointerException if <code>subst</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>subst</code>'s size is <code>0</code>
+     * @see CiphertextManager#getPlaintext(ArrayList)
+     */
+    public boolean setKey(ArrayList subst) throws NullPointerException,
+						  IllegalArgumentException
+    {
+	if(subst == null){
+	    throw new NullPointerException();
+	}else if(subst.size() == 0){
+	    throw new IllegalArgumentException();
+	}
+	boolean changed = initLines();
+	int n = subst.size();
+	String[][] newRepl = new String[n][symbolStr.length];
+	boolean[][] newAdvance = new boolean[n][symbolStr.length];
+	manager.compileKey(subst, newRepl, newAdvance);
+	if(!sameAdvance(newAdvance)){
+	    lineAlpha = null;
+	    plain = null;
+	    alphaPositions = null;
+	}
+	String[][] oldRepl = repl;
+	numAlpha = n;
+	repl = newRepl;
+	advance = newAdvance;
+	if(plain != null){
+	    patchPlain(oldRepl);
+	}
+	if(plain == null){
+	    initPlain();
+	}
+	return changed;
+    }
+
+    /**
+     * Rewrites in <code>plain</code> the positions of the user characters
+     * whose replacement in <code>oldRepl</code> is not the current one.
+     * Discards <code>plain</code> if a new replacement is not a single
+     * character.
+     *
+     * @param oldRepl the replacements <code>plain</code> was computed with
+     */
+    private final void patchPlain(String[][] oldRepl){
+	for(int a=0; a<numAlpha; a++){
+	    for(int c=0; c<symbolStr.length; c++){
+		String r = repl[a][c];
+		if(r.equals(oldRepl[a][c])){
+		    continue;
+		}
+		if(r.length() != 1){
+		    plain = null;
+		    return;
+		}
+		int[] pos = numAlpha == 1 ? manager.getPositions(c)
+					  : getAlphaPositions()[a][c];
+		char ch = r.charAt(0);
+		for(int i=0; i<pos.length; i++){
+		    plain[pos[i]] = ch;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Computes <code>plain</code>, unless some replacement is not a single
+     * character.
+     */
+    private final void initPlain(){
+	if(!singleChars){
+	    return;
+	}
+	for(int a=0; a<numAlpha; a++){
+	    for(int c=0; c<symbolStr.length; c++){
+		if(repl[a][c].length() != 1 && !symbolBreak[c]){
+		    return;
+		}
+	    }
+	}
+	char[] buff = new char[codes.length];
+	int a = 0; // the alphabet the current character is in
+	int code;
+	for(int i=0; i<codes.length; i++){
+	    code = codes[i];
+	    String r = repl[a][code];
+	    buff[i] = r.length() == 1 ? r.charAt(0) : '\n';
+	    if(advance[a][code]){
+		a++;
+		a = a%numAlpha;
+	    }
+	}
+	plain = buff;
+    }
+
+    /**
+     * Returns <code>alphaPositions</code>, computing it if needed.
+     */
+    private final int[][][] getAlphaPositions(){
+	if(alphaPositions != null){
+	    return alphaPositions;
+	}
+	int[][] counts = new int[numAlpha][symbolStr.length];
+	int a = 0;
+	int code;
+	for(int i=0; i<codes.length; i++){
+	    code = codes[i];
+	    counts[a][code]++;
+	    if(advance[a][code]){
+		a++;
+		a = a%numAlpha;
+	    }
+	}
+	int[][][] positions = new int[numAlpha][symbolStr.length][];
+	for(a=0; a<numAlpha; a++){
+	    for(int c=0; c<symbolStr.length; c++){
+		positions[a][c] = new int[counts[a][c]];
+		counts[a][c] = 0;
+	    }
+	}
+	a = 0;
+	for(int i=0; i<codes.length; i++){
+	    code = codes[i];
+	    positions[a][code][counts[a][code]++] = i;
+	    if(advance[a][code]){
+		a++;
+		a = a%numAlpha;
+	    }
+	}
+	alphaPositions = positions;
+	return alphaPositions;
+    }
+
+    /**
+     * Returns <code>true</code> if the alphabets change after the same
+     * user characters with <code>adv</code> as with the current key.
+     *
+     * @param adv for every alphabet and code, <code>true</code> if the
+     *            alphabet changes after the user character
+     */
+    private final boolean sameAdvance(boolean[][] adv){
+	if(advance == null || advance.length != adv.length){
+	    return false;
+	}
+	for(int a=0; a<adv.length; a++){
+	    if(!java.util.Arrays.equals(advance[a], adv[a])){
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Computes the alphabet of the first user character of every line.
+     */
+    private final void initLineAlpha(){
+	lineAlpha = new int[numLines];
+	if(numAlpha == 1){
+	    return;
+	}
+	int a = 0; // the alphabet the current character is in
+	int line = 0;
+	for(int i=0; i<codes.length && line<numLines; i++){
+	    while(line < numLines && lineStart[line] == i){
+		lineAlpha[line++] = a;
+	    }
+	    if(advance[a][codes[i]]){
+		a++;
+		a = a%numAlpha;
+	    }
+	}
+    }
+
+    /**
+     * Returns the number of lines.
+     */
+    public int getNumberOfLines(){
+	return numLines;
+    }
+
+    /**
+     * Returns the number of user characters of the longest line.
+     */
+    public int getMaximumLineLength(){
+	return maxLineLength;
+    }
+
+    /**
+     * Returns the index of the first user character after the end of
+     * <code>line</code>, not counting its separator.
+     */
+    private final int lineEnd(int line){
+	int end = lineStart[line+1];
+	if(end > lineStart[line] && symbolBreak[codes[end-1]]){
+	    end--;
+	}
+	return end;
+    }
+
+    /**
+     * Returns the ciphertext of <code>line</code>.
+     *
+     * @param line the number of the line, from <code>0</code>
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    public String getCiphertextLine(int line) throws IndexOutOfBoundsException
+    {
+	if(line < 0 || line >= numLines){
+	    throw new IndexOutOfBoundsException("line: " + line);
+	}
+	int end = lineEnd(line);
+	StringBuffer sb = new StringBuffer(end - lineStart[line]);
+	for(int i=lineStart[line]; i<end; i++){
+	    sb.append(symbolStr[codes[i]]);
+	}
+	return sb.toString();
+    }
+
+    /**
+     * Returns the plaintext of <code>line</code> for the key, or the
+     * ciphertext if no key has been set.
+     *
+     * @param line the number of the line, from <code>0</code>
+     * @throws IndexOutOfBoundsException if there is no such line
+     * @see #setKey(ArrayList)
+     */
+    public String getPlaintextLine(int line) throws IndexOutOfBoundsException
+    {
+	if(repl == null){
+	    return getCiphertextLine(line);
+	}
+	if(line < 0 || line >= numLines){
+	    throw new IndexOutOfBoundsException("line: " + line);
+	}
+	int end = lineEnd(line);
+	if(plain != null){
+	    return new String(plain, lineStart[line], end - lineStart[line]);
+	}
+	if(lineAlpha == null){
+	    initLineAlpha();
+	}
+	StringBuffer sb = new StringBuffer(end - lineStart[line]);
+	int a = lineAlpha[line];
+	int code;
+	for(int i=lineStart[line]; i<end; i++){
+	    code = codes[i];
+	    sb.append(repl[a][code]);
+	    if(advance[a][code]){
+		a++;
+		a = a%numAlpha;
+	    }
+	}
+	return sb.toString();
+    }
+
+    /**
+     * Returns the whole plaintext for the key, or the ciphertext if no key
+     * has been set. Unlike <code>CiphertextManager.getPlaintext</code>, it
+     * is usually copied from the plaintext kept up to date by
+     * <code>setKey</code>.
+     *
+     * @see #setKey(ArrayList)
+     * @see CiphertextManager#getPlaintext(ArrayList)
+     */
+    public String getPlaintext(){
+	if(plain != null && singleBreaks){
+	    return new String(plain);
+	}
+	StringBuffer sb = new StringBuffer(codes.length);
+	for(int line=0; line<numLines; line++){
+	    sb.append(getPlaintextLine(line));
+	    int end = lineStart[line+1];
+	    if(end > lineStart[line] && symbolBreak[codes[end-1]]){
+		sb.append(symbolStr[codes[end-1]]);
+	    }
+	}
+	return sb.toString();
+    }
+
+    /**
+     * Returns the <code>CollationKey</code> of the user character of the
+     * ciphertext at <code>position</code>, counting from <code>0</code>.
+     *
+     * @param position the position of the user character
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    public CollationKey getCharacter(int position)
+	throws IndexOutOfBoundsException
+    {
+	return (CollationKey)manager.symbols.get(codes[position]);
+    }
+
+    /**
+     * Returns the positions where the user character <code>ck</code>
+     * appears in the ciphertext, in ascending order, from the position
+     * index of the <code>CiphertextManager</code>.
+     *
+     * @param ck the <code>CollationKey</code> of the user character
+     * @throws NullPointerException if <code>ck</code> is <code>null</code>
+     * @see CiphertextManager#getPositions(CollationKey)
+     */
+    public int[] getPositions(CollationKey ck) throws NullPointerException{
+	return manager.getPositions(ck);
+    }
+
+    /**
+     * Returns the offset in the text of <code>line</code> where the user
+     * character at every position of it begins, followed by the length of
+     * the text.
+     *
+     * @param line the number of the line
+     * @param plaintext <code>true</code> for the text of the plaintext,
+     *                  <code>false</code> for the one of the ciphertext
+     */
+    private int[] lineOffsets(int line, boolean plaintext){
+	int start = lineStart[line];
+	int end = lineEnd(line);
+	int[] off = new int[end - start + 1];
+	plaintext = plaintext && repl != null;
+	int a = 0; // the alphabet the current character is in
+	if(plaintext){
+	    if(lineAlpha == null){
+		initLineAlpha();
+	    }
+	    a = lineAlpha[line];
+	}
+	int code;
+	for(int i=start; i<end; i++){
+	    code = codes[i];
+	    if(plaintext){
+		off[i - start + 1] = off[i - start] + repl[a][code].length();
+		if(advance[a][code]){
+		    a++;
+		    a = a%numAlpha;
+		}
+	    }else{
+		off[i - start + 1] = off[i - start] + symbolStr[code].length();
+	    }
+	}
+	return off;
+    }
+
+    /**
+     * Returns the position of the user character of the ciphertext that is
+     * at <code>offset</code> in the text of <code>line</code>, or
+     * <code>-1</code> if the line is shorter.
+     *
+     * @param line the number of the line, from <code>0</code>
+     * @param offset the offset in the text of the line
+     * @param plaintext <code>true</code> if the offset is in the plaintext
+     *                  of the line, <code>false</code> if it is in the
+     *                  ciphertext
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    public int getPosition(int line, int offset, boolean plaintext)
+	throws IndexOutOfBoundsException
+    {
+	if(line < 0 || line >= numLines){
+	    throw new IndexOutOfBoundsException("line: " + line);
+	}
+	int start = lineStart[line];
+	int length = lineEnd(line) - start;
+	if(offset < 0){
+	    return -1;
+	}
+	if(plaintext ? plain != null || repl == null && singleChars
+		     : singleChars){
+	    return offset < length ? start + offset : -1;
+	}
+	int[] off = lineOffsets(line, plaintext);
+	for(int i=0; i<length; i++){
+	    if(offset < off[i+1]){
+		return start + i;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Returns where the user characters at <code>positions</code> that
+     * are in <code>line</code> are in its text, as the offset of the first
+     * character of each one followed by the offset after its last.
+     *
+     * @param line the number of the line, from <code>0</code>
+     * @param positions positions of the ciphertext, in ascending order
+     * @param plaintext <code>true</code> for the offsets in the plaintext
+     *                  of the line, <code>false</code> for those in the
+     *                  ciphertext
+     * @return the offsets, two for each user character in the line
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    public int[] getOffsets(int line, int[] positions, boolean plaintext)
+	throws IndexOutOfBoundsException
+    {
+	if(line < 0 || line >= numLines){
+	    throw new IndexOutOfBoundsException("line: " + line);
+	}
+	int start = lineStart[line];
+	int end = lineEnd(line);
+	int first = java.util.Arrays.binarySearch(positions, start);
+	if(first < 0){
+	    first = -first - 1;
+	}
+	int last = first;
+	while(last < positions.length && positions[last] < end){
+	    last++;
+	}
+	int[] ret = new int[2*(last - first)];
+	if(last == first){
+	    return ret;
+	}
+	int[] off = null;
+	if(!(plaintext ? plain != null || repl == null && singleChars
+		       : singleChars)){
+	    off = lineOffsets(line, plaintext);
+	}
+	for(int i=first; i<last; i++){
+	    int p = positions[i] - start;
+	    ret[2*(i - first)] = off == null ? p : off[p];
+	    ret[2*(i - first) + 1] = off == null ? p + 1 : off[p+1];
+	}
+	return ret;
+    }
+}
+/*
+ * -- PlaintextModel.java ends here --
+ */
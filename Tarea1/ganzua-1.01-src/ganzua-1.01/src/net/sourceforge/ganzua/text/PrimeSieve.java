@@ -0,0 +1,215 @@
+/*
+ * -- PrimeSieve.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+/**
+ * Table with the smallest prime factor of every number from 2 to a limit,
+ * used to factorize numbers up to the limit in O(log n) divisions. The
+ * table takes 4 bytes per number and is built in O(n log log n) time,
+ * so a shared instance is kept and only replaced by a larger one when a
+ * larger limit is needed (see <code>getShared</code>).
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class PrimeSieve{
+
+    /**
+     * The instance returned by <code>getShared</code> */
+    private static PrimeSieve shared;
+
+    /**
+     * The smallest prime factor of every number up to the limit, at the
+     * index of the number (the first two entries are not used) */
+    private final int[] smallest;
+
+    /**
+     * Builds the table of smallest prime factors of the numbers up to
+     * <code>limit</code>.
+     *
+     * @param limit the largest number in the table
+     * @throws IllegalArgumentException if <code>limit &lt; 1</code>
+     */
+    public PrimeSieve(int limit) throws IllegalArgumentException
+    {
+	if(limit < 1){
+	    throw new IllegalArgumentException("limit must be greater "+
+					       "than or equal to 1");
+	}
+	smallest = new int[limit+1];
+	for(int i=2; i<=limit; i++){
+	    if(smallest[i] == 0){
+		smallest[i] = i;
+		if((long)i*i <= limit){
+		    for(int j=i*i; j<=limit; j+=i){
+			if(smallest[j] == 0){
+			    smallest[j] = i;
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    /**
+     * Returns a shared <code>PrimeSieve</code> whose limit is at least
+     * <code>limit</code>. If the shared instance is too small, it is
+     * replaced by one with at least twice its limit, so a sequence of
+     * growing limits builds only a few tables.
+     *
+     * @param limit the largest number that will be factorized
+     * @throws IllegalArgumentException if <code>limit &lt; 1</code>
+     */
+    public static synchronized PrimeSieve getShared(int limit)
+	throws IllegalArgumentException
+    {
+	if(limit < 1){
+	    throw new IllegalArgumentException("limit must be greater "+
+					       "than or equal to 1");
+	}
+	if(shared == null || shared.getLimit() < limit){
+	    int newLimit = limit;
+	    if(shared != null && limit/2 < shared.getLimit()){
+		newLimit = (int)Math.min(Integer.MAX_VALUE - 1,
+					 2L*shared.getLimit());
+	    }
+	    shared = new PrimeSieve(newLimit);
+	}
+	return shared;
+    }
+
+    /**
+     * Returns the largest number in the table.
+     */
+    public int getLimit(){
+	return smallest.length - 1;
+    }
+
+    /**
+     * Returns the smallest prime factor of <code>n</code>. Numbers larger
+     * than the limit are factorized by trial division.
+     *
+     * @param n an <code>int</code> greater than or equal to <code>2</code>
+     * @throws IllegalArgumentException if <code>n &lt; 2</code>
+     */
+    public int smallestFactor(int n) throws IllegalArgumentException
+    {
+	if(n < 2){
+	    throw new IllegalArgumentException();
+	}
+	if(n < smallest.length){
+	    return smallest[n];
+	}
+	if(n%2 == 0){
+	    return 2;
+	}
+	for(int f=3; f<=n/f; f+=2){
+	    if(n%f == 0){
+		return f;
+	    }
+	}
+	return n;
+    }
+
+    /**
+     * Returns the prime factors of <code>n</code> in ascending order, with
+     * every factor repeated as many times as it divides <code>n</code>.
+     * The array is empty for <code>1</code>.
+     *
+     * @param n an <code>int</code> greater than or equal to <code>1</code>
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public int[] factor(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException();
+	}
+	int count = 0;
+	for(int m=n; m>1; m/=smallestFactor(m)){
+	    count++;
+	}
+	int[] factors = new int[count];
+	int i = 0;
+	for(int m=n; m>1; m/=factors[i++]){
+	    factors[i] = smallestFactor(m);
+	}
+	return factors;
+    }
+
+    /**
+     * Stores in <code>divisors</code> the divisors of <code>n</code> from
+     * <code>2</code> to <code>max</code>, in no particular order, and
+     * returns how many there are. The divisors are generated from the
+     * prime factors of <code>n</code>, so only those that are not larger
+     * than <code>max</code> are visited.
+     *
+     * @param n an <code>int</code> greater than or equal to <code>1</code>
+     * @param max the largest divisor stored
+     * @param divisors where the divisors are stored, with room for at
+     *                 least <code>max</code> of them
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     * @throws NullPointerException if <code>divisors</code> is <code>null</code>
+     */
+    public int divisors(int n, int max, int[] divisors)
+	throws IllegalArgumentException, NullPointerException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException();
+	}
+	if(max < 2){
+	    return 0;
+	}
+	divisors[0] = 1;
+	int count = 1;
+	int m = n;
+	while(m > 1){
+	    int p = smallestFactor(m);
+	    int mult = 0; // how many times p divides m
+	    while(m%p == 0){
+		m /= p;
+		mult++;
+	    }
+	    // multiply the divisors found so far by p, p^2, ..., p^mult
+	    int prev = count;
+	    for(int j=0; j<prev; j++){
+		long d = divisors[j];
+		for(int k=0; k<mult; k++){
+		    d *= p;
+		    if(d > max){
+			break;
+		    }
+		    divisors[count++] = (int)d;
+		}
+	    }
+	}
+	// drop the divisor 1
+	divisors[0] = divisors[--count];
+	return count;
+    }
+}
+
+/*
+ * -- PrimeSieve.java ends here --
+ */
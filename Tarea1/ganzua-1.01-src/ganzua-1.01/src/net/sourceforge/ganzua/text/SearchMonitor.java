@@ -0,0 +1,68 @@
+/*
+ * -- SearchMonitor.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+/**
+ * Interface of the objects that follow a search done by a solver in
+ * another thread. The solver asks the monitor whether it should stop,
+ * tells it how far it has gone and passes it every result that is better
+ * than the ones found before, so the best one so far can be shown while
+ * the search goes on.<br/>
+ *
+ * The methods are called from the threads of the solver, possibly from
+ * several at the same time, and should return quickly.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public interface SearchMonitor{
+
+    /**
+     * Returns <code>true</code> if the search should stop as soon as
+     * possible. The solver then returns the best result it has found.
+     */
+    public boolean isCancelled();
+
+    /**
+     * Called when <code>done</code> of the <code>total</code> steps of the
+     * search have been completed.
+     *
+     * @param done the number of steps completed
+     * @param total the number of steps of the search
+     */
+    public void progress(int done, int total);
+
+    /**
+     * Called when the search finds a result better than all the ones found
+     * before.
+     *
+     * @param best the result, in the format returned by the solver
+     * @param score the score of <code>best</code>
+     */
+    public void improved(Object best, double score);
+}
+/*
+ * -- SearchMonitor.java ends here --
+ */
@@ -0,0 +1,324 @@
+/*
+ * -- SuffixArray.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+/**
+ * Class that builds the suffix array and the LCP (longest common prefix)
+ * array of a text given as an array of codes, and uses them to find the
+ * maximal repeats of the text, i.e. the sequences that appear at least
+ * twice and can not be extended to the left or to the right without
+ * losing an occurrence.<br/>
+ *
+ * The suffix array is built by prefix doubling with radix sorting
+ * (O(n log n)) and the LCP array with Kasai's algorithm (O(n)).
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class SuffixArray{
+
+    /**
+     * The text */
+    protected int[] text;
+
+    /**
+     * The number of codes of <code>text</code> used */
+    protected int length;
+
+    /**
+     * The suffix array: <code>sa[i]</code> is the position where the
+     * <code>i</code>-th suffix in lexicographic order starts. */
+    protected int[] sa;
+
+    /**
+     * <code>lcp[i]</code> is the length of the longest common prefix of
+     * the suffixes at <code>sa[i-1]</code> and <code>sa[i]</code>.
+     * <code>lcp[0]</code> is <code>0</code>. */
+    protected int[] lcp;
+
+    /**
+     * Builds the suffix and LCP arrays of the first <code>length</code>
+     * codes of <code>text</code>.
+     *
+     * @param text the text as an array of codes (<code>0 &lt;= text[i] &lt; numCodes</code>)
+     * @param length the number of codes of <code>text</code> to use
+     * @param numCodes the number of different codes
+     * @throws NullPointerException if <code>text</code> is <code>null</code>
+     * @throws IllegalArgumentException if <code>length</code> is out of bounds or <code>numCodes &lt; 0</code>
+     */
+    public SuffixArray(int[] text, int length, int numCodes)
+	throws NullPointerException, IllegalArgumentException
+    {
+	if(length < 0 || length > text.length || numCodes < 0){
+	    throw new IllegalArgumentException();
+	}
+	this.text = text;
+	this.length = length;
+	sa = buildSuffixArray(text, length, numCodes);
+	lcp = buildLCP(text, length, sa);
+    }
+
+    /**
+     * Returns the suffix array. It must not be modified.
+     */
+    public int[] getSuffixArray(){
+	return sa;
+    }
+
+    /**
+     * Returns the LCP array. It must not be modified.
+     */
+    public int[] getLCP(){
+	return lcp;
+    }
+
+    /**
+     * Receives the maximal repeats found by
+     * <code>findMaximalRepeats</code>.
+     */
+    public interface RepeatHandler{
+
+	/**
+	 * Called once for every maximal repeat.
+	 *
+	 * @param length the length of the repeat
+	 * @param sa the suffix array
+	 * @param from the index in <code>sa</code> of the first occurrence
+	 * @param to the index in <code>sa</code> of the last occurrence
+	 *           (inclusive). The positions of the occurrences are
+	 *           <code>sa[from]</code> to <code>sa[to]</code>, unsorted.
+	 */
+	public void repeat(int length, int[] sa, int from, int to);
+    }
+
+    /**
+     * Finds the maximal repeats whose length is between
+     * <code>minLen</code> and <code>maxLen</code> (inclusive) and passes
+     * them to <code>handler</code>. The repeats are the LCP intervals of
+     * the suffix array whose suffixes are not all preceded by the same
+     * code, and are found in a single bottom-up pass over the LCP array.
+     * <br/>
+     *
+     * A repeat longer than <code>maxLen</code> is reported as its prefix
+     * of <code>maxLen</code> codes, with all the occurrences of the
+     * prefix: the LCP values are taken as at most <code>maxLen</code>,
+     * so the intervals deeper than <code>maxLen</code> are merged into
+     * the one of their prefix.
+     *
+     * @param minLen the minimum length of the repeats
+     * @param maxLen the maximum length of the repeats
+     * @param handler receives the repeats
+     * @throws NullPointerException if <code>handler</code> is <code>null</code>
+     */
+    public void findMaximalRepeats(int minLen, int maxLen,
+				   RepeatHandler handler)
+	throws NullPointerException
+    {
+	if(handler == null){
+	    throw new NullPointerException();
+	}
+	if(length < 2){
+	    return;
+	}
+	/* stack of open LCP intervals: their lcp value, left bound and
+	   the code that precedes all their suffixes (or NONE/MIXED) */
+	int[] stLcp = new int[16];
+	int[] stLb = new int[16];
+	int[] stLeft = new int[16];
+	int top = 0;
+	stLcp[0] = 0;
+	stLb[0] = 0;
+	stLeft[0] = NONE;
+	for(int i=1; i<=length; i++){
+	    int cur = i<length ? Math.min(lcp[i], maxLen) : -1;
+	    int last = leftCode(sa[i-1]);
+	    int lb = i-1;
+	    while(top >= 0 && stLcp[top] > cur){
+		int state = combine(stLeft[top], last);
+		int len = stLcp[top];
+		if(state == MIXED && len >= minLen){
+		    handler.repeat(len, sa, stLb[top], i-1);
+		}
+		last = state;
+		lb = stLb[top];
+		top--;
+	    }
+	    if(top < 0){
+		break;
+	    }
+	    if(stLcp[top] < cur){
+		top++;
+		if(top == stLcp.length){
+		    int[] tmp = new int[top*2];
+		    System.arraycopy(stLcp, 0, tmp, 0, top);
+		    stLcp = tmp;
+		    tmp = new int[top*2];
+		    System.arraycopy(stLb, 0, tmp, 0, top);
+		    stLb = tmp;
+		    tmp = new int[top*2];
+		    System.arraycopy(stLeft, 0, tmp, 0, top);
+		    stLeft = tmp;
+		}
+		stLcp[top] = cur;
+		stLb[top] = lb;
+		stLeft[top] = last;
+	    }else{
+		stLeft[top] = combine(stLeft[top], last);
+	    }
+	}
+    }
+
+    /**
+     * No code precedes the suffixes seen so far. */
+    private static final int NONE = -2;
+
+    /**
+     * Different codes precede the suffixes (or one is at position 0). */
+    private static final int MIXED = -1;
+
+    /**
+     * Returns the code that precedes the suffix at <code>pos</code>,
+     * or <code>MIXED</code> if it is at the start of the text.
+     */
+    private final int leftCode(int pos){
+	return pos == 0 ? MIXED : text[pos-1];
+    }
+
+    /**
+     * Combines the codes that precede two groups of suffixes.
+     */
+    private static final int combine(int a, int b){
+	if(a == NONE){
+	    return b;
+	}else if(b == NONE){
+	    return a;
+	}
+	return a == b ? a : MIXED;
+    }
+
+    /**
+     * Builds the suffix array of the first <code>n</code> codes of
+     * <code>s</code> by prefix doubling, sorting the pairs of ranks with
+     * a counting sort.
+     */
+    private static int[] buildSuffixArray(int[] s, int n, int numCodes){
+	int[] sa = new int[n];
+	if(n == 0){
+	    return sa;
+	}
+	int[] rank = new int[n];
+	int[] tmp = new int[n];
+	int[] cnt = new int[Math.max(numCodes, n) + 1];
+	// sort the suffixes by their first code
+	for(int i=0; i<n; i++){
+	    cnt[s[i]]++;
+	}
+	for(int i=1; i<numCodes; i++){
+	    cnt[i] += cnt[i-1];
+	}
+	for(int i=n-1; i>=0; i--){
+	    sa[--cnt[s[i]]] = i;
+	}
+	rank[sa[0]] = 0;
+	int r = 0;
+	for(int i=1; i<n; i++){
+	    if(s[sa[i]] != s[sa[i-1]]){
+		r++;
+	    }
+	    rank[sa[i]] = r;
+	}
+	for(int k=1; r < n-1; k<<=1){
+	    // order by the rank of the second half
+	    int p = 0;
+	    for(int i=n-k; i<n; i++){
+		tmp[p++] = i;
+	    }
+	    for(int i=0; i<n; i++){
+		if(sa[i] >= k){
+		    tmp[p++] = sa[i] - k;
+		}
+	    }
+	    // stable counting sort by the rank of the first half
+	    java.util.Arrays.fill(cnt, 0, r+1, 0);
+	    for(int i=0; i<n; i++){
+		cnt[rank[i]]++;
+	    }
+	    for(int i=1; i<=r; i++){
+		cnt[i] += cnt[i-1];
+	    }
+	    for(int i=n-1; i>=0; i--){
+		sa[--cnt[rank[tmp[i]]]] = tmp[i];
+	    }
+	    // compute the new ranks in tmp
+	    tmp[sa[0]] = 0;
+	    r = 0;
+	    for(int i=1; i<n; i++){
+		int a = sa[i-1];
+		int b = sa[i];
+		int a2 = a+k < n ? rank[a+k] : -1;
+		int b2 = b+k < n ? rank[b+k] : -1;
+		if(rank[a] != rank[b] || a2 != b2){
+		    r++;
+		}
+		tmp[b] = r;
+	    }
+	    int[] swap = rank;
+	    rank = tmp;
+	    tmp = swap;
+	}
+	return sa;
+    }
+
+    /**
+     * Builds the LCP array of the first <code>n</code> codes of
+     * <code>s</code> using Kasai's algorithm.
+     */
+    private static int[] buildLCP(int[] s, int n, int[] sa){
+	int[] lcp = new int[n];
+	int[] rank = new int[n];
+	for(int i=0; i<n; i++){
+	    rank[sa[i]] = i;
+	}
+	int h = 0;
+	for(int i=0; i<n; i++){
+	    if(rank[i] > 0){
+		int j = sa[rank[i]-1];
+		while(i+h < n && j+h < n && s[i+h] == s[j+h]){
+		    h++;
+		}
+		lcp[rank[i]] = h;
+		if(h > 0){
+		    h--;
+		}
+	    }else{
+		h = 0;
+	    }
+	}
+	return lcp;
+    }
+}
+/*
+ * -- SuffixArray.java ends here --
+ */
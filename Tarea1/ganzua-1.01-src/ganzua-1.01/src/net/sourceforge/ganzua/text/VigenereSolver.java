@@ -0,0 +1,877 @@
+/*
+ * -- VigenereSolver.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.*;
+import java.text.CollationKey;
+import java.text.Collator;
+
+/**
+ * Class that searches for the key of a Vigenère cipher. In Ganzúa the
+ * alphabets of a Vigenère substitution are shifts of the identity (the
+ * substitution selected by <code>MonoAlphaSubst.selectIdentity()</code>):
+ * with the shift <code>s</code>, the character at the position
+ * <code>i</code> of the cipher alphabet is replaced by the one that
+ * replaces the character at the position <code>i + s</code> in the
+ * identity. The key is the shift of every alphabet.<br/>
+ *
+ * The search has three steps:
+ * <ol>
+ *  <li>The periods from 1 to the maximum period are ranked by the average
+ *      coincidence index of the columns of the ciphertext (the characters
+ *      enciphered with the same alphabet) and by how many more of the
+ *      distances between repeated trigrams they divide than a random
+ *      number would, and the best ones are kept as candidates.</li>
+ *  <li>For every candidate, the shift of every column is the one whose
+ *      plaintext has the smallest chi-squared statistic against the
+ *      frequencies of the characters of the language.</li>
+ *  <li>The shifts are refined by changing the one of a column at a time
+ *      while the sum of the logarithms of the relative frequencies of the
+ *      bigrams and trigrams of the plaintext improves.</li>
+ * </ol>
+ * The candidates are divided among several threads. The key with the best
+ * score is reduced to its shortest period and kept; the score of every
+ * period is penalized a little for every alphabet, so a multiple of the
+ * period is not chosen just because its extra alphabets fit the
+ * plaintext a little better.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class VigenereSolver{
+
+    /**
+     * The smallest order of the n-grams used to score the keys */
+    public static final int MIN_ORDER = 2;
+
+    /**
+     * The largest order of the n-grams used to score the keys */
+    public static final int MAX_ORDER = 3;
+
+    /**
+     * The largest number of entries the table of the last positions of the
+     * trigrams can have. If it would be larger, the distances between
+     * repeated trigrams are not used to rank the periods. */
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    /**
+     * The largest number of entries the table used to count the n-grams
+     * of every column can have. If it would be larger, the n-grams are
+     * sorted to count them. */
+    private static final int MAX_COUNT_TABLE_SIZE = 1 << 21;
+
+    /**
+     * The smallest number of characters a column must have on average for
+     * its period to be considered */
+    private static final int MIN_COLUMN_LENGTH = 8;
+
+    /**
+     * What the score of a key loses for every alphabet, in units of the
+     * logarithm of the size of the cipher alphabet */
+    private static final double PERIOD_PENALTY = 4;
+
+    /**
+     * The ciphertext as indices in <code>cipherAlpha</code> */
+    private int[] text;
+
+    /**
+     * The cipher alphabet (sorted <code>CollationKey</code>s). */
+    protected List cipherAlpha;
+
+    /**
+     * The plain alphabet (sorted <code>CollationKey</code>s). */
+    protected List plainAlpha;
+
+    /**
+     * Number of characters in <code>cipherAlpha</code> */
+    private int numCipher;
+
+    /**
+     * Number of characters in <code>plainAlpha</code> */
+    private int numPlain;
+
+    /**
+     * For every shift, the replacement of every cipher character, or
+     * <code>-1</code> if it has none */
+    private int[][] shifted;
+
+    /**
+     * The relative frequency of every character of the plain alphabet in
+     * the language */
+    private double[] charFreq;
+
+    /**
+     * For every order, the logarithm of the relative frequency of every
+     * n-gram of the plain alphabet, indexed by the codes of its characters
+     * as the digits of a number in base <code>numPlain</code>.
+     * <code>null</code> if the order is not used. */
+    private float[][] logFreq = new float[MAX_ORDER-MIN_ORDER+1][];
+
+    /**
+     * Number of threads used to search for the key. */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The largest period considered */
+    private int maxPeriod = 32;
+
+    /**
+     * The number of periods whose keys are searched for */
+    private int numCandidates = 4;
+
+    /**
+     * The candidate periods */
+    private int[] candidates;
+
+    /**
+     * The next candidate to be solved by a <code>PeriodWorker</code> */
+    private int nextCandidate;
+
+    /**
+     * The best key found, the shift of every alphabet */
+    private int[] bestKey;
+
+    /**
+     * The score of <code>bestKey</code>, without the penalty of its
+     * period */
+    private double bestScore;
+
+    /**
+     * The score of <code>bestKey</code> with the penalty of its period */
+    private double bestPenalized;
+
+    /**
+     * Creates a solver for the ciphertext <code>text</code>.
+     *
+     * @param text the ciphertext as indices in <code>cipherAlpha</code>
+     *             (see <code>CiphertextManager.getCodes</code>). It must
+     *             not contain the ignored characters, since they don't
+     *             change the alphabet.
+     * @param cipherAlpha the cipher alphabet, a sorted <code>List</code> of
+     *                    <code>CollationKey</code>s
+     * @param plainAlpha the plain alphabet, a sorted <code>List</code> of
+     *                   <code>CollationKey</code>s
+     * @param chars the <code>StringFreq</code>s of the characters of the
+     *              language
+     * @param bigrams the <code>StringFreq</code>s of the bigrams of the
+     *                language
+     * @param trigrams the <code>StringFreq</code>s of the trigrams of the
+     *                 language
+     * @param locale used to find the user characters of the n-grams and to
+     *               change the case of the characters of the identity
+     * @param collator used to create the <code>CollationKey</code>s of the
+     *                 characters of the n-grams
+     * @param injective <code>true</code> if two cipher characters can not
+     *                  have the same replacement in the identity
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws IllegalArgumentException if an alphabet is empty, a code of <code>text</code> is not an index of <code>cipherAlpha</code> or the characters of the language can not be used
+     * @see CiphertextManager#getCodes(Set, List)
+     */
+    public VigenereSolver(int[] text,
+			  List cipherAlpha,
+			  List plainAlpha,
+			  Collection chars,
+			  Collection bigrams,
+			  Collection trigrams,
+			  Locale locale,
+			  Collator collator,
+			  boolean injective) throws NullPointerException,
+						    IllegalArgumentException
+    {
+	if(text == null || cipherAlpha == null || plainAlpha == null ||
+	   chars == null || bigrams == null || trigrams == null ||
+	   locale == null || collator == null){
+	    throw new NullPointerException();
+	}
+	numCipher = cipherAlpha.size();
+	numPlain = plainAlpha.size();
+	if(numCipher == 0 || numPlain == 0){
+	    throw new IllegalArgumentException("Empty alphabet");
+	}
+	for(int i=0; i<text.length; i++){
+	    if(text[i] < 0 || text[i] >= numCipher){
+		throw new IllegalArgumentException("Code out of range");
+	    }
+	}
+	this.text = text;
+	this.cipherAlpha = cipherAlpha;
+	this.plainAlpha = plainAlpha;
+	FitnessScorer scorer =
+	    new FitnessScorer(plainAlpha,
+			      new Collection[]{chars, bigrams, trigrams},
+			      locale, collator);
+	float[] logChars = scorer.getTable(1);
+	if(logChars == null){
+	    throw new IllegalArgumentException("No characters of the plain alphabet");
+	}
+	charFreq = new double[numPlain];
+	for(int p=0; p<numPlain; p++){
+	    charFreq[p] = Math.exp(logChars[p]);
+	}
+	logFreq[0] = scorer.getTable(2);
+	logFreq[1] = scorer.getTable(3);
+	shifted = shiftTable(identity(cipherAlpha, plainAlpha, locale,
+				      collator, injective));
+    }
+
+    /**
+     * Returns the replacement of every cipher character in the identity,
+     * chosen as <code>MonoAlphaSubst.selectIdentity()</code> does: the
+     * same character, or else its lower case, or else its upper case. If
+     * no cipher character is in the plain alphabet, the character at the
+     * same position in the plain alphabet is used.
+     */
+    static final int[] identity(List cipherAlpha,
+				List plainAlpha,
+				Locale locale,
+				Collator collator,
+				boolean injective)
+    {
+	int numCipher = cipherAlpha.size();
+	int numPlain = plainAlpha.size();
+	int[] identity = new int[numCipher];
+	boolean[] used = new boolean[numPlain];
+	boolean found = false;
+	Arrays.fill(identity, -1);
+	for(int pass=0; pass<3; pass++){
+	    for(int c=0; c<numCipher; c++){
+		if(identity[c] != -1){
+		    continue;
+		}
+		CollationKey ck = (CollationKey)cipherAlpha.get(c);
+		if(pass == 1){
+		    ck = collator.getCollationKey(ck.getSourceString().toLowerCase(locale));
+		}else if(pass == 2){
+		    ck = collator.getCollationKey(ck.getSourceString().toUpperCase(locale));
+		}
+		int p = Collections.binarySearch(plainAlpha, ck);
+		if(p >= 0 && !(injective && used[p])){
+		    identity[c] = p;
+		    used[p] = true;
+		    found = true;
+		}
+	    }
+	}
+	if(!found){
+	    for(int c=0; c<numCipher; c++){
+		identity[c] = c < numPlain ? c : -1;
+	    }
+	}
+	return identity;
+    }
+
+    /**
+     * Returns the replacements of every cipher character for every shift
+     * of <code>identity</code>, as <code>shiftSelection</code> moves them.
+     */
+    static final int[][] shiftTable(int[] identity){
+	int numCipher = identity.length;
+	int[][] shifted = new int[numCipher][numCipher];
+	for(int s=0; s<numCipher; s++){
+	    for(int c=0; c<numCipher; c++){
+		shifted[s][c] = identity[(c + s) % numCipher];
+	    }
+	}
+	return shifted;
+    }
+
+    /**
+     * Sets the maximum number of threads used to search for the key.
+     * By default, one per available processor.
+     *
+     * @param n the number of threads
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setNumberOfThreads(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n must be greater than 0");
+	}
+	numThreads = n;
+    }
+
+    /**
+     * Sets the largest period considered. By default 32. Periods whose
+     * columns would have less than 8 characters on average are never
+     * considered.
+     *
+     * @param n the maximum period
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setMaximumPeriod(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n must be greater than 0");
+	}
+	maxPeriod = n;
+    }
+
+    /**
+     * Sets the number of periods whose keys are searched for. By
+     * default 4.
+     *
+     * @param n the number of candidate periods
+     * @throws IllegalArgumentException if <code>n &lt; 1</code>
+     */
+    public void setNumberOfCandidates(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n must be greater than 0");
+	}
+	numCandidates = n;
+    }
+
+    /**
+     * Searches for the key and returns it as an <code>ArrayList</code>
+     * with a <code>HashMap</code> per alphabet, that maps every character
+     * of the cipher alphabet to its replacement
+     * (<code>CollationKey</code>s, <code>null</code> if it has none), as
+     * used by <code>Substitution.setSubstitution</code>. The number of
+     * alphabets is the period found.
+     *
+     * @return the best key found
+     */
+    public ArrayList solve(){
+	candidates = rankPeriods();
+	nextCandidate = 0;
+	bestKey = null;
+	bestScore = Double.NEGATIVE_INFINITY;
+	bestPenalized = Double.NEGATIVE_INFINITY;
+	int n = Math.min(numThreads, candidates.length);
+	PeriodWorker[] workers = new PeriodWorker[n];
+	for(int i=0; i<n; i++){
+	    workers[i] = new PeriodWorker();
+	}
+	if(n == 1){
+	    workers[0].run();
+	}else{
+	    for(int i=0; i<n; i++){
+		workers[i].start();
+	    }
+	    for(int i=0; i<n; i++){
+		boolean joined = false;
+		while(!joined){
+		    try{
+			workers[i].join();
+			joined = true;
+		    }catch(InterruptedException ie){}
+		}
+	    }
+	}
+	return getSubstitution(bestKey.length);
+    }
+
+    /**
+     * Returns the key found by the last call to <code>solve()</code>
+     * repeated to fill <code>numAlpha</code> alphabets, in the format
+     * returned by <code>solve()</code>. For example, the key of period 1
+     * of a Caesar cipher can be used in a substitution with 2 alphabets.
+     *
+     * @param numAlpha the number of alphabets
+     * @throws IllegalStateException if <code>solve()</code> has not been called
+     * @throws IllegalArgumentException if <code>numAlpha</code> is not a multiple of the period found
+     */
+    public ArrayList getSubstitution(int numAlpha) throws IllegalStateException,
+							  IllegalArgumentException
+    {
+	if(bestKey == null){
+	    throw new IllegalStateException();
+	}
+	if(numAlpha < 1 || numAlpha % bestKey.length != 0){
+	    throw new IllegalArgumentException("Not a multiple of the period");
+	}
+	ArrayList substLst = new ArrayList(numAlpha);
+	for(int i=0; i<numAlpha; i++){
+	    int[] repl = shifted[bestKey[i % bestKey.length]];
+	    HashMap key = new HashMap(numCipher*2);
+	    for(int c=0; c<numCipher; c++){
+		key.put(cipherAlpha.get(c),
+			repl[c] == -1 ? null : plainAlpha.get(repl[c]));
+	    }
+	    substLst.add(key);
+	}
+	return substLst;
+    }
+
+    /**
+     * Returns the period found by the last call to <code>solve()</code>.
+     *
+     * @throws IllegalStateException if <code>solve()</code> has not been called
+     */
+    public int getPeriod() throws IllegalStateException
+    {
+	if(bestKey == null){
+	    throw new IllegalStateException();
+	}
+	return bestKey.length;
+    }
+
+    /**
+     * Returns the shift of every alphabet of the key found by the last
+     * call to <code>solve()</code>.
+     *
+     * @throws IllegalStateException if <code>solve()</code> has not been called
+     */
+    public int[] getShifts() throws IllegalStateException
+    {
+	if(bestKey == null){
+	    throw new IllegalStateException();
+	}
+	return (int[])bestKey.clone();
+    }
+
+    /**
+     * Returns the score of the key returned by the last call to
+     * <code>solve()</code>: the sum of the logarithms of the relative
+     * frequencies of the bigrams and trigrams of the plaintext.
+     */
+    public double getScore(){
+	return bestScore;
+    }
+
+    /**
+     * Returns the candidate periods, the best first. The periods are
+     * scored by the average coincidence index of their columns (see
+     * <code>PeriodSpectrum</code>) and by the fraction of the distances
+     * between consecutive occurrences of the same trigram that they
+     * divide, minus the fraction a random period would divide. Both
+     * scores are scaled so the best period has 1.
+     */
+    private final int[] rankPeriods(){
+	int maxP = Math.max(1, Math.min(maxPeriod, text.length/MIN_COLUMN_LENGTH));
+	double[] rank = new double[maxP+1];
+	// the coincidence indices
+	PeriodSpectrum spectrum = new PeriodSpectrum(text, text.length,
+						     numCipher, maxP, 1);
+	double minCI = Double.POSITIVE_INFINITY;
+	double maxCI = Double.NEGATIVE_INFINITY;
+	for(int p=1; p<=spectrum.getMaximumPeriod(); p++){
+	    double ci = spectrum.getCoincidenceIndex(p);
+	    if(!Double.isNaN(ci)){
+		minCI = Math.min(minCI, ci);
+		maxCI = Math.max(maxCI, ci);
+	    }
+	}
+	if(maxCI > minCI){
+	    for(int p=1; p<=spectrum.getMaximumPeriod(); p++){
+		double ci = spectrum.getCoincidenceIndex(p);
+		if(!Double.isNaN(ci)){
+		    rank[p] = (ci - minCI)/(maxCI - minCI);
+		}
+	    }
+	}
+	// the distances between repeated trigrams
+	long size = (long)numCipher*numCipher*numCipher;
+	if(size <= MAX_TABLE_SIZE && text.length >= 3){
+	    int[] last = new int[(int)size];
+	    Arrays.fill(last, -1);
+	    // how many times every distance appears
+	    int[] distances = new int[text.length];
+	    int numDistances = 0;
+	    for(int i=0; i+2<text.length; i++){
+		int id = (text[i]*numCipher + text[i+1])*numCipher + text[i+2];
+		if(last[id] != -1){
+		    distances[i - last[id]]++;
+		    numDistances++;
+		}
+		last[id] = i;
+	    }
+	    int[] divided = new int[maxP+1];
+	    for(int p=2; p<=maxP; p++){
+		for(int d=p; d<distances.length; d+=p){
+		    divided[p] += distances[d];
+		}
+	    }
+	    double[] excess = new double[maxP+1];
+	    double maxExcess = 0;
+	    for(int p=2; p<=maxP && numDistances>0; p++){
+		excess[p] = divided[p]/(double)numDistances - 1.0/p;
+		maxExcess = Math.max(maxExcess, excess[p]);
+	    }
+	    if(maxExcess > 0){
+		for(int p=2; p<=maxP; p++){
+		    rank[p] += Math.max(excess[p], 0)/maxExcess;
+		}
+	    }
+	}
+	int[] periods = new int[Math.min(numCandidates, maxP)];
+	boolean[] taken = new boolean[maxP+1];
+	for(int i=0; i<periods.length; i++){
+	    int best = -1;
+	    for(int p=1; p<=maxP; p++){
+		if(!taken[p] && (best == -1 || rank[p] > rank[best])){
+		    best = p;
+		}
+	    }
+	    taken[best] = true;
+	    periods[i] = best;
+	}
+	return periods;
+    }
+
+    /**
+     * Returns the next candidate period to be solved, or <code>-1</code>
+     * if there are none left.
+     */
+    private synchronized int nextCandidate(){
+	if(nextCandidate >= candidates.length){
+	    return -1;
+	}
+	return candidates[nextCandidate++];
+    }
+
+    /**
+     * Reduces <code>key</code> to its shortest period and keeps it if it
+     * is better than the best key found so far. If the penalized scores
+     * are equal, the shortest key is kept.
+     */
+    private synchronized void offer(double score, int[] key){
+	int q = 1;
+	while(q < key.length){
+	    if(key.length % q == 0){
+		boolean repeats = true;
+		for(int i=q; i<key.length && repeats; i++){
+		    repeats = key[i] == key[i-q];
+		}
+		if(repeats){
+		    break;
+		}
+	    }
+	    q++;
+	}
+	double penalized = score - q*PERIOD_PENALTY*Math.log(numCipher);
+	if(bestKey == null || penalized > bestPenalized ||
+	   (penalized == bestPenalized && q < bestKey.length)){
+	    bestKey = new int[q];
+	    System.arraycopy(key, 0, bestKey, 0, q);
+	    bestScore = score;
+	    bestPenalized = penalized;
+	}
+    }
+
+    /**
+     * Thread that searches for the keys of the candidate periods until
+     * there are none left.
+     */
+    private class PeriodWorker extends Thread{
+
+	/**
+	 * The period being solved */
+	int period;
+
+	/**
+	 * The shift of every alphabet */
+	int[] key;
+
+	/**
+	 * The replacements of every alphabet, <code>shifted[key[i]]</code> */
+	int[][] repl;
+
+	/**
+	 * For every order, the column of the first character of the
+	 * distinct n-grams of the ciphertext */
+	int[][] nGramCols = new int[logFreq.length][];
+
+	/**
+	 * For every order, the codes of the characters of the distinct
+	 * n-grams of the ciphertext (an n-gram is the same if its characters
+	 * and the column it starts in are the same), one after the other */
+	int[][] nGrams = new int[logFreq.length][];
+
+	/**
+	 * For every order, the number of times every n-gram in
+	 * <code>nGrams</code> appears in the ciphertext */
+	int[][] nGramCounts = new int[logFreq.length][];
+
+	/**
+	 * For every order and column, the indices of the n-grams that
+	 * contain a character of the column */
+	int[][][] colNGrams = new int[logFreq.length][][];
+
+	/**
+	 * The score of every n-gram of every order with <code>key</code> */
+	float[][] scores = new float[logFreq.length][];
+
+	public void run(){
+	    for(int p=nextCandidate(); p!=-1; p=nextCandidate()){
+		period = p;
+		chiSquaredKey();
+		offer(refine(), key);
+	    }
+	}
+
+	/**
+	 * Sets the shift of every column to the one that gives the
+	 * plaintext with the smallest chi-squared statistic against the
+	 * frequencies of the characters of the language.
+	 */
+	private void chiSquaredKey(){
+	    key = new int[period];
+	    repl = new int[period][];
+	    int[] counts = new int[period*numCipher];
+	    for(int i=0, col=0; i<text.length; i++){
+		counts[col*numCipher + text[i]]++;
+		if(++col == period){
+		    col = 0;
+		}
+	    }
+	    double[] observed = new double[numPlain];
+	    for(int col=0; col<period; col++){
+		double bestChi = Double.POSITIVE_INFINITY;
+		for(int s=0; s<numCipher; s++){
+		    Arrays.fill(observed, 0);
+		    int[] r = shifted[s];
+		    double len = 0;
+		    for(int c=0; c<numCipher; c++){
+			if(r[c] != -1){
+			    observed[r[c]] += counts[col*numCipher + c];
+			    len += counts[col*numCipher + c];
+			}
+		    }
+		    double chi = 0;
+		    for(int p=0; p<numPlain; p++){
+			double expected = len*charFreq[p];
+			double diff = observed[p] - expected;
+			chi += diff*diff/expected;
+		    }
+		    if(chi < bestChi){
+			bestChi = chi;
+			key[col] = s;
+		    }
+		}
+		repl[col] = shifted[key[col]];
+	    }
+	}
+
+	/**
+	 * Changes the shift of one column at a time, to the one that
+	 * improves the score the most, until no change improves it, and
+	 * returns the score.
+	 */
+	private double refine(){
+	    double score = 0;
+	    for(int o=0; o<logFreq.length; o++){
+		if(logFreq[o] != null){
+		    initNGrams(o);
+		    for(int t=0; t<scores[o].length; t++){
+			scores[o][t] = score(o, t);
+			score += scores[o][t];
+		    }
+		}
+	    }
+	    boolean improved = true;
+	    while(improved){
+		improved = false;
+		for(int col=0; col<period; col++){
+		    int bestShift = key[col];
+		    double bestDelta = 1e-6;
+		    for(int s=0; s<numCipher; s++){
+			if(s != key[col]){
+			    double delta = tryShift(col, s);
+			    if(delta > bestDelta){
+				bestDelta = delta;
+				bestShift = s;
+			    }
+			}
+		    }
+		    if(bestShift != key[col]){
+			key[col] = bestShift;
+			repl[col] = shifted[bestShift];
+			rescore(col);
+			score += bestDelta;
+			improved = true;
+		    }
+		}
+	    }
+	    return score;
+	}
+
+	/**
+	 * Initializes <code>nGramCols</code>, <code>nGrams</code>,
+	 * <code>nGramCounts</code>, <code>colNGrams</code> and
+	 * <code>scores</code> for the order <code>o + MIN_ORDER</code>.
+	 */
+	private void initNGrams(int o){
+	    int n = o + MIN_ORDER;
+	    int len = Math.max(text.length - n + 1, 0);
+	    long size = period;
+	    for(int k=0; k<n; k++){
+		size *= numCipher;
+	    }
+	    /* every n-gram as a number in base numCipher whose most
+	       significant digit is the column. They are counted in a table
+	       if it is small enough, otherwise they are sorted */
+	    long[] ids;
+	    int[] counts;
+	    int numNGrams = 0;
+	    if(size <= MAX_COUNT_TABLE_SIZE){
+		int[] table = new int[(int)size];
+		for(int i=0, col=0; i<len; i++){
+		    int id = col;
+		    for(int k=0; k<n; k++){
+			id = id*numCipher + text[i+k];
+		    }
+		    if(table[id]++ == 0){
+			numNGrams++;
+		    }
+		    if(++col == period){
+			col = 0;
+		    }
+		}
+		ids = new long[numNGrams];
+		counts = new int[numNGrams];
+		for(int id=0, t=0; t<numNGrams; id++){
+		    if(table[id] != 0){
+			ids[t] = id;
+			counts[t++] = table[id];
+		    }
+		}
+	    }else{
+		long[] all = new long[len];
+		for(int i=0, col=0; i<len; i++){
+		    long id = col;
+		    for(int k=0; k<n; k++){
+			id = id*numCipher + text[i+k];
+		    }
+		    all[i] = id;
+		    if(++col == period){
+			col = 0;
+		    }
+		}
+		Arrays.sort(all);
+		for(int i=0; i<len; i++){
+		    if(i == 0 || all[i] != all[i-1]){
+			numNGrams++;
+		    }
+		}
+		ids = new long[numNGrams];
+		counts = new int[numNGrams];
+		for(int i=0, t=-1; i<len; i++){
+		    if(i == 0 || all[i] != all[i-1]){
+			ids[++t] = all[i];
+		    }
+		    counts[t]++;
+		}
+	    }
+	    nGramCols[o] = new int[numNGrams];
+	    nGrams[o] = new int[numNGrams*n];
+	    nGramCounts[o] = counts;
+	    scores[o] = new float[numNGrams];
+	    for(int t=0; t<numNGrams; t++){
+		long id = ids[t];
+		for(int k=n-1; k>=0; k--){
+		    nGrams[o][t*n+k] = (int)(id % numCipher);
+		    id /= numCipher;
+		}
+		nGramCols[o][t] = (int)id;
+	    }
+	    // the n-grams every column is in (once per n-gram)
+	    int[] numIn = new int[period];
+	    for(int pass=0; pass<2; pass++){
+		if(pass == 1){
+		    colNGrams[o] = new int[period][];
+		    for(int col=0; col<period; col++){
+			colNGrams[o][col] = new int[numIn[col]];
+			numIn[col] = 0;
+		    }
+		}
+		for(int t=0; t<numNGrams; t++){
+		    for(int k=0; k<n && k<period; k++){
+			int col = (nGramCols[o][t] + k) % period;
+			if(pass == 0){
+			    numIn[col]++;
+			}else{
+			    colNGrams[o][col][numIn[col]++] = t;
+			}
+		    }
+		}
+	    }
+	}
+
+	/**
+	 * Returns the score of the n-gram <code>t</code> of the order
+	 * <code>o + MIN_ORDER</code> with <code>repl</code>, 0 if one of its
+	 * characters has no replacement.
+	 */
+	private float score(int o, int t){
+	    int n = o + MIN_ORDER;
+	    int[] codes = nGrams[o];
+	    int col = nGramCols[o][t];
+	    int index = 0;
+	    for(int k=t*n, end=k+n; k<end; k++){
+		int p = repl[col][codes[k]];
+		if(p == -1){
+		    return 0;
+		}
+		index = index*numPlain + p;
+		if(++col == period){
+		    col = 0;
+		}
+	    }
+	    return nGramCounts[o][t]*logFreq[o][index];
+	}
+
+	/**
+	 * Returns how much the score changes if the shift of the column
+	 * <code>col</code> becomes <code>s</code>.
+	 */
+	private double tryShift(int col, int s){
+	    int[] old = repl[col];
+	    repl[col] = shifted[s];
+	    double delta = 0;
+	    for(int o=0; o<logFreq.length; o++){
+		if(logFreq[o] == null){
+		    continue;
+		}
+		int[] lst = colNGrams[o][col];
+		float[] sc = scores[o];
+		for(int i=0; i<lst.length; i++){
+		    delta += score(o, lst[i]) - sc[lst[i]];
+		}
+	    }
+	    repl[col] = old;
+	    return delta;
+	}
+
+	/**
+	 * Scores again the n-grams that contain a character of the column
+	 * <code>col</code>.
+	 */
+	private void rescore(int col){
+	    for(int o=0; o<logFreq.length; o++){
+		if(logFreq[o] == null){
+		    continue;
+		}
+		int[] lst = colNGrams[o][col];
+		for(int i=0; i<lst.length; i++){
+		    scores[o][lst[i]] = score(o, lst[i]);
+		}
+	    }
+	}
+    }
+}
+/*
+ * -- VigenereSolver.java ends here --
+ */
@@ -0,0 +1,513 @@
+/*
+ * -- WordPatternIndex.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.io.*;
+import java.util.*;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Index of the words of a word list by their letter-repetition pattern:
+ * the pattern of a word has the letter <code>'A'</code> where its first
+ * distinct letter appears, <code>'B'</code> where the second one appears
+ * and so on (the pattern of <code>"that"</code> is <code>"ABCA"</code>).
+ * A monoalphabetic substitution does not change the pattern of a word,
+ * so only the words with the pattern of a ciphertext word can be its
+ * plaintext.<br/>
+ *
+ * The word list is a text file with a word at the beginning of every
+ * line (the rest of the line, e.g. a frequency, is ignored). The words
+ * are put in lower case, those with characters that are not letters are
+ * left out, and the words with the same pattern are kept in the order of
+ * the list, so the most frequent come first if the list is sorted by
+ * frequency. The index is written next to the word list as a binary file
+ * that is memory mapped and, if it is up to date, used instead of the
+ * list. The binary file is made of sorted tables, all the values in big
+ * endian order:
+ * <pre>
+ *   int     MAGIC, VERSION
+ *   long    length of the word list
+ *   int     number of patterns P, number of words W
+ *   int     P+1 offsets of the patterns in the pattern characters
+ *   int     P+1 indices of the first word of every pattern
+ *   int     W+1 offsets of the words in the word characters
+ *   char    pattern characters (the patterns in ascending order)
+ *   char    word characters
+ * </pre>
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class WordPatternIndex{
+
+    /**
+     * The first <code>int</code> of the file ("GZWP") */
+    public static final int MAGIC = 0x475A5750;
+
+    /**
+     * The version of the format */
+    public static final int VERSION = 1;
+
+    /**
+     * The extension of the binary files */
+    public static final String EXTENSION = ".gwp";
+
+    /**
+     * Size in bytes of the header, up to the first table */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * The contents of the file. Only absolute positions are read, so the
+     * index can be used by several threads. */
+    private ByteBuffer buf;
+
+    /**
+     * Number of patterns */
+    private int numPatterns;
+
+    /**
+     * Number of words */
+    private int numWords;
+
+    /**
+     * The positions in <code>buf</code> where the tables start */
+    private int patStartPos;
+
+    private int firstWordPos;
+
+    private int wordStartPos;
+
+    private int patCharsPos;
+
+    private int wordCharsPos;
+
+    /**
+     * Constructor that uses the index in <code>buf</code>, written for
+     * a word list of length <code>listLength</code>.
+     *
+     * @throws IOException if <code>buf</code> does not contain a valid index
+     */
+    private WordPatternIndex(ByteBuffer buf, long listLength)
+	throws IOException
+    {
+	this.buf = buf;
+	try{
+	    if(buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION ||
+	       buf.getLong(8) != listLength){
+		throw new IOException("Invalid word pattern index");
+	    }
+	    numPatterns = buf.getInt(16);
+	    numWords = buf.getInt(20);
+	    if(numPatterns < 0 || numWords < 0){
+		throw new IOException("Invalid word pattern index");
+	    }
+	    patStartPos = HEADER_SIZE;
+	    firstWordPos = patStartPos + (numPatterns+1)*4;
+	    wordStartPos = firstWordPos + (numPatterns+1)*4;
+	    patCharsPos = wordStartPos + (numWords+1)*4;
+	    wordCharsPos = patCharsPos + buf.getInt(patStartPos + numPatterns*4)*2;
+	    if(wordCharsPos + buf.getInt(wordStartPos + numWords*4)*2
+	       > buf.limit()){
+		throw new IOException("Invalid word pattern index");
+	    }
+	}catch(IndexOutOfBoundsException ioobe){
+	    throw new IOException("Invalid word pattern index");
+	}catch(BufferUnderflowException bue){
+	    throw new IOException("Invalid word pattern index");
+	}
+    }
+
+    /**
+     * Returns the index of the word list <code>list</code>. If its binary
+     * file is up to date it is memory mapped, otherwise the list is read
+     * and an attempt is made to write the binary file.
+     *
+     * @param list the word list
+     * @param encoding the encoding of the word list
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws FileNotFoundException if <code>list</code> could not be found
+     * @throws UnsupportedEncodingException if <code>encoding</code> is not supported
+     * @throws IOException if an I/O error occurs
+     */
+    public static WordPatternIndex load(File list, String encoding)
+	throws NullPointerException, FileNotFoundException,
+	       UnsupportedEncodingException, IOException
+    {
+	WordPatternIndex index = openCompanion(list);
+	if(index != null){
+	    return index;
+	}
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	write(list, encoding, bytes);
+	byte[] arr = bytes.toByteArray();
+	try{
+	    FileOutputStream fos = new FileOutputStream(companionOf(list));
+	    try{
+		fos.write(arr);
+	    }finally{
+		fos.close();
+	    }
+	}catch(IOException ioe){
+	    // the index is used from memory
+	    companionOf(list).delete();
+	}catch(SecurityException se){
+	    // the index is used from memory
+	}
+	return new WordPatternIndex(ByteBuffer.wrap(arr), list.length());
+    }
+
+    /**
+     * Returns the binary file that belongs to the word list
+     * <code>list</code>, i.e. the one with the same name and the extension
+     * <code>EXTENSION</code> instead of the extension of the list.
+     *
+     * @param list a word list
+     * @throws NullPointerException if <code>list</code> is <code>null</code>
+     */
+    public static File companionOf(File list) throws NullPointerException
+    {
+	String path = list.getPath();
+	int dot = path.lastIndexOf('.');
+	if(dot > path.lastIndexOf(File.separatorChar)){
+	    path = path.substring(0, dot);
+	}
+	return new File(path + EXTENSION);
+    }
+
+    /**
+     * Opens the binary file that belongs to the word list
+     * <code>list</code> if it exists and is up to date, otherwise returns
+     * <code>null</code>.
+     *
+     * @param list a word list
+     * @throws NullPointerException if <code>list</code> is <code>null</code>
+     */
+    public static WordPatternIndex openCompanion(File list)
+	throws NullPointerException
+    {
+	File f = companionOf(list);
+	try{
+	    if(f.isFile() && f.lastModified() >= list.lastModified()){
+		FileInputStream fis = new FileInputStream(f);
+		ByteBuffer mapped;
+		try{
+		    FileChannel ch = fis.getChannel();
+		    mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}finally{
+		    fis.close();
+		}
+		return new WordPatternIndex(mapped, list.length());
+	    }
+	}catch(IOException ioe){
+	    // read the word list
+	}catch(SecurityException se){
+	    // read the word list
+	}
+	return null;
+    }
+
+    /**
+     * Reads the word list <code>list</code> and writes its index to
+     * <code>os</code>.
+     *
+     * @param list the word list
+     * @param encoding the encoding of the word list
+     * @param os the stream the index is written to
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws FileNotFoundException if <code>list</code> could not be found
+     * @throws UnsupportedEncodingException if <code>encoding</code> is not supported
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(File list, String encoding, OutputStream os)
+	throws NullPointerException, FileNotFoundException,
+	       UnsupportedEncodingException, IOException
+    {
+	if(os == null){
+	    throw new NullPointerException();
+	}
+	final ArrayList words = new ArrayList();
+	HashSet seen = new HashSet();
+	BufferedReader in =
+	    new BufferedReader(new InputStreamReader(new FileInputStream(list),
+						     encoding));
+	try{
+	    String line;
+	    while((line = in.readLine()) != null){
+		String word = firstWord(line);
+		if(word != null && seen.add(word)){
+		    words.add(word);
+		}
+	    }
+	}finally{
+	    in.close();
+	}
+	seen = null;
+	final String[] patterns = new String[words.size()];
+	Integer[] order = new Integer[words.size()];
+	for(int i=0; i<patterns.length; i++){
+	    patterns[i] = patternOf((String)words.get(i));
+	    order[i] = new Integer(i);
+	}
+	// stable, so the words of a pattern keep the order of the list
+	Arrays.sort(order, new Comparator(){
+		public int compare(Object o1, Object o2){
+		    return patterns[((Integer)o1).intValue()].compareTo(patterns[((Integer)o2).intValue()]);
+		}
+	    });
+	int numPats = 0;
+	for(int i=0; i<order.length; i++){
+	    if(i == 0 || !patterns[order[i].intValue()].equals(patterns[order[i-1].intValue()])){
+		numPats++;
+	    }
+	}
+	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+	out.writeInt(MAGIC);
+	out.writeInt(VERSION);
+	out.writeLong(list.length());
+	out.writeInt(numPats);
+	out.writeInt(order.length);
+	// pattern offsets
+	int offset = 0;
+	for(int i=0; i<order.length; i++){
+	    String pat = patterns[order[i].intValue()];
+	    if(i == 0 || !pat.equals(patterns[order[i-1].intValue()])){
+		out.writeInt(offset);
+		offset += pat.length();
+	    }
+	}
+	out.writeInt(offset);
+	// first word of every pattern
+	for(int i=0; i<order.length; i++){
+	    if(i == 0 || !patterns[order[i].intValue()].equals(patterns[order[i-1].intValue()])){
+		out.writeInt(i);
+	    }
+	}
+	out.writeInt(order.length);
+	// word offsets
+	offset = 0;
+	for(int i=0; i<order.length; i++){
+	    out.writeInt(offset);
+	    offset += patterns[order[i].intValue()].length();
+	}
+	out.writeInt(offset);
+	for(int i=0; i<order.length; i++){
+	    String pat = patterns[order[i].intValue()];
+	    if(i == 0 || !pat.equals(patterns[order[i-1].intValue()])){
+		out.writeChars(pat);
+	    }
+	}
+	for(int i=0; i<order.length; i++){
+	    out.writeChars((String)words.get(order[i].intValue()));
+	}
+	out.flush();
+    }
+
+    /**
+     * Returns the first word of <code>line</code> in lower case, or
+     * <code>null</code> if the line is empty or its first word has
+     * characters that are not letters.
+     */
+    private static final String firstWord(String line){
+	int start = 0;
+	int len = line.length();
+	while(start < len && Character.isWhitespace(line.charAt(start))){
+	    start++;
+	}
+	int end = start;
+	while(end < len && !Character.isWhitespace(line.charAt(end))){
+	    end++;
+	}
+	if(start == end){
+	    return null;
+	}
+	char[] word = new char[end - start];
+	for(int i=0; i<word.length; i++){
+	    char c = line.charAt(start + i);
+	    if(!Character.isLetter(c)){
+		return null;
+	    }
+	    word[i] = Character.toLowerCase(c);
+	}
+	return new String(word);
+    }
+
+    /**
+     * Returns the letter-repetition pattern of <code>word</code>.
+     *
+     * @param word the word
+     * @throws NullPointerException if <code>word</code> is <code>null</code>
+     */
+    public static String patternOf(String word) throws NullPointerException
+    {
+	char[] pat = new char[word.length()];
+	int distinct = 0;
+	for(int i=0; i<pat.length; i++){
+	    char c = word.charAt(i);
+	    int j = word.indexOf(c);
+	    pat[i] = j < i ? pat[j] : (char)('A' + distinct++);
+	}
+	return new String(pat);
+    }
+
+    /**
+     * Returns the letter-repetition pattern of the word whose letters are
+     * the codes <code>word</code>.
+     *
+     * @param word the codes of the letters of the word
+     * @throws NullPointerException if <code>word</code> is <code>null</code>
+     */
+    public static String patternOf(int[] word) throws NullPointerException
+    {
+	char[] pat = new char[word.length];
+	int distinct = 0;
+	for(int i=0; i<pat.length; i++){
+	    int j = 0;
+	    while(word[j] != word[i]){
+		j++;
+	    }
+	    pat[i] = j < i ? pat[j] : (char)('A' + distinct++);
+	}
+	return new String(pat);
+    }
+
+    /**
+     * Returns the number of distinct patterns.
+     */
+    public int getNumberOfPatterns(){
+	return numPatterns;
+    }
+
+    /**
+     * Returns the number of words.
+     */
+    public int getNumberOfWords(){
+	return numWords;
+    }
+
+    /**
+     * Returns the index of the pattern <code>pattern</code>, or
+     * <code>-1</code> if no word has that pattern. The patterns are found
+     * by binary search.
+     *
+     * @param pattern a letter-repetition pattern
+     * @throws NullPointerException if <code>pattern</code> is <code>null</code>
+     */
+    public int find(String pattern) throws NullPointerException
+    {
+	int low = 0;
+	int high = numPatterns - 1;
+	while(low <= high){
+	    int mid = (low + high) >>> 1;
+	    int cmp = comparePattern(mid, pattern);
+	    if(cmp < 0){
+		low = mid + 1;
+	    }else if(cmp > 0){
+		high = mid - 1;
+	    }else{
+		return mid;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Compares the pattern at <code>index</code> with <code>pattern</code>
+     * as <code>String.compareTo</code> does.
+     */
+    private final int comparePattern(int index, String pattern){
+	int start = buf.getInt(patStartPos + index*4);
+	int len = buf.getInt(patStartPos + (index+1)*4) - start;
+	int n = Math.min(len, pattern.length());
+	int pos = patCharsPos + start*2;
+	for(int i=0; i<n; i++, pos+=2){
+	    int diff = buf.getChar(pos) - pattern.charAt(i);
+	    if(diff != 0){
+		return diff;
+	    }
+	}
+	return len - pattern.length();
+    }
+
+    /**
+     * Returns the index of the first word with the pattern at
+     * <code>pattern</code>.
+     *
+     * @param pattern the index of the pattern
+     * @throws IndexOutOfBoundsException if <code>pattern</code> is out of range
+     */
+    public int getFirstWord(int pattern) throws IndexOutOfBoundsException
+    {
+	checkPattern(pattern);
+	return buf.getInt(firstWordPos + pattern*4);
+    }
+
+    /**
+     * Returns the index after the last word with the pattern at
+     * <code>pattern</code>.
+     *
+     * @param pattern the index of the pattern
+     * @throws IndexOutOfBoundsException if <code>pattern</code> is out of range
+     */
+    public int getEndWord(int pattern) throws IndexOutOfBoundsException
+    {
+	checkPattern(pattern);
+	return buf.getInt(firstWordPos + (pattern+1)*4);
+    }
+
+    /**
+     * Returns the word at <code>index</code>.
+     *
+     * @param index the index of the word
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range
+     */
+    public String getWord(int index) throws IndexOutOfBoundsException
+    {
+	if(index < 0 || index >= numWords){
+	    throw new IndexOutOfBoundsException("index out of range");
+	}
+	int start = buf.getInt(wordStartPos + index*4);
+	char[] word = new char[buf.getInt(wordStartPos + (index+1)*4) - start];
+	int pos = wordCharsPos + start*2;
+	for(int i=0; i<word.length; i++, pos+=2){
+	    word[i] = buf.getChar(pos);
+	}
+	return new String(word);
+    }
+
+    /**
+     * Throws an <code>IndexOutOfBoundsException</code> if
+     * <code>pattern</code> is not the index of a pattern.
+     */
+    private final void checkPattern(int pattern){
+	if(pattern < 0 || pattern >= numPatterns){
+	    throw new IndexOutOfBoundsException("pattern out of range");
+	}
+    }
+}
+/*
+ * -- WordPatternIndex.java ends here --
+ */
@@ -0,0 +1,574 @@
+/*
+ * -- WordPatternSolver.java --
+ *
+ * Version       Changes
+ * 0.01          First implementation
+ *
+ *
+ * Copyright (C) 2026  agent
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package net.sourceforge.ganzua.text;
+
+import java.util.*;
+import java.text.CollationKey;
+
+/**
+ * Class that searches for the key of a monoalphabetic substitution whose
+ * ciphertext keeps the spaces between words, by matching the ciphertext
+ * words with the words of a <code>WordPatternIndex</code> that have the
+ * same letter-repetition pattern.<br/>
+ *
+ * The search is a backtracking search over the distinct ciphertext
+ * words. At every step the word with the fewest candidates consistent
+ * with the partial key is chosen and each of its candidates is matched
+ * in turn; leaving the word unmatched is one more option, since names and
+ * rare words are not in the list. After every match the candidates of
+ * the remaining words are filtered, so they only get fewer; they are kept
+ * as <code>BitSet</code>s, and the candidates with a given letter in a
+ * given position are precomputed, so filtering is a few
+ * <code>and</code>s.<br/>
+ *
+ * The key that matches the most ciphertext letters (the length of every
+ * word matched times the times it appears) wins. The bound of an option
+ * is the score it has plus the weight of the words that still have
+ * candidates after it; the options are tried from the highest bound down
+ * and the ones that can not beat the best key are dropped. The search is
+ * repeated allowing the first option not to be taken once, twice, and so
+ * on (limited discrepancy search), so an early wrong choice does not hide
+ * the rest of the tree. It stops after <code>maxNodes</code> matches and
+ * the best key found so far is returned.<br/>
+ *
+ * The letters of the words of the list are mapped to the plain alphabet
+ * ignoring case; the words with other letters are left out.
+ *
+ * @author agent
+ * @version 0.01 October 2026
+ */
+public class WordPatternSolver{
+
+    /**
+     * Default maximum number of matches tried by the search */
+    public static final int MAX_NODES = 50000;
+
+    /**
+     * The ciphertext alphabet (<code>CollationKey</code>s) */
+    private List cipherAlpha;
+
+    /**
+     * The plaintext alphabet (<code>CollationKey</code>s) */
+    private List plainAlpha;
+
+    /**
+     * <code>true</code> if two ciphertext characters can not be replaced
+     * by the same plaintext character */
+    private boolean injective;
+
+    /**
+     * The codes of the letters of every distinct ciphertext word */
+    private int[][] words;
+
+    /**
+     * The number of ciphertext letters every word covers: its length
+     * times the times it appears */
+    private int[] weight;
+
+    /**
+     * The plain codes of the candidates of every word */
+    private int[][][] cand;
+
+    /**
+     * For every word, position and plain code, the <code>BitSet</code> of
+     * the candidates that have that plain code in that position,
+     * <code>null</code> if none; shared by the words with a pattern */
+    private BitSet[][][] bits;
+
+    /**
+     * The positions of the first occurrence of every letter of every word */
+    private int[][] firsts;
+
+    /**
+     * The candidates of every word that are consistent with the partial
+     * key and their number */
+    private BitSet[] live;
+
+    private int[] numLive;
+
+    /**
+     * <code>true</code> for the words already matched or left unmatched */
+    private boolean[] decided;
+
+    /**
+     * The plain code of every cipher code, <code>-1</code> if it has not
+     * been assigned */
+    private int[] key;
+
+    /**
+     * The cipher code that has every plain code, <code>-1</code> if none */
+    private int[] owner;
+
+    /**
+     * The best key found and the number of letters it matches */
+    private int[] bestKey;
+
+    private int bestScore;
+
+    /**
+     * The total number of ciphertext letters in words */
+    private int totalWeight;
+
+    /**
+     * Number of matches tried by the search and their maximum */
+    private int nodes;
+
+    private int maxNodes = MAX_NODES;
+
+    /**
+     * <code>true</code> if the last pass of the search left out some
+     * option because it had taken too many that were not the first */
+    private boolean limited;
+
+    /**
+     * Constructor that looks up the candidates of the words
+     * <code>cipherWords</code> in <code>index</code>.
+     *
+     * @param cipherWords a <code>List</code> with the <code>int[]</code>
+     *                    of every ciphertext word, with the indices of its
+     *                    characters in <code>cipherAlpha</code> (see
+     *                    <code>CiphertextManager.getWords</code>)
+     * @param cipherAlpha a sorted <code>List</code> with the
+     *                    <code>CollationKey</code>s of the ciphertext
+     *                    alphabet
+     * @param plainAlpha a sorted <code>List</code> with the
+     *                   <code>CollationKey</code>s of the plaintext
+     *                   alphabet
+     * @param index the words of the language
+     * @param injective <code>true</code> if two ciphertext characters can
+     *                  not be replaced by the same plaintext character
+     * @throws NullPointerException if any of the arguments is <code>null</code>
+     * @throws ArrayIndexOutOfBoundsException if some word has a code that is not an index of <code>cipherAlpha</code>
+     */
+    public WordPatternSolver(List cipherWords,
+			     List cipherAlpha,
+			     List plainAlpha,
+			     WordPatternIndex index,
+			     boolean injective)
+	throws NullPointerException, ArrayIndexOutOfBoundsException
+    {
+	if(cipherWords == null || cipherAlpha == null || plainAlpha == null ||
+	   index == null){
+	    throw new NullPointerException();
+	}
+	this.cipherAlpha = cipherAlpha;
+	this.plainAlpha = plainAlpha;
+	this.injective = injective;
+	// the distinct words and the letters they cover
+	HashMap distinct = new HashMap();
+	ArrayList wordList = new ArrayList();
+	ArrayList weightList = new ArrayList();
+	for(Iterator iter=cipherWords.iterator(); iter.hasNext(); ){
+	    int[] word = (int[])iter.next();
+	    for(int i=0; i<word.length; i++){
+		if(word[i] < 0 || word[i] >= cipherAlpha.size()){
+		    throw new ArrayIndexOutOfBoundsException(word[i]);
+		}
+	    }
+	    String wordKey = new String(toChars(word));
+	    Integer w = (Integer)distinct.get(wordKey);
+	    if(w == null){
+		w = new Integer(wordList.size());
+		distinct.put(wordKey, w);
+		wordList.add(word);
+		weightList.add(new int[1]);
+	    }
+	    ((int[])weightList.get(w.intValue()))[0] += word.length;
+	}
+	int numWords = wordList.size();
+	words = new int[numWords][];
+	weight = new int[numWords];
+	for(int w=0; w<numWords; w++){
+	    words[w] = (int[])wordList.get(w);
+	    weight[w] = ((int[])weightList.get(w))[0];
+	    totalWeight += weight[w];
+	}
+	// the plain code of every lower case letter
+	HashMap plainCodes = new HashMap();
+	for(int i=0; i<plainAlpha.size(); i++){
+	    String str = ((CollationKey)plainAlpha.get(i)).getSourceString();
+	    if(str.length() == 1){
+		Character lower = new Character(Character.toLowerCase(str.charAt(0)));
+		if(!plainCodes.containsKey(lower) || str.equals(lower.toString())){
+		    plainCodes.put(lower, new Integer(i));
+		}
+	    }
+	}
+	// the candidates of every word, shared by the words with a pattern
+	HashMap byPattern = new HashMap();
+	cand = new int[numWords][][];
+	bits = new BitSet[numWords][][];
+	firsts = new int[numWords][];
+	for(int w=0; w<numWords; w++){
+	    String pattern = WordPatternIndex.patternOf(words[w]);
+	    Object[] c = (Object[])byPattern.get(pattern);
+	    if(c == null){
+		int[][] codes = candidates(index, pattern, plainCodes);
+		c = new Object[]{codes, positionBits(codes, pattern.length(),
+						      plainAlpha.size())};
+		byPattern.put(pattern, c);
+	    }
+	    cand[w] = (int[][])c[0];
+	    bits[w] = (BitSet[][])c[1];
+	    int numFirsts = 0;
+	    int[] f = new int[pattern.length()];
+	    for(int j=0; j<f.length; j++){
+		if(pattern.indexOf(pattern.charAt(j)) == j){
+		    f[numFirsts++] = j;
+		}
+	    }
+	    firsts[w] = new int[numFirsts];
+	    System.arraycopy(f, 0, firsts[w], 0, numFirsts);
+	}
+    }
+
+    /**
+     * Returns, for every position and plain code, the <code>BitSet</code>
+     * of the candidates <code>codes</code> that have that plain code in
+     * that position, <code>null</code> if none.
+     */
+    private static final BitSet[][] positionBits(int[][] codes,
+						 int length,
+						 int numPlain){
+	BitSet[][] ret = new BitSet[length][numPlain];
+	for(int i=0; i<codes.length; i++){
+	    for(int j=0; j<length; j++){
+		BitSet b = ret[j][codes[i][j]];
+		if(b == null){
+		    b = ret[j][codes[i][j]] = new BitSet(codes.length);
+		}
+		b.set(i);
+	    }
+	}
+	return ret;
+    }
+
+    /**
+     * Returns the plain codes of the words of <code>index</code> with the
+     * pattern <code>pattern</code> whose letters are all in
+     * <code>plainCodes</code> and keep the pattern once mapped.
+     */
+    private static final int[][] candidates(WordPatternIndex index,
+					    String pattern,
+					    HashMap plainCodes){
+	int p = index.find(pattern);
+	if(p < 0){
+	    return new int[0][];
+	}
+	int end = index.getEndWord(p);
+	ArrayList ret = new ArrayList(end - index.getFirstWord(p));
+	for(int i=index.getFirstWord(p); i<end; i++){
+	    String word = index.getWord(i);
+	    int[] codes = new int[word.length()];
+	    boolean ok = true;
+	    for(int j=0; j<codes.length && ok; j++){
+		Integer code = (Integer)plainCodes.get(new Character(word.charAt(j)));
+		ok = code != null;
+		if(ok){
+		    codes[j] = code.intValue();
+		}
+	    }
+	    if(ok && WordPatternIndex.patternOf(codes).equals(pattern)){
+		ret.add(codes);
+	    }
+	}
+	return (int[][])ret.toArray(new int[ret.size()][]);
+    }
+
+    /**
+     * Returns the codes of <code>word</code> as <code>char</code>s.
+     */
+    private static final char[] toChars(int[] word){
+	char[] ret = new char[word.length];
+	for(int i=0; i<word.length; i++){
+	    ret[i] = (char)word[i];
+	}
+	return ret;
+    }
+
+    /**
+     * Sets the maximum number of matches tried by the search.
+     *
+     * @param n the maximum number of matches
+     * @throws IllegalArgumentException if <code>n</code> is less than 1
+     */
+    public void setMaximumNodes(int n) throws IllegalArgumentException
+    {
+	if(n < 1){
+	    throw new IllegalArgumentException("n < 1");
+	}
+	maxNodes = n;
+    }
+
+    /**
+     * Returns the number of distinct ciphertext words.
+     */
+    public int getNumberOfWords(){
+	return words.length;
+    }
+
+    /**
+     * Searches for the key that matches the most ciphertext letters and
+     * returns it as a <code>HashMap</code> that maps the characters of
+     * the cipher alphabet (<code>CollationKey</code>s) to characters of
+     * the plain alphabet (<code>CollationKey</code>s). Only the
+     * characters of the words matched are mapped; the map is empty if no
+     * word could be matched.
+     */
+    public HashMap solve(){
+	int numWords = words.length;
+	key = new int[cipherAlpha.size()];
+	owner = new int[plainAlpha.size()];
+	bestKey = new int[key.length];
+	Arrays.fill(key, -1);
+	Arrays.fill(owner, -1);
+	Arrays.fill(bestKey, -1);
+	bestScore = 0;
+	nodes = 0;
+	decided = new boolean[numWords];
+	live = new BitSet[numWords];
+	numLive = new int[numWords];
+	for(int w=0; w<numWords; w++){
+	    live[w] = new BitSet(cand[w].length);
+	    live[w].set(0, cand[w].length);
+	    numLive[w] = cand[w].length;
+	}
+	for(int d=0; ; d++){
+	    limited = false;
+	    search(0, d);
+	    if(!limited || nodes >= maxNodes){
+		break;
+	    }
+	}
+	HashMap ret = new HashMap();
+	for(int c=0; c<bestKey.length; c++){
+	    if(bestKey[c] != -1){
+		ret.put(cipherAlpha.get(c), plainAlpha.get(bestKey[c]));
+	    }
+	}
+	live = null;
+	return ret;
+    }
+
+    /**
+     * Returns the fraction of the ciphertext letters in words matched by
+     * the key returned by the last call to <code>solve()</code>.
+     */
+    public double getScore(){
+	return totalWeight == 0 ? 0 : bestScore/(double)totalWeight;
+    }
+
+    /**
+     * Searches the keys that extend the current one, which matches
+     * <code>score</code> letters, taking an option other than the first
+     * at most <code>discrepancies</code> times.
+     */
+    private final void search(int score, int discrepancies){
+	if(nodes >= maxNodes){
+	    return;
+	}
+	// choose the word with the fewest candidates, bound the score
+	int bound = score;
+	int best = -1;
+	for(int w=0; w<words.length; w++){
+	    if(decided[w]){
+		continue;
+	    }
+	    if(numLive[w] > 0){
+		bound += weight[w];
+	    }
+	    if(best == -1 || numLive[w] < numLive[best] ||
+	       (numLive[w] == numLive[best] && weight[w] > weight[best])){
+		best = w;
+	    }
+	}
+	if(score > bestScore){
+	    bestScore = score;
+	    System.arraycopy(key, 0, bestKey, 0, key.length);
+	}
+	if(best == -1 || bound <= bestScore){
+	    return;
+	}
+	decided[best] = true;
+	// the bound left by every candidate and, last, by leaving the word
+	// unmatched; they are tried from the highest bound down
+	int n = numLive[best];
+	int[] option = new int[n+1];
+	int[] optionBound = new int[n+1];
+	int[] assigned = new int[words[best].length];
+	BitSet[] savedLive = new BitSet[words.length];
+	int[] savedNumLive = new int[words.length];
+	int k = 0;
+	for(int i=live[best].nextSetBit(0); i>=0 && nodes<maxNodes;
+	    i=live[best].nextSetBit(i+1)){
+	    int numAssigned = assign(best, i, assigned, savedLive, savedNumLive);
+	    int b = score + weight[best];
+	    for(int w=0; w<words.length; w++){
+		if(!decided[w] && numLive[w] > 0){
+		    b += weight[w];
+		}
+	    }
+	    undo(assigned, numAssigned, savedLive, savedNumLive);
+	    insert(option, optionBound, k++, i, b);
+	}
+	insert(option, optionBound, k++, -1, n > 0 ? bound - weight[best] : bound);
+	for(int j=0; j<k && optionBound[j] > bestScore && nodes<maxNodes; j++){
+	    if(j > 0 && discrepancies == 0){
+		limited = true;
+		break;
+	    }
+	    int d = j == 0 ? discrepancies : discrepancies - 1;
+	    if(option[j] == -1){
+		search(score, d);
+	    }else{
+		int numAssigned = assign(best, option[j], assigned,
+					   savedLive, savedNumLive);
+		search(score + weight[best], d);
+		undo(assigned, numAssigned, savedLive, savedNumLive);
+	    }
+	}
+	decided[best] = false;
+    }
+
+    /**
+     * Inserts the option <code>o</code> with the bound <code>b</code>
+     * after the first <code>k</code> options, which are sorted from the
+     * highest bound down, after the ones with the same bound.
+     */
+    private static final void insert(int[] option, int[] optionBound,
+				     int k, int o, int b){
+	int j = k;
+	for(; j>0 && optionBound[j-1] < b; j--){
+	    option[j] = option[j-1];
+	    optionBound[j] = optionBound[j-1];
+	}
+	option[j] = o;
+	optionBound[j] = b;
+    }
+
+    /**
+     * Matches the word <code>w</code> with its candidate <code>c</code>,
+     * filters the candidates of the other words and returns the number
+     * of cipher codes assigned, which are saved in <code>assigned</code>.
+     */
+    private final int assign(int w, int c, int[] assigned,
+			     BitSet[] savedLive, int[] savedNumLive){
+	int[] word = words[w];
+	int[] plain = cand[w][c];
+	int numAssigned = 0;
+	for(int j=0; j<word.length; j++){
+	    if(key[word[j]] == -1){
+		key[word[j]] = plain[j];
+		owner[plain[j]] = word[j];
+		assigned[numAssigned++] = word[j];
+	    }
+	}
+	filter(assigned, numAssigned, savedLive, savedNumLive);
+	nodes++;
+	return numAssigned;
+    }
+
+    /**
+     * Undoes <code>assign</code>.
+     */
+    private final void undo(int[] assigned, int numAssigned,
+			    BitSet[] savedLive, int[] savedNumLive){
+	for(int w=0; w<words.length; w++){
+	    if(savedLive[w] != null){
+		live[w] = savedLive[w];
+		numLive[w] = savedNumLive[w];
+		savedLive[w] = null;
+	    }
+	}
+	for(int j=0; j<numAssigned; j++){
+	    owner[key[assigned[j]]] = -1;
+	    key[assigned[j]] = -1;
+	}
+    }
+
+    /**
+     * Removes the candidates of the words not decided that are not
+     * consistent with the cipher codes just assigned, the first
+     * <code>numAssigned</code> of <code>assigned</code>, saving the sets
+     * that change in <code>savedLive</code> and <code>savedNumLive</code>.
+     */
+    private final void filter(int[] assigned, int numAssigned,
+			      BitSet[] savedLive, int[] savedNumLive){
+	for(int w=0; w<words.length; w++){
+	    if(decided[w] || numLive[w] == 0){
+		continue;
+	    }
+	    int[] word = words[w];
+	    int[] f = firsts[w];
+	    BitSet lv = live[w];
+	    BitSet filtered = null;
+	    for(int a=0; a<numAssigned; a++){
+		int c = assigned[a];
+		int p = key[c];
+		int pos = -1;
+		for(int j=0; j<f.length && pos == -1; j++){
+		    if(word[f[j]] == c){
+			pos = f[j];
+		    }
+		}
+		if(pos != -1){
+		    // the letter is in the word: keep the candidates with p there
+		    if(filtered == null){
+			filtered = (BitSet)lv.clone();
+		    }
+		    if(bits[w][pos][p] == null){
+			filtered.clear();
+		    }else{
+			filtered.and(bits[w][pos][p]);
+		    }
+		}else if(injective){
+		    // p is taken: drop the candidates with p anywhere else
+		    for(int j=0; j<f.length; j++){
+			BitSet b = bits[w][f[j]][p];
+			if(key[word[f[j]]] == -1 && b != null &&
+			   (filtered == null ? lv : filtered).intersects(b)){
+			    if(filtered == null){
+				filtered = (BitSet)lv.clone();
+			    }
+			    filtered.andNot(b);
+			}
+		    }
+		}
+		if(filtered != null && filtered.isEmpty()){
+		    break;
+		}
+	    }
+	    if(filtered != null){
+		savedLive[w] = lv;
+		savedNumLive[w] = numLive[w];
+		live[w] = filtered;
+		numLive[w] = filtered.cardinality();
+	    }
+	}
+    }
+}
+/*
+ * -- WordPatternSolver.java ends here --
+ */